@@ -0,0 +1,944 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+/**
+ * A class that analyzes many files in one run, without asking
+ * the user anything, for use from scripts and nightly jobs.
+ *
+ * Files are analyzed at the same time on a pool of threads,
+ * each file with its own interpreter, so the parsing code
+ * stays warmed up from one file to the next.
+ * Every input file gets its own results file and error file,
+ * named from patterns where "{name}" is replaced by the
+ * input file's name without its extension, and "{file}"
+ * by its whole name.
+ * If asked to, a line index of each input file is saved beside
+ * it, see LineFetcher, so its invalid lines can be found quickly.
+ * If asked to, the videos of every file analyzed so far are
+ * also served over HTTP, see StatisticServer, each creator's
+ * videos from different files counted together, and what has
+ * been read so far can be printed every so often, see IngestMetrics.
+ * Files whose lines have another layout, such as more categories
+ * or fewer name tokens, can be read with a RatingSchema.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-20
+ */
+public class BatchProcessor
+{
+    /* non-instance fields: constants */
+    private static final String DEFAULT_ERROR_PATTERN
+    = "{name}.invalidLines.text";
+    private static final String DEFAULT_RESULT_PATTERN
+    = "{name}.videoResults.text";
+    private static final String GLOB_CHARACTERS = "*?[{";
+    private static final int STATUS_WRONG_RATING_TYPE = -2;
+    private static final int STATUS_WRONG_TOKEN_COUNT = -1;
+
+    /* instance fields */
+    private int bottomCount;
+    private boolean distribution;
+    private long errorLimit;
+    private String errorPattern;
+    private int errorSampleRate;
+    private boolean errorSummary;
+    private ArrayList<String> inputArgument;
+    private String ingestMode;
+    private boolean lineIndex;
+    private long metricsInterval;
+    private String outputDirectory;
+    private int rangeWorkers;
+    private String rankName;
+    private String reportFormat;
+    private String resultPattern;
+    private RatingSchema schema;
+    private int servePort;
+    private ArrayList<Video> servedVideo;
+    private HashMap<String, Video> servedVideoOfCreator;
+    private StatisticServer server;
+    private String snapshotPattern;
+    private boolean spread;
+    private int threads;
+    private int topCount;
+
+    /* constructors */
+    /**
+     * Initializes a new batch processor with the default settings.
+     */
+    public BatchProcessor()
+    {
+        bottomCount = 0;
+        distribution = false;
+        errorLimit = Long.MAX_VALUE;
+        errorPattern = DEFAULT_ERROR_PATTERN;
+        errorSampleRate = 1;
+        errorSummary = false;
+        inputArgument = new ArrayList<String>();
+        ingestMode = "mapped";
+        lineIndex = false;
+        metricsInterval = 0;
+        outputDirectory = ".";
+        rangeWorkers = Runtime.getRuntime().availableProcessors();
+        rankName = "overall";
+        reportFormat = "text";
+        resultPattern = DEFAULT_RESULT_PATTERN;
+        schema = RatingSchema.DEFAULT;
+        servePort = -1;
+        servedVideo = new ArrayList<Video>();
+        servedVideoOfCreator = new HashMap<String, Video>();
+        server = null;
+        snapshotPattern = null;
+        spread = false;
+        threads = Runtime.getRuntime().availableProcessors();
+        topCount = 0;
+    } // end of constructor BatchProcessor()
+
+    /* public interface */
+    /**
+     * Sets this processor's settings and input files from
+     * command line arguments.
+     *
+     * @param argument the command line arguments.
+     * @return true if the arguments could be understood.
+     */
+    public boolean setOptions(String[] argument)
+    {
+        int index = 0;
+        while (index < argument.length)
+        {
+            String currentArgument = argument[index];
+            if (!currentArgument.startsWith("--"))
+            {
+                inputArgument.add(currentArgument);
+                index = index + 1;
+                continue;
+            } // end of if (!currentArgument.startsWith("--"))
+
+            // Every option takes a value.
+            if (index + 1 == argument.length)
+            {
+                return false;
+            } // end of if (index + 1 == argument.length)
+            String value = argument[index + 1];
+            index = index + 2;
+
+            if (currentArgument.equals("--output-dir"))
+            {
+                outputDirectory = value;
+            }
+            else if (currentArgument.equals("--results-name"))
+            {
+                resultPattern = value;
+            }
+            else if (currentArgument.equals("--errors-name"))
+            {
+                errorPattern = value;
+            }
+            else if (currentArgument.equals("--snapshot-name"))
+            {
+                snapshotPattern = value;
+            }
+            else if (currentArgument.equals("--mode"))
+            {
+                ingestMode = value;
+            }
+            else if (currentArgument.equals("--format"))
+            {
+                if (!new ReportWriter().setFormat(value))
+                {
+                    return false;
+                } // end of if (!new ReportWriter().setFormat(value))
+                reportFormat = value;
+            }
+            else if (currentArgument.equals("--rank-by"))
+            {
+                rankName = value;
+            }
+            else if (currentArgument.equals("--schema"))
+            {
+                schema = RatingSchema.load(value);
+                if (schema == null)
+                {
+                    System.out.println("Error: " + value
+                    + " is not a schema that could be read.");
+                    return false;
+                } // end of if (schema == null)
+            }
+            else if (currentArgument.equals("--error-summary"))
+            {
+                errorSummary = Boolean.parseBoolean(value);
+            }
+            else if (currentArgument.equals("--line-index"))
+            {
+                lineIndex = Boolean.parseBoolean(value);
+            }
+            else if (currentArgument.equals("--distribution"))
+            {
+                distribution = Boolean.parseBoolean(value);
+            }
+            else if (currentArgument.equals("--spread"))
+            {
+                spread = Boolean.parseBoolean(value);
+            }
+            else if (!setNumberOption(currentArgument, value))
+            {
+                // Not an option we know, or not a number.
+                return false;
+            } // end of if (currentArgument.equals("--output-dir"))
+        } // end of while (index < argument.length)
+
+        // Category names depend on the schema, whatever the order.
+        VideoRanker ranker = new VideoRanker();
+        ranker.setSchema(schema);
+        if (!ranker.setRankBy(rankName))
+        {
+            return false;
+        } // end of if (!ranker.setRankBy(rankName))
+
+        // Distributions need a count for every score the schema allows.
+        if (distribution && !schema.canBinRatings())
+        {
+            System.out.println("Error: The schema allows too many "
+            + "different ratings for --distribution.");
+            return false;
+        } // end of if (distribution && !schema.canBinRatings())
+
+        return !inputArgument.isEmpty() && threads > 0 && errorLimit >= 0
+        && errorSampleRate > 0 && (ingestMode.equals("stream")
+        || ingestMode.equals("mapped") || ingestMode.equals("parallel"))
+        && topCount >= 0 && bottomCount >= 0
+        && (topCount == 0 || bottomCount == 0)
+        && servePort >= -1 && servePort <= 65535 && metricsInterval >= 0;
+    } // end of method setOptions(String[] argument)
+
+    /**
+     * Analyzes every input file, printing a line
+     * about each one as it is finished.
+     *
+     * @return true if every file was analyzed, false otherwise.
+     */
+    public boolean run()
+    {
+        ArrayList<Path> inputFile;
+        try
+        {
+            inputFile = findInputFiles();
+        }
+        catch (IOException exception)
+        {
+            System.out.println("Error: Could not list the input files: "
+            + exception.getMessage());
+            return false;
+        } // end of catch (IOException exception)
+
+        if (inputFile.isEmpty())
+        {
+            System.out.println("Error: No input files were found.");
+            return false;
+        } // end of if (inputFile.isEmpty())
+
+        /* Work out every output file first, so that
+         * two inputs can't write over each other's output.
+         */
+        ArrayList<Callable<FileOutcome>> task
+        = new ArrayList<Callable<FileOutcome>>();
+        HashSet<Path> outputFile = new HashSet<Path>();
+        boolean everyFileAnalyzed = true;
+        for (Path currentInput : inputFile)
+        {
+            Path resultFile = outputPath(resultPattern, currentInput);
+            Path errorFile = outputPath(errorPattern, currentInput);
+            boolean namesClash = !outputFile.add(resultFile)
+            || !outputFile.add(errorFile);
+            if (snapshotPattern != null)
+            {
+                namesClash = namesClash
+                || !outputFile.add(outputPath(snapshotPattern, currentInput));
+            } // end of if (snapshotPattern != null)
+            if (namesClash)
+            {
+                System.out.println(currentInput + ": skipped, its output "
+                + "files have the same name as another input's.");
+                everyFileAnalyzed = false;
+                continue;
+            } // end of if (namesClash)
+            task.add(createTask(currentInput, resultFile, errorFile));
+        } // end of for (Path currentInput : inputFile)
+
+        // Files read in parallel at the same time share the processors.
+        int filesAtOnce = Math.max(1, Math.min(threads, task.size()));
+        rangeWorkers = Math.max(1,
+        Runtime.getRuntime().availableProcessors() / filesAtOnce);
+
+        if (servePort >= 0)
+        {
+            server = new StatisticServer();
+            server.setSchema(schema);
+            if (!server.start(servePort))
+            {
+                return false;
+            } // end of if (!server.start(servePort))
+            System.out.println("Serving statistics on port "
+            + server.getPort() + ".");
+        } // end of if (servePort >= 0)
+
+        if (metricsInterval > 0)
+        {
+            IngestMetrics.getMetrics().startLogging(metricsInterval);
+        } // end of if (metricsInterval > 0)
+
+        // Analyze the files on the pool, reporting in input order.
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try
+        {
+            ArrayList<Future<FileOutcome>> outcome
+            = new ArrayList<Future<FileOutcome>>();
+            for (Callable<FileOutcome> currentTask : task)
+            {
+                outcome.add(pool.submit(currentTask));
+            } // end of for (Callable<FileOutcome> currentTask : task)
+
+            for (Future<FileOutcome> currentOutcome : outcome)
+            {
+                FileOutcome fileOutcome = waitFor(currentOutcome);
+                System.out.println(fileOutcome.message);
+                if (!fileOutcome.analyzed)
+                {
+                    everyFileAnalyzed = false;
+                } // end of if (!fileOutcome.analyzed)
+            } // end of for (Future<FileOutcome> currentOutcome : outcome)
+        }
+        finally
+        {
+            pool.shutdown();
+        } // end of finally
+
+        if (metricsInterval > 0)
+        {
+            IngestMetrics.getMetrics().stopLogging();
+            System.out.println(IngestMetrics.getMetrics().summaryLine());
+        } // end of if (metricsInterval > 0)
+
+        // The server's threads keep the program going until it is stopped.
+        if (server != null)
+        {
+            System.out.println("Still serving statistics on port "
+            + server.getPort() + ", press Ctrl-C to stop.");
+        } // end of if (server != null)
+        return everyFileAnalyzed;
+    } // end of method run()
+
+    /**
+     * Prints how to use batch mode.
+     */
+    public static void printUsage()
+    {
+        System.out.println("Usage: java Main [option value ...] "
+        + "input ...");
+        System.out.println("Each input is a file, a folder, or a glob "
+        + "like \"data/*.text\".");
+        System.out.println("Options:");
+        System.out.println("  --output-dir DIR      where output files "
+        + "go (default .)");
+        System.out.println("  --results-name NAME   results file name "
+        + "(default " + DEFAULT_RESULT_PATTERN + ")");
+        System.out.println("  --errors-name NAME    invalid lines file "
+        + "name (default " + DEFAULT_ERROR_PATTERN + ")");
+        System.out.println("  --snapshot-name NAME  also save a snapshot "
+        + "of each file's videos");
+        System.out.println("  --mode MODE           stream, mapped or "
+        + "parallel (default mapped)");
+        System.out.println("  --format FORMAT       results as text, csv, "
+        + "json or jsonl (default text)");
+        System.out.println("  --distribution BOOL   also write medians, "
+        + "percentiles and modes (default false)");
+        System.out.println("  --spread BOOL         also write variances "
+        + "and standard deviations (default false)");
+        System.out.println("  --top N               only write the N "
+        + "videos with the highest averages");
+        System.out.println("  --bottom N            only write the N "
+        + "videos with the lowest averages");
+        System.out.println("  --rank-by NAME        content, layout, "
+        + "technical, creativity or overall (default overall)");
+        System.out.println("  --schema FILE         the layout of the "
+        + "lines, for other rating forms");
+        System.out.println("  --error-limit N       most lines of each "
+        + "error to write (default: all)");
+        System.out.println("  --error-sample N      write one of every N "
+        + "lines of each error (default 1)");
+        System.out.println("  --error-summary BOOL  end error files with "
+        + "counts (default false)");
+        System.out.println("  --line-index BOOL     save a line index "
+        + "beside each mapped or parallel input");
+        System.out.println("  --threads N           files analyzed at "
+        + "once (default: processors)");
+        System.out.println("  --serve PORT          also serve the "
+        + "statistics over HTTP until stopped");
+        System.out.println("  --metrics-ms N        print what has been "
+        + "read every N milliseconds");
+        System.out.println("In names, {name} is the input file name "
+        + "without its extension, and {file} is the whole name.");
+        System.out.println("Snapshots and record files can be given "
+        + "as inputs, and are loaded instead of read line by line.");
+        System.out.println("Run without arguments to be asked "
+        + "for a single file instead.");
+    } // end of method printUsage()
+
+    /* private implementation */
+    /**
+     * Sets one of the options that take a number.
+     *
+     * @param option the option, like "--threads".
+     * @param value the number, as text.
+     * @return true if the option and number could be understood.
+     */
+    private boolean setNumberOption(String option, String value)
+    {
+        try
+        {
+            if (option.equals("--threads"))
+            {
+                threads = Integer.parseInt(value);
+            }
+            else if (option.equals("--error-limit"))
+            {
+                errorLimit = Long.parseLong(value);
+            }
+            else if (option.equals("--error-sample"))
+            {
+                errorSampleRate = Integer.parseInt(value);
+            }
+            else if (option.equals("--top"))
+            {
+                topCount = Integer.parseInt(value);
+            }
+            else if (option.equals("--bottom"))
+            {
+                bottomCount = Integer.parseInt(value);
+            }
+            else if (option.equals("--serve"))
+            {
+                servePort = Integer.parseInt(value);
+            }
+            else if (option.equals("--metrics-ms"))
+            {
+                metricsInterval = Long.parseLong(value);
+            }
+            else
+            {
+                return false;
+            } // end of if (option.equals("--threads"))
+        }
+        catch (NumberFormatException exception)
+        {
+            return false;
+        } // end of catch (NumberFormatException exception)
+        return true;
+    } // end of method setNumberOption(String option, String value)
+
+    /**
+     * Turns the input arguments into a list of files,
+     * listing folders and expanding globs.
+     *
+     * @return the input files, in the order given.
+     * @throws IOException if a folder could not be listed.
+     */
+    private ArrayList<Path> findInputFiles() throws IOException
+    {
+        ArrayList<Path> inputFile = new ArrayList<Path>();
+        for (String currentArgument : inputArgument)
+        {
+            if (isGlob(currentArgument))
+            {
+                addGlobMatches(currentArgument, inputFile);
+                continue;
+            } // end of if (isGlob(currentArgument))
+
+            Path inputPath = Paths.get(currentArgument);
+            if (Files.isDirectory(inputPath))
+            {
+                addFolderFiles(inputPath, inputFile);
+            }
+            else
+            {
+                // Missing files are reported when they are analyzed.
+                inputFile.add(inputPath);
+            } // end of if (Files.isDirectory(inputPath))
+        } // end of for (String currentArgument : inputArgument)
+        return inputFile;
+    } // end of method findInputFiles()
+
+    /**
+     * Checks if the given argument is a glob pattern.
+     *
+     * @param argument an input argument.
+     * @return true if it has glob characters, false otherwise.
+     */
+    private boolean isGlob(String argument)
+    {
+        for (int index = 0; index < argument.length(); index++)
+        {
+            if (GLOB_CHARACTERS.indexOf(argument.charAt(index)) >= 0)
+            {
+                return true;
+            } // end of if (GLOB_CHARACTERS.indexOf(...) >= 0)
+        } // end of for (int index = 0; ...)
+        return false;
+    } // end of method isGlob(String argument)
+
+    /**
+     * Adds every regular file of a folder, sorted by name.
+     *
+     * @param folder the folder to list.
+     * @param inputFile the list to add the files to.
+     * @throws IOException if the folder could not be listed.
+     */
+    private void addFolderFiles(Path folder, ArrayList<Path> inputFile)
+    throws IOException
+    {
+        ArrayList<Path> folderFile = new ArrayList<Path>();
+        DirectoryStream<Path> folderStream = Files.newDirectoryStream(folder);
+        try
+        {
+            for (Path currentPath : folderStream)
+            {
+                if (Files.isRegularFile(currentPath))
+                {
+                    folderFile.add(currentPath);
+                } // end of if (Files.isRegularFile(currentPath))
+            } // end of for (Path currentPath : folderStream)
+        }
+        finally
+        {
+            folderStream.close();
+        } // end of finally
+        Collections.sort(folderFile);
+        inputFile.addAll(folderFile);
+    } // end of method addFolderFiles(Path folder, ...)
+
+    /**
+     * Adds every regular file matching a glob, sorted by path.
+     * The folders before the first glob character are where
+     * the search starts; "**" searches folders inside as well.
+     *
+     * @param glob the glob pattern.
+     * @param inputFile the list to add the files to.
+     * @throws IOException if a folder could not be listed.
+     */
+    private void addGlobMatches(String glob, ArrayList<Path> inputFile)
+    throws IOException
+    {
+        // Find the folder to start searching from.
+        int firstGlobIndex = 0;
+        while (GLOB_CHARACTERS.indexOf(glob.charAt(firstGlobIndex)) < 0)
+        {
+            firstGlobIndex = firstGlobIndex + 1;
+        } // end of while (GLOB_CHARACTERS.indexOf(...) < 0)
+        int separatorIndex = Math.max(glob.lastIndexOf('/', firstGlobIndex),
+        glob.lastIndexOf(File.separatorChar, firstGlobIndex));
+
+        Path baseFolder = Paths.get(".");
+        String pattern = "./" + glob;
+        if (separatorIndex >= 0)
+        {
+            baseFolder = Paths.get(glob.substring(0, separatorIndex + 1));
+            pattern = glob;
+        } // end of if (separatorIndex >= 0)
+
+        PathMatcher matcher
+        = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        ArrayList<Path> matchingFile = new ArrayList<Path>();
+        Stream<Path> folderWalk = Files.walk(baseFolder);
+        try
+        {
+            Iterator<Path> walk = folderWalk.iterator();
+            while (walk.hasNext())
+            {
+                Path currentPath = walk.next();
+                if (matcher.matches(currentPath)
+                    && Files.isRegularFile(currentPath))
+                {
+                    matchingFile.add(currentPath);
+                } // end of if (matcher.matches(currentPath) && ...)
+            } // end of while (walk.hasNext())
+        }
+        finally
+        {
+            folderWalk.close();
+        } // end of finally
+        Collections.sort(matchingFile);
+        inputFile.addAll(matchingFile);
+    } // end of method addGlobMatches(String glob, ...)
+
+    /**
+     * Works out the path of an output file for an input file.
+     *
+     * @param namePattern the pattern of the output file's name.
+     * @param inputFile the input file.
+     * @return the path of the output file.
+     */
+    private Path outputPath(String namePattern, Path inputFile)
+    {
+        String fileName = inputFile.getFileName().toString();
+        String baseName = fileName;
+        int dotIndex = fileName.lastIndexOf('.');
+        if (dotIndex > 0)
+        {
+            baseName = fileName.substring(0, dotIndex);
+        } // end of if (dotIndex > 0)
+
+        String outputName = namePattern.replace("{name}", baseName)
+        .replace("{file}", fileName);
+        return Paths.get(outputDirectory).resolve(outputName).normalize();
+    } // end of method outputPath(String namePattern, Path inputFile)
+
+    /**
+     * Creates the task that analyzes one input file.
+     *
+     * @param inputFile the file to analyze.
+     * @param resultFile where to print the video results.
+     * @param errorFile where to print the invalid lines.
+     * @return the task, giving back how it went.
+     */
+    private Callable<FileOutcome> createTask(final Path inputFile,
+    final Path resultFile, final Path errorFile)
+    {
+        return new Callable<FileOutcome>()
+        {
+            @Override
+            public FileOutcome call()
+            {
+                return analyzeFile(inputFile, resultFile, errorFile);
+            } // end of method call()
+        };
+    } // end of method createTask(Path inputFile, ...)
+
+    /**
+     * Analyzes one input file and prints its results.
+     *
+     * @param inputFile the file to analyze.
+     * @param resultFile where to print the video results.
+     * @param errorFile where to print the invalid lines.
+     * @return whether the file was analyzed, with a line about how
+     * it went.
+     */
+    private FileOutcome analyzeFile(Path inputFile, Path resultFile,
+    Path errorFile)
+    {
+        long startTime = System.nanoTime();
+        if (!createParentFolder(resultFile) || !createParentFolder(errorFile))
+        {
+            return failure(inputFile, "could not create output folder.");
+        } // end of if (!createParentFolder(resultFile) || ...)
+
+        // Saved videos can only be read with the schema they were made for.
+        RatingSchema savedSchema = readSavedSchema(inputFile.toString());
+        if (savedSchema != null && !savedSchema.hasSameLayout(schema))
+        {
+            return failure(inputFile, "it was made for another schema.");
+        } // end of if (savedSchema != null && ...)
+
+        FileInterpreter interpreter = new FileInterpreter();
+        interpreter.setSchema(schema);
+        // Only the totals of each video are printed.
+        interpreter.setKeepRawRatings(false);
+        interpreter.setKeepLineIndex(lineIndex);
+        interpreter.setParallelism(rangeWorkers);
+        if (!interpreter.setErrorFile(errorFile.toString()))
+        {
+            return failure(inputFile, "could not create " + errorFile);
+        } // end of if (!interpreter.setErrorFile(...))
+        setErrorReporting(interpreter.getErrorReporter());
+
+        boolean couldAccessFile = interpretFile(interpreter,
+        inputFile.toString());
+        if (!couldAccessFile)
+        {
+            return failure(inputFile, "could not access file.");
+        } // end of if (!couldAccessFile)
+        if (!interpreter.closeErrorFile())
+        {
+            return failure(inputFile, "could not write " + errorFile);
+        } // end of if (!interpreter.closeErrorFile())
+
+        ArrayList<Video> video = interpreter.getVideoSet();
+        StatisticExtractor extractor = new StatisticExtractor();
+        extractor.setMetrics(IngestMetrics.getMetrics());
+        extractor.extractStatistics(video);
+        if (server != null)
+        {
+            serveVideos(video);
+        } // end of if (server != null)
+        try
+        {
+            writeResults(rankVideos(video), resultFile);
+        }
+        catch (IOException exception)
+        {
+            return failure(inputFile, "could not write " + resultFile);
+        } // end of catch (IOException exception)
+
+        if (snapshotPattern != null)
+        {
+            Path snapshotFile = outputPath(snapshotPattern, inputFile);
+            if (!createParentFolder(snapshotFile)
+                || !interpreter.saveSnapshot(snapshotFile.toString()))
+            {
+                return failure(inputFile,
+                "could not save " + snapshotFile);
+            } // end of if (!createParentFolder(snapshotFile) || ...)
+        } // end of if (snapshotPattern != null)
+
+        // Streamed, snapshot and record inputs have no line index.
+        LineOffsetIndex fileIndex = interpreter.getLineIndex();
+        if (lineIndex && fileIndex.getEntryCount() > 0)
+        {
+            String indexFile = inputFile + ".lines";
+            if (!fileIndex.save(indexFile))
+            {
+                return failure(inputFile, "could not save " + indexFile);
+            } // end of if (!fileIndex.save(indexFile))
+        } // end of if (lineIndex && fileIndex.getEntryCount() > 0)
+
+        long elapsed = (System.nanoTime() - startTime) / 1000000;
+        return new FileOutcome(true, inputFile + ": " + video.size()
+        + " videos in " + elapsed + " ms -> " + resultFile);
+    } // end of method analyzeFile(Path inputFile, ...)
+
+    /**
+     * Makes the outcome of a file that could not be analyzed.
+     *
+     * @param inputFile the file that could not be analyzed.
+     * @param reason why not, like "could not access file."
+     * @return the failed outcome, with a line about what went wrong.
+     */
+    private static FileOutcome failure(Path inputFile, String reason)
+    {
+        return new FileOutcome(false, inputFile + ": error, " + reason);
+    } // end of method failure(Path inputFile, String reason)
+
+    /**
+     * Picks the videos to write, if this processor was told to
+     * write only the highest or lowest ones.
+     *
+     * @param video the videos, with their statistics extracted.
+     * @return the videos to write, best first if ranked.
+     */
+    private ArrayList<Video> rankVideos(ArrayList<Video> video)
+    {
+        VideoRanker ranker = new VideoRanker();
+        ranker.setSchema(schema);
+        ranker.setRankBy(rankName);
+        if (topCount > 0)
+        {
+            return ranker.highest(video, topCount);
+        }
+        else if (bottomCount > 0)
+        {
+            return ranker.lowest(video, bottomCount);
+        } // end of if (topCount > 0)
+        return video;
+    } // end of method rankVideos(ArrayList<Video> video)
+
+    /**
+     * Adds a file's videos to the ones being served, and publishes
+     * them all. Files finish on different threads, so only one
+     * file's videos are added at a time.
+     *
+     * @param video the videos of the file.
+     */
+    private synchronized void serveVideos(ArrayList<Video> video)
+    {
+        for (Video currentVideo : video)
+        {
+            String creator = currentVideo.getVideoCreator();
+            Video served = servedVideoOfCreator.get(creator);
+            if (served == null)
+            {
+                served = new Video(creator, false, schema);
+                servedVideoOfCreator.put(creator, served);
+                servedVideo.add(served);
+            } // end of if (served == null)
+            served.mergeVideo(currentVideo);
+        } // end of for (Video currentVideo : video)
+        server.publish(servedVideo);
+    } // end of method serveVideos(ArrayList<Video> video)
+
+    /**
+     * Sets the limit, sampling and summary of an error file
+     * the way this processor was told to.
+     *
+     * @param reporter the reporter of the error file.
+     */
+    private void setErrorReporting(InvalidLineReporter reporter)
+    {
+        for (int statusOfLine = STATUS_WRONG_RATING_TYPE;
+        statusOfLine <= STATUS_WRONG_TOKEN_COUNT; statusOfLine++)
+        {
+            reporter.setLimit(statusOfLine, errorLimit);
+            reporter.setSampleRate(statusOfLine, errorSampleRate);
+        } // end of for (int statusOfLine = STATUS_WRONG_RATING_TYPE; ...)
+        reporter.setWriteSummary(errorSummary);
+    } // end of method setErrorReporting(InvalidLineReporter reporter)
+
+    /**
+     * Reads the schema a snapshot or a record file was made for.
+     *
+     * @param fileName the name of the file.
+     * @return the schema, or null if the file is neither,
+     * or could not be read.
+     */
+    private RatingSchema readSavedSchema(String fileName)
+    {
+        if (VideoSnapshot.isSnapshot(fileName))
+        {
+            return VideoSnapshot.readSchema(fileName);
+        }
+        else if (RatingRecordReader.isRecordFile(fileName))
+        {
+            return RatingRecordReader.readSchema(fileName);
+        } // end of if (VideoSnapshot.isSnapshot(fileName))
+        return null;
+    } // end of method readSavedSchema(String fileName)
+
+    /**
+     * Interprets a file the way this processor was told to,
+     * or loads it if it is a snapshot or a record file.
+     *
+     * @param interpreter the interpreter to use.
+     * @param fileName the name of the file.
+     * @return true if the file could be accessed, false otherwise.
+     */
+    private boolean interpretFile(FileInterpreter interpreter,
+    String fileName)
+    {
+        if (VideoSnapshot.isSnapshot(fileName))
+        {
+            return interpreter.loadSnapshot(fileName);
+        }
+        else if (RatingRecordReader.isRecordFile(fileName))
+        {
+            return interpreter.accessAndInterpretRecordFile(fileName);
+        }
+        else if (ingestMode.equals("stream"))
+        {
+            return interpreter.accessAndInterpretFile(fileName);
+        }
+        else if (ingestMode.equals("parallel"))
+        {
+            return interpreter.accessAndInterpretFileInParallel(fileName);
+        } // end of if (VideoSnapshot.isSnapshot(fileName))
+        return interpreter.accessAndInterpretMappedFile(fileName);
+    } // end of method interpretFile(FileInterpreter interpreter, ...)
+
+    /**
+     * Prints the details of every video to a file, in this
+     * processor's format. The text format is the same as
+     * StatisticDisplay's.
+     *
+     * @param video the videos to print.
+     * @param resultFile the file to print to.
+     * @throws IOException if the file could not be written.
+     */
+    private void writeResults(ArrayList<Video> video, Path resultFile)
+    throws IOException
+    {
+        ReportWriter writer = new ReportWriter();
+        writer.setSchema(schema);
+        writer.setFormat(reportFormat);
+        writer.setWriteDistribution(distribution);
+        writer.setWriteSpread(spread);
+        writer.setMetrics(IngestMetrics.getMetrics());
+        if (!writer.writeReport(video, resultFile.toString()))
+        {
+            throw new IOException("Could not write " + resultFile);
+        } // end of if (!writer.writeReport(video, resultFile.toString()))
+    } // end of method writeResults(ArrayList<Video> video, ...)
+
+    /**
+     * Makes the folder an output file goes in, if it is missing.
+     *
+     * @param outputFile the output file.
+     * @return true if the folder exists, false otherwise.
+     */
+    private boolean createParentFolder(Path outputFile)
+    {
+        Path parentFolder = outputFile.toAbsolutePath().getParent();
+        try
+        {
+            Files.createDirectories(parentFolder);
+        }
+        catch (IOException exception)
+        {
+            return false;
+        } // end of catch (IOException exception)
+        return true;
+    } // end of method createParentFolder(Path outputFile)
+
+    /**
+     * Waits for a file's task to finish.
+     *
+     * @param outcome the outcome of the task.
+     * @return how the task went.
+     */
+    private FileOutcome waitFor(Future<FileOutcome> outcome)
+    {
+        try
+        {
+            return outcome.get();
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            return new FileOutcome(false,
+            "Batch: error, interrupted while waiting.");
+        }
+        catch (ExecutionException exception)
+        {
+            return new FileOutcome(false,
+            "Batch: error, " + exception.getCause());
+        } // end of catch (ExecutionException exception)
+    } // end of method waitFor(Future<FileOutcome> outcome)
+
+    /**
+     * How the analysis of one input file went.
+     */
+    private static class FileOutcome
+    {
+        /* instance fields */
+        private boolean analyzed;
+        private String message;
+
+        /* constructors */
+        /**
+         * Initializes a new outcome.
+         *
+         * @param wasAnalyzed true if the file was analyzed and
+         * all of its output written, false otherwise.
+         * @param outcomeMessage the line to print about how it went.
+         */
+        private FileOutcome(boolean wasAnalyzed, String outcomeMessage)
+        {
+            analyzed = wasAnalyzed;
+            message = outcomeMessage;
+        } // end of constructor FileOutcome(boolean wasAnalyzed, ...)
+
+    } // end of class FileOutcome
+
+} // end of class BatchProcessor
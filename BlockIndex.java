@@ -0,0 +1,384 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+/**
+ * Where each block of a ratings file is, kept beside the file so
+ * that one block can be analyzed again without reading the rest.
+ *
+ * A block starts at a "Block" line, such as "Block A", and runs
+ * up to the next one. The same block can come back many times in
+ * a file, so each block has one section for every time it starts:
+ * the byte offsets the section starts and ends at, and how many
+ * lines of the file come before it, so invalid lines can still be
+ * numbered as in the whole file. Lines before the first "Block"
+ * line make up a block of their own, named NO_BLOCK.
+ *
+ * An index file starts with the magic number "VRBI" and a format
+ * version, then the size and last change time of the ratings file,
+ * so an index that no longer matches its file is not used. Then
+ * come the block names, in the order they were first seen, each
+ * as a length and its UTF-8 bytes, then the sections, in file
+ * order, and a second magic number to mark the end.
+ *
+ * @author Preenon Chisty
+ * @version 2017-02-03
+ */
+public class BlockIndex
+{
+    /* non-instance fields: constants */
+    /** The name of the block of lines that come before any "Block" line. */
+    public static final String NO_BLOCK = "No block";
+
+    private static final int END_MAGIC = 0x56524245;
+    private static final int MAGIC = 0x56524249;
+    private static final int SECTION_SIZE = 28;
+    private static final int VERSION = 1;
+
+    /* instance fields */
+    private ArrayList<String> blockName;
+    private long dataFileModified;
+    private long dataFileSize;
+    private int[] sectionBlock;
+    private int sectionCount;
+    private long[] sectionEnd;
+    private long[] sectionFirstLine;
+    private long[] sectionStart;
+
+    /* constructors */
+    /**
+     * Initializes a new, empty index.
+     */
+    public BlockIndex()
+    {
+        blockName = new ArrayList<String>();
+        dataFileModified = 0;
+        dataFileSize = 0;
+        sectionBlock = new int[16];
+        sectionCount = 0;
+        sectionEnd = new long[16];
+        sectionFirstLine = new long[16];
+        sectionStart = new long[16];
+    } // end of constructor BlockIndex()
+
+    /* public interface */
+    /**
+     * Remembers the size and last change time of the ratings file
+     * this index is for, as they are now.
+     *
+     * @param fileName the name of the ratings file.
+     * @return true if they could be found, false otherwise.
+     */
+    public boolean setDataFile(String fileName)
+    {
+        try
+        {
+            Path dataFile = Paths.get(fileName);
+            dataFileSize = Files.size(dataFile);
+            dataFileModified = Files.getLastModifiedTime(dataFile).toMillis();
+        }
+        catch (IOException exception)
+        {
+            return false;
+        } // end of catch (IOException exception)
+        return true;
+    } // end of method setDataFile(String fileName)
+
+    /**
+     * Checks if a ratings file is still the same as when this
+     * index was made, going by its size and last change time.
+     *
+     * @param fileName the name of the ratings file.
+     * @return true if the index can be used for the file.
+     */
+    public boolean matchesDataFile(String fileName)
+    {
+        try
+        {
+            Path dataFile = Paths.get(fileName);
+            return Files.size(dataFile) == dataFileSize
+            && Files.getLastModifiedTime(dataFile).toMillis()
+            == dataFileModified;
+        }
+        catch (IOException exception)
+        {
+            return false;
+        } // end of catch (IOException exception)
+    } // end of method matchesDataFile(String fileName)
+
+    /**
+     * Returns the number of a block, numbering it
+     * if it has not been seen before.
+     *
+     * @param name the name of the block, like "Block A".
+     * @return the block's number.
+     */
+    public int numberOfBlock(String name)
+    {
+        int number = findBlock(name);
+        if (number < 0)
+        {
+            number = blockName.size();
+            blockName.add(name);
+        } // end of if (number < 0)
+        return number;
+    } // end of method numberOfBlock(String name)
+
+    /**
+     * Finds the number of a block by its name. The name can be
+     * given whole, like "Block A", or without "Block ", like "A".
+     *
+     * @param name the name of the block.
+     * @return the block's number, or -1 if there is no such block.
+     */
+    public int findBlock(String name)
+    {
+        int number = blockName.indexOf(name);
+        if (number < 0)
+        {
+            number = blockName.indexOf("Block " + name);
+        } // end of if (number < 0)
+        return number;
+    } // end of method findBlock(String name)
+
+    /**
+     * Returns how many blocks there are.
+     *
+     * @return the number of blocks.
+     */
+    public int getBlockCount()
+    {
+        return blockName.size();
+    } // end of method getBlockCount()
+
+    /**
+     * Returns the name of a block.
+     *
+     * @param block the block's number.
+     * @return the name, like "Block A".
+     */
+    public String getBlockName(int block)
+    {
+        return blockName.get(block);
+    } // end of method getBlockName(int block)
+
+    /**
+     * Adds a section of a block, after the sections already added.
+     *
+     * @param block the block's number.
+     * @param start the offset of the section's first byte.
+     * @param end the offset just past the section's last byte.
+     * @param firstLine how many lines of the file come before it.
+     */
+    public void addSection(int block, long start, long end, long firstLine)
+    {
+        // Make room for another section, if needed.
+        if (sectionCount == sectionStart.length)
+        {
+            int newLength = sectionCount * 2;
+            sectionBlock = Arrays.copyOf(sectionBlock, newLength);
+            sectionEnd = Arrays.copyOf(sectionEnd, newLength);
+            sectionFirstLine = Arrays.copyOf(sectionFirstLine, newLength);
+            sectionStart = Arrays.copyOf(sectionStart, newLength);
+        } // end of if (sectionCount == sectionStart.length)
+        sectionBlock[sectionCount] = block;
+        sectionEnd[sectionCount] = end;
+        sectionFirstLine[sectionCount] = firstLine;
+        sectionStart[sectionCount] = start;
+        sectionCount = sectionCount + 1;
+    } // end of method addSection(int block, long start, long end, ...)
+
+    /**
+     * Returns how many sections there are, of every block.
+     *
+     * @return the number of sections.
+     */
+    public int getSectionCount()
+    {
+        return sectionCount;
+    } // end of method getSectionCount()
+
+    /**
+     * Returns the block a section belongs to.
+     *
+     * @param section the section's number, in file order.
+     * @return the block's number.
+     */
+    public int getSectionBlock(int section)
+    {
+        return sectionBlock[section];
+    } // end of method getSectionBlock(int section)
+
+    /**
+     * Returns where a section starts.
+     *
+     * @param section the section's number, in file order.
+     * @return the offset of its first byte, its "Block" line's.
+     */
+    public long getSectionStart(int section)
+    {
+        return sectionStart[section];
+    } // end of method getSectionStart(int section)
+
+    /**
+     * Returns where a section ends.
+     *
+     * @param section the section's number, in file order.
+     * @return the offset just past its last byte.
+     */
+    public long getSectionEnd(int section)
+    {
+        return sectionEnd[section];
+    } // end of method getSectionEnd(int section)
+
+    /**
+     * Returns how many lines of the file come before a section.
+     *
+     * @param section the section's number, in file order.
+     * @return the number of lines.
+     */
+    public long getSectionFirstLine(int section)
+    {
+        return sectionFirstLine[section];
+    } // end of method getSectionFirstLine(int section)
+
+    /**
+     * Saves this index to a file. The index is written to a new
+     * file first and then moved over the given one, so that an
+     * index is never seen half written.
+     *
+     * @param fileName the name of the index file.
+     * @return true if the index was saved, false otherwise.
+     */
+    public boolean save(String fileName)
+    {
+        ArrayList<byte[]> nameBytes = new ArrayList<byte[]>();
+        int size = 4 + 4 + 8 + 8 + 4 + 4 + 4;
+        for (String currentName : blockName)
+        {
+            byte[] bytes = currentName.getBytes(StandardCharsets.UTF_8);
+            nameBytes.add(bytes);
+            size = size + 4 + bytes.length;
+        } // end of for (String currentName : blockName)
+        size = size + sectionCount * SECTION_SIZE;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(dataFileSize);
+        buffer.putLong(dataFileModified);
+        buffer.putInt(nameBytes.size());
+        for (byte[] bytes : nameBytes)
+        {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        } // end of for (byte[] bytes : nameBytes)
+        buffer.putInt(sectionCount);
+        for (int section = 0; section < sectionCount; section++)
+        {
+            buffer.putInt(sectionBlock[section]);
+            buffer.putLong(sectionStart[section]);
+            buffer.putLong(sectionEnd[section]);
+            buffer.putLong(sectionFirstLine[section]);
+        } // end of for (int section = 0; section < sectionCount; ...)
+        buffer.putInt(END_MAGIC);
+
+        Path indexFile = Paths.get(fileName).toAbsolutePath();
+        Path newIndexFile = indexFile.resolveSibling(
+        indexFile.getFileName() + ".new");
+        try
+        {
+            Files.write(newIndexFile, buffer.array());
+            try
+            {
+                Files.move(newIndexFile, indexFile,
+                StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (IOException exception)
+            {
+                Files.move(newIndexFile, indexFile,
+                StandardCopyOption.REPLACE_EXISTING);
+            } // end of catch (IOException exception)
+        }
+        catch (IOException exception)
+        {
+            return false;
+        } // end of catch (IOException exception)
+        return true;
+    } // end of method save(String fileName)
+
+    /**
+     * Loads an index saved with save(String).
+     *
+     * @param fileName the name of the index file.
+     * @return the index, or null if the file isn't a whole
+     * index or could not be read.
+     */
+    public static BlockIndex load(String fileName)
+    {
+        try
+        {
+            ByteBuffer buffer
+            = ByteBuffer.wrap(Files.readAllBytes(Paths.get(fileName)));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            {
+                return null;
+            } // end of if (buffer.getInt() != MAGIC || ...)
+
+            BlockIndex index = new BlockIndex();
+            index.dataFileSize = buffer.getLong();
+            index.dataFileModified = buffer.getLong();
+            int blockCount = buffer.getInt();
+            for (int block = 0; block < blockCount; block++)
+            {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining())
+                {
+                    return null;
+                } // end of if (length < 0 || ...)
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                index.blockName.add(new String(bytes,
+                StandardCharsets.UTF_8));
+            } // end of for (int block = 0; block < blockCount; block++)
+
+            int sectionTotal = buffer.getInt();
+            if (sectionTotal < 0
+                || (long) sectionTotal * SECTION_SIZE > buffer.remaining())
+            {
+                return null;
+            } // end of if (sectionTotal < 0 || ...)
+            for (int section = 0; section < sectionTotal; section++)
+            {
+                int block = buffer.getInt();
+                if (block < 0 || block >= blockCount)
+                {
+                    return null;
+                } // end of if (block < 0 || block >= blockCount)
+                index.addSection(block, buffer.getLong(), buffer.getLong(),
+                buffer.getLong());
+            } // end of for (int section = 0; section < sectionTotal; ...)
+
+            if (buffer.getInt() != END_MAGIC)
+            {
+                return null;
+            } // end of if (buffer.getInt() != END_MAGIC)
+            return index;
+        }
+        catch (IOException exception)
+        {
+            return null;
+        }
+        catch (BufferUnderflowException exception)
+        {
+            return null;
+        } // end of catch (BufferUnderflowException exception)
+    } // end of method load(String fileName)
+
+} // end of class BlockIndex
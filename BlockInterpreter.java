@@ -0,0 +1,673 @@
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Locale;
+/**
+ * A class that reads a ratings file block by block, where each
+ * "Block" line, such as "Block A", starts a block of ratings that
+ * runs up to the next one, and gives each block its own videos.
+ * The same block can come back many times in a file, and all of
+ * its ratings are counted together.
+ *
+ * Reading the whole file also makes a BlockIndex of where every
+ * block is. With the index, a block can be analyzed again later
+ * by reading only its own parts of the file, which is much faster
+ * than reading a large file from the start to answer a question
+ * about one block. Invalid lines are numbered as in the whole file
+ * either way.
+ *
+ * From the command line, "java Main --blocks file" writes one
+ * results file for each block and saves the index beside the
+ * file, and "--block NAME" analyzes only that block, using the
+ * index if it still matches the file. Blocks whose names would
+ * make the same file name, like "Block A" and "Block_A", have
+ * their number in the index added to the later one's. Lines of
+ * another layout are read with a RatingSchema, given with
+ * "--schema FILE".
+ *
+ * @author Preenon Chisty
+ * @version 2017-02-03
+ */
+public class BlockInterpreter
+{
+    /* non-instance fields: constants */
+    private static final String DEFAULT_RESULT_PATTERN
+    = "{block}.videoResults.text";
+    private static final String INDEX_EXTENSION = ".blocks";
+    private static final int STATUS_TO_BE_IGNORED = 2;
+    private static final int STATUS_VALID = 1;
+    private static final int STATUS_WRONG_RATING_TYPE = -2;
+    private static final int STATUS_WRONG_TOKEN_COUNT = -1;
+
+    /* instance fields */
+    private ArrayList<Block> block;
+    private String blockToAnalyze;
+    private InvalidLineReporter errorFile;
+    private String errorFileName;
+    private boolean errorFileWritten;
+    private String fileName;
+    private BlockIndex index;
+    private String indexFileName;
+    private boolean keepRawRatings;
+    private LineLexer lexer;
+    private LineMetrics lineMetrics;
+    private String outputDirectory;
+    private int[] ratingData;
+    private ReportWriter reportWriter;
+    private String resultPattern;
+    private RatingSchema schema;
+
+    /* constructors */
+    /**
+     * Initializes a new block interpreter, whose videos
+     * keep only their totals.
+     */
+    public BlockInterpreter()
+    {
+        block = new ArrayList<Block>();
+        blockToAnalyze = null;
+        errorFile = null;
+        errorFileName = "invalidLines.text";
+        errorFileWritten = true;
+        fileName = null;
+        index = null;
+        indexFileName = null;
+        keepRawRatings = false;
+        lexer = new LineLexer();
+        lineMetrics = new LineMetrics();
+        outputDirectory = ".";
+        ratingData = new int[RatingSchema.DEFAULT.getCategoryCount()];
+        reportWriter = new ReportWriter();
+        resultPattern = DEFAULT_RESULT_PATTERN;
+        schema = RatingSchema.DEFAULT;
+    } // end of constructor BlockInterpreter()
+
+    /* public interface */
+    /**
+     * Sets this interpreter's settings and file from command
+     * line arguments, the ones after "--blocks".
+     *
+     * @param argument the command line arguments.
+     * @param firstIndex the index of the first argument to use.
+     * @return true if the arguments could be understood.
+     */
+    public boolean setOptions(String[] argument, int firstIndex)
+    {
+        boolean distribution = false;
+        int index = firstIndex;
+        while (index < argument.length)
+        {
+            String currentArgument = argument[index];
+            if (!currentArgument.startsWith("--"))
+            {
+                if (fileName != null)
+                {
+                    // Only one file is read at a time.
+                    return false;
+                } // end of if (fileName != null)
+                fileName = currentArgument;
+                index = index + 1;
+                continue;
+            } // end of if (!currentArgument.startsWith("--"))
+
+            // Every option takes a value.
+            if (index + 1 == argument.length)
+            {
+                return false;
+            } // end of if (index + 1 == argument.length)
+            String value = argument[index + 1];
+            index = index + 2;
+
+            if (currentArgument.equals("--output-dir"))
+            {
+                outputDirectory = value;
+            }
+            else if (currentArgument.equals("--results-name"))
+            {
+                // Every block needs a results file of its own.
+                if (!value.contains("{block}"))
+                {
+                    return false;
+                } // end of if (!value.contains("{block}"))
+                resultPattern = value;
+            }
+            else if (currentArgument.equals("--errors"))
+            {
+                errorFileName = value;
+            }
+            else if (currentArgument.equals("--index"))
+            {
+                indexFileName = value;
+            }
+            else if (currentArgument.equals("--block"))
+            {
+                blockToAnalyze = value;
+            }
+            else if (currentArgument.equals("--distribution"))
+            {
+                distribution = Boolean.parseBoolean(value);
+                reportWriter.setWriteDistribution(distribution);
+            }
+            else if (currentArgument.equals("--spread"))
+            {
+                reportWriter.setWriteSpread(Boolean.parseBoolean(value));
+            }
+            else if (currentArgument.equals("--format"))
+            {
+                if (!reportWriter.setFormat(value))
+                {
+                    return false;
+                } // end of if (!reportWriter.setFormat(value))
+            }
+            else if (currentArgument.equals("--schema"))
+            {
+                RatingSchema lineSchema = RatingSchema.load(value);
+                if (lineSchema == null)
+                {
+                    System.out.println("Error: " + value
+                    + " is not a schema that could be read.");
+                    return false;
+                } // end of if (lineSchema == null)
+                setSchema(lineSchema);
+            }
+            else
+            {
+                return false;
+            } // end of if (currentArgument.equals("--output-dir"))
+        } // end of while (index < argument.length)
+
+        // Distributions need a count for every score the schema allows.
+        if (distribution && !schema.canBinRatings())
+        {
+            System.out.println("Error: The schema allows too many "
+            + "different ratings for --distribution.");
+            return false;
+        } // end of if (distribution && !schema.canBinRatings())
+
+        return fileName != null;
+    } // end of method setOptions(String[] argument, int firstIndex)
+
+    /**
+     * Analyzes the file given on the command line, or only one of
+     * its blocks, and writes the results of each block analyzed.
+     *
+     * @return true if the file was read and the results
+     * were written, false otherwise.
+     */
+    public boolean run()
+    {
+        long startTime = System.nanoTime();
+        if (indexFileName == null)
+        {
+            indexFileName = fileName + INDEX_EXTENSION;
+        } // end of if (indexFileName == null)
+        if (!setErrorFile(errorFileName))
+        {
+            System.out.println("Error: Could not create " + errorFileName);
+            return false;
+        } // end of if (!setErrorFile(errorFileName))
+
+        // Only one block wanted? Read just its parts, if we can.
+        int wantedBlock = -1;
+        boolean fileRead;
+        BlockIndex savedIndex = null;
+        if (blockToAnalyze != null)
+        {
+            savedIndex = BlockIndex.load(indexFileName);
+            if (savedIndex == null || !savedIndex.matchesDataFile(fileName))
+            {
+                System.out.println(indexFileName + " is missing or out of "
+                + "date, reading the whole file.");
+                savedIndex = null;
+            } // end of if (savedIndex == null || ...)
+        } // end of if (blockToAnalyze != null)
+
+        if (savedIndex != null)
+        {
+            wantedBlock = savedIndex.findBlock(blockToAnalyze);
+            if (wantedBlock < 0)
+            {
+                closeErrorFile();
+                System.out.println("Error: " + fileName + " has no block "
+                + blockToAnalyze);
+                return false;
+            } // end of if (wantedBlock < 0)
+            fileRead = interpretBlock(fileName, savedIndex, wantedBlock);
+        }
+        else
+        {
+            fileRead = interpretFile(fileName);
+            if (fileRead && !index.save(indexFileName))
+            {
+                System.out.println("Error: Could not save "
+                + indexFileName);
+            } // end of if (fileRead && !index.save(indexFileName))
+            if (blockToAnalyze != null)
+            {
+                wantedBlock = index.findBlock(blockToAnalyze);
+                if (wantedBlock < 0)
+                {
+                    System.out.println("Error: " + fileName
+                    + " has no block " + blockToAnalyze);
+                    return false;
+                } // end of if (wantedBlock < 0)
+            } // end of if (blockToAnalyze != null)
+        } // end of if (savedIndex != null)
+
+        if (!fileRead)
+        {
+            System.out.println("Error: Could not read " + fileName);
+            return false;
+        } // end of if (!fileRead)
+        if (!errorFileWritten)
+        {
+            System.out.println("Error: Could not write " + errorFileName);
+            return false;
+        } // end of if (!errorFileWritten)
+
+        boolean everyReportWritten = true;
+        ArrayList<String> resultName = resultNamesOfBlocks();
+        for (int number = 0; number < index.getBlockCount(); number++)
+        {
+            if (wantedBlock >= 0 && number != wantedBlock)
+            {
+                continue;
+            } // end of if (wantedBlock >= 0 && number != wantedBlock)
+            everyReportWritten = writeBlockResults(number,
+            resultName.get(number)) && everyReportWritten;
+        } // end of for (int number = 0; ...)
+
+        long elapsed = (System.nanoTime() - startTime) / 1000000;
+        System.out.println(fileName + ": " + index.getBlockCount()
+        + " blocks in " + elapsed + " ms, index " + indexFileName);
+        return everyReportWritten;
+    } // end of method run()
+
+    /**
+     * Prints how to use blocks mode.
+     */
+    public static void printUsage()
+    {
+        System.out.println("Usage: java Main --blocks [option value ...] "
+        + "file");
+        System.out.println("Options:");
+        System.out.println("  --output-dir DIR      where results files "
+        + "go (default .)");
+        System.out.println("  --results-name NAME   results file name "
+        + "(default " + DEFAULT_RESULT_PATTERN + ")");
+        System.out.println("  --errors FILE         invalid lines file "
+        + "(default invalidLines.text)");
+        System.out.println("  --index FILE          block index "
+        + "(default: the file's name and " + INDEX_EXTENSION + ")");
+        System.out.println("  --block NAME          only analyze this "
+        + "block, like \"Block A\" or \"A\"");
+        System.out.println("  --format FORMAT       results as text, csv, "
+        + "json or jsonl (default text)");
+        System.out.println("  --distribution BOOL   also write medians, "
+        + "percentiles and modes (default false)");
+        System.out.println("  --spread BOOL         also write variances "
+        + "and standard deviations (default false)");
+        System.out.println("  --schema FILE         the layout of the "
+        + "lines, for other rating forms");
+        System.out.println("In names, {block} is the block name, with "
+        + "spaces and the like made into _.");
+        System.out.println("The results name must have {block} in it; "
+        + "blocks whose names clash get their number added.");
+    } // end of method printUsage()
+
+    /**
+     * Sets the error file of this interpreter
+     * to the file with the given name.
+     *
+     * @param errorFileName the path of the error file.
+     * @return true if file could be created, false otherwise.
+     */
+    public boolean setErrorFile(String errorFileName)
+    {
+        // Error messages are written on a thread of their own.
+        InvalidLineReporter reporter = new InvalidLineReporter();
+        if (!reporter.open(errorFileName))
+        {
+            return false;
+        } // end of if (!reporter.open(errorFileName))
+        reporter.setSchema(schema);
+        errorFile = reporter;
+        errorFileWritten = true;
+        return true;
+    } // end of method setErrorFile(String errorFileName)
+
+    /**
+     * Sets the layout of the lines this interpreter reads, see
+     * RatingSchema. Should be set before any line is read.
+     *
+     * @param lineSchema the layout of the lines.
+     */
+    public void setSchema(RatingSchema lineSchema)
+    {
+        schema = lineSchema;
+        lexer = new LineLexer(lineSchema);
+        ratingData = new int[lineSchema.getCategoryCount()];
+        reportWriter.setSchema(lineSchema);
+        if (errorFile != null)
+        {
+            errorFile.setSchema(lineSchema);
+        } // end of if (errorFile != null)
+    } // end of method setSchema(RatingSchema lineSchema)
+
+    /**
+     * Sets whether the videos made by this interpreter keep
+     * every raw rating, or only the running totals of their ratings.
+     *
+     * @param keepRatings true to keep every rating,
+     * false to keep only the totals.
+     */
+    public void setKeepRawRatings(boolean keepRatings)
+    {
+        keepRawRatings = keepRatings;
+    } // end of method setKeepRawRatings(boolean keepRatings)
+
+    /**
+     * Reads a whole file, giving each block its own videos,
+     * and makes an index of where every block is.
+     *
+     * @param dataFileName the name of the ratings file.
+     * @return true if the file could be read, false otherwise.
+     */
+    public boolean interpretFile(String dataFileName)
+    {
+        index = new BlockIndex();
+        MappedFileAccessor mappedAccessor = new MappedFileAccessor();
+        if (!index.setDataFile(dataFileName)
+            || !mappedAccessor.setFileAccessor(dataFileName))
+        {
+            // We won't be analyzing any lines.
+            closeErrorFile();
+            return false;
+        } // end of if (!index.setDataFile(dataFileName) || ...)
+
+        /* Go through the lines, starting a new section each time
+         * a "Block" line is found, and remembering where it began.
+         */
+        int currentBlock = -1;
+        long sectionStart = 0;
+        long sectionFirstLine = 0;
+        long lineStart = mappedAccessor.getNextLineOffset();
+        while (mappedAccessor.lexLineFromFile(lexer))
+        {
+            long numberOfFileLine = mappedAccessor.getStringLocationInFile();
+            if (lexer.getStatus() == STATUS_TO_BE_IGNORED)
+            {
+                if (currentBlock >= 0)
+                {
+                    index.addSection(currentBlock, sectionStart, lineStart,
+                    sectionFirstLine);
+                } // end of if (currentBlock >= 0)
+                currentBlock
+                = index.numberOfBlock(lexer.createLineText().trim());
+                sectionStart = lineStart;
+                sectionFirstLine = numberOfFileLine - 1;
+            }
+            else if (currentBlock < 0)
+            {
+                // The file doesn't start with a "Block" line.
+                currentBlock = index.numberOfBlock(BlockIndex.NO_BLOCK);
+            } // end of if (lexer.getStatus() == STATUS_TO_BE_IGNORED)
+            analyzeLexedLine(blockOfNumber(currentBlock), numberOfFileLine);
+            lineStart = mappedAccessor.getNextLineOffset();
+        } // end of while (mappedAccessor.lexLineFromFile(lexer))
+        if (currentBlock >= 0)
+        {
+            index.addSection(currentBlock, sectionStart, lineStart,
+            sectionFirstLine);
+        } // end of if (currentBlock >= 0)
+        lineMetrics.flush();
+        mappedAccessor.closeFile();
+
+        closeErrorFile();
+        return !mappedAccessor.hadReadError();
+    } // end of method interpretFile(String dataFileName)
+
+    /**
+     * Reads only the parts of a file that belong to one block,
+     * using an index made by interpretFile(String).
+     *
+     * @param dataFileName the name of the ratings file.
+     * @param blockIndex the index of the file, which should
+     * still match it; see BlockIndex.matchesDataFile(String).
+     * @param wantedBlock the number of the block in the index.
+     * @return true if the block could be read, false otherwise.
+     */
+    public boolean interpretBlock(String dataFileName, BlockIndex blockIndex,
+    int wantedBlock)
+    {
+        index = blockIndex;
+        MappedFileAccessor mappedAccessor = new MappedFileAccessor();
+        if (!mappedAccessor.setFileAccessor(dataFileName))
+        {
+            // We won't be analyzing any lines.
+            closeErrorFile();
+            return false;
+        } // end of if (!mappedAccessor.setFileAccessor(dataFileName))
+
+        /* Jump from one section of the block to the next,
+         * skipping the rest of the file.
+         */
+        Block targetBlock = blockOfNumber(wantedBlock);
+        boolean everySectionRead = true;
+        for (int section = 0; section < index.getSectionCount()
+        && everySectionRead; section++)
+        {
+            if (index.getSectionBlock(section) != wantedBlock)
+            {
+                continue;
+            } // end of if (index.getSectionBlock(section) != wantedBlock)
+            if (!mappedAccessor.seekRange(index.getSectionStart(section),
+                index.getSectionEnd(section)))
+            {
+                everySectionRead = false;
+                continue;
+            } // end of if (!mappedAccessor.seekRange(...))
+
+            // The section's "Block" line is skipped like any other.
+            long linesBefore = index.getSectionFirstLine(section);
+            while (mappedAccessor.lexLineFromFile(lexer))
+            {
+                analyzeLexedLine(targetBlock,
+                linesBefore + mappedAccessor.getStringLocationInFile());
+            } // end of while (mappedAccessor.lexLineFromFile(lexer))
+            everySectionRead = !mappedAccessor.hadReadError();
+        } // end of for (int section = 0; ...)
+        lineMetrics.flush();
+        mappedAccessor.closeFile();
+
+        closeErrorFile();
+        return everySectionRead;
+    } // end of method interpretBlock(String dataFileName, ...)
+
+    /**
+     * Returns the index of the file read last.
+     *
+     * @return the index, or null if no file was read.
+     */
+    public BlockIndex getBlockIndex()
+    {
+        return index;
+    } // end of method getBlockIndex()
+
+    /**
+     * Returns the videos of a block, in the order their
+     * creators were first seen in the block.
+     *
+     * @param number the number of the block in the index.
+     * @return the videos, which are empty if the block
+     * was not read.
+     */
+    public ArrayList<Video> getVideoSet(int number)
+    {
+        return blockOfNumber(number).video;
+    } // end of method getVideoSet(int number)
+
+    /* private implementation */
+    /**
+     * Returns the block with the given number,
+     * making it and the ones before it if needed.
+     *
+     * @param number the number of the block in the index.
+     * @return the block.
+     */
+    private Block blockOfNumber(int number)
+    {
+        while (block.size() <= number)
+        {
+            block.add(new Block());
+        } // end of while (block.size() <= number)
+        return block.get(number);
+    } // end of method blockOfNumber(int number)
+
+    /**
+     * Analyzes the line most recently lexed, adding its
+     * rating to a block's videos if it is valid, and
+     * printing an error message if it is not.
+     *
+     * @param targetBlock the block the line is in.
+     * @param numberOfFileLine the number of the line in the file.
+     */
+    private void analyzeLexedLine(Block targetBlock, long numberOfFileLine)
+    {
+        int statusOfLine = lexer.getStatus();
+        lineMetrics.countLine(statusOfLine, lexer.getLineLength());
+        if (statusOfLine == STATUS_VALID)
+        {
+            int id = targetBlock.creatorDictionary.idOfLexedCreator(lexer);
+            if (id == targetBlock.video.size())
+            {
+                String videoCreator
+                = targetBlock.creatorDictionary.getCreatorName(id);
+                targetBlock.video.add(new Video(videoCreator, keepRawRatings,
+                schema));
+                lineMetrics.countCreators(1);
+            } // end of if (id == targetBlock.video.size())
+            lexer.copyRatings(ratingData);
+            targetBlock.video.get(id).addVideoRating(ratingData);
+        }
+        else if ((statusOfLine == STATUS_WRONG_TOKEN_COUNT
+        || statusOfLine == STATUS_WRONG_RATING_TYPE) && errorFile != null)
+        {
+            errorFile.report(numberOfFileLine, statusOfLine);
+        } // end of if (statusOfLine == STATUS_VALID)
+    } // end of method analyzeLexedLine(Block targetBlock, ...)
+
+    /**
+     * Works out the name that stands for each block in its results
+     * file's name. Blocks are named in index order, which is the
+     * order they first appear in the file, so a block gets the same
+     * file whether all blocks are analyzed or only it is. If a name
+     * is taken by an earlier block, even in other upper or lower
+     * case, the block's number is added until it is not.
+     *
+     * @return the names, one for each block, by block number.
+     */
+    private ArrayList<String> resultNamesOfBlocks()
+    {
+        ArrayList<String> resultName = new ArrayList<String>();
+        HashSet<String> takenName = new HashSet<String>();
+        for (int number = 0; number < index.getBlockCount(); number++)
+        {
+            String name = fileNameOfBlock(index.getBlockName(number));
+            while (!takenName.add(name.toLowerCase(Locale.ROOT)))
+            {
+                name = name + "-" + number;
+            } // end of while (!takenName.add(...))
+            resultName.add(name);
+        } // end of for (int number = 0; ...)
+        return resultName;
+    } // end of method resultNamesOfBlocks()
+
+    /**
+     * Extracts the statistics of a block's videos,
+     * and writes them to the block's results file.
+     *
+     * @param number the number of the block in the index.
+     * @param resultName what stands for the block in the results
+     * file's name; see resultNamesOfBlocks().
+     * @return true if the results were written, false otherwise.
+     */
+    private boolean writeBlockResults(int number, String resultName)
+    {
+        String name = index.getBlockName(number);
+        String resultFile = Paths.get(outputDirectory).resolve(
+        resultPattern.replace("{block}", resultName)).toString();
+        ArrayList<Video> video = getVideoSet(number);
+        new StatisticExtractor().extractStatistics(video);
+        if (!reportWriter.writeReport(video, resultFile))
+        {
+            System.out.println("Error: Could not write " + resultFile);
+            return false;
+        } // end of if (!reportWriter.writeReport(video, resultFile))
+        System.out.println(name + ": " + video.size() + " videos -> "
+        + resultFile);
+        return true;
+    } // end of method writeBlockResults(int number, String resultName)
+
+    /**
+     * Makes a block's name safe to use in a file name, by
+     * turning anything but letters, digits, "-" and "." into "_".
+     *
+     * @param name the name of the block.
+     * @return the name, made safe.
+     */
+    private static String fileNameOfBlock(String name)
+    {
+        StringBuilder safeName = new StringBuilder(name.length());
+        for (int index = 0; index < name.length(); index++)
+        {
+            char character = name.charAt(index);
+            if (Character.isLetterOrDigit(character) || character == '-'
+                || character == '.')
+            {
+                safeName.append(character);
+            }
+            else
+            {
+                safeName.append('_');
+            } // end of if (Character.isLetterOrDigit(character) || ...)
+        } // end of for (int index = 0; index < name.length(); index++)
+        return safeName.toString();
+    } // end of method fileNameOfBlock(String name)
+
+    /**
+     * Closes the error file of this interpreter, if it has one,
+     * and remembers if every invalid line could be written to it.
+     */
+    private void closeErrorFile()
+    {
+        if (errorFile != null)
+        {
+            errorFile.close();
+            errorFileWritten = !errorFile.hadWriteError();
+            errorFile = null;
+        } // end of if (errorFile != null)
+    } // end of method closeErrorFile()
+
+    /**
+     * The videos of one block, with the dictionary of their creators.
+     */
+    private static class Block
+    {
+        /* instance fields */
+        private CreatorDictionary creatorDictionary;
+        private ArrayList<Video> video;
+
+        /* constructors */
+        /**
+         * Initializes a new block, without videos.
+         */
+        private Block()
+        {
+            creatorDictionary = new CreatorDictionary();
+            video = new ArrayList<Video>();
+        } // end of constructor Block()
+
+    } // end of class Block
+
+} // end of class BlockInterpreter
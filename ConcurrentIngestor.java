@@ -0,0 +1,348 @@
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+/**
+ * A class that many threads can give ratings to at the same time,
+ * such as one thread for each place the ratings come from, and
+ * that builds one set of videos from all of them.
+ *
+ * The videos are split into stripes, each with its own lock, its
+ * own creator dictionary and its own videos, and each thread that
+ * gives ratings is handed a stripe of its own the first time, in
+ * turn. A thread only ever locks its own stripe, so threads don't
+ * wait for each other unless there are more of them than stripes,
+ * and even then only for the few threads sharing a stripe.
+ * Lines are checked before the stripe is locked.
+ *
+ * Creators are numbered in a concurrent map the first time any
+ * stripe sees them, so the set of videos can keep the order
+ * creators were first seen in, as FileInterpreter's does.
+ * The number of valid and invalid lines is kept in counters
+ * that threads can add to without getting in each other's way.
+ * Lines of another layout are read with a RatingSchema, given
+ * when the ingestor is made.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-31
+ */
+public class ConcurrentIngestor
+{
+    /* non-instance fields: constants */
+    private static final int STATUS_VALID = 1;
+    private static final int STATUS_WRONG_RATING_TYPE = -2;
+    private static final int STATUS_WRONG_TOKEN_COUNT = -1;
+    private static final int STRIPES_PER_PROCESSOR = 2;
+
+    /* instance fields */
+    private ConcurrentHashMap<String, Integer> creatorNumber;
+    private Function<String, Integer> creatorNumbering;
+    private boolean keepRawRatings;
+    private AtomicInteger nextCreatorNumber;
+    private AtomicInteger nextStripe;
+    private ThreadLocal<Producer> producer;
+    private RatingSchema schema;
+    private Stripe[] stripe;
+    private LongAdder validLineCount;
+    private LongAdder wrongRatingTypeCount;
+    private LongAdder wrongTokenCountCount;
+
+    /* constructors */
+    /**
+     * Initializes a new ingestor, with two stripes for each
+     * available processor, whose videos keep only their totals.
+     */
+    public ConcurrentIngestor()
+    {
+        this(STRIPES_PER_PROCESSOR
+        * Runtime.getRuntime().availableProcessors(), false);
+    } // end of constructor ConcurrentIngestor()
+
+    /**
+     * Initializes a new ingestor.
+     *
+     * @param numberOfStripes how many stripes to split the videos
+     * into; at least as many as the threads giving ratings is best.
+     * @param keepRatings true if videos keep every raw rating, in
+     * the order each stripe was given them, false to keep only
+     * the totals.
+     */
+    public ConcurrentIngestor(int numberOfStripes, boolean keepRatings)
+    {
+        this(numberOfStripes, keepRatings, RatingSchema.DEFAULT);
+    } // end of constructor ConcurrentIngestor(int numberOfStripes, ...)
+
+    /**
+     * Initializes a new ingestor for lines of the given schema.
+     *
+     * @param numberOfStripes how many stripes to split the videos
+     * into; at least as many as the threads giving ratings is best.
+     * @param keepRatings true if videos keep every raw rating, in
+     * the order each stripe was given them, false to keep only
+     * the totals.
+     * @param lineSchema the layout of the lines and ratings.
+     */
+    public ConcurrentIngestor(int numberOfStripes, boolean keepRatings,
+    RatingSchema lineSchema)
+    {
+        creatorNumber = new ConcurrentHashMap<String, Integer>();
+        creatorNumbering = new Function<String, Integer>()
+        {
+            @Override
+            public Integer apply(String videoCreator)
+            {
+                return nextCreatorNumber.getAndIncrement();
+            } // end of method apply(String videoCreator)
+        };
+        keepRawRatings = keepRatings;
+        nextCreatorNumber = new AtomicInteger();
+        nextStripe = new AtomicInteger();
+        producer = new ThreadLocal<Producer>()
+        {
+            @Override
+            protected Producer initialValue()
+            {
+                int stripeIndex = nextStripe.getAndIncrement();
+                return new Producer(
+                stripe[Math.floorMod(stripeIndex, stripe.length)], schema);
+            } // end of method initialValue()
+        };
+        schema = lineSchema;
+        stripe = new Stripe[Math.max(1, numberOfStripes)];
+        for (int index = 0; index < stripe.length; index++)
+        {
+            stripe[index] = new Stripe();
+        } // end of for (int index = 0; index < stripe.length; index++)
+        validLineCount = new LongAdder();
+        wrongRatingTypeCount = new LongAdder();
+        wrongTokenCountCount = new LongAdder();
+    } // end of constructor ConcurrentIngestor(int numberOfStripes, ...)
+
+    /**
+     * Returns the schema of the lines this ingestor reads.
+     *
+     * @return the schema.
+     */
+    public RatingSchema getSchema()
+    {
+        return schema;
+    } // end of method getSchema()
+
+    /* public interface */
+    /**
+     * Checks a line of a ratings file, and adds its rating to the
+     * video of its creator if it is valid. Safe to call from any
+     * number of threads at once.
+     *
+     * @param line the line, without its line break.
+     * @return the status of the line, as LineChecker gives it.
+     */
+    public int submitLine(String line)
+    {
+        Producer currentProducer = producer.get();
+        LineLexer lexer = currentProducer.lexer;
+        int statusOfLine = lexer.lexLine(line);
+        if (statusOfLine == STATUS_VALID)
+        {
+            lexer.copyRatings(currentProducer.ratingData);
+            Stripe ownStripe = currentProducer.stripe;
+            synchronized (ownStripe)
+            {
+                int id = ownStripe.creatorDictionary.idOfLexedCreator(lexer);
+                videoOfStripe(ownStripe, id).addVideoRating(
+                currentProducer.ratingData);
+            } // end of synchronized (ownStripe)
+            validLineCount.increment();
+        }
+        else if (statusOfLine == STATUS_WRONG_TOKEN_COUNT)
+        {
+            wrongTokenCountCount.increment();
+        }
+        else if (statusOfLine == STATUS_WRONG_RATING_TYPE)
+        {
+            wrongRatingTypeCount.increment();
+        } // end of if (statusOfLine == STATUS_VALID)
+        return statusOfLine;
+    } // end of method submitLine(String line)
+
+    /**
+     * Adds a rating that was already read, such as from a record
+     * file, to the video of its creator. Safe to call from any
+     * number of threads at once.
+     *
+     * @param videoCreator the name of the video's creator.
+     * @param ratingDatum the scores of the rating, one per category
+     * of the schema; they are copied, so the array can be used again.
+     * @return true if the rating was added, false if it did not
+     * have a score for every category, or had one the schema
+     * does not allow.
+     */
+    public boolean submitRating(String videoCreator, int[] ratingDatum)
+    {
+        if (videoCreator == null || ratingDatum == null
+            || ratingDatum.length != schema.getCategoryCount())
+        {
+            return false;
+        } // end of if (videoCreator == null || ...)
+        for (int score : ratingDatum)
+        {
+            if (score < schema.getLowestRating()
+                || score > schema.getHighestRating())
+            {
+                return false;
+            } // end of if (score < schema.getLowestRating() || ...)
+        } // end of for (int score : ratingDatum)
+        Stripe ownStripe = producer.get().stripe;
+        synchronized (ownStripe)
+        {
+            int id = ownStripe.creatorDictionary.idOfCreator(videoCreator);
+            videoOfStripe(ownStripe, id).addVideoRating(ratingDatum);
+        } // end of synchronized (ownStripe)
+        validLineCount.increment();
+        return true;
+    } // end of method submitRating(String videoCreator, int[] ratingDatum)
+
+    /**
+     * Returns the videos of every rating given so far, one per
+     * creator, in the order creators were first seen. The videos
+     * are new copies, which the caller is free to change; ratings
+     * given while they are being made may or may not be in them.
+     * Each stripe is only locked while its videos are copied.
+     *
+     * @return the videos, without their statistics extracted.
+     */
+    public ArrayList<Video> getVideoSet()
+    {
+        ArrayList<Video> mergedVideo = new ArrayList<Video>();
+        for (Stripe currentStripe : stripe)
+        {
+            synchronized (currentStripe)
+            {
+                for (Video stripeVideo : currentStripe.video)
+                {
+                    int number = creatorNumber.get(
+                    stripeVideo.getVideoCreator());
+                    while (mergedVideo.size() <= number)
+                    {
+                        mergedVideo.add(null);
+                    } // end of while (mergedVideo.size() <= number)
+                    if (mergedVideo.get(number) == null)
+                    {
+                        mergedVideo.set(number, new Video(
+                        stripeVideo.getVideoCreator(), keepRawRatings,
+                        schema));
+                    } // end of if (mergedVideo.get(number) == null)
+                    mergedVideo.get(number).mergeVideo(stripeVideo);
+                } // end of for (Video stripeVideo : currentStripe.video)
+            } // end of synchronized (currentStripe)
+        } // end of for (Stripe currentStripe : stripe)
+
+        // A creator numbered just now may not have a video yet.
+        ArrayList<Video> video = new ArrayList<Video>(mergedVideo.size());
+        for (Video currentVideo : mergedVideo)
+        {
+            if (currentVideo != null)
+            {
+                video.add(currentVideo);
+            } // end of if (currentVideo != null)
+        } // end of for (Video currentVideo : mergedVideo)
+        return video;
+    } // end of method getVideoSet()
+
+    /**
+     * Returns how many valid lines and ratings were added so far.
+     *
+     * @return the number of ratings added.
+     */
+    public long getValidLineCount()
+    {
+        return validLineCount.sum();
+    } // end of method getValidLineCount()
+
+    /**
+     * Returns how many lines were not added so far, because
+     * they had the wrong number of tokens or a rating that
+     * was not a number.
+     *
+     * @return the number of invalid lines.
+     */
+    public long getInvalidLineCount()
+    {
+        return wrongTokenCountCount.sum() + wrongRatingTypeCount.sum();
+    } // end of method getInvalidLineCount()
+
+    /* private implementation */
+    /**
+     * Returns the video of a stripe's creator, making it if the
+     * stripe has not seen the creator before. The stripe's
+     * lock must be held.
+     *
+     * @param ownStripe the stripe.
+     * @param id the creator's number in the stripe's dictionary.
+     * @return the video.
+     */
+    private Video videoOfStripe(Stripe ownStripe, int id)
+    {
+        if (id == ownStripe.video.size())
+        {
+            // Number the creator first, so getVideoSet can place it.
+            String videoCreator
+            = ownStripe.creatorDictionary.getCreatorName(id);
+            creatorNumber.computeIfAbsent(videoCreator, creatorNumbering);
+            ownStripe.video.add(new Video(videoCreator, keepRawRatings,
+            schema));
+        } // end of if (id == ownStripe.video.size())
+        return ownStripe.video.get(id);
+    } // end of method videoOfStripe(Stripe ownStripe, int id)
+
+    /**
+     * Some of the videos, with the dictionary of their creators.
+     * Only used while holding its own lock.
+     */
+    private static class Stripe
+    {
+        /* instance fields */
+        private CreatorDictionary creatorDictionary;
+        private ArrayList<Video> video;
+
+        /* constructors */
+        /**
+         * Initializes a new stripe, without videos.
+         */
+        private Stripe()
+        {
+            creatorDictionary = new CreatorDictionary();
+            video = new ArrayList<Video>();
+        } // end of constructor Stripe()
+
+    } // end of class Stripe
+
+    /**
+     * What one thread giving ratings uses: its stripe,
+     * and a lexer and rating array of its own, for the schema.
+     */
+    private static class Producer
+    {
+        /* instance fields */
+        private LineLexer lexer;
+        private int[] ratingData;
+        private Stripe stripe;
+
+        /* constructors */
+        /**
+         * Initializes a new producer.
+         *
+         * @param producerStripe the stripe the producer adds to.
+         * @param schema the layout of the lines the producer reads.
+         */
+        private Producer(Stripe producerStripe, RatingSchema schema)
+        {
+            lexer = new LineLexer(schema);
+            ratingData = new int[schema.getCategoryCount()];
+            stripe = producerStripe;
+        } // end of constructor Producer(Stripe producerStripe, ...)
+
+    } // end of class Producer
+
+} // end of class ConcurrentIngestor
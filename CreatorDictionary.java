@@ -0,0 +1,272 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+/**
+ * A dictionary that numbers video creators 0, 1, 2, ... in the
+ * order they are first seen, so that videos can be kept in a list
+ * and found by their creator's number.
+ *
+ * Creators of lexed lines are looked up straight from the name
+ * tokens in the lexer's line or buffer, in an open-addressing table
+ * of primitive arrays, so finding a creator seen before makes no
+ * string and no other object. A creator's name is only made into
+ * a string the first time its characters are seen.
+ *
+ * Different bytes can decode to the same name, for example bytes
+ * the character set can't decode, so a new spelling of the name
+ * tokens is checked against the names seen before, and is given
+ * the same number as the creator with that name, if there is one.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-24
+ */
+public class CreatorDictionary
+{
+    /* non-instance fields: constants */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /* instance fields */
+    private HashMap<String, Integer> creatorId;
+    private ArrayList<String> creatorName;
+    private int entryCount;
+    private int[] entryHash;
+    private int[] entryId;
+    private boolean[] keyFromBytes;
+    private int[] keyLength;
+    private int[] keyStart;
+    private char[] keyUnit;
+    private int keyUnitCount;
+    private int[] slot;
+
+    /* constructors */
+    /**
+     * Initializes a new, empty creator dictionary.
+     */
+    public CreatorDictionary()
+    {
+        creatorId = new HashMap<String, Integer>();
+        creatorName = new ArrayList<String>();
+        entryCount = 0;
+        entryHash = new int[INITIAL_CAPACITY];
+        entryId = new int[INITIAL_CAPACITY];
+        keyFromBytes = new boolean[INITIAL_CAPACITY];
+        keyLength = new int[INITIAL_CAPACITY];
+        keyStart = new int[INITIAL_CAPACITY];
+        keyUnit = new char[INITIAL_CAPACITY * 16];
+        keyUnitCount = 0;
+        slot = new int[INITIAL_CAPACITY * 2];
+    } // end of constructor CreatorDictionary()
+
+    /* public interface */
+    /**
+     * Returns the number of the creator of the line most recently
+     * lexed, numbering the creator if they are new.
+     * Only meaningful if that line was valid.
+     *
+     * @param lexer the lexer of the line.
+     * @return the creator's number.
+     */
+    public int idOfLexedCreator(LineLexer lexer)
+    {
+        // Hash the name tokens as if they were one string.
+        boolean fromBytes = lexer.isLexedFromBytes();
+        int hash = 0;
+        int length = 0;
+        int nameTokenCount = lexer.getNameTokenCount();
+        for (int nameToken = 0; nameToken < nameTokenCount; nameToken++)
+        {
+            int tokenEnd = lexer.getNameTokenEnd(nameToken);
+            for (int position = lexer.getNameTokenStart(nameToken);
+            position < tokenEnd; position++)
+            {
+                hash = 31 * hash + lexer.getLineCharacter(position);
+            } // end of for (int position = ...)
+            length = length + tokenEnd - lexer.getNameTokenStart(nameToken);
+        } // end of for (int nameToken = 0; ...)
+        hash = spread(hash);
+
+        // Look for the same characters in the table.
+        int slotMask = slot.length - 1;
+        int slotIndex = hash & slotMask;
+        while (slot[slotIndex] != 0)
+        {
+            int entry = slot[slotIndex] - 1;
+            if (entryHash[entry] == hash && keyLength[entry] == length
+                && keyFromBytes[entry] == fromBytes
+                && keyMatches(entry, lexer))
+            {
+                return entryId[entry];
+            } // end of if (entryHash[entry] == hash && ...)
+            slotIndex = (slotIndex + 1) & slotMask;
+        } // end of while (slot[slotIndex] != 0)
+
+        // New characters: make the name, and remember them.
+        int id = idOfCreator(lexer.createCreatorName());
+        addEntry(hash, length, fromBytes, id, lexer);
+        return id;
+    } // end of method idOfLexedCreator(LineLexer lexer)
+
+    /**
+     * Returns the number of the creator with the given name,
+     * numbering the creator if they are new.
+     *
+     * @param videoCreator the name of the creator.
+     * @return the creator's number.
+     */
+    public int idOfCreator(String videoCreator)
+    {
+        Integer id = creatorId.get(videoCreator);
+        if (id == null)
+        {
+            id = Integer.valueOf(creatorName.size());
+            creatorName.add(videoCreator);
+            creatorId.put(videoCreator, id);
+        } // end of if (id == null)
+        return id.intValue();
+    } // end of method idOfCreator(String videoCreator)
+
+    /**
+     * Returns the name of the creator with the given number.
+     *
+     * @param id the creator's number.
+     * @return the creator's name.
+     */
+    public String getCreatorName(int id)
+    {
+        return creatorName.get(id);
+    } // end of method getCreatorName(int id)
+
+    /**
+     * Returns how many creators have been numbered.
+     *
+     * @return the number of creators.
+     */
+    public int size()
+    {
+        return creatorName.size();
+    } // end of method size()
+
+    /* private implementation */
+    /**
+     * Mixes the bits of a hash, so that similar names
+     * don't crowd into neighbouring slots.
+     *
+     * @param hash the hash.
+     * @return the mixed hash.
+     */
+    private static int spread(int hash)
+    {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    } // end of method spread(int hash)
+
+    /**
+     * Checks if the name tokens of the lexer's line are the
+     * same characters as a key, whose length is already known
+     * to be the same.
+     *
+     * @param entry the key's entry.
+     * @param lexer the lexer of the line.
+     * @return true if the characters are the same, false otherwise.
+     */
+    private boolean keyMatches(int entry, LineLexer lexer)
+    {
+        int unitIndex = keyStart[entry];
+        int nameTokenCount = lexer.getNameTokenCount();
+        for (int nameToken = 0; nameToken < nameTokenCount; nameToken++)
+        {
+            int tokenEnd = lexer.getNameTokenEnd(nameToken);
+            for (int position = lexer.getNameTokenStart(nameToken);
+            position < tokenEnd; position++)
+            {
+                if (keyUnit[unitIndex] != lexer.getLineCharacter(position))
+                {
+                    return false;
+                } // end of if (keyUnit[unitIndex] != ...)
+                unitIndex = unitIndex + 1;
+            } // end of for (int position = ...)
+        } // end of for (int nameToken = 0; ...)
+        return true;
+    } // end of method keyMatches(int entry, LineLexer lexer)
+
+    /**
+     * Remembers the name tokens of the lexer's line as a new key.
+     *
+     * @param hash the key's hash.
+     * @param length how many characters the key has.
+     * @param fromBytes whether the line was bytes.
+     * @param id the number of the key's creator.
+     * @param lexer the lexer of the line.
+     */
+    private void addEntry(int hash, int length, boolean fromBytes, int id,
+    LineLexer lexer)
+    {
+        if (entryCount == entryHash.length)
+        {
+            growEntries();
+        } // end of if (entryCount == entryHash.length)
+        if (keyUnitCount + length > keyUnit.length)
+        {
+            keyUnit = Arrays.copyOf(keyUnit,
+            Math.max(keyUnit.length * 2, keyUnitCount + length));
+        } // end of if (keyUnitCount + length > keyUnit.length)
+
+        // Copy the key's characters.
+        int entry = entryCount;
+        entryHash[entry] = hash;
+        entryId[entry] = id;
+        keyFromBytes[entry] = fromBytes;
+        keyLength[entry] = length;
+        keyStart[entry] = keyUnitCount;
+        int nameTokenCount = lexer.getNameTokenCount();
+        for (int nameToken = 0; nameToken < nameTokenCount; nameToken++)
+        {
+            int tokenEnd = lexer.getNameTokenEnd(nameToken);
+            for (int position = lexer.getNameTokenStart(nameToken);
+            position < tokenEnd; position++)
+            {
+                keyUnit[keyUnitCount] = lexer.getLineCharacter(position);
+                keyUnitCount = keyUnitCount + 1;
+            } // end of for (int position = ...)
+        } // end of for (int nameToken = 0; ...)
+        entryCount = entryCount + 1;
+        placeEntry(entry);
+    } // end of method addEntry(int hash, ...)
+
+    /**
+     * Puts an entry in the first free slot from its hash on.
+     *
+     * @param entry the entry.
+     */
+    private void placeEntry(int entry)
+    {
+        int slotMask = slot.length - 1;
+        int slotIndex = entryHash[entry] & slotMask;
+        while (slot[slotIndex] != 0)
+        {
+            slotIndex = (slotIndex + 1) & slotMask;
+        } // end of while (slot[slotIndex] != 0)
+        slot[slotIndex] = entry + 1;
+    } // end of method placeEntry(int entry)
+
+    /**
+     * Doubles the room for entries, and the table with them,
+     * so the table is never more than half full.
+     */
+    private void growEntries()
+    {
+        int newCapacity = entryHash.length * 2;
+        entryHash = Arrays.copyOf(entryHash, newCapacity);
+        entryId = Arrays.copyOf(entryId, newCapacity);
+        keyFromBytes = Arrays.copyOf(keyFromBytes, newCapacity);
+        keyLength = Arrays.copyOf(keyLength, newCapacity);
+        keyStart = Arrays.copyOf(keyStart, newCapacity);
+
+        slot = new int[newCapacity * 2];
+        for (int entry = 0; entry < entryCount; entry++)
+        {
+            placeEntry(entry);
+        } // end of for (int entry = 0; entry < entryCount; entry++)
+    } // end of method growEntries()
+
+} // end of class CreatorDictionary
@@ -1,6 +1,7 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 /**
  * A class that actually connects to the file and reads it.
@@ -14,6 +15,8 @@ public class FileAccessor
     private int currentStringNumber;
     private BufferedReader fileReader;
     private ArrayList<String> fileString;
+    private boolean readFailed;
+    private boolean streaming;
     
     /* constructors */
     /**
@@ -29,6 +32,8 @@ public class FileAccessor
         currentStringNumber = -1;
         fileReader = null;
         fileString = new ArrayList<String>();
+        readFailed = false;
+        streaming = false;
     } // end of constructor FileAccessor()
     
     /* public interface */
@@ -62,9 +67,55 @@ public class FileAccessor
         return false;
     } // end of method setFileAccessor(String fileName)
     
+    /**
+     * Prepares this file accessor to read the file with
+     * the given file name one line at a time, as the lines
+     * are asked for, instead of loading the whole file first.
+     * 
+     * Only the line most recently returned is held in memory,
+     * so memory use does not grow with the size of the file.
+     * 
+     * @param fileName the path of the wanted file
+     * @return true if we could connect to the file
+     */
+    public boolean setStreamingFileAccessor(String fileName)
+    {
+        // Forget anything left over from an earlier file.
+        closeFile();
+        currentStringNumber = -1;
+        fileString.clear();
+        readFailed = false;
+        
+        // Can we connect to the file?
+        boolean connectedToFile = connectToFile(fileName);
+        streaming = connectedToFile;
+        return connectedToFile;
+    } // end of method setStreamingFileAccessor(String fileName)
+    
+    /**
+     * Prepares this file accessor to read lines one at a time
+     * from something other than a file, such as a socket,
+     * the same way as setStreamingFileAccessor(String) does.
+     * The reader is closed once there are no more lines.
+     * 
+     * @param reader the reader to read lines from
+     */
+    public void setStreamingReader(Reader reader)
+    {
+        // Forget anything left over from an earlier file.
+        closeFile();
+        currentStringNumber = -1;
+        fileString.clear();
+        readFailed = false;
+        
+        fileReader = new BufferedReader(reader);
+        streaming = true;
+    } // end of method setStreamingReader(Reader reader)
+    
     /**
      * Returns the next line from this file 
-     * accessor's array list of file strings
+     * accessor's array list of file strings,
+     * or straight from the file when streaming.
      * 
      * @return the next line, null if there are no more lines.
      */
@@ -74,6 +125,11 @@ public class FileAccessor
          * which String to return next
          */
         currentStringNumber = currentStringNumber + 1;
+        if (streaming)
+        {
+            return readLineFromFile();
+        } // end of if (streaming)
+        
         if (currentStringNumber < fileString.size())
         {
             return fileString.get(currentStringNumber);
@@ -100,6 +156,40 @@ public class FileAccessor
         return currentStringNumber + 1;
     } // end of method getStringLocationInFile()
     
+    /**
+     * Checks if reading from the file failed
+     * part of the way through while streaming.
+     * 
+     * @return true if a line could not be read, false otherwise.
+     */
+    public boolean hadReadError()
+    {
+        return readFailed;
+    } // end of method hadReadError()
+    
+    /**
+     * Closes the file this accessor is streaming from, if any.
+     * Safe to call more than once.
+     */
+    public void closeFile()
+    {
+        streaming = false;
+        if (fileReader == null)
+        {
+            return;
+        } // end of if (fileReader == null)
+        
+        try
+        {
+            fileReader.close();
+        }
+        catch (IOException exception)
+        {
+            // Nothing more we can do with the file anyways.
+        } // end of catch (IOException exception)
+        fileReader = null;
+    } // end of method closeFile()
+    
     /* private implementation */
     /**
      * Sets up the buffered reader for a file.
@@ -151,4 +241,31 @@ public class FileAccessor
         return true;
     } // end of method getAllDataFromFile()
     
+    /**
+     * Reads the next line straight from the file,
+     * closing the file once there are no more lines.
+     * 
+     * @return the next line, null if there are no more lines.
+     */
+    private String readLineFromFile()
+    {
+        // Can we still read from the file?
+        try
+        {
+            String currentString = fileReader.readLine();
+            if (currentString == null)
+            {
+                // We don't need the file anymore, close it.
+                closeFile();
+            } // end of if (currentString == null)
+            return currentString;
+        }
+        catch (IOException exception)
+        {
+            readFailed = true;
+            closeFile();
+            return null;
+        } // end of catch (IOException exception)
+    } // end of method readLineFromFile()
+    
 } // end of class FileAccessor
@@ -0,0 +1,688 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+/**
+ * A class that follows a file that is still being written to,
+ * like "tail -f" does, keeping the statistics of its videos
+ * up to date as lines are added to the end of it.
+ *
+ * Only the bytes added since the last look are read, and their
+ * lines are added to the videos already made, so the file is
+ * never read from the start again. A line is only read once
+ * its line break has been written, so a line that is still
+ * being written is left for the next look.
+ * The results file is written again every so often,
+ * if anything changed, by writing a new file and
+ * moving it over the old one.
+ * If asked to, the statistics are published at the same
+ * times to a server, see StatisticServer, which answers
+ * requests for them while the file is still being read, and
+ * what has been read so far can be printed every so often,
+ * see IngestMetrics. Lines of another layout are read with a
+ * RatingSchema, given with "--schema FILE".
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-21
+ */
+public class FileFollower
+{
+    /* non-instance fields: constants */
+    private static final long DEFAULT_POLL_INTERVAL = 500;
+    private static final long DEFAULT_WRITE_INTERVAL = 5000;
+
+    /* instance fields */
+    private FileChannel channel;
+    private String errorFileName;
+    private String fileName;
+    private volatile boolean following;
+    private FileInterpreter interpreter;
+    private long metricsInterval;
+    private long pollInterval;
+    private long processedOffset;
+    private ReportWriter reportWriter;
+    private String resultFileName;
+    private boolean resultsChanged;
+    private RatingSchema schema;
+    private int servePort;
+    private StatisticServer server;
+    private boolean skipLineFeed;
+    private CountDownLatch stopped;
+    private long writeInterval;
+
+    /* constructors */
+    /**
+     * Initializes a new follower with the default settings.
+     */
+    public FileFollower()
+    {
+        channel = null;
+        errorFileName = "invalidLines.text";
+        fileName = null;
+        following = true;
+        interpreter = null;
+        metricsInterval = 0;
+        pollInterval = DEFAULT_POLL_INTERVAL;
+        processedOffset = 0;
+        reportWriter = new ReportWriter();
+        reportWriter.setMetrics(IngestMetrics.getMetrics());
+        resultFileName = "videoResults.text";
+        resultsChanged = false;
+        schema = RatingSchema.DEFAULT;
+        servePort = -1;
+        server = null;
+        skipLineFeed = false;
+        stopped = new CountDownLatch(1);
+        writeInterval = DEFAULT_WRITE_INTERVAL;
+    } // end of constructor FileFollower()
+
+    /* public interface */
+    /**
+     * Sets this follower's settings and file from command line
+     * arguments, the ones after "--follow".
+     *
+     * @param argument the command line arguments.
+     * @param firstIndex the index of the first argument to use.
+     * @return true if the arguments could be understood.
+     */
+    public boolean setOptions(String[] argument, int firstIndex)
+    {
+        boolean distribution = false;
+        int index = firstIndex;
+        while (index < argument.length)
+        {
+            String currentArgument = argument[index];
+            if (!currentArgument.startsWith("--"))
+            {
+                if (fileName != null)
+                {
+                    // Only one file can be followed.
+                    return false;
+                } // end of if (fileName != null)
+                fileName = currentArgument;
+                index = index + 1;
+                continue;
+            } // end of if (!currentArgument.startsWith("--"))
+
+            // Every option takes a value.
+            if (index + 1 == argument.length)
+            {
+                return false;
+            } // end of if (index + 1 == argument.length)
+            String value = argument[index + 1];
+            index = index + 2;
+
+            if (currentArgument.equals("--results"))
+            {
+                resultFileName = value;
+            }
+            else if (currentArgument.equals("--errors"))
+            {
+                errorFileName = value;
+            }
+            else if (currentArgument.equals("--poll-ms"))
+            {
+                pollInterval = parseInterval(value);
+            }
+            else if (currentArgument.equals("--write-ms"))
+            {
+                writeInterval = parseInterval(value);
+            }
+            else if (currentArgument.equals("--distribution"))
+            {
+                distribution = Boolean.parseBoolean(value);
+                reportWriter.setWriteDistribution(distribution);
+            }
+            else if (currentArgument.equals("--spread"))
+            {
+                reportWriter.setWriteSpread(Boolean.parseBoolean(value));
+            }
+            else if (currentArgument.equals("--format"))
+            {
+                if (!reportWriter.setFormat(value))
+                {
+                    return false;
+                } // end of if (!reportWriter.setFormat(value))
+            }
+            else if (currentArgument.equals("--serve"))
+            {
+                servePort = parsePort(value);
+            }
+            else if (currentArgument.equals("--metrics-ms"))
+            {
+                metricsInterval = parseInterval(value);
+                if (metricsInterval <= 0)
+                {
+                    return false;
+                } // end of if (metricsInterval <= 0)
+            }
+            else if (currentArgument.equals("--schema"))
+            {
+                schema = RatingSchema.load(value);
+                if (schema == null)
+                {
+                    System.out.println("Error: " + value
+                    + " is not a schema that could be read.");
+                    return false;
+                } // end of if (schema == null)
+                reportWriter.setSchema(schema);
+            }
+            else
+            {
+                return false;
+            } // end of if (currentArgument.equals("--results"))
+        } // end of while (index < argument.length)
+
+        // Distributions need a count for every score the schema allows.
+        if (distribution && !schema.canBinRatings())
+        {
+            System.out.println("Error: The schema allows too many "
+            + "different ratings for --distribution.");
+            return false;
+        } // end of if (distribution && !schema.canBinRatings())
+
+        return fileName != null && pollInterval > 0 && writeInterval > 0
+        && servePort >= -1 && servePort <= 65535;
+    } // end of method setOptions(String[] argument, int firstIndex)
+
+    /**
+     * Follows the file until stop() is called, reading the lines
+     * added to it and writing the results file every so often.
+     *
+     * @return true if the file could be followed, false otherwise.
+     */
+    public boolean run()
+    {
+        if (servePort >= 0)
+        {
+            server = new StatisticServer();
+            server.setSchema(schema);
+            if (!server.start(servePort))
+            {
+                stopped.countDown();
+                return false;
+            } // end of if (!server.start(servePort))
+            System.out.println("Serving statistics on port "
+            + server.getPort() + ".");
+        } // end of if (servePort >= 0)
+        if (metricsInterval > 0)
+        {
+            IngestMetrics.getMetrics().startLogging(metricsInterval);
+        } // end of if (metricsInterval > 0)
+
+        try
+        {
+            return follow();
+        }
+        finally
+        {
+            if (metricsInterval > 0)
+            {
+                IngestMetrics.getMetrics().stopLogging();
+                System.out.println(IngestMetrics.getMetrics().summaryLine());
+            } // end of if (metricsInterval > 0)
+            if (server != null)
+            {
+                server.stop();
+            } // end of if (server != null)
+            closeFile();
+            stopped.countDown();
+        } // end of finally
+    } // end of method run()
+
+    /**
+     * Asks this follower to stop, and waits until it has
+     * written its last results. Safe to call from another
+     * thread, such as a shutdown hook.
+     */
+    public void stop()
+    {
+        following = false;
+        try
+        {
+            stopped.await(pollInterval + writeInterval, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+        } // end of catch (InterruptedException exception)
+    } // end of method stop()
+
+    /**
+     * Prints how to use follow mode.
+     */
+    public static void printUsage()
+    {
+        System.out.println("Usage: java Main --follow [option value ...] "
+        + "file");
+        System.out.println("Options:");
+        System.out.println("  --results FILE       results file "
+        + "(default videoResults.text)");
+        System.out.println("  --errors FILE        invalid lines file "
+        + "(default invalidLines.text)");
+        System.out.println("  --poll-ms N          how often to look for "
+        + "new lines (default " + DEFAULT_POLL_INTERVAL + ")");
+        System.out.println("  --write-ms N         how often to write the "
+        + "results (default " + DEFAULT_WRITE_INTERVAL + ")");
+        System.out.println("  --format FORMAT      results as text, csv, "
+        + "json or jsonl (default text)");
+        System.out.println("  --distribution BOOL  also write medians, "
+        + "percentiles and modes (default false)");
+        System.out.println("  --spread BOOL        also write variances "
+        + "and standard deviations (default false)");
+        System.out.println("  --serve PORT         also serve the "
+        + "statistics over HTTP");
+        System.out.println("  --metrics-ms N       print what has been "
+        + "read every N milliseconds");
+        System.out.println("  --schema FILE        the layout of the "
+        + "lines, for other rating forms");
+    } // end of method printUsage()
+
+    /* private implementation */
+    /**
+     * Reads the file as it grows, until this follower is stopped.
+     *
+     * @return true if the file could be followed, false otherwise.
+     */
+    private boolean follow()
+    {
+        if (!startOver())
+        {
+            return false;
+        } // end of if (!startOver())
+
+        // Being told when the file changes saves looking for nothing.
+        WatchService watcher = createWatcher();
+        long lastWrite = 0;
+        boolean followedFine = true;
+        while (following && followedFine)
+        {
+            followedFine = readNewLines();
+
+            long now = System.currentTimeMillis();
+            if (resultsChanged && now - lastWrite >= writeInterval)
+            {
+                writeResults();
+                lastWrite = now;
+            } // end of if (resultsChanged && ...)
+
+            waitForChange(watcher);
+        } // end of while (following && followedFine)
+
+        // Leave the results as up to date as they can be.
+        if (resultsChanged)
+        {
+            writeResults();
+        } // end of if (resultsChanged)
+        closeWatcher(watcher);
+        return followedFine;
+    } // end of method follow()
+
+    /**
+     * Opens the file and reads it again from the start,
+     * with a new interpreter and new videos.
+     *
+     * @return true if the file could be opened, false otherwise.
+     */
+    private boolean startOver()
+    {
+        closeFile();
+        try
+        {
+            channel = FileChannel.open(Paths.get(fileName),
+            StandardOpenOption.READ);
+        }
+        catch (IOException exception)
+        {
+            System.out.println("Error: Could not open " + fileName);
+            return false;
+        } // end of catch (IOException exception)
+
+        interpreter = new FileInterpreter();
+        interpreter.setSchema(schema);
+        interpreter.setKeepRawRatings(false);
+        if (!interpreter.setErrorFile(errorFileName))
+        {
+            System.out.println("Error: Could not create " + errorFileName);
+            return false;
+        } // end of if (!interpreter.setErrorFile(errorFileName))
+        processedOffset = 0;
+        skipLineFeed = false;
+        resultsChanged = true;
+        return true;
+    } // end of method startOver()
+
+    /**
+     * Reads the whole lines added to the file since the last look.
+     *
+     * @return true if the lines could be read, false otherwise.
+     */
+    private boolean readNewLines()
+    {
+        long fileSize;
+        try
+        {
+            fileSize = channel.size();
+            if (fileSize < processedOffset)
+            {
+                // The file was cut short, so nothing we read still holds.
+                System.out.println(fileName + " got smaller, "
+                + "reading it again from the start.");
+                if (!startOver())
+                {
+                    return false;
+                } // end of if (!startOver())
+                fileSize = channel.size();
+            } // end of if (fileSize < processedOffset)
+
+            // Skip the line feed of a line break split between looks.
+            if (skipLineFeed && fileSize > processedOffset)
+            {
+                if (byteAt(processedOffset) == '\n')
+                {
+                    processedOffset = processedOffset + 1;
+                } // end of if (byteAt(processedOffset) == '\n')
+                skipLineFeed = false;
+            } // end of if (skipLineFeed && fileSize > processedOffset)
+
+            long linesEnd = findLastLineEnd(fileSize);
+            if (linesEnd == processedOffset)
+            {
+                // No whole line was added.
+                return true;
+            } // end of if (linesEnd == processedOffset)
+
+            if (!interpreter.interpretFileRange(channel, processedOffset,
+                linesEnd))
+            {
+                System.out.println("Error: Could not read " + fileName);
+                return false;
+            } // end of if (!interpreter.interpretFileRange(...))
+
+            // A line break ending in a carriage return may go on.
+            skipLineFeed = byteAt(linesEnd - 1) == '\r';
+            processedOffset = linesEnd;
+            resultsChanged = true;
+        }
+        catch (IOException exception)
+        {
+            System.out.println("Error: Could not read " + fileName);
+            return false;
+        } // end of catch (IOException exception)
+        return true;
+    } // end of method readNewLines()
+
+    /**
+     * Finds where the last whole line before the end
+     * of the file ends, just past its line break.
+     *
+     * @param fileSize the size of the file.
+     * @return the offset just past the last line break, or the
+     * offset already processed if no line break was added.
+     * @throws IOException if the file could not be read.
+     */
+    private long findLastLineEnd(long fileSize) throws IOException
+    {
+        ByteBuffer tail = ByteBuffer.allocate(8192);
+        long blockEnd = fileSize;
+        while (blockEnd > processedOffset)
+        {
+            long blockStart = Math.max(processedOffset,
+            blockEnd - tail.capacity());
+            tail.clear();
+            tail.limit((int) (blockEnd - blockStart));
+            readFully(tail, blockStart);
+
+            for (int index = tail.limit() - 1; index >= 0; index--)
+            {
+                byte currentByte = tail.get(index);
+                if (currentByte == '\n' || currentByte == '\r')
+                {
+                    return blockStart + index + 1;
+                } // end of if (currentByte == '\n' || ...)
+            } // end of for (int index = tail.limit() - 1; ...)
+            blockEnd = blockStart;
+        } // end of while (blockEnd > processedOffset)
+        return processedOffset;
+    } // end of method findLastLineEnd(long fileSize)
+
+    /**
+     * Reads one byte of the file.
+     *
+     * @param offset the offset of the byte.
+     * @return the byte.
+     * @throws IOException if the file could not be read.
+     */
+    private byte byteAt(long offset) throws IOException
+    {
+        ByteBuffer oneByte = ByteBuffer.allocate(1);
+        readFully(oneByte, offset);
+        return oneByte.get(0);
+    } // end of method byteAt(long offset)
+
+    /**
+     * Fills a buffer from the file, starting at the given offset.
+     *
+     * @param buffer the buffer to fill up to its limit.
+     * @param offset the offset to start reading from.
+     * @throws IOException if the file ended or could not be read.
+     */
+    private void readFully(ByteBuffer buffer, long offset) throws IOException
+    {
+        long readOffset = offset;
+        while (buffer.hasRemaining())
+        {
+            int bytesRead = channel.read(buffer, readOffset);
+            if (bytesRead < 0)
+            {
+                throw new IOException("The file ended early.");
+            } // end of if (bytesRead < 0)
+            readOffset = readOffset + bytesRead;
+        } // end of while (buffer.hasRemaining())
+    } // end of method readFully(ByteBuffer buffer, long offset)
+
+    /**
+     * Works out the statistics of the videos, publishes them if
+     * they are served, and writes them over the results file.
+     * The results are written to a new file first, so the
+     * results file is never seen half written.
+     */
+    private void writeResults()
+    {
+        ArrayList<Video> video = interpreter.getVideoSet();
+        StatisticExtractor extractor = new StatisticExtractor();
+        extractor.setMetrics(IngestMetrics.getMetrics());
+        extractor.extractStatistics(video);
+        if (server != null)
+        {
+            server.publish(video);
+        } // end of if (server != null)
+
+        Path resultFile = Paths.get(resultFileName).toAbsolutePath();
+        Path newResultFile = resultFile.resolveSibling(
+        resultFile.getFileName() + ".new");
+        try
+        {
+            if (!reportWriter.writeReport(video, newResultFile.toString()))
+            {
+                throw new IOException("Could not write " + newResultFile);
+            } // end of if (!reportWriter.writeReport(...))
+            moveOver(newResultFile, resultFile);
+            resultsChanged = false;
+        }
+        catch (IOException exception)
+        {
+            // Try again the next time round.
+            System.out.println("Error: Could not write " + resultFileName);
+        } // end of catch (IOException exception)
+    } // end of method writeResults()
+
+    /**
+     * Moves a file over another, all at once if the
+     * file system allows it.
+     *
+     * @param source the file to move.
+     * @param target the file to replace.
+     * @throws IOException if the file could not be moved.
+     */
+    private void moveOver(Path source, Path target) throws IOException
+    {
+        try
+        {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException exception)
+        {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        } // end of catch (IOException exception)
+    } // end of method moveOver(Path source, Path target)
+
+    /**
+     * Creates a watcher that is told when files in the
+     * followed file's folder change.
+     *
+     * @return the watcher, or null if there can't be one,
+     * in which case the file is simply looked at every so often.
+     */
+    private WatchService createWatcher()
+    {
+        Path folder = Paths.get(fileName).toAbsolutePath().getParent();
+        try
+        {
+            WatchService watcher = FileSystems.getDefault().newWatchService();
+            folder.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_CREATE);
+            return watcher;
+        }
+        catch (IOException exception)
+        {
+            return null;
+        } // end of catch (IOException exception)
+    } // end of method createWatcher()
+
+    /**
+     * Waits until something in the file's folder changes, or
+     * until it is time to look at the file again anyway.
+     * Some file systems don't report changes, so the wait is
+     * never longer than the poll interval.
+     *
+     * @param watcher the watcher, or null to just wait.
+     */
+    private void waitForChange(WatchService watcher)
+    {
+        try
+        {
+            if (watcher == null)
+            {
+                Thread.sleep(pollInterval);
+                return;
+            } // end of if (watcher == null)
+
+            WatchKey key = watcher.poll(pollInterval, TimeUnit.MILLISECONDS);
+            if (key != null)
+            {
+                // Every change is handled by looking at the file's size.
+                key.pollEvents();
+                key.reset();
+            } // end of if (key != null)
+        }
+        catch (InterruptedException exception)
+        {
+            following = false;
+            Thread.currentThread().interrupt();
+        } // end of catch (InterruptedException exception)
+    } // end of method waitForChange(WatchService watcher)
+
+    /**
+     * Closes a watcher, if there is one.
+     *
+     * @param watcher the watcher, or null.
+     */
+    private void closeWatcher(WatchService watcher)
+    {
+        if (watcher == null)
+        {
+            return;
+        } // end of if (watcher == null)
+        try
+        {
+            watcher.close();
+        }
+        catch (IOException exception)
+        {
+            // Nothing more to do with it.
+        } // end of catch (IOException exception)
+    } // end of method closeWatcher(WatchService watcher)
+
+    /**
+     * Closes the followed file and the error file, if they are open.
+     */
+    private void closeFile()
+    {
+        if (interpreter != null)
+        {
+            interpreter.closeErrorFile();
+        } // end of if (interpreter != null)
+        if (channel == null)
+        {
+            return;
+        } // end of if (channel == null)
+        try
+        {
+            channel.close();
+        }
+        catch (IOException exception)
+        {
+            // Nothing more to do with it.
+        } // end of catch (IOException exception)
+        channel = null;
+    } // end of method closeFile()
+
+    /**
+     * Reads a number of milliseconds.
+     *
+     * @param value the number, as text.
+     * @return the number, or 0 if it is not a number.
+     */
+    private long parseInterval(String value)
+    {
+        try
+        {
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException exception)
+        {
+            return 0;
+        } // end of catch (NumberFormatException exception)
+    } // end of method parseInterval(String value)
+
+    /**
+     * Reads the number of a port.
+     *
+     * @param value the number, as text.
+     * @return the number, or -2 if it is not a number.
+     */
+    private int parsePort(String value)
+    {
+        try
+        {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException exception)
+        {
+            return -2;
+        } // end of catch (NumberFormatException exception)
+    } // end of method parsePort(String value)
+
+} // end of class FileFollower
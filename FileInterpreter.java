@@ -1,8 +1,8 @@
+import java.io.Reader;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.io.FileWriter;
-import java.io.PrintWriter;
-import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.nio.channels.FileChannel;
 /**
  * A class to take in strings from its file accessor,
  * and sort their information into videos.
@@ -14,17 +14,31 @@ public class FileInterpreter
 {
     /* non-instance fields: constants */
     private static final String ERROR_FILE_NAME = "invalidLines.text";
-    private static final int NUMBER_OF_CATEGORIES = 4;
-    private static final int RATING_START_INDEX = 3;
+    private static final int HANDED_OVER_BATCHES = 4;
+    private static final int INVALID_LINE_BATCH_SIZE = 4096;
     private static final int STATUS_VALID = 1;
     private static final int STATUS_WRONG_RATING_TYPE = -2;
     private static final int STATUS_WRONG_TOKEN_COUNT = -1;
     
     /* instance fields */
     private FileAccessor accessor;
-    private PrintWriter errorFile;
+    private CreatorDictionary creatorDictionary;
+    private InvalidLineReporter errorFile;
+    private InvalidLineBatch invalidLineBatch;
+    private int invalidLineCount;
+    private ArrayBlockingQueue<InvalidLineBatch> invalidLineHandover;
+    private long[] invalidLineNumber;
+    private int[] invalidLineStatus;
+    private boolean keepRawRatings;
+    private LineLexer lexer;
+    private LineOffsetIndex lineIndex;
+    private LineMetrics lineMetrics;
+    private long linesInterpreted;
+    private int parallelism;
+    private int[] ratingData;
+    private RatingSchema schema;
+    private volatile boolean stopRequested;
     private ArrayList<Video> video;
-    private HashMap<String, Video> videoNameLinker;
 
     /* constructors */
     /**
@@ -34,9 +48,23 @@ public class FileInterpreter
     public FileInterpreter()
     {
         video = new ArrayList<Video>();
-        videoNameLinker = new HashMap<String, Video>();
         accessor = new FileAccessor();
+        creatorDictionary = new CreatorDictionary();
         errorFile = null;
+        invalidLineBatch = null;
+        invalidLineCount = 0;
+        invalidLineHandover = null;
+        invalidLineNumber = new long[16];
+        invalidLineStatus = new int[16];
+        keepRawRatings = true;
+        lexer = new LineLexer();
+        lineIndex = null;
+        lineMetrics = new LineMetrics();
+        linesInterpreted = 0;
+        parallelism = Runtime.getRuntime().availableProcessors();
+        ratingData = new int[RatingSchema.DEFAULT.getCategoryCount()];
+        schema = RatingSchema.DEFAULT;
+        stopRequested = false;
     } // end of constructor FileInterpreter()
     
     /**
@@ -46,17 +74,136 @@ public class FileInterpreter
      */
     public boolean setErrorFile()
     {
-        try
-        {
-            errorFile
-            = new PrintWriter(new FileWriter(ERROR_FILE_NAME));
-        }
-        catch (IOException exception)
+        return setErrorFile(ERROR_FILE_NAME);
+    } // end of method setErrorFile()
+    
+    /**
+     * Sets the error file of this interpreter
+     * to the file with the given name.
+     * 
+     * @param errorFileName the path of the error file
+     * @return true if file could be created, false otherwise.
+     */
+    public boolean setErrorFile(String errorFileName)
+    {
+        // Error messages are written on a thread of their own.
+        InvalidLineReporter reporter = new InvalidLineReporter();
+        if (!reporter.open(errorFileName))
         {
             return false;
-        } // end of catch (IOException exception)
+        } // end of if (!reporter.open(errorFileName))
+        reporter.setSchema(schema);
+        errorFile = reporter;
         return true;
-    } // end of method setErrorFile()
+    } // end of method setErrorFile(String errorFileName)
+    
+    /**
+     * Returns the reporter that writes this interpreter's error
+     * file, so that limits, sampling and a summary can be set.
+     * 
+     * @return the reporter, or null if there is no error file.
+     */
+    public InvalidLineReporter getErrorReporter()
+    {
+        return errorFile;
+    } // end of method getErrorReporter()
+    
+    /**
+     * Sets whether the videos made by this interpreter keep
+     * every raw rating, or only the running totals of their ratings.
+     * Keeping only the totals lets a video's size stay the same
+     * no matter how many ratings it is given.
+     * 
+     * @param keepRatings true to keep every rating,
+     * false to keep only the totals
+     */
+    public void setKeepRawRatings(boolean keepRatings)
+    {
+        keepRawRatings = keepRatings;
+    } // end of method setKeepRawRatings(boolean keepRatings)
+    
+    /**
+     * Sets whether this interpreter keeps a sparse index of where
+     * the lines of its file start, see LineOffsetIndex, so that
+     * invalid lines can be found again quickly. Only files read
+     * by mapping them, whole or in ranges, are indexed, since
+     * streamed lines are decoded before their offsets are known.
+     * 
+     * @param keepIndex true to keep an index, false otherwise
+     */
+    public void setKeepLineIndex(boolean keepIndex)
+    {
+        lineIndex = null;
+        if (keepIndex)
+        {
+            lineIndex = new LineOffsetIndex();
+        } // end of if (keepIndex)
+    } // end of method setKeepLineIndex(boolean keepIndex)
+    
+    /**
+     * Sets how many ranges of a file
+     * accessAndInterpretFileInParallel(String) interprets at
+     * once, every available processor unless set. Files read at
+     * the same time should share the processors between them.
+     * 
+     * @param numberOfWorkers how many ranges to interpret at once.
+     */
+    public void setParallelism(int numberOfWorkers)
+    {
+        parallelism = numberOfWorkers;
+    } // end of method setParallelism(int numberOfWorkers)
+    
+    /**
+     * Sets whether invalid lines are handed over as they are found,
+     * when there is no error file, instead of being remembered until
+     * this interpreter is merged. They are handed over in batches,
+     * through a small queue, to the interpreter that takes them with
+     * takeInvalidLines(FileInterpreter). While the queue is full,
+     * reading waits, so however many lines are invalid, only a few
+     * batches of them are ever held.
+     * 
+     * @param handOver true to hand invalid lines over,
+     * false to remember them
+     */
+    public void setHandOverInvalidLines(boolean handOver)
+    {
+        invalidLineHandover = null;
+        if (handOver)
+        {
+            invalidLineHandover = new ArrayBlockingQueue<InvalidLineBatch>(
+            HANDED_OVER_BATCHES);
+        } // end of if (handOver)
+    } // end of method setHandOverInvalidLines(boolean handOver)
+    
+    /**
+     * Sets the layout of the lines this interpreter reads, see
+     * RatingSchema. Should be set before any line is read. The
+     * lexer and the videos are made for the schema, so lines of
+     * every schema are read just as fast. Snapshots and record
+     * files are only loaded if they were made for the same layout.
+     * 
+     * @param lineSchema the layout of the lines
+     */
+    public void setSchema(RatingSchema lineSchema)
+    {
+        schema = lineSchema;
+        lexer = new LineLexer(lineSchema);
+        ratingData = new int[lineSchema.getCategoryCount()];
+        if (errorFile != null)
+        {
+            errorFile.setSchema(lineSchema);
+        } // end of if (errorFile != null)
+    } // end of method setSchema(RatingSchema lineSchema)
+    
+    /**
+     * Returns the layout of the lines this interpreter reads.
+     * 
+     * @return the schema
+     */
+    public RatingSchema getSchema()
+    {
+        return schema;
+    } // end of method getSchema()
     
     /* public interface */
     /**
@@ -69,32 +216,379 @@ public class FileInterpreter
     public boolean accessAndInterpretFile(String fileName)
     {
         // Sets fileAccessor, and checks to see if it worked.
-        // That is to say, could we connect to the file and console?
-        boolean couldSetFile = accessor.setFileAccessor(fileName);
+        // That is to say, could we connect to the file?
+        // Lines are streamed, so the file is never held in memory.
+        boolean couldSetFile = accessor.setStreamingFileAccessor(fileName);
         if (!couldSetFile)
         {
+            // We won't be analyzing any lines.
+            closeErrorFile();
             return false;
         } // end of if (!couldSetFile)
+        return interpretStreamedLines();
+    } // end of method accessAndInterpretFile(String fileName)
+    
+    /**
+     * Synthesizes video objects from the lines of a reader, such
+     * as one reading from a socket, the same way as
+     * accessAndInterpretFile(String) does from a file.
+     * 
+     * @param reader the reader to read lines from, which is closed
+     * once there are no more lines
+     * @return true if every line could be read, false otherwise.
+     */
+    public boolean accessAndInterpretReader(Reader reader)
+    {
+        accessor.setStreamingReader(reader);
+        return interpretStreamedLines();
+    } // end of method accessAndInterpretReader(Reader reader)
+    
+    /**
+     * Accesses a file by memory-mapping it, and synthesizes
+     * video objects from it, using the data found in the file lines.
+     * 
+     * Lines are lexed straight from the mapped bytes, so nothing
+     * is copied out of the page cache. This is the faster way
+     * to read large files, especially ones read over and over.
+     * 
+     * @param fileName the name of the text file
+     * @return true if file could be accessed, false otherwise. 
+     */
+    public boolean accessAndInterpretMappedFile(String fileName)
+    {
+        // Could we open and map the file?
+        MappedFileAccessor mappedAccessor = new MappedFileAccessor();
+        boolean couldSetFile = mappedAccessor.setFileAccessor(fileName);
+        if (!couldSetFile)
+        {
+            // We won't be analyzing any lines.
+            closeErrorFile();
+            return false;
+        } // end of if (!couldSetFile)
+        if (lineIndex != null)
+        {
+            lineIndex.setDataFile(fileName);
+            lineIndex.addEntry(1, 0);
+        } // end of if (lineIndex != null)
         
         /* Analyze every line in the file, creating videos 
            and printing error messages as needed. */
-   
-        boolean canAnalyzeMoreLines;
-        do
+        lineMetrics.startLine();
+        while (mappedAccessor.lexLineFromFile(lexer))
         {
-            // Are there any more lines to analyze?
-            canAnalyzeMoreLines = getAndAnalyzeLine();
-        } while (canAnalyzeMoreLines);
-        // end of do while (canAnalyzeMoreLines);
-
+            lineMetrics.endStage(LineMetrics.STAGE_VALIDATE);
+            analyzeLexedLine(mappedAccessor.getStringLocationInFile());
+            indexLine(mappedAccessor, 0);
+            lineMetrics.startLine();
+        } // end of while (mappedAccessor.lexLineFromFile(lexer))
+        lineMetrics.flush();
+        mappedAccessor.closeFile();
+        
         /*
          * We don't need the error file anymore
          * since we're not analyzing lines anymore.
          */
-        errorFile.close();
+        closeErrorFile();
+        
+        // Did part of the file fail to map?
+        return !mappedAccessor.hadReadError();
+    } // end of method accessAndInterpretMappedFile(String fileName)
+    
+    /**
+     * Accesses a file, and synthesizes video objects from it,
+     * splitting the file into ranges that are interpreted
+     * at the same time, on every available processor unless
+     * setParallelism(int) was called.
+     * 
+     * The videos, their ratings, and the error messages
+     * come out the same as from accessAndInterpretFile(String).
+     * 
+     * @param fileName the name of the text file
+     * @return true if file could be accessed, false otherwise. 
+     */
+    public boolean accessAndInterpretFileInParallel(String fileName)
+    {
+        if (lineIndex != null)
+        {
+            lineIndex.setDataFile(fileName);
+        } // end of if (lineIndex != null)
+        
+        /* The ranges are merged in file order, as soon as each and
+         * the ones before it are done, so that videos keep the order
+         * they first appear in, and line numbers carry on from the
+         * ranges before.
+         */
+        ParallelIngestEngine engine = new ParallelIngestEngine(parallelism);
+        engine.setKeepLineIndex(lineIndex != null);
+        engine.setSchema(schema);
+        boolean couldInterpretFile
+        = engine.interpretFile(fileName, keepRawRatings, this);
+        
+        /*
+         * We don't need the error file anymore
+         * since we're not analyzing lines anymore.
+         */
+        closeErrorFile();
+        return couldInterpretFile;
+    } // end of method accessAndInterpretFileInParallel(String fileName)
+    
+    /**
+     * Synthesizes video objects from the lines found between
+     * the given offsets of a file. Line numbers carry on from
+     * the lines this interpreter has already interpreted, so
+     * the ranges of a file can be given one after the other.
+     * Invalid lines are printed to the error file if this
+     * interpreter has one, and remembered otherwise.
+     * 
+     * @param channel the channel of the file.
+     * @param rangeStart the offset of the range's first byte,
+     * which should be the start of a line.
+     * @param rangeEnd the offset just past the range's last byte.
+     * @return true if the range could be read, false otherwise.
+     */
+    public boolean interpretFileRange(FileChannel channel, long rangeStart,
+    long rangeEnd)
+    {
+        MappedFileAccessor mappedAccessor = new MappedFileAccessor();
+        boolean couldSetRange = !stopRequested
+        && mappedAccessor.setFileRange(channel, rangeStart, rangeEnd);
+        if (!couldSetRange)
+        {
+            return false;
+        } // end of if (!couldSetRange)
+        if (lineIndex != null)
+        {
+            lineIndex.addEntry(linesInterpreted + 1, rangeStart);
+        } // end of if (lineIndex != null)
+        
+        lineMetrics.startLine();
+        while (!stopRequested && mappedAccessor.lexLineFromFile(lexer))
+        {
+            lineMetrics.endStage(LineMetrics.STAGE_VALIDATE);
+            analyzeLexedLine(linesInterpreted
+            + mappedAccessor.getStringLocationInFile());
+            indexLine(mappedAccessor, linesInterpreted);
+            lineMetrics.startLine();
+        } // end of while (!stopRequested && ...)
+        lineMetrics.flush();
+        linesInterpreted = linesInterpreted
+        + mappedAccessor.getStringLocationInFile();
+        mappedAccessor.closeFile();
+        if (stopRequested)
+        {
+            return false;
+        } // end of if (stopRequested)
+        
+        // Let readers of the error file see this range's lines.
+        if (errorFile != null)
+        {
+            errorFile.flush();
+        } // end of if (errorFile != null)
+        return !mappedAccessor.hadReadError();
+    } // end of method interpretFileRange(FileChannel channel, ...)
+    
+    /**
+     * Merges the videos and invalid lines of an interpreter that
+     * read another source into this interpreter, as if that source
+     * came after the ones this interpreter has already read:
+     * videos of new creators are added after the ones already
+     * here, and invalid line numbers carry on from the lines
+     * already interpreted.
+     * 
+     * @param sourceInterpreter the interpreter of the other source
+     */
+    public void mergeInterpreter(FileInterpreter sourceInterpreter)
+    {
+        mergeRange(sourceInterpreter, linesInterpreted);
+        linesInterpreted = linesInterpreted
+        + sourceInterpreter.linesInterpreted;
+    } // end of method mergeInterpreter(FileInterpreter sourceInterpreter)
+    
+    /**
+     * Reports the invalid lines another interpreter hands over,
+     * see setHandOverInvalidLines(boolean), as they come, with
+     * line numbers carrying on from the lines already interpreted.
+     * Returns once that interpreter has finished handing them over,
+     * so it should be merged with mergeInterpreter(FileInterpreter)
+     * right after.
+     * 
+     * @param sourceInterpreter the interpreter handing lines over
+     */
+    public void takeInvalidLines(FileInterpreter sourceInterpreter)
+    {
+        while (true)
+        {
+            InvalidLineBatch batch
+            = takeBatch(sourceInterpreter.invalidLineHandover);
+            if (batch.count < 0)
+            {
+                return;
+            } // end of if (batch.count < 0)
+            for (int line = 0; line < batch.count; line++)
+            {
+                reportInvalidLine(linesInterpreted + batch.lineNumber[line],
+                batch.status[line]);
+            } // end of for (int line = 0; line < batch.count; line++)
+        } // end of while (true)
+    } // end of method takeInvalidLines(FileInterpreter sourceInterpreter)
+    
+    /**
+     * Hands over the last invalid lines found, and then a mark that
+     * no more will come, if invalid lines are handed over. Should
+     * be called once reading is done, whether or not it worked.
+     */
+    public void finishHandingOver()
+    {
+        if (invalidLineHandover == null)
+        {
+            return;
+        } // end of if (invalidLineHandover == null)
+        if (invalidLineBatch != null)
+        {
+            handOver(invalidLineBatch);
+        } // end of if (invalidLineBatch != null)
+        
+        // A batch of -1 lines marks the end.
+        invalidLineBatch = new InvalidLineBatch(0);
+        invalidLineBatch.count = -1;
+        handOver(invalidLineBatch);
+        invalidLineBatch = null;
+    } // end of method finishHandingOver()
+    
+    /**
+     * Asks this interpreter to stop reading lines, and to throw away
+     * the invalid lines it would hand over, since nothing will take
+     * them. Can be called from another thread than the one reading.
+     */
+    public void stopInterpreting()
+    {
+        stopRequested = true;
+        if (invalidLineHandover != null)
+        {
+            // Let a reader waiting on a full queue go on.
+            invalidLineHandover.clear();
+        } // end of if (invalidLineHandover != null)
+    } // end of method stopInterpreting()
+    
+    /**
+     * Synthesizes video objects from a record file made by
+     * RatingRecordConverter, in place of reading a text file.
+     * The record file holds only the valid lines, so no
+     * error messages are printed.
+     * 
+     * @param fileName the name of the record file
+     * @return true if file could be accessed, false otherwise,
+     * or if it was made for another schema than this one's.
+     */
+    public boolean accessAndInterpretRecordFile(String fileName)
+    {
+        RatingRecordReader reader = new RatingRecordReader();
+        reader.setKeepRawRatings(keepRawRatings);
+        ArrayList<Video> recordVideo = reader.readFile(fileName);
+        
+        // A record file has no invalid lines to report.
+        closeErrorFile();
+        if (recordVideo == null || !reader.getSchema().hasSameLayout(schema))
+        {
+            return false;
+        } // end of if (recordVideo == null || ...)
         
+        int videosBefore = video.size();
+        for (Video currentVideo : recordVideo)
+        {
+            addOrMergeVideo(currentVideo);
+        } // end of for (Video currentVideo : recordVideo)
+        lineMetrics.countCreators(video.size() - videosBefore);
+        lineMetrics.flush();
         return true;
-    } // end of method accessAndInterpretFile(String fileName)
+    } // end of method accessAndInterpretRecordFile(String fileName)
+    
+    /**
+     * Loads the videos saved in a snapshot, in place of reading
+     * a text file, so that none of its lines have to be checked.
+     * See VideoSnapshot for how snapshots are made.
+     * 
+     * @param fileName the name of the snapshot file
+     * @return true if the snapshot could be loaded, false otherwise,
+     * or if it was saved for another schema than this one's.
+     */
+    public boolean loadSnapshot(String fileName)
+    {
+        VideoSnapshot snapshot = new VideoSnapshot();
+        ArrayList<Video> snapshotVideo = snapshot.load(fileName);
+        
+        // A snapshot has no invalid lines to report.
+        closeErrorFile();
+        if (snapshotVideo == null
+            || !snapshot.getSchema().hasSameLayout(schema))
+        {
+            return false;
+        } // end of if (snapshotVideo == null || ...)
+        
+        int videosBefore = video.size();
+        for (Video currentVideo : snapshotVideo)
+        {
+            addOrMergeVideo(currentVideo);
+        } // end of for (Video currentVideo : snapshotVideo)
+        lineMetrics.countCreators(video.size() - videosBefore);
+        lineMetrics.flush();
+        return true;
+    } // end of method loadSnapshot(String fileName)
+    
+    /**
+     * Saves the videos of this interpreter to a snapshot,
+     * so they can be loaded again with loadSnapshot(String).
+     * 
+     * @param fileName the name of the snapshot file
+     * @return true if the snapshot could be saved, false otherwise.
+     */
+    public boolean saveSnapshot(String fileName)
+    {
+        return new VideoSnapshot().save(video, schema, fileName);
+    } // end of method saveSnapshot(String fileName)
+    
+    /**
+     * Closes the error file of this interpreter, if it has one.
+     * Used when ranges were interpreted one at a time, since
+     * only the accessAndInterpret methods close it themselves,
+     * and to find out if every invalid line could be written,
+     * since closing it again does nothing.
+     * 
+     * @return true if every invalid line reported could be
+     * written, or there is no error file, false otherwise.
+     */
+    public boolean closeErrorFile()
+    {
+        if (errorFile == null)
+        {
+            return true;
+        } // end of if (errorFile == null)
+        errorFile.close();
+        return !errorFile.hadWriteError();
+    } // end of method closeErrorFile()
+    
+    /**
+     * Returns how many lines this interpreter has interpreted
+     * through interpretFileRange(FileChannel, long, long), by
+     * streaming, or in the interpreters merged into it.
+     * 
+     * @return the number of lines.
+     */
+    public long getLinesInterpreted()
+    {
+        return linesInterpreted;
+    } // end of method getLinesInterpreted()
+    
+    /**
+     * Returns the index of where the lines of this
+     * interpreter's file start, if it keeps one.
+     * 
+     * @return the index, or null if it keeps none.
+     */
+    public LineOffsetIndex getLineIndex()
+    {
+        return lineIndex;
+    } // end of method getLineIndex()
     
     /**
      * Returns an array list that contains video objects.
@@ -110,18 +604,85 @@ public class FileInterpreter
     /* private implementation */
     /* file-interpreting-methods */
     /**
-     * Checks to see if this interpreter does not have 
-     * a video with the given creator in its array list.
+     * Adds a video made elsewhere to this interpreter's videos,
+     * or merges it into the video of the same creator,
+     * if this interpreter already has one.
      * 
-     * @param  videoCreator the name of who created the video
-     * @return true if video doesn't exist, false otherwise
+     * @param otherVideo the video to add.
      */
-    private boolean videoDoesNotExist(String videoCreator)
+    private void addOrMergeVideo(Video otherVideo)
     {
-        // Use HashMap, see if it returns null
-        Video testVideo = videoNameLinker.get(videoCreator);
-        return testVideo == null;
-    } // end of method videoDoesNotExist(String videoCreator)
+        /*
+         * Creators are numbered in the order their videos
+         * were added, so a new creator's number is the
+         * index its video will have.
+         */
+        int id = creatorDictionary.idOfCreator(otherVideo.getVideoCreator());
+        if (id == video.size())
+        {
+            video.add(otherVideo);
+        }
+        else
+        {
+            video.get(id).mergeVideo(otherVideo);
+        } // end of if (id == video.size())
+    } // end of method addOrMergeVideo(Video otherVideo)
+    
+    /**
+     * Adds where the line after the one most recently lexed starts
+     * to this interpreter's line index, if it keeps one and that
+     * line is one of the lines the index keeps.
+     * 
+     * @param mappedAccessor the accessor the line was lexed from
+     * @param linesBefore how many lines come before the
+     * accessor's first line
+     */
+    private void indexLine(MappedFileAccessor mappedAccessor,
+    long linesBefore)
+    {
+        long numberOfFileLine
+        = linesBefore + mappedAccessor.getStringLocationInFile();
+        if (lineIndex != null
+            && numberOfFileLine % LineOffsetIndex.INTERVAL == 0)
+        {
+            lineIndex.addEntry(numberOfFileLine + 1,
+            mappedAccessor.getNextLineOffset());
+        } // end of if (lineIndex != null && ...)
+    } // end of method indexLine(MappedFileAccessor mappedAccessor, ...)
+    
+    /**
+     * Analyzes every line of this interpreter's streaming accessor,
+     * then closes the error file.
+     * 
+     * @return true if every line could be read, false otherwise.
+     */
+    private boolean interpretStreamedLines()
+    {
+        /* Analyze every line in the file, creating videos 
+           and printing error messages as needed. */
+   
+        boolean canAnalyzeMoreLines;
+        do
+        {
+            // Are there any more lines to analyze?
+            canAnalyzeMoreLines = getAndAnalyzeLine();
+        } while (canAnalyzeMoreLines);
+        // end of do while (canAnalyzeMoreLines);
+        lineMetrics.flush();
+        
+        // The last look found no line, so it is not counted.
+        linesInterpreted = linesInterpreted
+        + accessor.getStringLocationInFile() - 1;
+
+        /*
+         * We don't need the error file anymore
+         * since we're not analyzing lines anymore.
+         */
+        closeErrorFile();
+        
+        // Did the file stop being readable part of the way through?
+        return !accessor.hadReadError();
+    } // end of method interpretStreamedLines()
     
     /**
      * Gets and analyzes a line from this interpreter's accessor.
@@ -131,11 +692,13 @@ public class FileInterpreter
     private boolean getAndAnalyzeLine()
     {
         // Get line.
+        lineMetrics.startLine();
         String fileString = accessor.getLineFromFile();
         
         // Could we get a line?
         if (fileString != null)
         {
+            lineMetrics.endStage(LineMetrics.STAGE_READ);
             analyzeLine(fileString);
             return true;
         } // end of if (fileString != null)
@@ -148,6 +711,23 @@ public class FileInterpreter
      * Analyzes a line, printing errror messages as needed.
      */
     private void analyzeLine(String fileString)
+    {
+        /*
+         * The lexer checks the line and keeps its name tokens
+         * and ratings, so the line is only gone through once.
+         */
+        lexer.lexLine(fileString);
+        lineMetrics.endStage(LineMetrics.STAGE_VALIDATE);
+        analyzeLexedLine(accessor.getStringLocationInFile());
+    } // end of method analyzeLine(String fileString)
+    
+    /**
+     * Analyzes the line most recently lexed,
+     * printing errror messages as needed.
+     * 
+     * @param numberOfFileLine the number of the line in the file
+     */
+    private void analyzeLexedLine(long numberOfFileLine)
     {
         /*
          * Check the validity of the string,
@@ -155,133 +735,221 @@ public class FileInterpreter
          * For every error found,
          * print an error message to the error file.
          */
-        int statusOfLine = LineChecker.statusOfLine(fileString);
-        int numberOfFileLine = accessor.getStringLocationInFile();
+        int statusOfLine = lexer.getStatus();
+        lineMetrics.countLine(statusOfLine, lexer.getLineLength());
         if (statusOfLine == STATUS_VALID)
         {
-            sortStringInformation(fileString);
+            sortStringInformation();
+            lineMetrics.endStage(LineMetrics.STAGE_PARSE);
         } // end of if (statusOfLine == STATUS_VALID)
-        else if (statusOfLine == STATUS_WRONG_TOKEN_COUNT)
-        {
-            errorFile.print("Error on line " + numberOfFileLine);
-            errorFile.println(": wrong number of tokens.");
-        } // end of if (statusOfLine == STATUS_WRONG_TOKEN_COUNT)
-        else if (statusOfLine == STATUS_WRONG_RATING_TYPE)
+        else if (statusOfLine == STATUS_WRONG_TOKEN_COUNT
+        || statusOfLine == STATUS_WRONG_RATING_TYPE)
         {
-            errorFile.print("Error on line " + numberOfFileLine);
-            errorFile.println(": ratings are not integers.");
-        } // end of if (statusOfLine == STATUS_WRONG_RATING_TYPE)
-    } // end of method analyzeLine(String fileString)
+            reportInvalidLine(numberOfFileLine, statusOfLine);
+        } // end of if (statusOfLine == STATUS_WRONG_TOKEN_COUNT ...)
+    } // end of method analyzeLexedLine(long numberOfFileLine)
     
     /**
-     * Splits a string into its tokens, and assigns 
-     * data to new or existing videos based on token information.
+     * Reports an invalid line to the error file's reporter,
+     * or if there is no error file, hands the line over
+     * or remembers it.
      * 
-     * @param fileString a given string from the file
+     * @param numberOfFileLine the number of the line in the file
+     * @param statusOfLine the status of the line
      */
-    private void sortStringInformation(String fileString)
+    private void reportInvalidLine(long numberOfFileLine, int statusOfLine)
     {
-        // Split fileString into array of tokens without whitespace
-        String[] fileStringToken = fileString.trim().split("\\s+");
-        
-        // Determine the creator of the video.
-        String videoCreator = determineVideoCreator(fileStringToken);
+        if (errorFile != null)
+        {
+            errorFile.report(numberOfFileLine, statusOfLine);
+            return;
+        } // end of if (errorFile != null)
+        if (invalidLineHandover != null)
+        {
+            if (invalidLineBatch == null)
+            {
+                invalidLineBatch = new InvalidLineBatch(
+                INVALID_LINE_BATCH_SIZE);
+            } // end of if (invalidLineBatch == null)
+            invalidLineBatch.lineNumber[invalidLineBatch.count]
+            = numberOfFileLine;
+            invalidLineBatch.status[invalidLineBatch.count] = statusOfLine;
+            invalidLineBatch.count = invalidLineBatch.count + 1;
+            if (invalidLineBatch.count == INVALID_LINE_BATCH_SIZE)
+            {
+                handOver(invalidLineBatch);
+                invalidLineBatch = null;
+            } // end of if (invalidLineBatch.count == ...)
+            return;
+        } // end of if (invalidLineHandover != null)
         
-        // Should we make a new video?
-        if (videoDoesNotExist(videoCreator))
+        // Make room for another invalid line, if needed.
+        if (invalidLineCount == invalidLineNumber.length)
         {
-            // Create, add, and link new video using podName.
-            Video newVideo = new Video(videoCreator);
-            video.add(newVideo);
-            videoNameLinker.put(videoCreator, newVideo);
-        } // end of if (videoDoesNotExist(videoCreator))
+            int newLength = invalidLineCount * 2;
+            invalidLineNumber = Arrays.copyOf(invalidLineNumber, newLength);
+            invalidLineStatus = Arrays.copyOf(invalidLineStatus, newLength);
+        } // end of if (invalidLineCount == invalidLineNumber.length)
+        invalidLineNumber[invalidLineCount] = numberOfFileLine;
+        invalidLineStatus[invalidLineCount] = statusOfLine;
+        invalidLineCount = invalidLineCount + 1;
+    } // end of method reportInvalidLine(long numberOfFileLine, ...)
+    
+    /**
+     * Merges the videos and invalid lines of an interpreter that
+     * read a later range of the same file into this interpreter.
+     * 
+     * @param rangeInterpreter the interpreter of the range
+     * @param linesBeforeRange how many lines come before the range
+     */
+    private void mergeRange(FileInterpreter rangeInterpreter,
+    long linesBeforeRange)
+    {
+        // Print the range's invalid lines with their place in the file.
+        for (int invalidLine = 0;
+        invalidLine < rangeInterpreter.invalidLineCount; invalidLine++)
+        {
+            long numberOfFileLine = linesBeforeRange
+            + rangeInterpreter.invalidLineNumber[invalidLine];
+            reportInvalidLine(numberOfFileLine,
+            rangeInterpreter.invalidLineStatus[invalidLine]);
+        } // end of for (int invalidLine = 0; ...)
         
-        // Get chosen video from our HashMap using pod name
-        Video videoToAddRating = videoNameLinker.get(videoCreator);
+        // Keep where the range's lines start, if both keep an index.
+        if (lineIndex != null && rangeInterpreter.lineIndex != null)
+        {
+            lineIndex.addEntries(rangeInterpreter.lineIndex,
+            linesBeforeRange);
+        } // end of if (lineIndex != null && ...)
         
-        // Get VideoRatingData (int array) from fileString
-        int[] ratingData = determineRatingData(fileStringToken);
+        // Add new videos, and merge the ones we already have.
+        int videosBefore = video.size();
+        for (Video rangeVideo : rangeInterpreter.video)
+        {
+            addOrMergeVideo(rangeVideo);
+        } // end of for (Video rangeVideo : rangeInterpreter.video)
         
-        // Give the video data necessary to form a VideoRating
-        videoToAddRating.addVideoRating(ratingData);
-    } // end of method sortStringInformation(String fileString)
+        // The range counted its creators; take back the ones we had.
+        lineMetrics.countCreators(video.size() - videosBefore
+        - rangeInterpreter.video.size());
+        lineMetrics.flush();
+    } // end of method mergeRange(FileInterpreter rangeInterpreter, ...)
     
-    /* gathering-info-from-token-array methods */
     /**
-     * Compiles specified string tokens to 
-     * form and return a video creator's name.
+     * Puts a batch of invalid lines on the queue they are handed
+     * over through, waiting while the queue is full, unless this
+     * interpreter was asked to stop.
      * 
-     * @param fileStringToken an array of string tokens
-     * @return the name of the creator of the video
+     * @param batch the batch
      */
-    private String determineVideoCreator(String[] fileStringToken)
+    private void handOver(InvalidLineBatch batch)
     {
-        /* Name of creator consists of tokens
-         * concatenated in sequential order.
-         * The first one has an index of 0,
-         * and the following have incrementing indexes
-         * up until the RATING_START_INDEX
-         */
-        // Return those tokens, concatenated together.
-        String podName = "";
-        int nameTokenIndex = 0;
-        
-        while (nameTokenIndex < RATING_START_INDEX)
+        boolean interrupted = false;
+        while (!stopRequested)
         {
-            podName = podName + fileStringToken[nameTokenIndex];
-            nameTokenIndex = nameTokenIndex + 1;
-        } // end of while (nameTokenIndex < RATING_START_INDEX)
-        
-        return podName;
-    } // end of method determineVideoCreator(String[] fileStringToken)
+            try
+            {
+                invalidLineHandover.put(batch);
+                break;
+            }
+            catch (InterruptedException exception)
+            {
+                interrupted = true;
+            } // end of catch (InterruptedException exception)
+        } // end of while (!stopRequested)
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        } // end of if (interrupted)
+    } // end of method handOver(InvalidLineBatch batch)
     
     /**
-     * Extract the rating data from a string token array, 
-     * and build an array with them to return.
+     * Takes a batch of invalid lines from a queue,
+     * waiting until there is one.
      * 
-     * @param fileStringToken an array of string tokens
-     * @return the ratings, compiled in an integer array
+     * @param queue the queue
+     * @return the batch
      */
-    private int[] determineRatingData(String[] fileStringToken)
+    private static InvalidLineBatch takeBatch(
+    ArrayBlockingQueue<InvalidLineBatch> queue)
     {
-        String[] stringRating = new String[NUMBER_OF_CATEGORIES];
-        /* We need a ratingStartIndex for where the ratings start
-         * showing up in fileStringToken.
-         * Since there are 3 tokens making up the name
-         * at the start, and their indexes are 0, 1, and 2,
-         * then the ratingStartIndex logically is at 3.
+        boolean interrupted = false;
+        InvalidLineBatch batch;
+        while (true)
+        {
+            try
+            {
+                batch = queue.take();
+                break;
+            }
+            catch (InterruptedException exception)
+            {
+                interrupted = true;
+            } // end of catch (InterruptedException exception)
+        } // end of while (true)
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        } // end of if (interrupted)
+        return batch;
+    } // end of method takeBatch(ArrayBlockingQueue<InvalidLineBatch> queue)
+    
+    /**
+     * Assigns the data of the line most recently lexed
+     * to new or existing videos based on its tokens.
+     */
+    private void sortStringInformation()
+    {
+        /*
+         * Determine the number of the video's creator, straight
+         * from the name tokens; the name is only made into a
+         * string the first time it is seen.
          */
-        int ratingStartIndex = RATING_START_INDEX;
+        int id = creatorDictionary.idOfLexedCreator(lexer);
         
-        // Create essentially the array.size() for rating
-        // This will help us transfer fileString data to stringRating
-        int totalTokenNumber = NUMBER_OF_CATEGORIES + ratingStartIndex;
+        // Should we make a new video?
+        if (id == video.size())
+        {
+            // Create and add new video, at the creator's number.
+            String videoCreator = creatorDictionary.getCreatorName(id);
+            video.add(new Video(videoCreator, keepRawRatings, schema));
+            lineMetrics.countCreators(1);
+        } // end of if (id == video.size())
         
-        while (ratingStartIndex < totalTokenNumber)
-        {
-            // fileStringToken will always be 3 indexes ahead
-            // of rating, so that rating will always get a
-            // string that can be converted to an integer.
-            int stringIndex = ratingStartIndex - 3;
-            stringRating[stringIndex] = fileStringToken[ratingStartIndex];
-            ratingStartIndex = ratingStartIndex + 1;
-        } // end of while (ratingStartIndex < totalTokenNumber)
+        // Get chosen video from our list using its creator's number.
+        Video videoToAddRating = video.get(id);
         
-        /* Prepare for conversion into integer array */
-        int[] integerRating = new int[NUMBER_OF_CATEGORIES];
-        int ratingIndex = 0;
+        // Get VideoRatingData (int array) from the lexer.
+        // Videos copy the ratings, so the same array is reused.
+        lexer.copyRatings(ratingData);
         
-        // Take string rating data, convert into integers
-        // Fill integer array with integer data.
-        while (ratingIndex < NUMBER_OF_CATEGORIES)
-        {
-            String ratingAsString = stringRating[ratingIndex];
-            integerRating[ratingIndex]
-            = Integer.parseInt(ratingAsString);
-            ratingIndex++;
-        } // end of while (ratingIndex < NUMBER_OF_CATEGORIES)
+        // Give the video data necessary to form a VideoRating
+        videoToAddRating.addVideoRating(ratingData);
+    } // end of method sortStringInformation()
+    
+    /**
+     * A batch of invalid lines, handed over at once.
+     */
+    private static class InvalidLineBatch
+    {
+        /* instance fields */
+        private int count;
+        private long[] lineNumber;
+        private int[] status;
+        
+        /* constructors */
+        /**
+         * Initializes a new, empty batch.
+         * 
+         * @param size the most lines the batch can hold
+         */
+        private InvalidLineBatch(int size)
+        {
+            count = 0;
+            lineNumber = new long[size];
+            status = new int[size];
+        } // end of constructor InvalidLineBatch(int size)
         
-        return integerRating;
-    } // end of method determineRatingData(String[] fileStringToken)
+    } // end of class InvalidLineBatch
     
 } // end of class FileInterpreter
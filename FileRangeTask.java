@@ -0,0 +1,87 @@
+import java.nio.channels.FileChannel;
+import java.util.concurrent.RecursiveAction;
+/**
+ * A task that interprets the lines found in one range
+ * of a file, with its own file interpreter, so that many
+ * ranges can be interpreted at the same time.
+ * 
+ * @author Preenon Chisty
+ * @version 2017-01-12
+ */
+public class FileRangeTask extends RecursiveAction
+{
+    /* non-instance fields: constants */
+    private static final long serialVersionUID = 1L;
+    
+    /* instance fields */
+    private FileChannel fileChannel;
+    private FileInterpreter interpreter;
+    private boolean interpretedRange;
+    private long rangeEnd;
+    private long rangeStart;
+    
+    /* constructors */
+    /**
+     * Initializes a new task for the lines
+     * between the given offsets of a file.
+     * 
+     * @param channel the channel of the file.
+     * @param startOfRange the offset of the range's first byte,
+     * which should be the start of a line.
+     * @param endOfRange the offset just past the range's last byte.
+     * @param keepRawRatings true if videos should keep every rating,
+     * false to keep only the totals
+     */
+    public FileRangeTask(FileChannel channel, long startOfRange,
+    long endOfRange, boolean keepRawRatings)
+    {
+        fileChannel = channel;
+        interpreter = new FileInterpreter();
+        interpreter.setKeepRawRatings(keepRawRatings);
+        interpretedRange = false;
+        rangeEnd = endOfRange;
+        rangeStart = startOfRange;
+    } // end of constructor FileRangeTask(FileChannel channel, ...)
+    
+    /* public interface */
+    /**
+     * Returns the interpreter holding the videos,
+     * line count and invalid lines of this task's range.
+     * 
+     * @return the file interpreter of this task.
+     */
+    public FileInterpreter getInterpreter()
+    {
+        return interpreter;
+    } // end of method getInterpreter()
+    
+    /**
+     * Checks if this task's range could be read.
+     * 
+     * @return true if the range was interpreted, false otherwise.
+     */
+    public boolean interpretedRange()
+    {
+        return interpretedRange;
+    } // end of method interpretedRange()
+    
+    /* private implementation */
+    /**
+     * Interprets every line of this task's range.
+     */
+    @Override
+    protected void compute()
+    {
+        try
+        {
+            interpretedRange = interpreter.interpretFileRange(fileChannel,
+            rangeStart, rangeEnd);
+        }
+        finally
+        {
+            // Whatever happened, the range's invalid lines are all in.
+            interpreter.finishHandingOver();
+        } // end of finally
+    } // end of method compute()
+    
+} // end of class FileRangeTask
@@ -0,0 +1,330 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+/**
+ * Counts of what the program has read and how long each stage
+ * took, shared by the whole program, so that a long run can be
+ * watched while it goes: through JMX, as IngestMetricsMXBean,
+ * or in a line printed every so often.
+ *
+ * Counters are LongAdders, which threads add to without getting
+ * in each other's way, and interpreters only add their line counts
+ * every few thousand lines, so counting costs next to nothing and
+ * can be left on. Reading, checking and adding lines are timed for
+ * one line in every SAMPLE_INTERVAL, which is enough to see where
+ * the time goes; extracting statistics and writing reports happen
+ * once a run, and are timed every time by the modes that print
+ * these metrics, which give the metrics to their StatisticExtractor
+ * and ReportWriter. Other callers, like StatisticServer, time
+ * nothing, so they don't count toward a run's stages.
+ *
+ * In the mapped and parallel modes, a line is found and checked in
+ * one step, which is counted as checking, so reading is only timed
+ * when lines are streamed.
+ *
+ * @author Preenon Chisty
+ * @version 2017-02-02
+ */
+public class IngestMetrics implements IngestMetricsMXBean
+{
+    /* non-instance fields: constants */
+    /** How many lines go by between lines that are timed. */
+    public static final int SAMPLE_INTERVAL = 64;
+
+    private static final String OBJECT_NAME
+    = "VideoRatingAnalyzer:type=IngestMetrics";
+
+    /* non-instance fields: variables */
+    private static final IngestMetrics SHARED_METRICS = new IngestMetrics();
+
+    /* instance fields */
+    private LatencyHistogram aggregateLatency;
+    private LongAdder bytesRead;
+    private LongAdder distinctCreators;
+    private AtomicLong firstLineTime;
+    private LongAdder ignoredLines;
+    private ScheduledExecutorService logger;
+    private LatencyHistogram parseLatency;
+    private LatencyHistogram readLatency;
+    private LatencyHistogram reportLatency;
+    private LongAdder validLines;
+    private LatencyHistogram validateLatency;
+    private LongAdder wrongRatingTypeLines;
+    private LongAdder wrongTokenCountLines;
+
+    /* constructors */
+    /**
+     * Initializes a new set of metrics, all zero.
+     */
+    public IngestMetrics()
+    {
+        aggregateLatency = new LatencyHistogram();
+        bytesRead = new LongAdder();
+        distinctCreators = new LongAdder();
+        firstLineTime = new AtomicLong();
+        ignoredLines = new LongAdder();
+        logger = null;
+        parseLatency = new LatencyHistogram();
+        readLatency = new LatencyHistogram();
+        reportLatency = new LatencyHistogram();
+        validLines = new LongAdder();
+        validateLatency = new LatencyHistogram();
+        wrongRatingTypeLines = new LongAdder();
+        wrongTokenCountLines = new LongAdder();
+    } // end of constructor IngestMetrics()
+
+    /* public interface */
+    /**
+     * Returns the metrics shared by the whole program.
+     *
+     * @return the metrics.
+     */
+    public static IngestMetrics getMetrics()
+    {
+        return SHARED_METRICS;
+    } // end of method getMetrics()
+
+    /**
+     * Makes these metrics seen through JMX. Only the shared
+     * metrics should be registered, and only once.
+     *
+     * @return true if they were registered, false otherwise.
+     */
+    public boolean register()
+    {
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+            new ObjectName(OBJECT_NAME));
+        }
+        catch (JMException exception)
+        {
+            return false;
+        } // end of catch (JMException exception)
+        return true;
+    } // end of method register()
+
+    /**
+     * Starts printing a line with these metrics every so often,
+     * on a thread of its own, until stopLogging() is called.
+     *
+     * @param interval the time between lines, in milliseconds.
+     */
+    public synchronized void startLogging(long interval)
+    {
+        stopLogging();
+        logger = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable task)
+            {
+                Thread loggerThread = new Thread(task, "metrics logger");
+                loggerThread.setDaemon(true);
+                return loggerThread;
+            } // end of method newThread(Runnable task)
+        });
+        logger.scheduleAtFixedRate(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                System.out.println(summaryLine());
+            } // end of method run()
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    } // end of method startLogging(long interval)
+
+    /**
+     * Stops printing lines, if they are being printed.
+     */
+    public synchronized void stopLogging()
+    {
+        if (logger == null)
+        {
+            return;
+        } // end of if (logger == null)
+        logger.shutdownNow();
+        logger = null;
+    } // end of method stopLogging()
+
+    /**
+     * Adds the lines an interpreter has read since it last added.
+     *
+     * @param valid how many were valid.
+     * @param wrongTokenCount how many had the wrong number of tokens.
+     * @param wrongRatingType how many had a rating that was
+     * not a number.
+     * @param ignored how many were skipped.
+     * @param bytes how many bytes the lines had.
+     */
+    public void addLines(long valid, long wrongTokenCount,
+    long wrongRatingType, long ignored, long bytes)
+    {
+        firstLineTime.compareAndSet(0, System.nanoTime());
+        validLines.add(valid);
+        wrongTokenCountLines.add(wrongTokenCount);
+        wrongRatingTypeLines.add(wrongRatingType);
+        ignoredLines.add(ignored);
+        bytesRead.add(bytes);
+    } // end of method addLines(long valid, ...)
+
+    /**
+     * Adds the creators an interpreter has found since it last added.
+     *
+     * @param creators how many creators were new to the interpreter,
+     * less any it had counted twice.
+     */
+    public void addCreators(long creators)
+    {
+        distinctCreators.add(creators);
+    } // end of method addCreators(long creators)
+
+    /**
+     * Returns a line with the main metrics, for printing.
+     *
+     * @return the line.
+     */
+    public String summaryLine()
+    {
+        return "Metrics: " + getLinesRead() + " lines ("
+        + getValidLines() + " valid, " + getWrongTokenCountLines()
+        + " wrong token count, " + getWrongRatingTypeLines()
+        + " wrong rating type), " + getLinesPerSecond() + " lines/s, "
+        + getBytesPerSecond() / 1024 + " KB/s, "
+        + getDistinctCreators() + " creators; p99 us: read "
+        + readLatency.getP99Nanos() / 1000 + ", validate "
+        + validateLatency.getP99Nanos() / 1000 + ", parse "
+        + parseLatency.getP99Nanos() / 1000 + ", aggregate "
+        + aggregateLatency.getP99Nanos() / 1000 + ", report "
+        + reportLatency.getP99Nanos() / 1000;
+    } // end of method summaryLine()
+
+    @Override
+    public long getLinesRead()
+    {
+        return validLines.sum() + wrongTokenCountLines.sum()
+        + wrongRatingTypeLines.sum() + ignoredLines.sum();
+    } // end of method getLinesRead()
+
+    @Override
+    public long getValidLines()
+    {
+        return validLines.sum();
+    } // end of method getValidLines()
+
+    @Override
+    public long getWrongTokenCountLines()
+    {
+        return wrongTokenCountLines.sum();
+    } // end of method getWrongTokenCountLines()
+
+    @Override
+    public long getWrongRatingTypeLines()
+    {
+        return wrongRatingTypeLines.sum();
+    } // end of method getWrongRatingTypeLines()
+
+    @Override
+    public long getIgnoredLines()
+    {
+        return ignoredLines.sum();
+    } // end of method getIgnoredLines()
+
+    @Override
+    public long getBytesRead()
+    {
+        return bytesRead.sum();
+    } // end of method getBytesRead()
+
+    @Override
+    public long getBytesPerSecond()
+    {
+        return perSecond(bytesRead.sum());
+    } // end of method getBytesPerSecond()
+
+    @Override
+    public long getLinesPerSecond()
+    {
+        return perSecond(getLinesRead());
+    } // end of method getLinesPerSecond()
+
+    @Override
+    public long getDistinctCreators()
+    {
+        return distinctCreators.sum();
+    } // end of method getDistinctCreators()
+
+    @Override
+    public LatencyHistogram getReadLatency()
+    {
+        return readLatency;
+    } // end of method getReadLatency()
+
+    @Override
+    public LatencyHistogram getValidateLatency()
+    {
+        return validateLatency;
+    } // end of method getValidateLatency()
+
+    @Override
+    public LatencyHistogram getParseLatency()
+    {
+        return parseLatency;
+    } // end of method getParseLatency()
+
+    @Override
+    public LatencyHistogram getAggregateLatency()
+    {
+        return aggregateLatency;
+    } // end of method getAggregateLatency()
+
+    @Override
+    public LatencyHistogram getReportLatency()
+    {
+        return reportLatency;
+    } // end of method getReportLatency()
+
+    @Override
+    public void reset()
+    {
+        aggregateLatency.reset();
+        bytesRead.reset();
+        distinctCreators.reset();
+        firstLineTime.set(0);
+        ignoredLines.reset();
+        parseLatency.reset();
+        readLatency.reset();
+        reportLatency.reset();
+        validLines.reset();
+        validateLatency.reset();
+        wrongRatingTypeLines.reset();
+        wrongTokenCountLines.reset();
+    } // end of method reset()
+
+    /* private implementation */
+    /**
+     * Works out how many of something there were each
+     * second, since the first line was read.
+     *
+     * @param total how many there were.
+     * @return how many there were each second, or 0 if
+     * no lines were read yet.
+     */
+    private long perSecond(long total)
+    {
+        long startTime = firstLineTime.get();
+        if (startTime == 0)
+        {
+            return 0;
+        } // end of if (startTime == 0)
+        long elapsed = Math.max(1, System.nanoTime() - startTime);
+        return (long) (total * 1e9 / elapsed);
+    } // end of method perSecond(long total)
+
+} // end of class IngestMetrics
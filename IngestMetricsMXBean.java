@@ -0,0 +1,122 @@
+/**
+ * What IngestMetrics shows through JMX, such as in JConsole or
+ * VisualVM, under "VideoRatingAnalyzer:type=IngestMetrics".
+ * Counts are since the program started, or since reset() was
+ * last called.
+ *
+ * @author Preenon Chisty
+ * @version 2017-02-02
+ */
+public interface IngestMetricsMXBean
+{
+    /**
+     * Returns how many lines were read, valid or not.
+     *
+     * @return the number of lines.
+     */
+    long getLinesRead();
+
+    /**
+     * Returns how many valid lines were read.
+     *
+     * @return the number of lines.
+     */
+    long getValidLines();
+
+    /**
+     * Returns how many lines had the wrong number of tokens.
+     *
+     * @return the number of lines.
+     */
+    long getWrongTokenCountLines();
+
+    /**
+     * Returns how many lines had a rating that was not a number.
+     *
+     * @return the number of lines.
+     */
+    long getWrongRatingTypeLines();
+
+    /**
+     * Returns how many lines were skipped, such as "Block" lines.
+     *
+     * @return the number of lines.
+     */
+    long getIgnoredLines();
+
+    /**
+     * Returns how many bytes of lines were read, counting
+     * one byte for each line break.
+     *
+     * @return the number of bytes.
+     */
+    long getBytesRead();
+
+    /**
+     * Returns how many bytes of lines were read each second,
+     * on average, since the first line was read.
+     *
+     * @return the number of bytes a second.
+     */
+    long getBytesPerSecond();
+
+    /**
+     * Returns how many lines were read each second,
+     * on average, since the first line was read.
+     *
+     * @return the number of lines a second.
+     */
+    long getLinesPerSecond();
+
+    /**
+     * Returns how many creators have been found so far, counted as
+     * lines are read. Each file, and each block in blocks mode, has
+     * its creators counted on its own, and the counts are added.
+     *
+     * @return the number of creators.
+     */
+    long getDistinctCreators();
+
+    /**
+     * Returns how long reading a line took, for the lines timed.
+     *
+     * @return the times.
+     */
+    LatencyHistogram getReadLatency();
+
+    /**
+     * Returns how long checking a line took, for the lines timed.
+     *
+     * @return the times.
+     */
+    LatencyHistogram getValidateLatency();
+
+    /**
+     * Returns how long adding a valid line to its
+     * video took, for the lines timed.
+     *
+     * @return the times.
+     */
+    LatencyHistogram getParseLatency();
+
+    /**
+     * Returns how long extracting the statistics of
+     * a set of videos took, each time.
+     *
+     * @return the times.
+     */
+    LatencyHistogram getAggregateLatency();
+
+    /**
+     * Returns how long writing a report took, each time.
+     *
+     * @return the times.
+     */
+    LatencyHistogram getReportLatency();
+
+    /**
+     * Sets every count back to zero.
+     */
+    void reset();
+
+} // end of interface IngestMetricsMXBean
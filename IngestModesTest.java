@@ -0,0 +1,195 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+/**
+ * The test class IngestModesTest.
+ *
+ * Reads the same file as a stream, as a mapped file, and in
+ * parallel ranges, and checks that the three give the same results
+ * and the same invalid-line file. The file mixes CRLF, CR-only and
+ * LF line endings, is long enough to be split into several ranges,
+ * has a CRLF right across the first range boundary, and ends with
+ * an invalid line that has no line ending.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-12
+ */
+public class IngestModesTest
+{
+    /* non-instance fields: constants */
+    private static final int RANGE_SIZE = 1 << 20;
+    private static final int FILE_SIZE = (RANGE_SIZE * 5) / 2;
+    private static final String LAST_LINE = "Team99 Pod\t3\t4\t4";
+    private static final String[] LINE_ENDING = {"\r\n", "\r", "\n"};
+    private static final int LONGEST_LINE = 40;
+
+    /* instance fields */
+    private File folder;
+    private int lineCount;
+    private String textFile;
+
+    /**
+     * Writes the file that every mode reads.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        folder = Files.createTempDirectory("ingest-modes").toFile();
+        textFile = new File(folder, "ratings.text").getPath();
+        byte[] text = makeText().getBytes(StandardCharsets.ISO_8859_1);
+        FileOutputStream output = new FileOutputStream(textFile);
+        output.write(text);
+        output.close();
+    } // end of method setUp()
+
+    /**
+     * Deletes the file and everything written next to it.
+     */
+    @After
+    public void tearDown()
+    {
+        for (File file : folder.listFiles())
+        {
+            file.delete();
+        } // end of for (File file : folder.listFiles())
+        folder.delete();
+    } // end of method tearDown()
+
+    /**
+     * Checks that the mapped and parallel modes give
+     * the same results as the stream mode.
+     *
+     * @throws IOException if an output file could not be read.
+     */
+    @Test
+    public void modesGiveSameResults() throws IOException
+    {
+        byte[][] streamed = interpret("stream");
+        byte[][] mapped = interpret("mapped");
+        byte[][] parallel = interpret("parallel");
+
+        assertArrayEquals("mapped results", streamed[0], mapped[0]);
+        assertArrayEquals("parallel results", streamed[0], parallel[0]);
+        assertArrayEquals("mapped invalid lines", streamed[1], mapped[1]);
+        assertArrayEquals("parallel invalid lines", streamed[1],
+        parallel[1]);
+
+        // The last line is invalid, even without a line ending.
+        String invalidLines
+        = new String(streamed[1], StandardCharsets.ISO_8859_1);
+        assertTrue(invalidLines.contains("Error on line " + lineCount
+        + ": wrong number of tokens."));
+        assertTrue(streamed[0].length > 0);
+    } // end of method modesGiveSameResults()
+
+    /* private implementation */
+    /**
+     * Makes the text of the file: blocks of valid and invalid
+     * lines, whose line endings take turns.
+     *
+     * @return the text.
+     */
+    private String makeText()
+    {
+        StringBuilder text = new StringBuilder();
+        lineCount = 0;
+        boolean crossedBoundary = false;
+        while (text.length() < FILE_SIZE)
+        {
+            int block = lineCount / 50;
+            String line = "Team" + (block % 40) + " Pod "
+            + (lineCount % 7) + "\t" + (1 + lineCount % 4) + "\t"
+            + (1 + block % 4) + "\t4\t" + (1 + (lineCount / 3) % 4);
+            if (lineCount % 50 == 0)
+            {
+                line = "Block " + block;
+            } // end of if (lineCount % 50 == 0)
+            else if (lineCount % 17 == 0)
+            {
+                line = "Team " + block + "\t3\t4\t4";
+            } // end of else if (lineCount % 17 == 0)
+            else if (lineCount % 23 == 0)
+            {
+                line = "Team" + block + " Pod 1\t3\tfour\t4\t4";
+            } // end of else if (lineCount % 23 == 0)
+
+            String lineEnding = LINE_ENDING[lineCount % LINE_ENDING.length];
+            int lineEnd = text.length() + line.length();
+            if (!crossedBoundary && lineEnd + LONGEST_LINE > RANGE_SIZE)
+            {
+                // Pad the line so that its CRLF is split by the boundary.
+                while (lineEnd < RANGE_SIZE - 1)
+                {
+                    line = line + " ";
+                    lineEnd = lineEnd + 1;
+                } // end of while (lineEnd < RANGE_SIZE - 1)
+                lineEnding = "\r\n";
+                crossedBoundary = true;
+            } // end of if (!crossedBoundary && ...)
+            text.append(line).append(lineEnding);
+            lineCount = lineCount + 1;
+        } // end of while (text.length() < FILE_SIZE)
+        text.append(LAST_LINE);
+        lineCount = lineCount + 1;
+        return text.toString();
+    } // end of method makeText()
+
+    /**
+     * Interprets the file in one of the modes, and writes
+     * the results and the invalid lines.
+     *
+     * @param mode "stream", "mapped" or "parallel".
+     * @return the bytes of the results file, then
+     * those of the invalid-line file.
+     * @throws IOException if an output file could not be read.
+     */
+    private byte[][] interpret(String mode) throws IOException
+    {
+        File resultFile = new File(folder, mode + "Results.text");
+        File errorFile = new File(folder, mode + "InvalidLines.text");
+        FileInterpreter interpreter = new FileInterpreter();
+        assertTrue(interpreter.setErrorFile(errorFile.getPath()));
+
+        boolean couldInterpretFile;
+        if (mode.equals("mapped"))
+        {
+            couldInterpretFile
+            = interpreter.accessAndInterpretMappedFile(textFile);
+        } // end of if (mode.equals("mapped"))
+        else if (mode.equals("parallel"))
+        {
+            // One worker still splits the file into ranges.
+            interpreter.setParallelism(1);
+            couldInterpretFile
+            = interpreter.accessAndInterpretFileInParallel(textFile);
+        } // end of else if (mode.equals("parallel"))
+        else
+        {
+            couldInterpretFile
+            = interpreter.accessAndInterpretFile(textFile);
+        } // end of else
+        assertTrue(mode, couldInterpretFile);
+        assertTrue(mode, interpreter.closeErrorFile());
+
+        ArrayList<Video> video = interpreter.getVideoSet();
+        new StatisticExtractor().extractStatistics(video);
+        assertTrue(mode, new ReportWriter().writeReport(video,
+        resultFile.getPath()));
+
+        byte[][] output = new byte[2][];
+        output[0] = Files.readAllBytes(resultFile.toPath());
+        output[1] = Files.readAllBytes(errorFile.toPath());
+        return output;
+    } // end of method interpret(String mode)
+} // end of class IngestModesTest
@@ -0,0 +1,507 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+/**
+ * A class that writes the error messages of invalid lines to the
+ * error file on a thread of its own, so that reading the file
+ * doesn't slow down however many of its lines are invalid.
+ *
+ * Invalid lines are gathered into batches of line numbers and
+ * statuses, and whole batches are handed to the writing thread
+ * through a small queue. Batches are used over and over, so
+ * reporting a line makes no object, and at most a few batches
+ * ever wait to be written. The messages are formatted straight
+ * into bytes, and written in large blocks.
+ *
+ * Each kind of error can be given a limit on how many of its
+ * lines are written, and a sampling rate, to write only one of
+ * every so many. Every invalid line is still counted, and a
+ * summary of the counts can be written at the end of the file.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-25
+ */
+public class InvalidLineReporter
+{
+    /* non-instance fields: constants */
+    private static final int BATCH_SIZE = 4096;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int QUEUED_BATCHES = 4;
+    private static final int STATUS_WRONG_RATING_TYPE = -2;
+    private static final int STATUS_WRONG_TOKEN_COUNT = -1;
+    private static final byte[] LINE_SEPARATOR
+    = System.lineSeparator().getBytes();
+    private static final byte[] MESSAGE_START = "Error on line ".getBytes();
+    private static final byte[] WRONG_TOKEN_COUNT_MESSAGE
+    = ": wrong number of tokens.".getBytes();
+
+    /* instance fields */
+    private ReportBatch currentBatch;
+    private ArrayBlockingQueue<ReportBatch> freeBatch;
+    private ArrayBlockingQueue<ReportBatch> fullBatch;
+    private FileChannel outputChannel;
+    private String ratingBounds;
+    private long[] reportedCount;
+    private int[] sampleRate;
+    private boolean writeSummary;
+    private volatile boolean writeFailed;
+    private Thread writer;
+    private long[] writtenCount;
+    private long[] writtenLimit;
+    private byte[] wrongRatingMessage;
+
+    /* constructors */
+    /**
+     * Initializes a new reporter with no limits and no summary.
+     */
+    public InvalidLineReporter()
+    {
+        currentBatch = null;
+        freeBatch = new ArrayBlockingQueue<ReportBatch>(QUEUED_BATCHES + 1);
+        fullBatch = new ArrayBlockingQueue<ReportBatch>(QUEUED_BATCHES + 1);
+        outputChannel = null;
+        ratingBounds = "";
+        reportedCount = new long[2];
+        sampleRate = new int[] {1, 1};
+        writeSummary = false;
+        writeFailed = false;
+        writer = null;
+        writtenCount = new long[2];
+        writtenLimit = new long[] {Long.MAX_VALUE, Long.MAX_VALUE};
+        wrongRatingMessage = ": ratings are not integers.".getBytes();
+    } // end of constructor InvalidLineReporter()
+
+    /* public interface */
+    /**
+     * Opens the error file, and starts the thread that writes to it.
+     *
+     * @param fileName the path of the error file.
+     * @return true if file could be created, false otherwise.
+     */
+    public boolean open(String fileName)
+    {
+        try
+        {
+            outputChannel = new FileOutputStream(fileName).getChannel();
+        }
+        catch (IOException exception)
+        {
+            return false;
+        } // end of catch (IOException exception)
+
+        for (int batch = 0; batch <= QUEUED_BATCHES; batch++)
+        {
+            freeBatch.add(new ReportBatch());
+        } // end of for (int batch = 0; batch <= QUEUED_BATCHES; batch++)
+        currentBatch = freeBatch.poll();
+
+        writer = new Thread("invalid line writer")
+        {
+            @Override
+            public void run()
+            {
+                writeBatches();
+            } // end of method run()
+        };
+        writer.setDaemon(true);
+        writer.start();
+        return true;
+    } // end of method open(String fileName)
+
+    /**
+     * Sets the most lines of one kind of error that are written.
+     * Lines past the limit are still counted.
+     *
+     * @param statusOfLine the status of the kind of error.
+     * @param limit the most lines to write.
+     */
+    public void setLimit(int statusOfLine, long limit)
+    {
+        writtenLimit[statusIndex(statusOfLine)] = limit;
+    } // end of method setLimit(int statusOfLine, long limit)
+
+    /**
+     * Sets how often lines of one kind of error are written:
+     * a rate of 1 writes every line, 10 writes the 1st, 11th,
+     * 21st and so on. Lines not written are still counted.
+     *
+     * @param statusOfLine the status of the kind of error.
+     * @param rate write one line of every this many.
+     */
+    public void setSampleRate(int statusOfLine, int rate)
+    {
+        sampleRate[statusIndex(statusOfLine)] = Math.max(rate, 1);
+    } // end of method setSampleRate(int statusOfLine, int rate)
+
+    /**
+     * Sets whether a summary of how many lines of each kind of
+     * error were found is written at the end of the error file.
+     *
+     * @param summary true to write the summary, false otherwise.
+     */
+    public void setWriteSummary(boolean summary)
+    {
+        writeSummary = summary;
+    } // end of method setWriteSummary(boolean summary)
+
+    /**
+     * Sets the schema of the lines reported, so that if its
+     * ratings have bounds, the messages of lines with ratings
+     * outside them name the bounds. Should be set before any
+     * line is reported.
+     *
+     * @param schema the schema of the lines.
+     */
+    public void setSchema(RatingSchema schema)
+    {
+        ratingBounds = "";
+        if (schema.getLowestRating() != Integer.MIN_VALUE
+            || schema.getHighestRating() != Integer.MAX_VALUE)
+        {
+            ratingBounds = " from " + schema.getLowestRating() + " to "
+            + schema.getHighestRating();
+        } // end of if (schema.getLowestRating() != ... || ...)
+        wrongRatingMessage
+        = (": ratings are not integers" + ratingBounds + ".").getBytes();
+    } // end of method setSchema(RatingSchema schema)
+
+    /**
+     * Reports an invalid line, to be written to the error file
+     * unless its kind of error is over its limit or not sampled.
+     *
+     * @param numberOfFileLine the number of the line in the file.
+     * @param statusOfLine the status of the line.
+     */
+    public void report(long numberOfFileLine, int statusOfLine)
+    {
+        int index = statusIndex(statusOfLine);
+        long reported = reportedCount[index];
+        reportedCount[index] = reported + 1;
+        if (writtenCount[index] >= writtenLimit[index]
+            || reported % sampleRate[index] != 0)
+        {
+            return;
+        } // end of if (writtenCount[index] >= writtenLimit[index] || ...)
+        writtenCount[index] = writtenCount[index] + 1;
+
+        currentBatch.lineNumber[currentBatch.count] = numberOfFileLine;
+        currentBatch.status[currentBatch.count] = statusOfLine;
+        currentBatch.count = currentBatch.count + 1;
+        if (currentBatch.count == BATCH_SIZE)
+        {
+            handOver(currentBatch);
+            currentBatch = takeBatch(freeBatch);
+        } // end of if (currentBatch.count == BATCH_SIZE)
+    } // end of method report(long numberOfFileLine, int statusOfLine)
+
+    /**
+     * Hands the lines reported so far to the writing thread,
+     * which writes them out as soon as it can.
+     */
+    public void flush()
+    {
+        if (currentBatch == null || currentBatch.count == 0)
+        {
+            return;
+        } // end of if (currentBatch == null || ...)
+        handOver(currentBatch);
+        currentBatch = takeBatch(freeBatch);
+    } // end of method flush()
+
+    /**
+     * Returns how many lines with the given status were reported,
+     * whether or not they were written.
+     *
+     * @param statusOfLine the status of the kind of error.
+     * @return the number of lines.
+     */
+    public long getReportedCount(int statusOfLine)
+    {
+        return reportedCount[statusIndex(statusOfLine)];
+    } // end of method getReportedCount(int statusOfLine)
+
+    /**
+     * Checks if writing to the error file failed.
+     *
+     * @return true if it failed, false otherwise.
+     */
+    public boolean hadWriteError()
+    {
+        return writeFailed;
+    } // end of method hadWriteError()
+
+    /**
+     * Writes every line reported, and the summary if wanted,
+     * then stops the writing thread and closes the error file.
+     * Does nothing if the reporter is not open.
+     */
+    public void close()
+    {
+        if (writer == null)
+        {
+            return;
+        } // end of if (writer == null)
+
+        flush();
+        if (writeSummary)
+        {
+            // A batch with no lines asks for the summary.
+            ReportBatch summaryBatch = takeBatch(freeBatch);
+            summaryBatch.summary = true;
+            handOver(summaryBatch);
+        } // end of if (writeSummary)
+
+        // A batch of -1 lines tells the writing thread to stop.
+        ReportBatch lastBatch = takeBatch(freeBatch);
+        lastBatch.count = -1;
+        handOver(lastBatch);
+        boolean interrupted = false;
+        while (writer.isAlive())
+        {
+            try
+            {
+                writer.join();
+            }
+            catch (InterruptedException exception)
+            {
+                interrupted = true;
+            } // end of catch (InterruptedException exception)
+        } // end of while (writer.isAlive())
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        } // end of if (interrupted)
+        writer = null;
+        currentBatch = null;
+
+        try
+        {
+            outputChannel.close();
+        }
+        catch (IOException exception)
+        {
+            writeFailed = true;
+        } // end of catch (IOException exception)
+    } // end of method close()
+
+    /* private implementation */
+    /**
+     * Returns the index of the counts of a kind of error.
+     *
+     * @param statusOfLine the status of the kind of error.
+     * @return the index.
+     */
+    private static int statusIndex(int statusOfLine)
+    {
+        if (statusOfLine == STATUS_WRONG_TOKEN_COUNT)
+        {
+            return 0;
+        } // end of if (statusOfLine == STATUS_WRONG_TOKEN_COUNT)
+        return 1;
+    } // end of method statusIndex(int statusOfLine)
+
+    /**
+     * Puts a batch on the queue for the writing thread,
+     * waiting if the queue is full.
+     *
+     * @param batch the batch.
+     */
+    private void handOver(ReportBatch batch)
+    {
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                fullBatch.put(batch);
+                break;
+            }
+            catch (InterruptedException exception)
+            {
+                interrupted = true;
+            } // end of catch (InterruptedException exception)
+        } // end of while (true)
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        } // end of if (interrupted)
+    } // end of method handOver(ReportBatch batch)
+
+    /**
+     * Takes a batch from a queue, waiting until there is one.
+     *
+     * @param queue the queue.
+     * @return the batch.
+     */
+    private static ReportBatch takeBatch(ArrayBlockingQueue<ReportBatch> queue)
+    {
+        boolean interrupted = false;
+        ReportBatch batch;
+        while (true)
+        {
+            try
+            {
+                batch = queue.take();
+                break;
+            }
+            catch (InterruptedException exception)
+            {
+                interrupted = true;
+            } // end of catch (InterruptedException exception)
+        } // end of while (true)
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        } // end of if (interrupted)
+        return batch;
+    } // end of method takeBatch(ArrayBlockingQueue<ReportBatch> queue)
+
+    /**
+     * Writes batches as they come, until told to stop.
+     * Runs on the writing thread.
+     */
+    private void writeBatches()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] digit = new byte[20];
+        while (true)
+        {
+            ReportBatch batch = takeBatch(fullBatch);
+            if (batch.count < 0)
+            {
+                writeOut(buffer);
+                return;
+            } // end of if (batch.count < 0)
+
+            for (int line = 0; line < batch.count; line++)
+            {
+                // Make room for the longest message.
+                if (buffer.remaining() < 128)
+                {
+                    writeOut(buffer);
+                } // end of if (buffer.remaining() < 128)
+                buffer.put(MESSAGE_START);
+                putNumber(buffer, batch.lineNumber[line], digit);
+                if (batch.status[line] == STATUS_WRONG_TOKEN_COUNT)
+                {
+                    buffer.put(WRONG_TOKEN_COUNT_MESSAGE);
+                }
+                else
+                {
+                    buffer.put(wrongRatingMessage);
+                } // end of if (batch.status[line] == ...)
+                buffer.put(LINE_SEPARATOR);
+            } // end of for (int line = 0; line < batch.count; line++)
+            if (batch.summary)
+            {
+                writeOut(buffer);
+                buffer.put(createSummary().getBytes());
+                batch.summary = false;
+            } // end of if (batch.summary)
+
+            // Write out what we have while there's nothing else to do.
+            if (fullBatch.isEmpty())
+            {
+                writeOut(buffer);
+            } // end of if (fullBatch.isEmpty())
+            batch.count = 0;
+            freeBatch.add(batch);
+        } // end of while (true)
+    } // end of method writeBatches()
+
+    /**
+     * Makes the summary of how many lines of each kind of error
+     * were found. The counts are only read once every line has
+     * been reported, so the writing thread sees them whole.
+     *
+     * @return the summary.
+     */
+    private String createSummary()
+    {
+        String separator = System.lineSeparator();
+        return "Summary: " + reportedCount[0]
+        + " lines had the wrong number of tokens ("
+        + writtenCount[0] + " written)." + separator
+        + "Summary: " + reportedCount[1]
+        + " lines had ratings that are not integers" + ratingBounds + " ("
+        + writtenCount[1] + " written)." + separator;
+    } // end of method createSummary()
+
+    /**
+     * Puts a number into the buffer as decimal digits.
+     *
+     * @param buffer the buffer.
+     * @param number the number, not negative.
+     * @param digit room for the digits.
+     */
+    private static void putNumber(ByteBuffer buffer, long number,
+    byte[] digit)
+    {
+        int digitCount = 0;
+        long rest = number;
+        do
+        {
+            digit[digitCount] = (byte) ('0' + rest % 10);
+            digitCount = digitCount + 1;
+            rest = rest / 10;
+        } while (rest > 0);
+        // end of do while (rest > 0);
+
+        while (digitCount > 0)
+        {
+            digitCount = digitCount - 1;
+            buffer.put(digit[digitCount]);
+        } // end of while (digitCount > 0)
+    } // end of method putNumber(ByteBuffer buffer, ...)
+
+    /**
+     * Writes the buffer out to the error file, and empties it.
+     * After a failure, the rest is thrown away.
+     *
+     * @param buffer the buffer.
+     */
+    private void writeOut(ByteBuffer buffer)
+    {
+        buffer.flip();
+        try
+        {
+            while (buffer.hasRemaining() && !writeFailed)
+            {
+                outputChannel.write(buffer);
+            } // end of while (buffer.hasRemaining() && !writeFailed)
+        }
+        catch (IOException exception)
+        {
+            writeFailed = true;
+        } // end of catch (IOException exception)
+        buffer.clear();
+    } // end of method writeOut(ByteBuffer buffer)
+
+    /**
+     * A batch of reported lines, used over and over.
+     */
+    private static class ReportBatch
+    {
+        /* instance fields */
+        private int count;
+        private long[] lineNumber;
+        private int[] status;
+        private boolean summary;
+
+        /* constructors */
+        /**
+         * Initializes a new, empty batch.
+         */
+        private ReportBatch()
+        {
+            count = 0;
+            lineNumber = new long[BATCH_SIZE];
+            status = new int[BATCH_SIZE];
+            summary = false;
+        } // end of constructor ReportBatch()
+
+    } // end of class ReportBatch
+
+} // end of class InvalidLineReporter
@@ -0,0 +1,178 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+/**
+ * A count of how long something took, each time it was timed,
+ * that any number of threads can add to at once.
+ *
+ * Times are counted in buckets that double in size, the first
+ * holding times under two nanoseconds, the next under four, and
+ * so on, so a time is added with a few instructions and the
+ * histogram never grows. Percentiles are given as the top of the
+ * bucket they fall in, so they are at most twice the real time.
+ * The mean and the longest time are exact.
+ *
+ * @author Preenon Chisty
+ * @version 2017-02-02
+ */
+public class LatencyHistogram
+{
+    /* non-instance fields: constants */
+    private static final int BUCKET_COUNT = 64;
+
+    /* instance fields */
+    private AtomicLongArray bucket;
+    private LongAdder count;
+    private AtomicLong longest;
+    private LongAdder totalNanos;
+
+    /* constructors */
+    /**
+     * Initializes a new, empty histogram.
+     */
+    public LatencyHistogram()
+    {
+        bucket = new AtomicLongArray(BUCKET_COUNT);
+        count = new LongAdder();
+        longest = new AtomicLong();
+        totalNanos = new LongAdder();
+    } // end of constructor LatencyHistogram()
+
+    /* public interface */
+    /**
+     * Adds one time.
+     *
+     * @param nanos how long it took, in nanoseconds.
+     */
+    public void record(long nanos)
+    {
+        long time = Math.max(0, nanos);
+        bucket.incrementAndGet(BUCKET_COUNT - 1
+        - Long.numberOfLeadingZeros(time | 1));
+        count.increment();
+        totalNanos.add(time);
+        long longestSoFar = longest.get();
+        while (time > longestSoFar
+            && !longest.compareAndSet(longestSoFar, time))
+        {
+            longestSoFar = longest.get();
+        } // end of while (time > longestSoFar && ...)
+    } // end of method record(long nanos)
+
+    /**
+     * Forgets every time added so far.
+     */
+    public void reset()
+    {
+        for (int index = 0; index < BUCKET_COUNT; index++)
+        {
+            bucket.set(index, 0);
+        } // end of for (int index = 0; index < BUCKET_COUNT; index++)
+        count.reset();
+        longest.set(0);
+        totalNanos.reset();
+    } // end of method reset()
+
+    /**
+     * Returns how many times were added.
+     *
+     * @return the number of times.
+     */
+    public long getCount()
+    {
+        return count.sum();
+    } // end of method getCount()
+
+    /**
+     * Returns the mean of the times added.
+     *
+     * @return the mean, in nanoseconds, or 0 if there are none.
+     */
+    public long getMeanNanos()
+    {
+        long timeCount = count.sum();
+        if (timeCount == 0)
+        {
+            return 0;
+        } // end of if (timeCount == 0)
+        return totalNanos.sum() / timeCount;
+    } // end of method getMeanNanos()
+
+    /**
+     * Returns the median of the times added.
+     *
+     * @return the median, in nanoseconds, at most.
+     */
+    public long getP50Nanos()
+    {
+        return percentile(50);
+    } // end of method getP50Nanos()
+
+    /**
+     * Returns the 90th percentile of the times added.
+     *
+     * @return the percentile, in nanoseconds, at most.
+     */
+    public long getP90Nanos()
+    {
+        return percentile(90);
+    } // end of method getP90Nanos()
+
+    /**
+     * Returns the 99th percentile of the times added.
+     *
+     * @return the percentile, in nanoseconds, at most.
+     */
+    public long getP99Nanos()
+    {
+        return percentile(99);
+    } // end of method getP99Nanos()
+
+    /**
+     * Returns the longest time added.
+     *
+     * @return the time, in nanoseconds, or 0 if there are none.
+     */
+    public long getMaxNanos()
+    {
+        return longest.get();
+    } // end of method getMaxNanos()
+
+    /* private implementation */
+    /**
+     * Returns the top of the bucket a percentile falls in.
+     * Times being added meanwhile may or may not be counted.
+     *
+     * @param percent the percentile, from 1 to 100.
+     * @return the top of the bucket, in nanoseconds,
+     * or 0 if there are no times.
+     */
+    private long percentile(int percent)
+    {
+        long[] bucketCount = new long[BUCKET_COUNT];
+        long timeCount = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++)
+        {
+            bucketCount[index] = bucket.get(index);
+            timeCount = timeCount + bucketCount[index];
+        } // end of for (int index = 0; index < BUCKET_COUNT; index++)
+        if (timeCount == 0)
+        {
+            return 0;
+        } // end of if (timeCount == 0)
+
+        // The rank of the time wanted, counting from 1, rounded up.
+        long rank = Math.max(1, (timeCount * percent + 99) / 100);
+        long countSoFar = 0;
+        for (int index = 0; index < BUCKET_COUNT; index++)
+        {
+            countSoFar = countSoFar + bucketCount[index];
+            if (countSoFar >= rank)
+            {
+                return Math.min(longest.get(), (2L << index) - 1);
+            } // end of if (countSoFar >= rank)
+        } // end of for (int index = 0; index < BUCKET_COUNT; index++)
+        return longest.get();
+    } // end of method percentile(int percent)
+
+} // end of class LatencyHistogram
@@ -1,4 +1,3 @@
-import java.lang.NumberFormatException;
 /**
  * A class to determine if a given
  * string can be examined for data.
@@ -8,13 +7,17 @@ import java.lang.NumberFormatException;
  */
 public class LineChecker
 {
-    /* non-instance fields: constants */
-    private static final int REQUIRED_TOKEN_COUNT = 7;
-    private static final int STATUS_TO_BE_IGNORED = 2;
-    private static final int STATUS_VALID = 1;
-    private static final int STATUS_WRONG_RATING_TYPE = -2;
-    private static final int STATUS_WRONG_TOKEN_COUNT = -1;
-    private static final String STRING_TO_IGNORE = "Block";
+    /* non-instance fields */
+    /* Every thread gets its own lexer, since a lexer remembers its line. */
+    private static final ThreadLocal<LineLexer> LEXER
+    = new ThreadLocal<LineLexer>()
+    {
+        @Override
+        protected LineLexer initialValue()
+        {
+            return new LineLexer();
+        } // end of method initialValue()
+    };
     
     /* constructors */
     /**
@@ -45,70 +48,8 @@ public class LineChecker
          * status, as of this date, it must:
          * -Be composed of 7 string tokens
          * -Have the last 4 tokens be integers
+         * The lexer checks both in a single pass over the string.
          */
-        
-        // Right off the bat, can we ignore this string?
-        if (fileString.startsWith(STRING_TO_IGNORE))
-        {
-            return STATUS_TO_BE_IGNORED;
-        } // end of if (fileString.startsWith(STRING_TO_IGNORE))
-        
-        // Split fileString into array of tokens without whitespace
-        String[] fileToken = fileString.trim().split("\\s+");
-        
-        // Does our string contain the right number of tokens?
-        boolean validCount = fileToken.length == REQUIRED_TOKEN_COUNT;
-        if (validCount)
-        {
-            // Are our ratings in this string integers?
-            if (validRating(fileToken))
-            {
-                return STATUS_VALID;
-            }
-            else
-            {
-                return STATUS_WRONG_RATING_TYPE;
-            } // end of if (validRating(fileToken)
-        }
-        else
-        {
-            return STATUS_WRONG_TOKEN_COUNT;
-        } // end of if (validCount)
-
+        return LEXER.get().lexLine(fileString);
     } // end of method statusOfLine(String fileString)
-    
-    /**
-     * Checks if every rating in the
-     * given array is an integer.
-     * 
-     * @param fileToken the array that contains the ratings.
-     * @return true if every rating 
-     * is an integer, false otherwise.
-     */
-    public static boolean validRating(String[] fileToken)
-    {
-        /*
-         * As of this date, ratings start
-         * at the index of 3.
-         * So, for each rating in the array...
-         */
-        int arraySize = fileToken.length;
-        for (int rating = 3; rating < arraySize; rating++)
-        {
-            try
-            {
-                // Try converting the rating to an int.
-                String tokenToTest = fileToken[rating];
-                int testInteger 
-                = Integer.parseInt(tokenToTest);
-            }
-            catch (NumberFormatException ratingTypeError)
-            {
-                // At least one rating was not an int.
-                return false;
-            }
-        }
-        // We made it through the ratings without any errors!
-        return true;
-    } // end of method validRating(String[] fileToken))
 } // end of class LineChecker
@@ -0,0 +1,392 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+/**
+ * A class that pulls chosen lines out of a ratings file, such as
+ * the invalid lines named in an error file, without reading the
+ * file from the start.
+ *
+ * The file's LineOffsetIndex is used to jump to the nearest line
+ * the index knows before each line wanted, and the file is read on
+ * from there, so fetching a line from a huge file takes a seek and
+ * a short read. Lines asked for in order, like those of an error
+ * file, are read on from the last one when they are close together.
+ * If the file has no index, or its index no longer matches it, a
+ * new index is made, which reads the file once.
+ *
+ * From the command line, "java Main --lines file 12 40-45" prints
+ * the given lines, and "--invalid invalidLines.text" prints every
+ * line named in an error file, after its error message.
+ *
+ * @author Preenon Chisty
+ * @version 2017-02-04
+ */
+public class LineFetcher
+{
+    /* non-instance fields: constants */
+    private static final String INDEX_EXTENSION = ".lines";
+    private static final String MESSAGE_START = "Error on line ";
+
+    /* instance fields */
+    private String errorFileName;
+    private String fileName;
+    private LineOffsetIndex index;
+    private String indexFileName;
+    private boolean indexWasMade;
+    private LineLexer lexer;
+    private ArrayList<String> lineArgument;
+    private MappedFileAccessor mappedAccessor;
+    private long nextLine;
+
+    /* constructors */
+    /**
+     * Initializes a new line fetcher, without a file.
+     */
+    public LineFetcher()
+    {
+        errorFileName = null;
+        fileName = null;
+        index = null;
+        indexFileName = null;
+        indexWasMade = false;
+        lexer = new LineLexer();
+        lineArgument = new ArrayList<String>();
+        mappedAccessor = new MappedFileAccessor();
+        nextLine = 0;
+    } // end of constructor LineFetcher()
+
+    /* public interface */
+    /**
+     * Sets this fetcher's settings, file and lines from command
+     * line arguments, the ones after "--lines".
+     *
+     * @param argument the command line arguments.
+     * @param firstIndex the index of the first argument to use.
+     * @return true if the arguments could be understood.
+     */
+    public boolean setOptions(String[] argument, int firstIndex)
+    {
+        int index = firstIndex;
+        while (index < argument.length)
+        {
+            String currentArgument = argument[index];
+            if (!currentArgument.startsWith("--"))
+            {
+                // The file comes first, then the lines.
+                if (fileName == null)
+                {
+                    fileName = currentArgument;
+                }
+                else if (parseLines(currentArgument) == null)
+                {
+                    return false;
+                }
+                else
+                {
+                    lineArgument.add(currentArgument);
+                } // end of if (fileName == null)
+                index = index + 1;
+                continue;
+            } // end of if (!currentArgument.startsWith("--"))
+
+            // Every option takes a value.
+            if (index + 1 == argument.length)
+            {
+                return false;
+            } // end of if (index + 1 == argument.length)
+            String value = argument[index + 1];
+            index = index + 2;
+
+            if (currentArgument.equals("--index"))
+            {
+                indexFileName = value;
+            }
+            else if (currentArgument.equals("--invalid"))
+            {
+                errorFileName = value;
+            }
+            else
+            {
+                return false;
+            } // end of if (currentArgument.equals("--index"))
+        } // end of while (index < argument.length)
+
+        return fileName != null
+        && (!lineArgument.isEmpty() || errorFileName != null);
+    } // end of method setOptions(String[] argument, int firstIndex)
+
+    /**
+     * Prints the lines given on the command line, then the lines
+     * named in the error file, if one was given.
+     *
+     * @return true if every line was found, false otherwise.
+     */
+    public boolean run()
+    {
+        if (indexFileName == null)
+        {
+            indexFileName = fileName + INDEX_EXTENSION;
+        } // end of if (indexFileName == null)
+        if (!open(fileName, indexFileName))
+        {
+            System.out.println("Error: Could not read " + fileName);
+            return false;
+        } // end of if (!open(fileName, indexFileName))
+        if (indexWasMade)
+        {
+            System.out.println("Made the line index " + indexFileName
+            + ".");
+        } // end of if (indexWasMade)
+
+        boolean everyLineFound = true;
+        try
+        {
+            for (String currentArgument : lineArgument)
+            {
+                long[] range = parseLines(currentArgument);
+                for (long lineNumber = range[0]; lineNumber <= range[1];
+                lineNumber++)
+                {
+                    String line = fetchLine(lineNumber);
+                    if (line == null)
+                    {
+                        System.out.println("Error: " + fileName
+                        + " has no line " + lineNumber);
+                        everyLineFound = false;
+                        break;
+                    } // end of if (line == null)
+                    System.out.println("Line " + lineNumber + ": " + line);
+                } // end of for (long lineNumber = range[0]; ...)
+            } // end of for (String currentArgument : lineArgument)
+
+            if (errorFileName != null)
+            {
+                everyLineFound = printInvalidLines() && everyLineFound;
+            } // end of if (errorFileName != null)
+        }
+        finally
+        {
+            close();
+        } // end of finally
+        return everyLineFound;
+    } // end of method run()
+
+    /**
+     * Prints how to use lines mode.
+     */
+    public static void printUsage()
+    {
+        System.out.println("Usage: java Main --lines [option value ...] "
+        + "file [line ...]");
+        System.out.println("Each line is a number, like 12, or a range, "
+        + "like 40-45, counting from 1.");
+        System.out.println("Options:");
+        System.out.println("  --index FILE     line index (default: the "
+        + "file's name and " + INDEX_EXTENSION + ")");
+        System.out.println("  --invalid FILE   also print every line "
+        + "named in this invalid lines file");
+    } // end of method printUsage()
+
+    /**
+     * Opens a ratings file to fetch lines from, loading its index,
+     * or making and saving a new one if the index is missing or
+     * no longer matches the file.
+     *
+     * @param dataFileName the name of the ratings file.
+     * @param lineIndexFileName the name of the file's index.
+     * @return true if the file could be opened, false otherwise.
+     */
+    public boolean open(String dataFileName, String lineIndexFileName)
+    {
+        close();
+        index = LineOffsetIndex.load(lineIndexFileName);
+        indexWasMade = false;
+        if (index == null || !index.matchesDataFile(dataFileName))
+        {
+            index = LineOffsetIndex.build(dataFileName);
+            if (index == null)
+            {
+                return false;
+            } // end of if (index == null)
+            index.save(lineIndexFileName);
+            indexWasMade = true;
+        } // end of if (index == null || ...)
+        return mappedAccessor.setFileAccessor(dataFileName);
+    } // end of method open(String dataFileName, ...)
+
+    /**
+     * Checks if the last call to open(String, String) had
+     * to make a new index.
+     *
+     * @return true if a new index was made, false otherwise.
+     */
+    public boolean wasIndexMade()
+    {
+        return indexWasMade;
+    } // end of method wasIndexMade()
+
+    /**
+     * Fetches one line of the open file.
+     *
+     * @param lineNumber the number of the line, starting at 1.
+     * @return the line, without its line terminator, or null
+     * if the file has no such line.
+     */
+    public String fetchLine(long lineNumber)
+    {
+        int entry = index.findEntry(lineNumber);
+        if (entry < 0)
+        {
+            return null;
+        } // end of if (entry < 0)
+
+        // Jump to the entry, unless reading on gets there sooner.
+        long entryLine = index.getEntryLine(entry);
+        if (nextLine < entryLine || nextLine > lineNumber)
+        {
+            if (!mappedAccessor.seekRange(index.getEntryOffset(entry),
+                index.getDataFileSize()))
+            {
+                nextLine = 0;
+                return null;
+            } // end of if (!mappedAccessor.seekRange(...))
+            nextLine = entryLine;
+        } // end of if (nextLine < entryLine || nextLine > lineNumber)
+
+        while (nextLine <= lineNumber)
+        {
+            if (!mappedAccessor.lexLineFromFile(lexer))
+            {
+                nextLine = 0;
+                return null;
+            } // end of if (!mappedAccessor.lexLineFromFile(lexer))
+            nextLine = nextLine + 1;
+        } // end of while (nextLine <= lineNumber)
+        return lexer.createLineText();
+    } // end of method fetchLine(long lineNumber)
+
+    /**
+     * Closes the open file, if there is one.
+     */
+    public void close()
+    {
+        mappedAccessor.closeFile();
+        nextLine = 0;
+    } // end of method close()
+
+    /* private implementation */
+    /**
+     * Prints every line named in the error file, each after
+     * its error message.
+     *
+     * @return true if every line was found, false otherwise.
+     */
+    private boolean printInvalidLines()
+    {
+        boolean everyLineFound = true;
+        try
+        {
+            BufferedReader errorReader
+            = new BufferedReader(new FileReader(errorFileName));
+            try
+            {
+                String message = errorReader.readLine();
+                while (message != null)
+                {
+                    long lineNumber = lineNumberOfMessage(message);
+                    if (lineNumber > 0)
+                    {
+                        String line = fetchLine(lineNumber);
+                        if (line == null)
+                        {
+                            line = "(no such line in " + fileName + ")";
+                            everyLineFound = false;
+                        } // end of if (line == null)
+                        System.out.println(message);
+                        System.out.println("    " + line);
+                    } // end of if (lineNumber > 0)
+                    message = errorReader.readLine();
+                } // end of while (message != null)
+            }
+            finally
+            {
+                errorReader.close();
+            } // end of finally
+        }
+        catch (IOException exception)
+        {
+            System.out.println("Error: Could not read " + errorFileName);
+            return false;
+        } // end of catch (IOException exception)
+        return everyLineFound;
+    } // end of method printInvalidLines()
+
+    /**
+     * Finds the line number in a line of an error file,
+     * like "Error on line 12: wrong number of tokens.".
+     *
+     * @param message the line of the error file.
+     * @return the line number, or 0 if the line has none,
+     * such as a line of the summary.
+     */
+    private static long lineNumberOfMessage(String message)
+    {
+        if (!message.startsWith(MESSAGE_START))
+        {
+            return 0;
+        } // end of if (!message.startsWith(MESSAGE_START))
+        int numberEnd = message.indexOf(':', MESSAGE_START.length());
+        if (numberEnd < 0)
+        {
+            return 0;
+        } // end of if (numberEnd < 0)
+        try
+        {
+            return Long.parseLong(
+            message.substring(MESSAGE_START.length(), numberEnd));
+        }
+        catch (NumberFormatException exception)
+        {
+            return 0;
+        } // end of catch (NumberFormatException exception)
+    } // end of method lineNumberOfMessage(String message)
+
+    /**
+     * Reads a line number, like "12", or a range of
+     * line numbers, like "40-45".
+     *
+     * @param value the number or range, as text.
+     * @return the first and last line numbers, or null
+     * if the value is not a number or range.
+     */
+    private static long[] parseLines(String value)
+    {
+        int dash = value.indexOf('-', 1);
+        try
+        {
+            long firstLine;
+            long lastLine;
+            if (dash < 0)
+            {
+                firstLine = Long.parseLong(value);
+                lastLine = firstLine;
+            }
+            else
+            {
+                firstLine = Long.parseLong(value.substring(0, dash));
+                lastLine = Long.parseLong(value.substring(dash + 1));
+            } // end of if (dash < 0)
+            if (firstLine < 1 || lastLine < firstLine)
+            {
+                return null;
+            } // end of if (firstLine < 1 || lastLine < firstLine)
+            return new long[] {firstLine, lastLine};
+        }
+        catch (NumberFormatException exception)
+        {
+            return null;
+        } // end of catch (NumberFormatException exception)
+    } // end of method parseLines(String value)
+
+} // end of class LineFetcher
@@ -0,0 +1,570 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+/**
+ * A class that reads a line from the file in one pass,
+ * finding its status, where the name tokens of its creator are,
+ * and the integer value of each of its ratings all at once.
+ *
+ * No regular expressions, token arrays, or exceptions are used,
+ * so lexing a line only allocates when the creator name is asked for.
+ * Lexing follows the same rules as trimming the line, splitting
+ * it on whitespace, and converting the ratings with Integer.parseInt.
+ *
+ * Lines can be given as strings, or as a range of bytes in a buffer,
+ * such as a memory-mapped file. Bytes are read as if they were
+ * in an ASCII-compatible character set, like the default one,
+ * so only ASCII digits are taken as parts of ratings.
+ *
+ * A lexer keeps the results of the last line it was given,
+ * so each thread should have its own lexer.
+ *
+ * The number of name tokens and ratings, and the bounds of the
+ * ratings, come from the RatingSchema the lexer was made for, and
+ * are copied into the lexer's own fields, so lines of any schema
+ * are lexed the same way. A rating outside the bounds makes the
+ * line invalid, the same as a rating that is not an integer.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-10
+ */
+public class LineLexer
+{
+    /* non-instance fields: constants */
+    private static final int STATUS_TO_BE_IGNORED = 2;
+    private static final int STATUS_VALID = 1;
+    private static final int STATUS_WRONG_RATING_TYPE = -2;
+    private static final int STATUS_WRONG_TOKEN_COUNT = -1;
+    private static final String STRING_TO_IGNORE = "Block";
+
+    /* instance fields */
+    private int categories;
+    private Charset charset;
+    private StringBuilder creatorName;
+    private ByteBuffer fileBuffer;
+    private String fileString;
+    private int highestRating;
+    private int lineLength;
+    private int lineOffset;
+    private int lowestRating;
+    private byte[] nameBytes;
+    private int nameTokenCount;
+    private int[] nameTokenEnd;
+    private int[] nameTokenStart;
+    private int[] rating;
+    private int requiredTokenCount;
+    private int status;
+
+    /* constructors */
+    /**
+     * Initializes a new lexer that has not lexed any line yet.
+     * Creator names read from bytes are decoded with
+     * the default character set, like FileReader does.
+     */
+    public LineLexer()
+    {
+        this(RatingSchema.DEFAULT);
+    } // end of constructor LineLexer()
+
+    /**
+     * Initializes a new lexer for lines of the given schema,
+     * that has not lexed any line yet.
+     *
+     * @param schema the layout of the lines.
+     */
+    public LineLexer(RatingSchema schema)
+    {
+        categories = schema.getCategoryCount();
+        charset = Charset.defaultCharset();
+        creatorName = new StringBuilder();
+        fileBuffer = null;
+        fileString = null;
+        highestRating = schema.getHighestRating();
+        lineLength = 0;
+        lineOffset = 0;
+        lowestRating = schema.getLowestRating();
+        nameBytes = new byte[64];
+        nameTokenCount = schema.getNameTokenCount();
+        nameTokenEnd = new int[nameTokenCount];
+        nameTokenStart = new int[nameTokenCount];
+        rating = new int[categories];
+        requiredTokenCount = schema.getTokenCount();
+        status = STATUS_WRONG_TOKEN_COUNT;
+    } // end of constructor LineLexer(RatingSchema schema)
+
+    /* public interface */
+    /**
+     * Lexes the given string from the file,
+     * and remembers its status, name tokens and ratings.
+     *
+     * @param line a string from the file.
+     * @return the status of the line, the same as
+     * LineChecker.statusOfLine(String) would give.
+     */
+    public int lexLine(String line)
+    {
+        fileString = line;
+        fileBuffer = null;
+        lineLength = line.length();
+        lineOffset = 0;
+
+        // Right off the bat, can we ignore this string?
+        if (line.startsWith(STRING_TO_IGNORE))
+        {
+            status = STATUS_TO_BE_IGNORED;
+            return status;
+        } // end of if (line.startsWith(STRING_TO_IGNORE))
+
+        status = lexRange(0, line.length());
+        return status;
+    } // end of method lexLine(String line)
+
+    /**
+     * Lexes the line found between the given indexes of a buffer,
+     * and remembers its status, name tokens and ratings.
+     * The buffer's position and limit are not changed.
+     *
+     * @param buffer the bytes holding the line.
+     * @param lineStart the index of the line's first byte.
+     * @param lineEnd the index just past the line's last byte,
+     * not counting the line terminator.
+     * @return the status of the line, the same as
+     * LineChecker.statusOfLine(String) would give.
+     */
+    public int lexLine(ByteBuffer buffer, int lineStart, int lineEnd)
+    {
+        fileString = null;
+        fileBuffer = buffer;
+        lineLength = lineEnd - lineStart;
+        lineOffset = lineStart;
+
+        // Right off the bat, can we ignore this line?
+        if (startsWithStringToIgnore(lineStart, lineEnd))
+        {
+            status = STATUS_TO_BE_IGNORED;
+            return status;
+        } // end of if (startsWithStringToIgnore(lineStart, lineEnd))
+
+        status = lexRange(lineStart, lineEnd);
+        return status;
+    } // end of method lexLine(ByteBuffer buffer, ...)
+
+    /**
+     * Returns the length of the line most recently lexed,
+     * in characters or bytes, not counting its line terminator.
+     *
+     * @return the length.
+     */
+    public int getLineLength()
+    {
+        return lineLength;
+    } // end of method getLineLength()
+
+    /**
+     * Returns how many tokens make up a creator's name
+     * in the lines this lexer reads.
+     *
+     * @return the number of name tokens.
+     */
+    public int getNameTokenCount()
+    {
+        return nameTokenCount;
+    } // end of method getNameTokenCount()
+
+    /**
+     * Returns the status of the line most recently lexed.
+     *
+     * @return the status, in the form of an integer.
+     */
+    public int getStatus()
+    {
+        return status;
+    } // end of method getStatus()
+
+    /**
+     * Returns one rating of the line most recently lexed.
+     * Only meaningful if that line was valid.
+     *
+     * @param category the index of the rating's category.
+     * @return the rating, as an integer.
+     */
+    public int getRating(int category)
+    {
+        return rating[category];
+    } // end of method getRating(int category)
+
+    /**
+     * Returns a new array holding the ratings
+     * of the line most recently lexed.
+     * Only meaningful if that line was valid.
+     *
+     * @return the ratings, compiled in an integer array
+     */
+    public int[] copyRatings()
+    {
+        return copyRatings(new int[categories]);
+    } // end of method copyRatings()
+
+    /**
+     * Copies the ratings of the line most recently lexed
+     * into the given array, so that it can be reused.
+     * Only meaningful if that line was valid.
+     *
+     * @param ratingCopy an array with room for every rating.
+     * @return the given array, holding the ratings.
+     */
+    public int[] copyRatings(int[] ratingCopy)
+    {
+        for (int category = 0; category < categories; category++)
+        {
+            ratingCopy[category] = rating[category];
+        } // end of for (int category = 0; category < categories; ...)
+        return ratingCopy;
+    } // end of method copyRatings(int[] ratingCopy)
+
+    /**
+     * Returns where a name token of the line most recently
+     * lexed starts, as an index into that line or buffer.
+     *
+     * @param nameToken which of the name tokens, starting at 0.
+     * @return the index of the token's first character.
+     */
+    public int getNameTokenStart(int nameToken)
+    {
+        return nameTokenStart[nameToken];
+    } // end of method getNameTokenStart(int nameToken)
+
+    /**
+     * Returns where a name token of the line most recently
+     * lexed ends, as an index into that line or buffer.
+     *
+     * @param nameToken which of the name tokens, starting at 0.
+     * @return the index just past the token's last character.
+     */
+    public int getNameTokenEnd(int nameToken)
+    {
+        return nameTokenEnd[nameToken];
+    } // end of method getNameTokenEnd(int nameToken)
+
+    /**
+     * Checks if the line most recently lexed was given
+     * as bytes in a buffer, rather than as a string.
+     *
+     * @return true if the line was bytes, false if it was a string.
+     */
+    public boolean isLexedFromBytes()
+    {
+        return fileBuffer != null;
+    } // end of method isLexedFromBytes()
+
+    /**
+     * Returns a character of the line most recently lexed,
+     * such as one of its name tokens, without making a string.
+     *
+     * @param position the index of the character in that line or buffer.
+     * @return the character; bytes are read as unsigned.
+     */
+    public char getLineCharacter(int position)
+    {
+        return characterAt(position);
+    } // end of method getLineCharacter(int position)
+
+    /**
+     * Compiles the name tokens of the line most recently
+     * lexed to form and return a video creator's name.
+     * Only meaningful if that line was valid.
+     *
+     * @return the name tokens, concatenated together.
+     */
+    public String createCreatorName()
+    {
+        // Was the line a string?
+        if (fileBuffer == null)
+        {
+            creatorName.setLength(0);
+            for (int nameToken = 0; nameToken < nameTokenCount;
+            nameToken++)
+            {
+                creatorName.append(fileString, nameTokenStart[nameToken],
+                nameTokenEnd[nameToken]);
+            } // end of for (int nameToken = 0; ...)
+            return creatorName.toString();
+        } // end of if (fileBuffer == null)
+
+        /* Gather the bytes of every name token,
+         * then decode them all at once.
+         */
+        int nameLength = 0;
+        for (int nameToken = 0; nameToken < nameTokenCount; nameToken++)
+        {
+            nameLength = nameLength + nameTokenEnd[nameToken]
+            - nameTokenStart[nameToken];
+        } // end of for (int nameToken = 0; ...)
+        if (nameLength > nameBytes.length)
+        {
+            nameBytes = new byte[nameLength];
+        } // end of if (nameLength > nameBytes.length)
+
+        int nameIndex = 0;
+        for (int nameToken = 0; nameToken < nameTokenCount; nameToken++)
+        {
+            for (int position = nameTokenStart[nameToken];
+            position < nameTokenEnd[nameToken]; position++)
+            {
+                nameBytes[nameIndex] = fileBuffer.get(position);
+                nameIndex = nameIndex + 1;
+            } // end of for (int position = ...)
+        } // end of for (int nameToken = 0; ...)
+        return new String(nameBytes, 0, nameLength, charset);
+    } // end of method createCreatorName()
+
+    /**
+     * Makes a string of the whole line most recently lexed, such
+     * as a "Block" line, without its line terminator.
+     *
+     * @return the line.
+     */
+    public String createLineText()
+    {
+        // Was the line a string?
+        if (fileBuffer == null)
+        {
+            return fileString;
+        } // end of if (fileBuffer == null)
+
+        byte[] lineBytes = new byte[lineLength];
+        for (int index = 0; index < lineLength; index++)
+        {
+            lineBytes[index] = fileBuffer.get(lineOffset + index);
+        } // end of for (int index = 0; index < lineLength; index++)
+        return new String(lineBytes, charset);
+    } // end of method createLineText()
+
+    /* private implementation */
+    /**
+     * Lexes the characters between the given indexes
+     * of the current string or buffer.
+     *
+     * @param lineStart the index of the line's first character.
+     * @param lineEnd the index just past the line's last character.
+     * @return the status of the line.
+     */
+    private int lexRange(int lineStart, int lineEnd)
+    {
+        /* Trim the line the way String.trim() does:
+         * every character up to and including a space
+         * is dropped from both ends.
+         */
+        int start = lineStart;
+        int end = lineEnd;
+        while (start < end && characterAt(start) <= ' ')
+        {
+            start = start + 1;
+        } // end of while (start < end && characterAt(start) <= ' ')
+        while (end > start && characterAt(end - 1) <= ' ')
+        {
+            end = end - 1;
+        } // end of while (end > start && characterAt(end - 1) <= ' ')
+
+        // An empty line still splits into a single empty token.
+        if (start == end)
+        {
+            return STATUS_WRONG_TOKEN_COUNT;
+        } // end of if (start == end)
+
+        /* Walk through the tokens, remembering the name tokens
+         * and converting the ratings as we pass them.
+         */
+        int tokenCount = 0;
+        boolean ratingsAreIntegers = true;
+        int position = start;
+        while (position < end)
+        {
+            // Find the end of the current token.
+            int tokenStart = position;
+            while (position < end && !isWhitespace(characterAt(position)))
+            {
+                position = position + 1;
+            } // end of while (position < end && ...)
+
+            // Too many tokens? No need to look any further.
+            if (tokenCount == requiredTokenCount)
+            {
+                return STATUS_WRONG_TOKEN_COUNT;
+            } // end of if (tokenCount == requiredTokenCount)
+
+            if (tokenCount < nameTokenCount)
+            {
+                nameTokenStart[tokenCount] = tokenStart;
+                nameTokenEnd[tokenCount] = position;
+            }
+            else if (ratingsAreIntegers)
+            {
+                ratingsAreIntegers = parseRating(tokenStart, position,
+                tokenCount - nameTokenCount);
+            } // end of if (tokenCount < nameTokenCount)
+            tokenCount = tokenCount + 1;
+
+            // Skip the whitespace before the next token.
+            while (position < end && isWhitespace(characterAt(position)))
+            {
+                position = position + 1;
+            } // end of while (position < end && ...)
+        } // end of while (position < end)
+
+        // Does our line contain the right number of tokens?
+        if (tokenCount != requiredTokenCount)
+        {
+            return STATUS_WRONG_TOKEN_COUNT;
+        }
+        else if (ratingsAreIntegers)
+        {
+            return STATUS_VALID;
+        }
+        else
+        {
+            return STATUS_WRONG_RATING_TYPE;
+        } // end of if (tokenCount != requiredTokenCount)
+    } // end of method lexRange(int lineStart, int lineEnd)
+
+    /**
+     * Returns the character at the given index
+     * of the current string or buffer.
+     *
+     * @param position the index of the character.
+     * @return the character; bytes are read as unsigned.
+     */
+    private char characterAt(int position)
+    {
+        if (fileBuffer == null)
+        {
+            return fileString.charAt(position);
+        } // end of if (fileBuffer == null)
+        return (char) (fileBuffer.get(position) & 0xFF);
+    } // end of method characterAt(int position)
+
+    /**
+     * Checks if the line between the given indexes of the
+     * current buffer begins with the string set to be ignored.
+     *
+     * @param lineStart the index of the line's first byte.
+     * @param lineEnd the index just past the line's last byte.
+     * @return true if the line should be ignored, false otherwise.
+     */
+    private boolean startsWithStringToIgnore(int lineStart, int lineEnd)
+    {
+        int ignoreLength = STRING_TO_IGNORE.length();
+        if (lineEnd - lineStart < ignoreLength)
+        {
+            return false;
+        } // end of if (lineEnd - lineStart < ignoreLength)
+
+        for (int index = 0; index < ignoreLength; index++)
+        {
+            if (characterAt(lineStart + index)
+                != STRING_TO_IGNORE.charAt(index))
+            {
+                return false;
+            } // end of if (characterAt(lineStart + index) != ...)
+        } // end of for (int index = 0; index < ignoreLength; index++)
+        return true;
+    } // end of method startsWithStringToIgnore(int lineStart, ...)
+
+    /**
+     * Checks if the given character separates
+     * tokens, the same as the regular expression "\\s".
+     *
+     * @param character the character to check.
+     * @return true if it is whitespace, false otherwise.
+     */
+    private static boolean isWhitespace(char character)
+    {
+        return character == ' ' || character == '\t'
+        || character == '\n' || character == '\u000B'
+        || character == '\f' || character == '\r';
+    } // end of method isWhitespace(char character)
+
+    /**
+     * Converts a rating token to an integer, following
+     * the same rules as Integer.parseInt, and stores it.
+     *
+     * @param tokenStart the index of the token's first character.
+     * @param tokenEnd the index just past the token's last character.
+     * @param category which rating the token is.
+     * @return true if the token is an integer within the
+     * bounds of the schema, false otherwise.
+     */
+    private boolean parseRating(int tokenStart, int tokenEnd, int category)
+    {
+        /* Accumulate negatively, like Integer.parseInt does,
+         * so that Integer.MIN_VALUE can be read without overflow.
+         */
+        boolean negative = false;
+        int limit = -Integer.MAX_VALUE;
+        int position = tokenStart;
+        char firstCharacter = characterAt(position);
+        if (firstCharacter == '-' || firstCharacter == '+')
+        {
+            if (firstCharacter == '-')
+            {
+                negative = true;
+                limit = Integer.MIN_VALUE;
+            } // end of if (firstCharacter == '-')
+            position = position + 1;
+
+            // A lone sign is not an integer.
+            if (position == tokenEnd)
+            {
+                return false;
+            } // end of if (position == tokenEnd)
+        } // end of if (firstCharacter == '-' || firstCharacter == '+')
+
+        int multiplicationLimit = limit / 10;
+        int result = 0;
+        while (position < tokenEnd)
+        {
+            int digit = digitAt(position);
+            if (digit < 0 || result < multiplicationLimit)
+            {
+                return false;
+            } // end of if (digit < 0 || result < multiplicationLimit)
+            result = result * 10;
+            if (result < limit + digit)
+            {
+                return false;
+            } // end of if (result < limit + digit)
+            result = result - digit;
+            position = position + 1;
+        } // end of while (position < tokenEnd)
+
+        if (!negative)
+        {
+            result = -result;
+        } // end of if (!negative)
+        rating[category] = result;
+        return result >= lowestRating && result <= highestRating;
+    } // end of method parseRating(int tokenStart, ...)
+
+    /**
+     * Returns the decimal value of the character at the
+     * given index of the current string or buffer.
+     *
+     * @param position the index of the character.
+     * @return the value of the digit, or -1 if it is not a digit.
+     */
+    private int digitAt(int position)
+    {
+        if (fileBuffer == null)
+        {
+            return Character.digit(fileString.charAt(position), 10);
+        } // end of if (fileBuffer == null)
+
+        // Only ASCII digits can be found in single bytes.
+        int digit = fileBuffer.get(position) - '0';
+        if (digit < 0 || digit > 9)
+        {
+            return -1;
+        } // end of if (digit < 0 || digit > 9)
+        return digit;
+    } // end of method digitAt(int position)
+
+} // end of class LineLexer
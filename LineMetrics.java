@@ -0,0 +1,159 @@
+/**
+ * The part of IngestMetrics that one interpreter uses while it
+ * reads lines. Lines are counted in plain fields, which only one
+ * thread uses, and added to the shared metrics every FLUSH_INTERVAL
+ * lines, so counting a line costs next to nothing. It also decides
+ * which lines are timed, and times their stages one after another.
+ *
+ * @author Preenon Chisty
+ * @version 2017-02-02
+ */
+public class LineMetrics
+{
+    /* non-instance fields: constants */
+    public static final int STAGE_PARSE = 2;
+    public static final int STAGE_READ = 0;
+    public static final int STAGE_VALIDATE = 1;
+
+    private static final int FLUSH_INTERVAL = 4096;
+    private static final int STATUS_TO_BE_IGNORED = 2;
+    private static final int STATUS_VALID = 1;
+    private static final int STATUS_WRONG_RATING_TYPE = -2;
+    private static final int STATUS_WRONG_TOKEN_COUNT = -1;
+
+    /* instance fields */
+    private long bytes;
+    private int ignored;
+    private int lineCount;
+    private IngestMetrics metrics;
+    private int newCreators;
+    private boolean sampledLine;
+    private LatencyHistogram[] stageLatency;
+    private long stageStartTime;
+    private int valid;
+    private int wrongRatingType;
+    private int wrongTokenCount;
+
+    /* constructors */
+    /**
+     * Initializes a new line counter, adding to the shared metrics.
+     */
+    public LineMetrics()
+    {
+        bytes = 0;
+        ignored = 0;
+        lineCount = 0;
+        metrics = IngestMetrics.getMetrics();
+        newCreators = 0;
+        sampledLine = false;
+        stageLatency = new LatencyHistogram[] {metrics.getReadLatency(),
+            metrics.getValidateLatency(), metrics.getParseLatency()};
+        stageStartTime = 0;
+        valid = 0;
+        wrongRatingType = 0;
+        wrongTokenCount = 0;
+    } // end of constructor LineMetrics()
+
+    /* public interface */
+    /**
+     * Notes that the next line is about to be read, and starts
+     * timing it if it is one of the lines timed.
+     */
+    public void startLine()
+    {
+        lineCount = lineCount + 1;
+        sampledLine = lineCount % IngestMetrics.SAMPLE_INTERVAL == 0;
+        if (sampledLine)
+        {
+            stageStartTime = System.nanoTime();
+        } // end of if (sampledLine)
+    } // end of method startLine()
+
+    /**
+     * Notes that the line's current stage is over, adding its time
+     * if the line is timed, and starts timing the next stage.
+     *
+     * @param stage the stage that is over: STAGE_READ,
+     * STAGE_VALIDATE or STAGE_PARSE.
+     */
+    public void endStage(int stage)
+    {
+        if (sampledLine)
+        {
+            long now = System.nanoTime();
+            stageLatency[stage].record(now - stageStartTime);
+            stageStartTime = now;
+        } // end of if (sampledLine)
+    } // end of method endStage(int stage)
+
+    /**
+     * Counts a line that was read.
+     *
+     * @param statusOfLine the status of the line.
+     * @param lineLength how many bytes or characters the line has,
+     * not counting its line break.
+     */
+    public void countLine(int statusOfLine, int lineLength)
+    {
+        bytes = bytes + lineLength + 1;
+        if (statusOfLine == STATUS_VALID)
+        {
+            valid = valid + 1;
+        }
+        else if (statusOfLine == STATUS_WRONG_TOKEN_COUNT)
+        {
+            wrongTokenCount = wrongTokenCount + 1;
+        }
+        else if (statusOfLine == STATUS_WRONG_RATING_TYPE)
+        {
+            wrongRatingType = wrongRatingType + 1;
+        }
+        else if (statusOfLine == STATUS_TO_BE_IGNORED)
+        {
+            ignored = ignored + 1;
+        } // end of if (statusOfLine == STATUS_VALID)
+
+        if (lineCount % FLUSH_INTERVAL == 0)
+        {
+            flush();
+        } // end of if (lineCount % FLUSH_INTERVAL == 0)
+    } // end of method countLine(int statusOfLine, int lineLength)
+
+    /**
+     * Counts creators the interpreter has found for the first time.
+     * They are added to the shared metrics along with the lines.
+     *
+     * @param creators how many creators were new; less than zero
+     * takes back creators counted twice, such as ones found in
+     * more than one range of a file before the ranges are merged.
+     */
+    public void countCreators(int creators)
+    {
+        newCreators = newCreators + creators;
+    } // end of method countCreators(int creators)
+
+    /**
+     * Adds the lines and creators counted since the last time to
+     * the shared metrics. Called at the end of every file or range.
+     */
+    public void flush()
+    {
+        if (newCreators != 0)
+        {
+            metrics.addCreators(newCreators);
+            newCreators = 0;
+        } // end of if (newCreators != 0)
+        if (valid + wrongTokenCount + wrongRatingType + ignored == 0)
+        {
+            return;
+        } // end of if (valid + wrongTokenCount + ... == 0)
+        metrics.addLines(valid, wrongTokenCount, wrongRatingType, ignored,
+        bytes);
+        bytes = 0;
+        ignored = 0;
+        valid = 0;
+        wrongRatingType = 0;
+        wrongTokenCount = 0;
+    } // end of method flush()
+
+} // end of class LineMetrics
@@ -0,0 +1,347 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+/**
+ * A sparse index of where the lines of a ratings file start, kept
+ * beside the file, so that any line, such as one reported in an
+ * error file, can be found without reading the file from the start.
+ *
+ * Only one line in every INTERVAL is in the index, along with the
+ * first line of every range a file was read in, so the index stays
+ * tiny even for huge files: a line is found by jumping to the
+ * nearest entry before it and reading on from there, through at
+ * most INTERVAL lines. Lines are numbered from 1, the same as in
+ * error files, and end the same way they do for MappedFileAccessor.
+ *
+ * An index file starts with the magic number "VRLI" and a format
+ * version, then the size and last change time of the ratings file,
+ * so an index that no longer matches its file is not used. Then
+ * come the entries, each a line number and the offset of the line's
+ * first byte, in file order, and a second magic number to mark the
+ * end.
+ *
+ * @author Preenon Chisty
+ * @version 2017-02-04
+ */
+public class LineOffsetIndex
+{
+    /* non-instance fields: constants */
+    /** How many lines go by between entries of the index. */
+    public static final int INTERVAL = 65536;
+
+    private static final int END_MAGIC = 0x56524C45;
+    private static final int ENTRY_SIZE = 16;
+    private static final int HEADER_SIZE = 28;
+    private static final int MAGIC = 0x56524C49;
+    private static final int VERSION = 1;
+
+    /* instance fields */
+    private long dataFileModified;
+    private long dataFileSize;
+    private int entryCount;
+    private long[] entryLine;
+    private long[] entryOffset;
+
+    /* constructors */
+    /**
+     * Initializes a new, empty index.
+     */
+    public LineOffsetIndex()
+    {
+        dataFileModified = 0;
+        dataFileSize = 0;
+        entryCount = 0;
+        entryLine = new long[16];
+        entryOffset = new long[16];
+    } // end of constructor LineOffsetIndex()
+
+    /* public interface */
+    /**
+     * Makes an index of a file by reading every line of it,
+     * for files that were not indexed while they were analyzed.
+     *
+     * @param fileName the name of the ratings file.
+     * @return the index, or null if the file could not be read.
+     */
+    public static LineOffsetIndex build(String fileName)
+    {
+        LineOffsetIndex index = new LineOffsetIndex();
+        MappedFileAccessor mappedAccessor = new MappedFileAccessor();
+        if (!index.setDataFile(fileName)
+            || !mappedAccessor.setFileAccessor(fileName))
+        {
+            return null;
+        } // end of if (!index.setDataFile(fileName) || ...)
+
+        LineLexer lexer = new LineLexer();
+        index.addEntry(1, 0);
+        while (mappedAccessor.lexLineFromFile(lexer))
+        {
+            long numberOfFileLine = mappedAccessor.getStringLocationInFile();
+            if (numberOfFileLine % INTERVAL == 0)
+            {
+                index.addEntry(numberOfFileLine + 1,
+                mappedAccessor.getNextLineOffset());
+            } // end of if (numberOfFileLine % INTERVAL == 0)
+        } // end of while (mappedAccessor.lexLineFromFile(lexer))
+        mappedAccessor.closeFile();
+        if (mappedAccessor.hadReadError())
+        {
+            return null;
+        } // end of if (mappedAccessor.hadReadError())
+        return index;
+    } // end of method build(String fileName)
+
+    /**
+     * Remembers the size and last change time of the ratings file
+     * this index is for, as they are now.
+     *
+     * @param fileName the name of the ratings file.
+     * @return true if they could be found, false otherwise.
+     */
+    public boolean setDataFile(String fileName)
+    {
+        try
+        {
+            Path dataFile = Paths.get(fileName);
+            dataFileSize = Files.size(dataFile);
+            dataFileModified = Files.getLastModifiedTime(dataFile).toMillis();
+        }
+        catch (IOException exception)
+        {
+            return false;
+        } // end of catch (IOException exception)
+        return true;
+    } // end of method setDataFile(String fileName)
+
+    /**
+     * Checks if a ratings file is still the same as when this
+     * index was made, going by its size and last change time.
+     *
+     * @param fileName the name of the ratings file.
+     * @return true if the index can be used for the file.
+     */
+    public boolean matchesDataFile(String fileName)
+    {
+        try
+        {
+            Path dataFile = Paths.get(fileName);
+            return Files.size(dataFile) == dataFileSize
+            && Files.getLastModifiedTime(dataFile).toMillis()
+            == dataFileModified;
+        }
+        catch (IOException exception)
+        {
+            return false;
+        } // end of catch (IOException exception)
+    } // end of method matchesDataFile(String fileName)
+
+    /**
+     * Returns the size the ratings file had when
+     * this index was made.
+     *
+     * @return the size, in bytes.
+     */
+    public long getDataFileSize()
+    {
+        return dataFileSize;
+    } // end of method getDataFileSize()
+
+    /**
+     * Adds where a line starts. Entries must be added in file
+     * order; one that is not after the last entry is left out.
+     *
+     * @param lineNumber the number of the line, starting at 1.
+     * @param offset the offset of the line's first byte.
+     */
+    public void addEntry(long lineNumber, long offset)
+    {
+        if (entryCount > 0 && lineNumber <= entryLine[entryCount - 1])
+        {
+            return;
+        } // end of if (entryCount > 0 && ...)
+
+        // Make room for another entry, if needed.
+        if (entryCount == entryLine.length)
+        {
+            int newLength = entryCount * 2;
+            entryLine = Arrays.copyOf(entryLine, newLength);
+            entryOffset = Arrays.copyOf(entryOffset, newLength);
+        } // end of if (entryCount == entryLine.length)
+        entryLine[entryCount] = lineNumber;
+        entryOffset[entryCount] = offset;
+        entryCount = entryCount + 1;
+    } // end of method addEntry(long lineNumber, long offset)
+
+    /**
+     * Adds the entries of an index of a later range of the same
+     * file, made by an interpreter that numbered the range's lines
+     * from 1, after the entries already here.
+     *
+     * @param rangeIndex the index of the range.
+     * @param linesBeforeRange how many lines come before the range.
+     */
+    public void addEntries(LineOffsetIndex rangeIndex,
+    long linesBeforeRange)
+    {
+        for (int entry = 0; entry < rangeIndex.entryCount; entry++)
+        {
+            addEntry(linesBeforeRange + rangeIndex.entryLine[entry],
+            rangeIndex.entryOffset[entry]);
+        } // end of for (int entry = 0; entry < rangeIndex.entryCount; ...)
+    } // end of method addEntries(LineOffsetIndex rangeIndex, ...)
+
+    /**
+     * Finds the last entry at or before a line.
+     *
+     * @param lineNumber the number of the line, starting at 1.
+     * @return the number of the entry, or -1 if every
+     * entry comes after the line.
+     */
+    public int findEntry(long lineNumber)
+    {
+        int position = Arrays.binarySearch(entryLine, 0, entryCount,
+        lineNumber);
+        if (position >= 0)
+        {
+            return position;
+        } // end of if (position >= 0)
+
+        // Not found: the search gives where the line would go.
+        return -position - 2;
+    } // end of method findEntry(long lineNumber)
+
+    /**
+     * Returns how many entries there are.
+     *
+     * @return the number of entries.
+     */
+    public int getEntryCount()
+    {
+        return entryCount;
+    } // end of method getEntryCount()
+
+    /**
+     * Returns the number of the line of an entry.
+     *
+     * @param entry the number of the entry, in file order.
+     * @return the number of the line.
+     */
+    public long getEntryLine(int entry)
+    {
+        return entryLine[entry];
+    } // end of method getEntryLine(int entry)
+
+    /**
+     * Returns where the line of an entry starts.
+     *
+     * @param entry the number of the entry, in file order.
+     * @return the offset of the line's first byte.
+     */
+    public long getEntryOffset(int entry)
+    {
+        return entryOffset[entry];
+    } // end of method getEntryOffset(int entry)
+
+    /**
+     * Saves this index to a file. The index is written to a new
+     * file first and then moved over the given one, so that an
+     * index is never seen half written.
+     *
+     * @param fileName the name of the index file.
+     * @return true if the index was saved, false otherwise.
+     */
+    public boolean save(String fileName)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE
+        + entryCount * ENTRY_SIZE + 4);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(dataFileSize);
+        buffer.putLong(dataFileModified);
+        buffer.putInt(entryCount);
+        for (int entry = 0; entry < entryCount; entry++)
+        {
+            buffer.putLong(entryLine[entry]);
+            buffer.putLong(entryOffset[entry]);
+        } // end of for (int entry = 0; entry < entryCount; entry++)
+        buffer.putInt(END_MAGIC);
+
+        Path indexFile = Paths.get(fileName).toAbsolutePath();
+        Path newIndexFile = indexFile.resolveSibling(
+        indexFile.getFileName() + ".new");
+        try
+        {
+            Files.write(newIndexFile, buffer.array());
+            try
+            {
+                Files.move(newIndexFile, indexFile,
+                StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (IOException exception)
+            {
+                Files.move(newIndexFile, indexFile,
+                StandardCopyOption.REPLACE_EXISTING);
+            } // end of catch (IOException exception)
+        }
+        catch (IOException exception)
+        {
+            return false;
+        } // end of catch (IOException exception)
+        return true;
+    } // end of method save(String fileName)
+
+    /**
+     * Loads an index saved with save(String).
+     *
+     * @param fileName the name of the index file.
+     * @return the index, or null if the file isn't a whole
+     * index or could not be read.
+     */
+    public static LineOffsetIndex load(String fileName)
+    {
+        try
+        {
+            ByteBuffer buffer
+            = ByteBuffer.wrap(Files.readAllBytes(Paths.get(fileName)));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+            {
+                return null;
+            } // end of if (buffer.getInt() != MAGIC || ...)
+
+            LineOffsetIndex index = new LineOffsetIndex();
+            index.dataFileSize = buffer.getLong();
+            index.dataFileModified = buffer.getLong();
+            int entryTotal = buffer.getInt();
+            if (entryTotal < 0
+                || (long) entryTotal * ENTRY_SIZE > buffer.remaining())
+            {
+                return null;
+            } // end of if (entryTotal < 0 || ...)
+            for (int entry = 0; entry < entryTotal; entry++)
+            {
+                index.addEntry(buffer.getLong(), buffer.getLong());
+            } // end of for (int entry = 0; entry < entryTotal; entry++)
+
+            if (buffer.getInt() != END_MAGIC)
+            {
+                return null;
+            } // end of if (buffer.getInt() != END_MAGIC)
+            return index;
+        }
+        catch (IOException exception)
+        {
+            return null;
+        }
+        catch (BufferUnderflowException exception)
+        {
+            return null;
+        } // end of catch (BufferUnderflowException exception)
+    } // end of method load(String fileName)
+
+} // end of class LineOffsetIndex
@@ -17,9 +17,133 @@ public class Main
     {
     }
 
+    /**
+     * Runs the program. Without arguments, the user is asked
+     * for a file; with arguments, every file given is analyzed
+     * in batch mode, see BatchProcessor. With "--follow" first,
+     * one file is followed as it grows, see FileFollower.
+     * With "--sources" first, many sources are read at once
+     * into one set of results, see SourceIngestor.
+     * With "--blocks" first, one file is analyzed block by
+     * block, or only one of its blocks, see BlockInterpreter.
+     * With "--lines" first, chosen lines of a file are printed,
+     * see LineFetcher.
+     * With only "--snapshot" and a file name, the user is asked
+     * for a file as usual, and a snapshot of it is saved.
+     *
+     * @param argument the command line arguments.
+     */
     public static void main(String[] argument)
     {
-        StatisticDisplay videoStatistic = new StatisticDisplay();
-        videoStatistic.run();
+        if (argument.length == 0)
+        {
+            StatisticDisplay videoStatistic = new StatisticDisplay();
+            videoStatistic.run();
+            return;
+        } // end of if (argument.length == 0)
+        
+        if (argument.length == 2 && argument[0].equals("--snapshot"))
+        {
+            // Ask for a file as usual, and save a snapshot of it.
+            StatisticDisplay videoStatistic = new StatisticDisplay();
+            videoStatistic.setSnapshotFile(argument[1]);
+            videoStatistic.run();
+            return;
+        } // end of if (argument.length == 2 && ...)
+
+        // Long runs can be watched through JMX while they go.
+        IngestMetrics.getMetrics().register();
+
+        if (argument[0].equals("--follow"))
+        {
+            follow(argument);
+            return;
+        } // end of if (argument[0].equals("--follow"))
+
+        if (argument[0].equals("--sources"))
+        {
+            SourceIngestor ingestor = new SourceIngestor();
+            if (!ingestor.setOptions(argument, 1))
+            {
+                SourceIngestor.printUsage();
+                System.exit(2);
+            } // end of if (!ingestor.setOptions(argument, 1))
+            if (!ingestor.run())
+            {
+                System.exit(1);
+            } // end of if (!ingestor.run())
+            return;
+        } // end of if (argument[0].equals("--sources"))
+
+        if (argument[0].equals("--blocks"))
+        {
+            BlockInterpreter interpreter = new BlockInterpreter();
+            if (!interpreter.setOptions(argument, 1))
+            {
+                BlockInterpreter.printUsage();
+                System.exit(2);
+            } // end of if (!interpreter.setOptions(argument, 1))
+            if (!interpreter.run())
+            {
+                System.exit(1);
+            } // end of if (!interpreter.run())
+            return;
+        } // end of if (argument[0].equals("--blocks"))
+
+        if (argument[0].equals("--lines"))
+        {
+            LineFetcher fetcher = new LineFetcher();
+            if (!fetcher.setOptions(argument, 1))
+            {
+                LineFetcher.printUsage();
+                System.exit(2);
+            } // end of if (!fetcher.setOptions(argument, 1))
+            if (!fetcher.run())
+            {
+                System.exit(1);
+            } // end of if (!fetcher.run())
+            return;
+        } // end of if (argument[0].equals("--lines"))
+
+        BatchProcessor batch = new BatchProcessor();
+        if (!batch.setOptions(argument))
+        {
+            BatchProcessor.printUsage();
+            System.exit(2);
+        } // end of if (!batch.setOptions(argument))
+        if (!batch.run())
+        {
+            System.exit(1);
+        } // end of if (!batch.run())
     } // end of method main(String[] argument)
+
+    /**
+     * Follows a file that is being written to until
+     * the program is stopped, such as with Ctrl-C.
+     *
+     * @param argument the command line arguments.
+     */
+    private static void follow(String[] argument)
+    {
+        final FileFollower follower = new FileFollower();
+        if (!follower.setOptions(argument, 1))
+        {
+            FileFollower.printUsage();
+            System.exit(2);
+        } // end of if (!follower.setOptions(argument, 1))
+
+        // Write the last results before the program ends.
+        Runtime.getRuntime().addShutdownHook(new Thread()
+        {
+            @Override
+            public void run()
+            {
+                follower.stop();
+            } // end of method run()
+        });
+        if (!follower.run())
+        {
+            System.exit(1);
+        } // end of if (!follower.run())
+    } // end of method follow(String[] argument)
 } // end of class Main
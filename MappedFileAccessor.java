@@ -0,0 +1,374 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+/**
+ * A class that memory-maps a file and hands its lines,
+ * straight from the mapped bytes, to a line lexer.
+ *
+ * Nothing is copied or decoded while finding lines, so rereading
+ * a file that is already in the page cache costs very little.
+ * Files bigger than a single mapping can hold are read
+ * through successive windows of the file.
+ *
+ * Lines end the same way they do for BufferedReader.readLine():
+ * with a line feed, a carriage return, or both.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-10
+ */
+public class MappedFileAccessor
+{
+    /* non-instance fields: constants */
+    private static final int DEFAULT_WINDOW_SIZE = 1 << 28;
+    private static final int MAXIMUM_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    /* instance fields */
+    private long currentStringNumber;
+    private FileChannel fileChannel;
+    private long fileSize;
+    private boolean ownsChannel;
+    private int position;
+    private boolean readFailed;
+    private MappedByteBuffer window;
+    private int windowSize;
+    private long windowStart;
+
+    /* constructors */
+    /**
+     * Initializes a new mapped file accessor
+     * with the default window size.
+     */
+    public MappedFileAccessor()
+    {
+        this(DEFAULT_WINDOW_SIZE);
+    } // end of constructor MappedFileAccessor()
+
+    /**
+     * Initializes a new mapped file accessor that maps
+     * at most the given number of bytes at a time.
+     *
+     * @param sizeOfWindow the largest number of bytes to map at once.
+     */
+    public MappedFileAccessor(int sizeOfWindow)
+    {
+        currentStringNumber = 0;
+        fileChannel = null;
+        fileSize = 0;
+        ownsChannel = false;
+        position = 0;
+        readFailed = false;
+        window = null;
+        windowSize = sizeOfWindow;
+        windowStart = 0;
+    } // end of constructor MappedFileAccessor(int sizeOfWindow)
+
+    /* public interface */
+    /**
+     * Prepares this accessor to read the whole
+     * file with the given file name.
+     *
+     * @param fileName the path of the wanted file
+     * @return true if we could open and map the file
+     */
+    public boolean setFileAccessor(String fileName)
+    {
+        // Can we get the file?
+        try
+        {
+            closeFile();
+            fileChannel = new RandomAccessFile(fileName, "r").getChannel();
+            ownsChannel = true;
+            fileSize = fileChannel.size();
+        }
+        catch (IOException exception)
+        {
+            closeFile();
+            return false;
+        } // end of catch (IOException exception)
+        
+        // Start from the first line of the file.
+        currentStringNumber = 0;
+        readFailed = false;
+        return mapWindow(0);
+    } // end of method setFileAccessor(String fileName)
+
+    /**
+     * Prepares this accessor to read only the lines found between
+     * the given byte offsets of an already opened file channel.
+     * The range should start at the beginning of a line, and
+     * line numbers are counted from the start of the range.
+     * The channel is left open when this accessor is closed.
+     *
+     * @param channel the channel of the wanted file.
+     * @param rangeStart the offset of the first byte to read.
+     * @param rangeEnd the offset just past the last byte to read.
+     * @return true if we could map the start of the range.
+     */
+    public boolean setFileRange(FileChannel channel, long rangeStart,
+    long rangeEnd)
+    {
+        closeFile();
+        fileChannel = channel;
+        ownsChannel = false;
+        fileSize = rangeEnd;
+
+        // Start from the first line of the range.
+        currentStringNumber = 0;
+        readFailed = false;
+        return mapWindow(rangeStart);
+    } // end of method setFileRange(FileChannel channel, ...)
+
+    /**
+     * Moves this accessor, once it is set to a file or range, to
+     * read only the lines between the given byte offsets of the
+     * same file, such as one block after another. The range should
+     * start at the beginning of a line, and line numbers are
+     * counted from the start of the range. The current window is
+     * used again if it holds the range, so going through many small
+     * ranges of one file maps only a few windows of it.
+     *
+     * @param rangeStart the offset of the first byte to read.
+     * @param rangeEnd the offset just past the last byte to read.
+     * @return true if we could map the start of the range.
+     */
+    public boolean seekRange(long rangeStart, long rangeEnd)
+    {
+        if (fileChannel == null)
+        {
+            return false;
+        } // end of if (fileChannel == null)
+        currentStringNumber = 0;
+
+        // Map a new window, as large as the file allows, if needed.
+        if (window == null || rangeStart < windowStart
+            || rangeEnd > windowStart + window.capacity())
+        {
+            try
+            {
+                fileSize = fileChannel.size();
+            }
+            catch (IOException exception)
+            {
+                readFailed = true;
+                window = null;
+                return false;
+            } // end of catch (IOException exception)
+            if (!mapWindow(rangeStart))
+            {
+                return false;
+            } // end of if (!mapWindow(rangeStart))
+        } // end of if (window == null || ...)
+
+        // Make the window end where the range does, if it holds it.
+        fileSize = rangeEnd;
+        window.limit((int) Math.min(window.capacity(),
+        rangeEnd - windowStart));
+        position = (int) (rangeStart - windowStart);
+        return true;
+    } // end of method seekRange(long rangeStart, long rangeEnd)
+
+    /**
+     * Finds the next line of the file and gives it to the lexer.
+     *
+     * @param lexer the lexer to give the line to.
+     * @return true if a line was lexed, false if there are no more lines.
+     */
+    public boolean lexLineFromFile(LineLexer lexer)
+    {
+        if (window == null)
+        {
+            return false;
+        } // end of if (window == null)
+
+        int windowEnd = window.limit();
+        boolean windowReachesEnd = windowStart + windowEnd == fileSize;
+        if (position == windowEnd && windowReachesEnd)
+        {
+            // There are no more lines to lex.
+            return false;
+        } // end of if (position == windowEnd && windowReachesEnd)
+
+        // Look for the end of the current line.
+        int lineEnd = position;
+        while (lineEnd < windowEnd)
+        {
+            byte currentByte = window.get(lineEnd);
+            if (currentByte == '\n' || currentByte == '\r')
+            {
+                break;
+            } // end of if (currentByte == '\n' || currentByte == '\r')
+            lineEnd = lineEnd + 1;
+        } // end of while (lineEnd < windowEnd)
+
+        /* Work out where the next line starts, and whether
+         * the window must move first to see the whole line.
+         */
+        int nextLineStart;
+        if (lineEnd == windowEnd)
+        {
+            if (!windowReachesEnd)
+            {
+                return moveWindowAndRetry(lexer);
+            } // end of if (!windowReachesEnd)
+            nextLineStart = lineEnd;
+        }
+        else if (window.get(lineEnd) == '\r')
+        {
+            if (lineEnd + 1 < windowEnd)
+            {
+                if (window.get(lineEnd + 1) == '\n')
+                {
+                    nextLineStart = lineEnd + 2;
+                }
+                else
+                {
+                    nextLineStart = lineEnd + 1;
+                } // end of if (window.get(lineEnd + 1) == '\n')
+            }
+            else if (windowReachesEnd)
+            {
+                nextLineStart = lineEnd + 1;
+            }
+            else
+            {
+                // A line feed might follow in the next window.
+                return moveWindowAndRetry(lexer);
+            } // end of if (lineEnd + 1 < windowEnd)
+        }
+        else
+        {
+            nextLineStart = lineEnd + 1;
+        } // end of if (lineEnd == windowEnd)
+
+        int lineStart = position;
+        position = nextLineStart;
+        currentStringNumber = currentStringNumber + 1;
+        lexer.lexLine(window, lineStart, lineEnd);
+        return true;
+    } // end of method lexLineFromFile(LineLexer lexer)
+
+    /**
+     * Returns the number of the file line of
+     * the line most recently lexed.
+     *
+     * @return a number specifying a file line.
+     */
+    public long getStringLocationInFile()
+    {
+        return currentStringNumber;
+    } // end of method getStringLocationInFile()
+
+    /**
+     * Returns the offset in the file of the next line to be
+     * lexed, which is just past the line most recently lexed,
+     * or the end of the file or range if there are no more lines.
+     *
+     * @return the offset, in bytes from the start of the file.
+     */
+    public long getNextLineOffset()
+    {
+        return windowStart + position;
+    } // end of method getNextLineOffset()
+
+    /**
+     * Checks if mapping part of the file failed
+     * part of the way through.
+     *
+     * @return true if the file could not be read, false otherwise.
+     */
+    public boolean hadReadError()
+    {
+        return readFailed;
+    } // end of method hadReadError()
+
+    /**
+     * Closes the file this accessor opened, if any.
+     * The mapping itself is released once it is no longer used.
+     */
+    public void closeFile()
+    {
+        window = null;
+        if (!ownsChannel)
+        {
+            // Someone else opened the channel, and will close it.
+            fileChannel = null;
+            return;
+        } // end of if (!ownsChannel)
+        ownsChannel = false;
+
+        try
+        {
+            fileChannel.close();
+        }
+        catch (IOException exception)
+        {
+            // Nothing more we can do with the file anyways.
+        } // end of catch (IOException exception)
+        fileChannel = null;
+    } // end of method closeFile()
+
+    /* private implementation */
+    /**
+     * Maps the window of the file that starts at the
+     * given offset, making it as large as allowed.
+     *
+     * @param offset the offset in the file to map from.
+     * @return true if the window could be mapped.
+     */
+    private boolean mapWindow(long offset)
+    {
+        long bytesLeft = fileSize - offset;
+        long bytesToMap = Math.min(bytesLeft, windowSize);
+        try
+        {
+            window = fileChannel.map(FileChannel.MapMode.READ_ONLY, offset,
+            bytesToMap);
+        }
+        catch (IOException exception)
+        {
+            readFailed = true;
+            window = null;
+            return false;
+        } // end of catch (IOException exception)
+        windowStart = offset;
+        position = 0;
+        return true;
+    } // end of method mapWindow(long offset)
+
+    /**
+     * Moves the window so that it starts at the current line,
+     * growing it if the line alone fills the window,
+     * then tries to lex the line again.
+     *
+     * @param lexer the lexer to give the line to.
+     * @return true if a line was lexed, false otherwise.
+     */
+    private boolean moveWindowAndRetry(LineLexer lexer)
+    {
+        if (position == 0)
+        {
+            /* The line is as long as the whole window.
+             * Grow the window, unless it is as big as it can be,
+             * in which case the line is cut at the window's end.
+             */
+            if (windowSize == MAXIMUM_WINDOW_SIZE)
+            {
+                int lineEnd = window.limit();
+                currentStringNumber = currentStringNumber + 1;
+                lexer.lexLine(window, 0, lineEnd);
+                position = lineEnd;
+                return true;
+            } // end of if (windowSize == MAXIMUM_WINDOW_SIZE)
+            windowSize = (int) Math.min((long) windowSize * 2,
+            MAXIMUM_WINDOW_SIZE);
+        } // end of if (position == 0)
+
+        if (!mapWindow(windowStart + position))
+        {
+            return false;
+        } // end of if (!mapWindow(windowStart + position))
+        return lexLineFromFile(lexer);
+    } // end of method moveWindowAndRetry(LineLexer lexer)
+    
+} // end of class MappedFileAccessor
@@ -0,0 +1,290 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+/**
+ * A class that splits a file into ranges that start and end
+ * on line boundaries, and interprets the ranges at the same time
+ * on a fork/join pool.
+ * 
+ * Each range is interpreted with its own file interpreter, so
+ * workers never share videos. The interpreters are merged into
+ * the interpreter of the whole file in file order, each as soon
+ * as it and the ones before it are done. Invalid lines are handed
+ * over from a range as they are found, through a small queue,
+ * so they are never all held at once. The pool starts the ranges
+ * in file order, so the range being merged is always being read,
+ * and later ranges only wait for it if their queues are full.
+ * 
+ * @author Preenon Chisty
+ * @version 2017-01-12
+ */
+public class ParallelIngestEngine
+{
+    /* non-instance fields: constants */
+    private static final int BOUNDARY_SEARCH_SIZE = 8192;
+    private static final long MAXIMUM_RANGE_SIZE = 1L << 28;
+    private static final long MINIMUM_RANGE_SIZE = 1L << 20;
+    private static final int RANGES_PER_WORKER = 4;
+    
+    /* instance fields */
+    private boolean keepLineIndex;
+    private int parallelism;
+    private RatingSchema schema;
+    
+    /* constructors */
+    /**
+     * Initializes a new engine that uses 
+     * every available processor.
+     */
+    public ParallelIngestEngine()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    } // end of constructor ParallelIngestEngine()
+    
+    /**
+     * Initializes a new engine that uses
+     * the given number of worker threads.
+     * 
+     * @param numberOfWorkers how many ranges to interpret at once.
+     */
+    public ParallelIngestEngine(int numberOfWorkers)
+    {
+        keepLineIndex = false;
+        parallelism = Math.max(1, numberOfWorkers);
+        schema = RatingSchema.DEFAULT;
+    } // end of constructor ParallelIngestEngine(int numberOfWorkers)
+    
+    /* public interface */
+    /**
+     * Sets whether the interpreter of each range keeps an index
+     * of where its lines start, see LineOffsetIndex.
+     * 
+     * @param keepIndex true to keep an index, false otherwise
+     */
+    public void setKeepLineIndex(boolean keepIndex)
+    {
+        keepLineIndex = keepIndex;
+    } // end of method setKeepLineIndex(boolean keepIndex)
+    
+    /**
+     * Sets the layout of the lines the interpreter of each
+     * range reads, see RatingSchema.
+     * 
+     * @param lineSchema the layout of the lines
+     */
+    public void setSchema(RatingSchema lineSchema)
+    {
+        schema = lineSchema;
+    } // end of method setSchema(RatingSchema lineSchema)
+    
+    /**
+     * Interprets the file with the given name in ranges,
+     * at the same time, merging them into an interpreter.
+     * 
+     * @param fileName the name of the text file
+     * @param keepRawRatings true if videos should keep every rating,
+     * false to keep only the totals
+     * @param fileInterpreter the interpreter to merge the ranges
+     * into, which reports their invalid lines
+     * @return true if every range could be read, false otherwise.
+     */
+    public boolean interpretFile(String fileName, boolean keepRawRatings,
+    FileInterpreter fileInterpreter)
+    {
+        RandomAccessFile file;
+        try
+        {
+            file = new RandomAccessFile(fileName, "r");
+        }
+        catch (IOException exception)
+        {
+            return false;
+        } // end of catch (IOException exception)
+        
+        FileChannel channel = file.getChannel();
+        ForkJoinPool pool = new ForkJoinPool(parallelism,
+        ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        ArrayList<FileRangeTask> task = new ArrayList<FileRangeTask>();
+        int rangesMerged = 0;
+        try
+        {
+            // Hand every range to the pool, then merge each in order.
+            task = splitIntoRanges(channel, keepRawRatings);
+            for (FileRangeTask currentTask : task)
+            {
+                pool.execute(currentTask);
+            } // end of for (FileRangeTask currentTask : task)
+            
+            while (rangesMerged < task.size())
+            {
+                FileRangeTask currentTask = task.get(rangesMerged);
+                fileInterpreter.takeInvalidLines(currentTask.getInterpreter());
+                currentTask.join();
+                if (!currentTask.interpretedRange())
+                {
+                    return false;
+                } // end of if (!currentTask.interpretedRange())
+                fileInterpreter.mergeInterpreter(currentTask.getInterpreter());
+                rangesMerged = rangesMerged + 1;
+            } // end of while (rangesMerged < task.size())
+            return true;
+        }
+        catch (IOException exception)
+        {
+            return false;
+        } // end of catch (IOException exception)
+        finally
+        {
+            // Ranges still reading must be done before the file closes.
+            stopRanges(task, rangesMerged);
+            pool.shutdown();
+            try
+            {
+                channel.close();
+            }
+            catch (IOException exception)
+            {
+                // Nothing more we can do with the file anyways.
+            } // end of catch (IOException exception)
+        } // end of finally
+    } // end of method interpretFile(String fileName, ...)
+    
+    /* private implementation */
+    /**
+     * Splits the file into ranges of about the same size,
+     * moving every split forward to the start of a line.
+     * 
+     * @param channel the channel of the file.
+     * @param keepRawRatings true if videos should keep every rating.
+     * @return a task for each range, in file order.
+     * @throws IOException if the file could not be read.
+     */
+    private ArrayList<FileRangeTask> splitIntoRanges(FileChannel channel,
+    boolean keepRawRatings) throws IOException
+    {
+        long fileSize = channel.size();
+        
+        /* Make enough ranges to keep every worker busy
+         * even if some ranges are slower than others,
+         * without making them too small to be worth it.
+         */
+        long rangeSize = fileSize / (parallelism * RANGES_PER_WORKER);
+        rangeSize = Math.max(rangeSize, MINIMUM_RANGE_SIZE);
+        rangeSize = Math.min(rangeSize, MAXIMUM_RANGE_SIZE);
+        
+        ArrayList<FileRangeTask> task = new ArrayList<FileRangeTask>();
+        long rangeStart = 0;
+        while (rangeStart < fileSize)
+        {
+            long rangeEnd = fileSize;
+            if (fileSize - rangeStart > rangeSize)
+            {
+                rangeEnd = findNextLineStart(channel, rangeStart + rangeSize,
+                fileSize);
+            } // end of if (fileSize - rangeStart > rangeSize)
+            FileRangeTask rangeTask = new FileRangeTask(channel, rangeStart,
+            rangeEnd, keepRawRatings);
+            rangeTask.getInterpreter().setHandOverInvalidLines(true);
+            rangeTask.getInterpreter().setKeepLineIndex(keepLineIndex);
+            rangeTask.getInterpreter().setSchema(schema);
+            task.add(rangeTask);
+            rangeStart = rangeEnd;
+        } // end of while (rangeStart < fileSize)
+        return task;
+    } // end of method splitIntoRanges(FileChannel channel, ...)
+    
+    /**
+     * Stops the ranges that were not merged, and waits for
+     * every one of them to finish.
+     * 
+     * @param task the task of each range, in file order.
+     * @param firstRange the index of the first range not merged.
+     */
+    private void stopRanges(ArrayList<FileRangeTask> task, int firstRange)
+    {
+        for (int index = firstRange; index < task.size(); index++)
+        {
+            task.get(index).getInterpreter().stopInterpreting();
+        } // end of for (int index = firstRange; ...)
+        for (int index = firstRange; index < task.size(); index++)
+        {
+            task.get(index).quietlyJoin();
+        } // end of for (int index = firstRange; ...)
+    } // end of method stopRanges(ArrayList<FileRangeTask> task, ...)
+    
+    /**
+     * Finds the start of the first line that
+     * begins after the given offset of the file.
+     * 
+     * @param channel the channel of the file.
+     * @param offset where to start looking.
+     * @param fileSize the size of the file.
+     * @return the offset of the start of that line,
+     * or the size of the file if there is none.
+     * @throws IOException if the file could not be read.
+     */
+    private long findNextLineStart(FileChannel channel, long offset,
+    long fileSize) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SEARCH_SIZE);
+        long bufferStart = offset;
+        while (bufferStart < fileSize)
+        {
+            buffer.clear();
+            int bytesRead = channel.read(buffer, bufferStart);
+            if (bytesRead <= 0)
+            {
+                break;
+            } // end of if (bytesRead <= 0)
+            
+            for (int index = 0; index < bytesRead; index++)
+            {
+                byte currentByte = buffer.get(index);
+                long lineEnd = bufferStart + index;
+                if (currentByte == '\n')
+                {
+                    return lineEnd + 1;
+                } // end of if (currentByte == '\n')
+                
+                if (currentByte == '\r')
+                {
+                    // A carriage return may be followed by a line feed.
+                    return skipLineFeed(channel, lineEnd + 1, fileSize);
+                } // end of if (currentByte == '\r')
+            } // end of for (int index = 0; index < bytesRead; index++)
+            bufferStart = bufferStart + bytesRead;
+        } // end of while (bufferStart < fileSize)
+        return fileSize;
+    } // end of method findNextLineStart(FileChannel channel, ...)
+    
+    /**
+     * Returns the offset just past the line feed at
+     * the given offset, if there is one there.
+     * 
+     * @param channel the channel of the file.
+     * @param offset the offset just past a carriage return.
+     * @param fileSize the size of the file.
+     * @return the offset where the next line starts.
+     * @throws IOException if the file could not be read.
+     */
+    private long skipLineFeed(FileChannel channel, long offset,
+    long fileSize) throws IOException
+    {
+        if (offset >= fileSize)
+        {
+            return fileSize;
+        } // end of if (offset >= fileSize)
+        
+        ByteBuffer nextByte = ByteBuffer.allocate(1);
+        channel.read(nextByte, offset);
+        if (nextByte.get(0) == '\n')
+        {
+            return offset + 1;
+        } // end of if (nextByte.get(0) == '\n')
+        return offset;
+    } // end of method skipLineFeed(FileChannel channel, ...)
+    
+} // end of class ParallelIngestEngine
@@ -0,0 +1,543 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+/**
+ * A tool that writes made-up rating files in the
+ * "name name name rating rating rating rating" template,
+ * or the layout of another RatingSchema, for testing
+ * the analyzer at any size.
+ *
+ * The same settings and seed always give the same file.
+ * Creators can be picked evenly, or with a Zipfian skew so that
+ * a few creators get most of the ratings, like in real files.
+ * Some lines can be made invalid on purpose: lines with the wrong
+ * number of tokens, lines with ratings that are not integers,
+ * and "Block" lines, which are ignored.
+ *
+ * Lines are formatted straight into a byte buffer and written in
+ * large blocks, so the file is written about as fast as the disk
+ * allows, and the number of lines can go into the billions.
+ *
+ * Usage: java RatingFileGenerator output-file [option=value ...]
+ * where the options are: <br>
+ * - lines: how many lines to write (default 1000000) <br>
+ * - creators: how many different creators (default 1000) <br>
+ * - skew: the Zipf exponent; 0 picks creators evenly (default 1.0) <br>
+ * - wrongTokens: share of lines with the wrong number of tokens <br>
+ * - wrongRatings: share of lines with ratings that are not integers <br>
+ * - blocks: share of lines that are "Block" lines <br>
+ * - crlf: true to end lines with "\r\n" instead of "\n" <br>
+ * - seed: the seed of the random numbers (default 1) <br>
+ * - schema: a schema file, for lines of another layout <br>
+ * The shares are numbers from 0 to 1, and all default to 0.
+ * Ratings go from 1 to 5, or over the schema's bounds if it
+ * has them.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-18
+ */
+public class RatingFileGenerator
+{
+    /* non-instance fields: constants */
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int LOWEST_UNBOUNDED_RATING = 1;
+    private static final int PODS_PER_CLASS = 100;
+    private static final int UNBOUNDED_RATINGS = 5;
+
+    /* instance fields */
+    private double blockShare;
+    private byte[] buffer;
+    private int bufferPosition;
+    private int categories;
+    private double[] creatorCumulative;
+    private int creators;
+    private boolean crlf;
+    private long lines;
+    private int longestLine;
+    private int lowestRating;
+    private int nameTokens;
+    private SplittableRandom random;
+    private long ratingRange;
+    private RatingSchema schema;
+    private double skew;
+    private double wrongRatingShare;
+    private double wrongTokenShare;
+
+    /* constructors */
+    /**
+     * Initializes a new generator with the default settings.
+     */
+    public RatingFileGenerator()
+    {
+        blockShare = 0;
+        buffer = new byte[BUFFER_SIZE];
+        bufferPosition = 0;
+        categories = 0;
+        creatorCumulative = null;
+        creators = 1000;
+        crlf = false;
+        lines = 1000000;
+        longestLine = 0;
+        lowestRating = 0;
+        nameTokens = 0;
+        random = new SplittableRandom(1);
+        ratingRange = 0;
+        schema = RatingSchema.DEFAULT;
+        skew = 1.0;
+        wrongRatingShare = 0;
+        wrongTokenShare = 0;
+    } // end of constructor RatingFileGenerator()
+
+    /**
+     * Generates a rating file with the settings
+     * given on the command line.
+     *
+     * @param argument the output file, then option=value pairs.
+     */
+    public static void main(String[] argument)
+    {
+        RatingFileGenerator generator = new RatingFileGenerator();
+        if (argument.length == 0 || !generator.setOptions(argument))
+        {
+            printUsage();
+            return;
+        } // end of if (argument.length == 0 || ...)
+
+        try
+        {
+            long startTime = System.nanoTime();
+            generator.writeFile(argument[0]);
+            long elapsed = (System.nanoTime() - startTime) / 1000000;
+            System.out.println("Wrote " + generator.lines + " lines to \""
+            + argument[0] + "\" in " + elapsed + " ms.");
+        }
+        catch (IOException exception)
+        {
+            System.out.println("Error: Could not write to file of path \""
+            + argument[0] + "\".");
+        } // end of catch (IOException exception)
+    } // end of method main(String[] argument)
+
+    /* public interface */
+    /**
+     * Sets this generator's settings from option=value pairs.
+     * The first argument, the output file, is skipped.
+     *
+     * @param argument the output file, then option=value pairs.
+     * @return true if every option was understood, false otherwise.
+     */
+    public boolean setOptions(String[] argument)
+    {
+        try
+        {
+            for (int index = 1; index < argument.length; index++)
+            {
+                int equalsIndex = argument[index].indexOf('=');
+                if (equalsIndex < 0)
+                {
+                    return false;
+                } // end of if (equalsIndex < 0)
+                String option = argument[index].substring(0, equalsIndex);
+                String value = argument[index].substring(equalsIndex + 1);
+                if (!setOption(option, value))
+                {
+                    return false;
+                } // end of if (!setOption(option, value))
+            } // end of for (int index = 1; ...)
+        }
+        catch (NumberFormatException exception)
+        {
+            return false;
+        } // end of catch (NumberFormatException exception)
+
+        // Are the settings sensible?
+        double invalidShare = blockShare + wrongRatingShare + wrongTokenShare;
+        return lines >= 0 && creators > 0 && skew >= 0
+        && blockShare >= 0 && wrongRatingShare >= 0
+        && wrongTokenShare >= 0 && invalidShare <= 1;
+    } // end of method setOptions(String[] argument)
+
+    /**
+     * Writes a rating file with this generator's settings.
+     *
+     * @param fileName the path of the file to write.
+     * @throws IOException if the file could not be written.
+     */
+    public void writeFile(String fileName) throws IOException
+    {
+        creatorCumulative = buildCreatorDistribution();
+        useSchema();
+        OutputStream output = new FileOutputStream(fileName);
+        try
+        {
+            for (long line = 0; line < lines; line++)
+            {
+                // Write out the buffer before it could overflow.
+                if (bufferPosition > BUFFER_SIZE - longestLine)
+                {
+                    output.write(buffer, 0, bufferPosition);
+                    bufferPosition = 0;
+                } // end of if (bufferPosition > ...)
+                writeLine();
+            } // end of for (long line = 0; line < lines; line++)
+            output.write(buffer, 0, bufferPosition);
+            bufferPosition = 0;
+        }
+        finally
+        {
+            output.close();
+        } // end of finally
+    } // end of method writeFile(String fileName)
+
+    /* private implementation */
+    /**
+     * Sets one of this generator's settings.
+     *
+     * @param option the name of the setting.
+     * @param value the value of the setting, as text.
+     * @return true if the setting exists, false otherwise.
+     */
+    private boolean setOption(String option, String value)
+    {
+        if (option.equals("lines"))
+        {
+            lines = Long.parseLong(value);
+        }
+        else if (option.equals("creators"))
+        {
+            creators = Integer.parseInt(value);
+        }
+        else if (option.equals("skew"))
+        {
+            skew = Double.parseDouble(value);
+        }
+        else if (option.equals("wrongTokens"))
+        {
+            wrongTokenShare = Double.parseDouble(value);
+        }
+        else if (option.equals("wrongRatings"))
+        {
+            wrongRatingShare = Double.parseDouble(value);
+        }
+        else if (option.equals("blocks"))
+        {
+            blockShare = Double.parseDouble(value);
+        }
+        else if (option.equals("crlf"))
+        {
+            crlf = Boolean.parseBoolean(value);
+        }
+        else if (option.equals("seed"))
+        {
+            random = new SplittableRandom(Long.parseLong(value));
+        }
+        else if (option.equals("schema"))
+        {
+            schema = RatingSchema.load(value);
+            return schema != null;
+        }
+        else
+        {
+            return false;
+        } // end of if (option.equals("lines"))
+        return true;
+    } // end of method setOption(String option, String value)
+
+    /**
+     * Takes the number of name tokens and categories from the
+     * schema, and the ratings to pick from: 1 to 5 if it has no
+     * bounds, every rating from the lowest to the highest if it
+     * has both, and five ratings from the one bound it has if not.
+     */
+    private void useSchema()
+    {
+        categories = schema.getCategoryCount();
+        nameTokens = schema.getNameTokenCount();
+        lowestRating = schema.getLowestRating();
+        long highestRating = schema.getHighestRating();
+        if (lowestRating == Integer.MIN_VALUE
+            && highestRating == Integer.MAX_VALUE)
+        {
+            lowestRating = LOWEST_UNBOUNDED_RATING;
+            highestRating = lowestRating + UNBOUNDED_RATINGS - 1;
+        }
+        else if (lowestRating == Integer.MIN_VALUE)
+        {
+            lowestRating = (int) (highestRating - UNBOUNDED_RATINGS + 1);
+        }
+        else if (highestRating == Integer.MAX_VALUE)
+        {
+            highestRating = lowestRating + UNBOUNDED_RATINGS - 1;
+        } // end of if (lowestRating == Integer.MIN_VALUE && ...)
+        ratingRange = highestRating - lowestRating + 1;
+
+        // A name token or a rating never takes more than 16 bytes.
+        longestLine = 32 + 16 * (nameTokens + categories + 1);
+    } // end of method useSchema()
+
+    /**
+     * Works out the chance of picking each creator, with
+     * creator k picked in proportion to 1 / (k + 1) ^ skew,
+     * and adds the chances up so creators can be picked
+     * with a binary search.
+     *
+     * @return the running total of the chances, ending at 1.
+     */
+    private double[] buildCreatorDistribution()
+    {
+        double[] cumulative = new double[creators];
+        double total = 0;
+        for (int creator = 0; creator < creators; creator++)
+        {
+            total = total + 1.0 / Math.pow(creator + 1, skew);
+            cumulative[creator] = total;
+        } // end of for (int creator = 0; creator < creators; creator++)
+
+        for (int creator = 0; creator < creators; creator++)
+        {
+            cumulative[creator] = cumulative[creator] / total;
+        } // end of for (int creator = 0; creator < creators; creator++)
+        cumulative[creators - 1] = 1.0;
+        return cumulative;
+    } // end of method buildCreatorDistribution()
+
+    /**
+     * Picks a creator following the creator distribution.
+     *
+     * @return the number of the creator.
+     */
+    private int pickCreator()
+    {
+        double chance = random.nextDouble();
+        int low = 0;
+        int high = creators - 1;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (creatorCumulative[middle] < chance)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            } // end of if (creatorCumulative[middle] < chance)
+        } // end of while (low < high)
+        return low;
+    } // end of method pickCreator()
+
+    /**
+     * Writes one line, valid or not, into the buffer.
+     */
+    private void writeLine()
+    {
+        double kind = random.nextDouble();
+        if (kind < blockShare)
+        {
+            writeText("Block ");
+            writeByte('A' + random.nextInt(26));
+        }
+        else if (kind < blockShare + wrongTokenShare)
+        {
+            writeWrongTokenLine();
+        }
+        else if (kind < blockShare + wrongTokenShare + wrongRatingShare)
+        {
+            writeWrongRatingLine();
+        }
+        else
+        {
+            writeCreator(pickCreator());
+            for (int category = 0; category < categories; category++)
+            {
+                writeByte('\t');
+                writeNumber(pickRating());
+            } // end of for (int category = 0; ...)
+        } // end of if (kind < blockShare)
+        writeLineEnd();
+    } // end of method writeLine()
+
+    /**
+     * Writes a line that has one rating too few or one token too many.
+     */
+    private void writeWrongTokenLine()
+    {
+        writeCreator(pickCreator());
+        int tokens = categories - 1;
+        if (random.nextBoolean())
+        {
+            tokens = categories + 1;
+        } // end of if (random.nextBoolean())
+
+        for (int token = 0; token < tokens; token++)
+        {
+            writeByte('\t');
+            writeNumber(pickRating());
+        } // end of for (int token = 0; token < tokens; token++)
+    } // end of method writeWrongTokenLine()
+
+    /**
+     * Writes a line where one of the ratings is not an integer.
+     */
+    private void writeWrongRatingLine()
+    {
+        writeCreator(pickCreator());
+        int badCategory = random.nextInt(categories);
+        for (int category = 0; category < categories; category++)
+        {
+            writeByte('\t');
+            if (category == badCategory)
+            {
+                // Half way between two ratings.
+                writeNumber(pickRating() - 1);
+                writeText(".5");
+            }
+            else
+            {
+                writeNumber(pickRating());
+            } // end of if (category == badCategory)
+        } // end of for (int category = 0; ...)
+    } // end of method writeWrongRatingLine()
+
+    /**
+     * Picks a rating the schema allows.
+     *
+     * @return the rating.
+     */
+    private long pickRating()
+    {
+        if (ratingRange > Integer.MAX_VALUE)
+        {
+            return lowestRating + random.nextLong(ratingRange);
+        } // end of if (ratingRange > Integer.MAX_VALUE)
+        return lowestRating + random.nextInt((int) ratingRange);
+    } // end of method pickRating()
+
+    /**
+     * Writes the name tokens of a creator, like "Class12 Pod 7"
+     * when names have three tokens, "Class12 Pod7" when they have
+     * two, and "Class12-Pod7" when they have one; more tokens are
+     * made up by adding " Team". Every creator number gives a
+     * different name once the tokens are joined.
+     *
+     * @param creator the number of the creator.
+     */
+    private void writeCreator(int creator)
+    {
+        writeText("Class");
+        writeNumber(creator / PODS_PER_CLASS);
+        if (nameTokens == 1)
+        {
+            writeText("-Pod");
+        }
+        else if (nameTokens == 2)
+        {
+            writeText(" Pod");
+        }
+        else
+        {
+            writeText(" Pod ");
+        } // end of if (nameTokens == 1)
+        writeNumber(creator % PODS_PER_CLASS);
+        for (int token = 3; token < nameTokens; token++)
+        {
+            writeText(" Team");
+        } // end of for (int token = 3; token < nameTokens; token++)
+    } // end of method writeCreator(int creator)
+
+    /**
+     * Writes the end of a line.
+     */
+    private void writeLineEnd()
+    {
+        if (crlf)
+        {
+            writeByte('\r');
+        } // end of if (crlf)
+        writeByte('\n');
+    } // end of method writeLineEnd()
+
+    /**
+     * Writes ASCII text into the buffer.
+     *
+     * @param text the text to write.
+     */
+    private void writeText(String text)
+    {
+        for (int index = 0; index < text.length(); index++)
+        {
+            writeByte(text.charAt(index));
+        } // end of for (int index = 0; index < text.length(); index++)
+    } // end of method writeText(String text)
+
+    /**
+     * Writes a number into the buffer,
+     * without making a string out of it.
+     *
+     * @param number the number to write.
+     */
+    private void writeNumber(long number)
+    {
+        long size = number;
+        if (number < 0)
+        {
+            writeByte('-');
+            size = -number;
+        } // end of if (number < 0)
+
+        // Count the digits, then fill them in from the right.
+        int digits = 1;
+        for (long rest = size / 10; rest > 0; rest = rest / 10)
+        {
+            digits = digits + 1;
+        } // end of for (long rest = size / 10; ...)
+
+        long rest = size;
+        for (int index = bufferPosition + digits - 1;
+        index >= bufferPosition; index--)
+        {
+            buffer[index] = (byte) ('0' + rest % 10);
+            rest = rest / 10;
+        } // end of for (int index = ...)
+        bufferPosition = bufferPosition + digits;
+    } // end of method writeNumber(long number)
+
+    /**
+     * Writes a single byte into the buffer.
+     *
+     * @param character the byte to write.
+     */
+    private void writeByte(int character)
+    {
+        buffer[bufferPosition] = (byte) character;
+        bufferPosition = bufferPosition + 1;
+    } // end of method writeByte(int character)
+
+    /**
+     * Prints how to use this tool.
+     */
+    private static void printUsage()
+    {
+        System.out.println("Usage: java RatingFileGenerator output-file "
+        + "[option=value ...]");
+        System.out.println("Options:");
+        System.out.println("  lines=N         lines to write "
+        + "(default 1000000)");
+        System.out.println("  creators=N      different creators "
+        + "(default 1000)");
+        System.out.println("  skew=S          Zipf exponent, 0 for even "
+        + "(default 1.0)");
+        System.out.println("  wrongTokens=F   share of lines with the "
+        + "wrong number of tokens");
+        System.out.println("  wrongRatings=F  share of lines with ratings "
+        + "that are not integers");
+        System.out.println("  blocks=F        share of \"Block\" lines");
+        System.out.println("  crlf=true       end lines with \\r\\n");
+        System.out.println("  seed=N          seed of the random numbers "
+        + "(default 1)");
+        System.out.println("  schema=FILE     the layout of the lines, "
+        + "for other rating forms");
+    } // end of method printUsage()
+
+} // end of class RatingFileGenerator
@@ -0,0 +1,411 @@
+import java.util.Arrays;
+/**
+ * A count of how many times each score was given in each
+ * category of a video's ratings, kept as the ratings are added,
+ * so that medians, percentiles and the most common score can be
+ * found exactly without keeping the ratings themselves.
+ *
+ * A histogram is made for the RatingSchema of the ratings it
+ * counts, with as many categories as the schema has. If the
+ * schema bounds the ratings, every score from the lowest rating to
+ * the highest has its own count, in a single array of cells of a
+ * fixed size, and no other score can be given. A schema that
+ * allows too many different scores, see
+ * RatingSchema.canBinRatings(), gets a histogram with no
+ * categories, which counts nothing, since its medians,
+ * percentiles and modes are never written.
+ *
+ * If the ratings are unbounded, as in the default schema, scores
+ * from LOWEST_BINNED_SCORE to HIGHEST_BINNED_SCORE each have their
+ * own count. Scores below or above that range, which are rare, are
+ * counted in a sorted list of each category's outliers, with a
+ * count for each one, which only grows with the number of
+ * different outliers given. Statistics that fall among them
+ * are as exact as any other.
+ *
+ * Snapshots save and restore the cells as they are, a count for
+ * each score in the range for each category in turn, and then the
+ * outliers of each category; getCellCount() and getCategoryCount()
+ * tell them how many there are for the histogram's schema.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-28
+ */
+public class RatingHistogram
+{
+    /* non-instance fields: constants */
+    public static final int HIGHEST_BINNED_SCORE = 10;
+    public static final int LOWEST_BINNED_SCORE = 0;
+
+    private static final int INITIAL_OUTLIER_CAPACITY = 4;
+
+    /* instance fields */
+    private int categories;
+    private int[] cell;
+    private int cellsPerCategory;
+    private int[] distinctOutliers;
+    private int highestBinnedScore;
+    private int lowestBinnedScore;
+    private int[][] outlierCount;
+    private int[][] outlierScore;
+
+    /* constructors */
+    /**
+     * Initializes a new, empty histogram for the default schema.
+     */
+    public RatingHistogram()
+    {
+        this(RatingSchema.DEFAULT);
+    } // end of constructor RatingHistogram()
+
+    /**
+     * Initializes a new, empty histogram.
+     *
+     * @param schema the layout of the ratings to count.
+     */
+    public RatingHistogram(RatingSchema schema)
+    {
+        if (schema.isUnbounded())
+        {
+            categories = schema.getCategoryCount();
+            highestBinnedScore = HIGHEST_BINNED_SCORE;
+            lowestBinnedScore = LOWEST_BINNED_SCORE;
+        }
+        else
+        {
+            // A schema with too many scores to bin gets no categories.
+            categories = 0;
+            if (schema.canBinRatings())
+            {
+                categories = schema.getCategoryCount();
+            } // end of if (schema.canBinRatings())
+            highestBinnedScore = schema.getHighestRating();
+            lowestBinnedScore = schema.getLowestRating();
+        } // end of if (schema.isUnbounded())
+        cellsPerCategory = 0;
+        if (categories > 0)
+        {
+            cellsPerCategory = highestBinnedScore - lowestBinnedScore + 1;
+        } // end of if (categories > 0)
+        cell = new int[categories * cellsPerCategory];
+        distinctOutliers = new int[categories];
+        outlierCount = new int[categories][];
+        outlierScore = new int[categories][];
+    } // end of constructor RatingHistogram(RatingSchema schema)
+
+    /* public interface */
+    /**
+     * Counts the scores of a rating.
+     *
+     * @param ratingDatum the scores of the rating, one per category.
+     */
+    public void addRating(int[] ratingDatum)
+    {
+        for (int category = 0; category < categories; category++)
+        {
+            addScore(category, ratingDatum[category]);
+        } // end of for (int category = 0; category < categories; category++)
+    } // end of method addRating(int[] ratingDatum)
+
+    /**
+     * Counts one score of a category.
+     *
+     * @param category the category of the score.
+     * @param score the score.
+     */
+    public void addScore(int category, int score)
+    {
+        if (score < lowestBinnedScore || score > highestBinnedScore)
+        {
+            addOutlier(category, score, 1);
+            return;
+        } // end of if (score < lowestBinnedScore || ...)
+        int bin = category * cellsPerCategory + score - lowestBinnedScore;
+        cell[bin] = cell[bin] + 1;
+    } // end of method addScore(int category, int score)
+
+    /**
+     * Adds the counts of another histogram to this one's.
+     *
+     * @param otherHistogram the other histogram, made for
+     * the same schema.
+     */
+    public void merge(RatingHistogram otherHistogram)
+    {
+        for (int bin = 0; bin < cell.length; bin++)
+        {
+            cell[bin] = cell[bin] + otherHistogram.cell[bin];
+        } // end of for (int bin = 0; bin < cell.length; bin++)
+        for (int category = 0; category < categories; category++)
+        {
+            for (int index = 0;
+            index < otherHistogram.distinctOutliers[category]; index++)
+            {
+                addOutlier(category,
+                otherHistogram.outlierScore[category][index],
+                otherHistogram.outlierCount[category][index]);
+            } // end of for (int index = 0; ...)
+        } // end of for (int category = 0; category < categories; category++)
+    } // end of method merge(RatingHistogram otherHistogram)
+
+    /**
+     * Returns the given percentile of a category's scores: the lowest
+     * score that at least that percent of the scores are at or below.
+     *
+     * @param category the category.
+     * @param percent the percentile, from 1 to 100.
+     * @return the score, or 0 if no scores have been counted.
+     */
+    public int percentile(int category, int percent)
+    {
+        // Count the scores, and the outliers below the bins.
+        int base = category * cellsPerCategory;
+        long belowCount = 0;
+        long scoreCount = 0;
+        for (int index = 0; index < distinctOutliers[category]; index++)
+        {
+            scoreCount = scoreCount + outlierCount[category][index];
+            if (outlierScore[category][index] < lowestBinnedScore)
+            {
+                belowCount = belowCount + outlierCount[category][index];
+            } // end of if (outlierScore[category][index] < ...)
+        } // end of for (int index = 0; ...)
+        for (int bin = 0; bin < cellsPerCategory; bin++)
+        {
+            scoreCount = scoreCount + cell[base + bin];
+        } // end of for (int bin = 0; bin < cellsPerCategory; bin++)
+        if (scoreCount == 0)
+        {
+            return 0;
+        } // end of if (scoreCount == 0)
+
+        /* The rank of the score wanted, counting from 1, rounded up.
+         * The outliers are in score order, those below the range
+         * first, so the ones below it come before every bin and
+         * the ones above it after.
+         */
+        long rank = Math.max(1, (scoreCount * percent + 99) / 100);
+        if (rank <= belowCount)
+        {
+            return outlierOfRank(category, rank);
+        } // end of if (rank <= belowCount)
+        long countSoFar = belowCount;
+        for (int bin = 0; bin < cellsPerCategory; bin++)
+        {
+            countSoFar = countSoFar + cell[base + bin];
+            if (countSoFar >= rank)
+            {
+                return lowestBinnedScore + bin;
+            } // end of if (countSoFar >= rank)
+        } // end of for (int bin = 0; bin < cellsPerCategory; bin++)
+        return outlierOfRank(category, rank - countSoFar + belowCount);
+    } // end of method percentile(int category, int percent)
+
+    /**
+     * Returns the median of a category's scores, the lower
+     * of the two middle scores if there is an even number.
+     *
+     * @param category the category.
+     * @return the median, or 0 if no scores have been counted.
+     */
+    public int median(int category)
+    {
+        return percentile(category, 50);
+    } // end of method median(int category)
+
+    /**
+     * Returns the score given most often in a category,
+     * the lowest of them if there is a tie.
+     *
+     * @param category the category.
+     * @return the score, or 0 if no scores have been counted.
+     */
+    public int mode(int category)
+    {
+        // Go through the scores in order, keeping the first of a tie.
+        int base = category * cellsPerCategory;
+        int[] score = outlierScore[category];
+        int[] count = outlierCount[category];
+        int modeScore = 0;
+        int modeCount = 0;
+        int index = 0;
+        while (index < distinctOutliers[category]
+        && score[index] < lowestBinnedScore)
+        {
+            if (count[index] > modeCount)
+            {
+                modeScore = score[index];
+                modeCount = count[index];
+            } // end of if (count[index] > modeCount)
+            index = index + 1;
+        } // end of while (index < distinctOutliers[category] && ...)
+        for (int bin = 0; bin < cellsPerCategory; bin++)
+        {
+            if (cell[base + bin] > modeCount)
+            {
+                modeScore = lowestBinnedScore + bin;
+                modeCount = cell[base + bin];
+            } // end of if (cell[base + bin] > modeCount)
+        } // end of for (int bin = 0; bin < cellsPerCategory; bin++)
+        while (index < distinctOutliers[category])
+        {
+            if (count[index] > modeCount)
+            {
+                modeScore = score[index];
+                modeCount = count[index];
+            } // end of if (count[index] > modeCount)
+            index = index + 1;
+        } // end of while (index < distinctOutliers[category])
+        return modeScore;
+    } // end of method mode(int category)
+
+    /**
+     * Returns how many categories this histogram counts, which is
+     * none if its schema allows too many scores to count.
+     *
+     * @return the number of categories.
+     */
+    public int getCategoryCount()
+    {
+        return categories;
+    } // end of method getCategoryCount()
+
+    /**
+     * Returns how many cells this histogram has, one for each
+     * binned score of each category.
+     *
+     * @return the number of cells.
+     */
+    public int getCellCount()
+    {
+        return cell.length;
+    } // end of method getCellCount()
+
+    /**
+     * Copies this histogram's cells into an array.
+     *
+     * @param target the array to copy into.
+     * @param offset where in the array to start.
+     */
+    public void copyCells(int[] target, int offset)
+    {
+        System.arraycopy(cell, 0, target, offset, cell.length);
+    } // end of method copyCells(int[] target, int offset)
+
+    /**
+     * Gives this histogram the cells of one saved earlier,
+     * in place of its own. Its outliers are given back
+     * by restoreOutliers(int, int[]).
+     *
+     * @param source the array to copy from.
+     * @param offset where in the array the cells start.
+     */
+    public void restoreCells(int[] source, int offset)
+    {
+        System.arraycopy(source, offset, cell, 0, cell.length);
+    } // end of method restoreCells(int[] source, int offset)
+
+    /**
+     * Returns the outliers of a category, the scores outside the
+     * binned range, lowest first, each followed by its count.
+     *
+     * @param category the category.
+     * @return a new array of score and count pairs.
+     */
+    public int[] copyOutliers(int category)
+    {
+        int[] outlier = new int[distinctOutliers[category] * 2];
+        for (int index = 0; index < distinctOutliers[category]; index++)
+        {
+            outlier[index * 2] = outlierScore[category][index];
+            outlier[index * 2 + 1] = outlierCount[category][index];
+        } // end of for (int index = 0; ...)
+        return outlier;
+    } // end of method copyOutliers(int category)
+
+    /**
+     * Gives a category the outliers of one saved earlier, in place
+     * of its own.
+     *
+     * @param category the category.
+     * @param outlier score and count pairs, as copyOutliers(int)
+     * gives them.
+     */
+    public void restoreOutliers(int category, int[] outlier)
+    {
+        distinctOutliers[category] = 0;
+        for (int index = 0; index + 1 < outlier.length; index = index + 2)
+        {
+            addOutlier(category, outlier[index], outlier[index + 1]);
+        } // end of for (int index = 0; ...)
+    } // end of method restoreOutliers(int category, int[] outlier)
+
+    /* private implementation */
+    /**
+     * Counts a score outside the binned range in its category's
+     * list of outliers, keeping the list in score order.
+     *
+     * @param category the category of the score.
+     * @param score the score.
+     * @param count how many times the score was given.
+     */
+    private void addOutlier(int category, int score, int count)
+    {
+        if (outlierScore[category] == null)
+        {
+            outlierScore[category] = new int[INITIAL_OUTLIER_CAPACITY];
+            outlierCount[category] = new int[INITIAL_OUTLIER_CAPACITY];
+        } // end of if (outlierScore[category] == null)
+        int distinct = distinctOutliers[category];
+        int index = Arrays.binarySearch(outlierScore[category], 0, distinct,
+        score);
+        if (index >= 0)
+        {
+            outlierCount[category][index]
+            = outlierCount[category][index] + count;
+            return;
+        } // end of if (index >= 0)
+
+        // Make room for a new score where it belongs.
+        index = -index - 1;
+        if (distinct == outlierScore[category].length)
+        {
+            outlierScore[category]
+            = Arrays.copyOf(outlierScore[category], distinct * 2);
+            outlierCount[category]
+            = Arrays.copyOf(outlierCount[category], distinct * 2);
+        } // end of if (distinct == outlierScore[category].length)
+        System.arraycopy(outlierScore[category], index,
+        outlierScore[category], index + 1, distinct - index);
+        System.arraycopy(outlierCount[category], index,
+        outlierCount[category], index + 1, distinct - index);
+        outlierScore[category][index] = score;
+        outlierCount[category][index] = count;
+        distinctOutliers[category] = distinct + 1;
+    } // end of method addOutlier(int category, int score, int count)
+
+    /**
+     * Returns the outlier of a category with the given rank
+     * among its outliers, the lowest first.
+     *
+     * @param category the category.
+     * @param rank the rank, counting from 1.
+     * @return the score.
+     */
+    private int outlierOfRank(int category, long rank)
+    {
+        long countSoFar = 0;
+        int index = 0;
+        while (index < distinctOutliers[category] - 1)
+        {
+            countSoFar = countSoFar + outlierCount[category][index];
+            if (countSoFar >= rank)
+            {
+                break;
+            } // end of if (countSoFar >= rank)
+            index = index + 1;
+        } // end of while (index < distinctOutliers[category] - 1)
+        return outlierScore[category][index];
+    } // end of method outlierOfRank(int category, long rank)
+
+} // end of class RatingHistogram
@@ -0,0 +1,426 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+/**
+ * A tool that converts a rating file in the
+ * "name name name rating rating rating rating" template,
+ * or the layout of another RatingSchema, into a record file,
+ * where every valid line becomes a record of the same size,
+ * so the file never has to be checked line by line again.
+ * See RatingRecordReader for reading one.
+ *
+ * A record file starts with a header of 32 bytes: <br>
+ * - the magic number "VRRB" and the format version <br>
+ * - the size of each score, 1 or 4 bytes <br>
+ * - the number of creators, and the number of records <br>
+ * - the offset of the creator dictionary <br>
+ * Then comes the schema of the lines, as a length and the UTF-8
+ * bytes of its option=value lines, see RatingSchema.toText().
+ * Then come the records, one per valid line in file order, each
+ * made of a creator id (an integer) and a score per category.
+ * Creators are numbered in the order they first appear.
+ * The creator dictionary comes last: each creator's name,
+ * in id order, as a length and its UTF-8 bytes.
+ *
+ * Scores take one byte each, unless a score in the file does
+ * not fit in a byte, in which case every score takes four.
+ * Invalid and ignored lines are left out of the record file.
+ *
+ * Usage: java RatingRecordConverter [--schema FILE] text-file record-file
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-23
+ */
+public class RatingRecordConverter
+{
+    /* non-instance fields: constants */
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int HEADER_SIZE = 32;
+    private static final int MAGIC = 0x56525242;
+    private static final int STATUS_VALID = 1;
+    private static final int STATUS_WRONG_RATING_TYPE = -2;
+    private static final int STATUS_WRONG_TOKEN_COUNT = -1;
+    private static final int VERSION = 1;
+
+    /* instance fields */
+    private ByteBuffer buffer;
+    private int categories;
+    private FileChannel channel;
+    private CreatorDictionary creatorDictionary;
+    private long invalidLineCount;
+    private LineLexer lexer;
+    private long recordCount;
+    private RatingSchema schema;
+    private int scoreSize;
+    private boolean scoreTooWide;
+
+    /* constructors */
+    /**
+     * Initializes a new converter.
+     */
+    public RatingRecordConverter()
+    {
+        buffer = null;
+        categories = RatingSchema.DEFAULT.getCategoryCount();
+        channel = null;
+        creatorDictionary = new CreatorDictionary();
+        invalidLineCount = 0;
+        lexer = new LineLexer();
+        recordCount = 0;
+        schema = RatingSchema.DEFAULT;
+        scoreSize = 1;
+        scoreTooWide = false;
+    } // end of constructor RatingRecordConverter()
+
+    /**
+     * Converts the text file given on the command line
+     * into a record file.
+     *
+     * @param argument "--schema" and a schema file, if the lines
+     * have another layout, then the text file and the record file.
+     */
+    public static void main(String[] argument)
+    {
+        int firstFile = 0;
+        if (argument.length == 4 && argument[0].equals("--schema"))
+        {
+            firstFile = 2;
+        } // end of if (argument.length == 4 && ...)
+        if (argument.length != firstFile + 2)
+        {
+            System.out.println("Usage: java RatingRecordConverter "
+            + "[--schema FILE] text-file record-file");
+            return;
+        } // end of if (argument.length != firstFile + 2)
+        String textFileName = argument[firstFile];
+        String recordFileName = argument[firstFile + 1];
+
+        RatingRecordConverter converter = new RatingRecordConverter();
+        if (firstFile > 0)
+        {
+            RatingSchema lineSchema = RatingSchema.load(argument[1]);
+            if (lineSchema == null)
+            {
+                System.out.println("Error: Could not read the schema in \""
+                + argument[1] + "\".");
+                System.exit(1);
+            } // end of if (lineSchema == null)
+            converter.setSchema(lineSchema);
+        } // end of if (firstFile > 0)
+        long startTime = System.nanoTime();
+        if (!converter.convert(textFileName, recordFileName))
+        {
+            System.out.println("Error: Could not convert \"" + textFileName
+            + "\" to \"" + recordFileName + "\".");
+            System.exit(1);
+        } // end of if (!converter.convert(textFileName, recordFileName))
+        long elapsed = (System.nanoTime() - startTime) / 1000000;
+        System.out.println("Wrote " + converter.getRecordCount()
+        + " records of " + converter.getCreatorCount() + " creators to \""
+        + recordFileName + "\" in " + elapsed + " ms, leaving out "
+        + converter.getInvalidLineCount() + " invalid lines.");
+    } // end of method main(String[] argument)
+
+    /* public interface */
+    /**
+     * Sets the layout of the lines of the text files this converter
+     * reads, see RatingSchema. Record files keep the schema, so they
+     * are read back with it.
+     *
+     * @param lineSchema the layout of the lines.
+     */
+    public void setSchema(RatingSchema lineSchema)
+    {
+        categories = lineSchema.getCategoryCount();
+        lexer = new LineLexer(lineSchema);
+        schema = lineSchema;
+    } // end of method setSchema(RatingSchema lineSchema)
+
+    /**
+     * Converts a text file into a record file. The record file is
+     * written to a new file first and then moved over the given one,
+     * so that a record file is never seen half written.
+     *
+     * @param textFileName the name of the text file.
+     * @param recordFileName the name of the record file.
+     * @return true if the file was converted, false otherwise.
+     */
+    public boolean convert(String textFileName, String recordFileName)
+    {
+        Path recordFile = Paths.get(recordFileName).toAbsolutePath();
+        Path newRecordFile = recordFile.resolveSibling(
+        recordFile.getFileName() + ".new");
+
+        // Start again with wider scores if one does not fit in a byte.
+        scoreSize = 1;
+        boolean converted = convertWithScoreSize(textFileName, newRecordFile);
+        if (converted && scoreTooWide)
+        {
+            scoreSize = 4;
+            converted = convertWithScoreSize(textFileName, newRecordFile);
+        } // end of if (converted && scoreTooWide)
+        if (!converted)
+        {
+            return false;
+        } // end of if (!converted)
+
+        try
+        {
+            try
+            {
+                Files.move(newRecordFile, recordFile,
+                StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (IOException exception)
+            {
+                Files.move(newRecordFile, recordFile,
+                StandardCopyOption.REPLACE_EXISTING);
+            } // end of catch (IOException exception)
+        }
+        catch (IOException exception)
+        {
+            return false;
+        } // end of catch (IOException exception)
+        return true;
+    } // end of method convert(String textFileName, ...)
+
+    /**
+     * Returns how many records the last conversion wrote.
+     *
+     * @return the number of records.
+     */
+    public long getRecordCount()
+    {
+        return recordCount;
+    } // end of method getRecordCount()
+
+    /**
+     * Returns how many creators the last conversion found.
+     *
+     * @return the number of creators.
+     */
+    public int getCreatorCount()
+    {
+        return creatorDictionary.size();
+    } // end of method getCreatorCount()
+
+    /**
+     * Returns how many invalid lines the last conversion left out.
+     *
+     * @return the number of invalid lines.
+     */
+    public long getInvalidLineCount()
+    {
+        return invalidLineCount;
+    } // end of method getInvalidLineCount()
+
+    /* private implementation */
+    /**
+     * Converts a text file into a record file,
+     * with scores of this converter's score size.
+     *
+     * @param textFileName the name of the text file.
+     * @param recordFile the record file to write.
+     * @return true if the file was converted, false otherwise.
+     */
+    private boolean convertWithScoreSize(String textFileName, Path recordFile)
+    {
+        MappedFileAccessor mappedAccessor = new MappedFileAccessor();
+        if (!mappedAccessor.setFileAccessor(textFileName))
+        {
+            return false;
+        } // end of if (!mappedAccessor.setFileAccessor(textFileName))
+
+        creatorDictionary = new CreatorDictionary();
+        invalidLineCount = 0;
+        recordCount = 0;
+        scoreTooWide = false;
+        try
+        {
+            channel = FileChannel.open(recordFile,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+            // The header is written last, once everything is known.
+            buffer.position(HEADER_SIZE);
+            byte[] schemaText = schema.toText().getBytes(
+            StandardCharsets.UTF_8);
+            buffer.putInt(schemaText.length);
+            buffer.put(schemaText);
+            while (mappedAccessor.lexLineFromFile(lexer))
+            {
+                writeRecord();
+                if (scoreTooWide && scoreSize == 1)
+                {
+                    // Every score must be written wider.
+                    return true;
+                } // end of if (scoreTooWide && scoreSize == 1)
+            } // end of while (mappedAccessor.lexLineFromFile(lexer))
+            if (mappedAccessor.hadReadError())
+            {
+                return false;
+            } // end of if (mappedAccessor.hadReadError())
+
+            long dictionaryOffset = channel.position() + buffer.position();
+            writeDictionary();
+            flushBuffer();
+            writeHeader(dictionaryOffset);
+        }
+        catch (IOException exception)
+        {
+            return false;
+        }
+        finally
+        {
+            mappedAccessor.closeFile();
+            closeChannel();
+            buffer = null;
+        } // end of finally
+        return true;
+    } // end of method convertWithScoreSize(String textFileName, ...)
+
+    /**
+     * Writes a record for the line most recently lexed,
+     * if it is valid.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    private void writeRecord() throws IOException
+    {
+        int statusOfLine = lexer.getStatus();
+        if (statusOfLine != STATUS_VALID)
+        {
+            if (statusOfLine == STATUS_WRONG_TOKEN_COUNT
+                || statusOfLine == STATUS_WRONG_RATING_TYPE)
+            {
+                invalidLineCount = invalidLineCount + 1;
+            } // end of if (statusOfLine == STATUS_WRONG_TOKEN_COUNT ...)
+            return;
+        } // end of if (statusOfLine != STATUS_VALID)
+
+        // Number the creator, if they are new.
+        int id = creatorDictionary.idOfLexedCreator(lexer);
+
+        if (buffer.remaining() < 4 + categories * scoreSize)
+        {
+            flushBuffer();
+        } // end of if (buffer.remaining() < ...)
+        buffer.putInt(id);
+        for (int category = 0; category < categories; category++)
+        {
+            int score = lexer.getRating(category);
+            if (scoreSize == 4)
+            {
+                buffer.putInt(score);
+            }
+            else if (score < Byte.MIN_VALUE || score > Byte.MAX_VALUE)
+            {
+                scoreTooWide = true;
+                return;
+            }
+            else
+            {
+                buffer.put((byte) score);
+            } // end of if (scoreSize == 4)
+        } // end of for (int category = 0; category < categories; category++)
+        recordCount = recordCount + 1;
+    } // end of method writeRecord()
+
+    /**
+     * Writes every creator's name, in id order.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    private void writeDictionary() throws IOException
+    {
+        for (int id = 0; id < creatorDictionary.size(); id++)
+        {
+            byte[] name = creatorDictionary.getCreatorName(id)
+            .getBytes(StandardCharsets.UTF_8);
+            if (buffer.remaining() < 4)
+            {
+                flushBuffer();
+            } // end of if (buffer.remaining() < 4)
+            buffer.putInt(name.length);
+
+            int offset = 0;
+            while (offset < name.length)
+            {
+                if (!buffer.hasRemaining())
+                {
+                    flushBuffer();
+                } // end of if (!buffer.hasRemaining())
+                int length = Math.min(buffer.remaining(), name.length - offset);
+                buffer.put(name, offset, length);
+                offset = offset + length;
+            } // end of while (offset < name.length)
+        } // end of for (int id = 0; id < creatorDictionary.size(); id++)
+    } // end of method writeDictionary()
+
+    /**
+     * Writes the header over the start of the file.
+     *
+     * @param dictionaryOffset the offset of the creator dictionary.
+     * @throws IOException if the file could not be written.
+     */
+    private void writeHeader(long dictionaryOffset) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(scoreSize);
+        header.putInt(creatorDictionary.size());
+        header.putLong(recordCount);
+        header.putLong(dictionaryOffset);
+        header.flip();
+
+        long position = 0;
+        while (header.hasRemaining())
+        {
+            position = position + channel.write(header, position);
+        } // end of while (header.hasRemaining())
+    } // end of method writeHeader(long dictionaryOffset)
+
+    /**
+     * Writes everything in the buffer out to the file.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    private void flushBuffer() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        } // end of while (buffer.hasRemaining())
+        buffer.clear();
+    } // end of method flushBuffer()
+
+    /**
+     * Closes the record file, if it is open.
+     */
+    private void closeChannel()
+    {
+        if (channel == null)
+        {
+            return;
+        } // end of if (channel == null)
+        try
+        {
+            channel.close();
+        }
+        catch (IOException exception)
+        {
+            // Nothing more to do with it.
+        } // end of catch (IOException exception)
+        channel = null;
+    } // end of method closeChannel()
+
+} // end of class RatingRecordConverter
@@ -0,0 +1,477 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+/**
+ * A class that makes videos from a record file written by
+ * RatingRecordConverter, straight from the memory-mapped records,
+ * with no lines to find and no tokens to check.
+ *
+ * When the videos keep only their totals, the records are summed
+ * into plain arrays indexed by creator id, and each video is given
+ * its totals at the end, with its histogram and spread counted
+ * as it goes; otherwise every record is added to its video
+ * as a rating. Either way the videos come out the same as from
+ * reading the text file, in the same order.
+ *
+ * The videos are made for the RatingSchema kept in the record
+ * file, which also says how many scores each record has, and
+ * getSchema() gives it once the file is read.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-23
+ */
+public class RatingRecordReader
+{
+    /* non-instance fields: constants */
+    private static final int HEADER_SIZE = 32;
+    private static final int MAGIC = 0x56525242;
+    private static final int VERSION = 1;
+    private static final int WINDOW_SIZE = 1 << 28;
+
+    /* instance fields */
+    private int categories;
+    private boolean keepRawRatings;
+    private long recordsStart;
+    private RatingSchema schema;
+
+    /* constructors */
+    /**
+     * Initializes a new reader, making videos that keep
+     * every raw rating.
+     */
+    public RatingRecordReader()
+    {
+        categories = 0;
+        keepRawRatings = true;
+        recordsStart = HEADER_SIZE;
+        schema = null;
+    } // end of constructor RatingRecordReader()
+
+    /* public interface */
+    /**
+     * Checks if the file with the given name is a record file.
+     *
+     * @param fileName the name of the file.
+     * @return true if the file starts like a record file, false otherwise.
+     */
+    public static boolean isRecordFile(String fileName)
+    {
+        try
+        {
+            FileChannel fileChannel = FileChannel.open(Paths.get(fileName),
+            StandardOpenOption.READ);
+            try
+            {
+                ByteBuffer start = ByteBuffer.allocate(4);
+                while (start.hasRemaining())
+                {
+                    if (fileChannel.read(start) < 0)
+                    {
+                        return false;
+                    } // end of if (fileChannel.read(start) < 0)
+                } // end of while (start.hasRemaining())
+                return start.getInt(0) == MAGIC;
+            }
+            finally
+            {
+                fileChannel.close();
+            } // end of finally
+        }
+        catch (IOException exception)
+        {
+            return false;
+        } // end of catch (IOException exception)
+    } // end of method isRecordFile(String fileName)
+
+    /**
+     * Reads the schema a record file was written for,
+     * without reading its records.
+     *
+     * @param fileName the name of the record file.
+     * @return the schema, or null if the file isn't a
+     * record file or could not be read.
+     */
+    public static RatingSchema readSchema(String fileName)
+    {
+        RatingRecordReader reader = new RatingRecordReader();
+        FileChannel channel = null;
+        try
+        {
+            channel = FileChannel.open(Paths.get(fileName),
+            StandardOpenOption.READ);
+            if (reader.readHeader(channel) == null)
+            {
+                return null;
+            } // end of if (reader.readHeader(channel) == null)
+            return reader.schema;
+        }
+        catch (IOException exception)
+        {
+            return null;
+        }
+        catch (BufferUnderflowException exception)
+        {
+            return null;
+        }
+        finally
+        {
+            reader.closeChannel(channel);
+        } // end of finally
+    } // end of method readSchema(String fileName)
+
+    /**
+     * Sets whether the videos made by this reader keep
+     * every raw rating, or only the totals of their ratings.
+     *
+     * @param keepRatings true to keep every rating,
+     * false to keep only the totals
+     */
+    public void setKeepRawRatings(boolean keepRatings)
+    {
+        keepRawRatings = keepRatings;
+    } // end of method setKeepRawRatings(boolean keepRatings)
+
+    /**
+     * Makes videos from the records of a record file.
+     *
+     * @param fileName the name of the record file.
+     * @return the videos, in the order their creators first
+     * appear, or null if the file isn't a whole record file
+     * or could not be read.
+     */
+    public ArrayList<Video> readFile(String fileName)
+    {
+        FileChannel channel = null;
+        try
+        {
+            channel = FileChannel.open(Paths.get(fileName),
+            StandardOpenOption.READ);
+            return readChannel(channel);
+        }
+        catch (IOException exception)
+        {
+            return null;
+        }
+        catch (BufferUnderflowException exception)
+        {
+            return null;
+        }
+        finally
+        {
+            closeChannel(channel);
+        } // end of finally
+    } // end of method readFile(String fileName)
+
+    /**
+     * Returns the schema of the record file last read.
+     *
+     * @return the schema, or null if no record file was read.
+     */
+    public RatingSchema getSchema()
+    {
+        return schema;
+    } // end of method getSchema()
+
+    /* private implementation */
+    /**
+     * Reads the header of a record file and the schema after it,
+     * setting where the records start.
+     *
+     * @param channel the channel of the record file.
+     * @return the header, just past the version, or null if the
+     * file isn't a record file or its schema makes no sense.
+     * @throws IOException if the file could not be read.
+     */
+    private MappedByteBuffer readHeader(FileChannel channel)
+    throws IOException
+    {
+        long fileSize = channel.size();
+        if (fileSize < HEADER_SIZE + 4)
+        {
+            return null;
+        } // end of if (fileSize < HEADER_SIZE + 4)
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+        0, HEADER_SIZE + 4);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION)
+        {
+            return null;
+        } // end of if (header.getInt() != MAGIC || ...)
+
+        int schemaLength = header.getInt(HEADER_SIZE);
+        if (schemaLength < 0 || schemaLength > fileSize - HEADER_SIZE - 4)
+        {
+            return null;
+        } // end of if (schemaLength < 0 || ...)
+        byte[] schemaText = new byte[schemaLength];
+        channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + 4,
+        schemaLength).get(schemaText);
+        schema = RatingSchema.fromText(new String(schemaText,
+        StandardCharsets.UTF_8));
+        if (schema == null)
+        {
+            return null;
+        } // end of if (schema == null)
+        categories = schema.getCategoryCount();
+        recordsStart = HEADER_SIZE + 4 + schemaLength;
+        return header;
+    } // end of method readHeader(FileChannel channel)
+
+    /**
+     * Makes videos from the records of an open record file.
+     *
+     * @param channel the channel of the record file.
+     * @return the videos, or null if the file isn't a whole record file.
+     * @throws IOException if the file could not be read.
+     */
+    private ArrayList<Video> readChannel(FileChannel channel)
+    throws IOException
+    {
+        long fileSize = channel.size();
+        MappedByteBuffer header = readHeader(channel);
+        if (header == null)
+        {
+            return null;
+        } // end of if (header == null)
+        int scoreSize = header.getInt();
+        int creatorCount = header.getInt();
+        long recordCount = header.getLong();
+        long dictionaryOffset = header.getLong();
+
+        // Do the sizes in the header fit the file?
+        int recordSize = 4 + categories * scoreSize;
+        if ((scoreSize != 1 && scoreSize != 4) || creatorCount < 0
+            || recordCount < 0 || recordCount > fileSize
+            || dictionaryOffset > fileSize
+            || recordsStart + recordCount * recordSize != dictionaryOffset)
+        {
+            return null;
+        } // end of if ((scoreSize != 1 && scoreSize != 4) || ...)
+
+        ArrayList<Video> video = readDictionary(channel, dictionaryOffset,
+        fileSize, creatorCount);
+        if (video == null)
+        {
+            return null;
+        } // end of if (video == null)
+        if (keepRawRatings)
+        {
+            addRatings(channel, video, recordCount, scoreSize);
+        }
+        else
+        {
+            addTotals(channel, video, recordCount, scoreSize);
+        } // end of if (keepRawRatings)
+        return video;
+    } // end of method readChannel(FileChannel channel)
+
+    /**
+     * Reads the creator dictionary, making a video for each creator.
+     *
+     * @param channel the channel of the record file.
+     * @param dictionaryOffset where the dictionary starts.
+     * @param fileSize the size of the file.
+     * @param creatorCount how many creators there are.
+     * @return the videos, in id order, or null if the
+     * dictionary is cut short.
+     * @throws IOException if the file could not be read.
+     */
+    private ArrayList<Video> readDictionary(FileChannel channel,
+    long dictionaryOffset, long fileSize, int creatorCount)
+    throws IOException
+    {
+        if (fileSize - dictionaryOffset > Integer.MAX_VALUE)
+        {
+            return null;
+        } // end of if (fileSize - dictionaryOffset > Integer.MAX_VALUE)
+        MappedByteBuffer dictionary = channel.map(
+        FileChannel.MapMode.READ_ONLY, dictionaryOffset,
+        fileSize - dictionaryOffset);
+
+        ArrayList<Video> video = new ArrayList<Video>();
+        for (int id = 0; id < creatorCount; id++)
+        {
+            int nameLength = dictionary.getInt();
+            if (nameLength < 0 || nameLength > dictionary.remaining())
+            {
+                return null;
+            } // end of if (nameLength < 0 || ...)
+            byte[] name = new byte[nameLength];
+            dictionary.get(name);
+            video.add(new Video(new String(name, StandardCharsets.UTF_8),
+            keepRawRatings, schema));
+        } // end of for (int id = 0; id < creatorCount; id++)
+        return video;
+    } // end of method readDictionary(FileChannel channel, ...)
+
+    /**
+     * Sums the records into totals for each creator, then gives
+     * each video its totals.
+     *
+     * @param channel the channel of the record file.
+     * @param video the videos, in id order.
+     * @param recordCount how many records there are.
+     * @param scoreSize the size of each score, in bytes.
+     * @throws IOException if the file could not be read.
+     */
+    private void addTotals(FileChannel channel, ArrayList<Video> video,
+    long recordCount, int scoreSize) throws IOException
+    {
+        int creatorCount = video.size();
+        int[] ratingCount = new int[creatorCount];
+        int[] sum = new int[creatorCount * categories];
+        int[] overallSum = new int[creatorCount];
+        RatingHistogram[] histogram = new RatingHistogram[creatorCount];
+        RatingSpread[] spread = new RatingSpread[creatorCount];
+        for (int id = 0; id < creatorCount; id++)
+        {
+            histogram[id] = video.get(id).getHistogram();
+            spread[id] = video.get(id).getSpread();
+        } // end of for (int id = 0; id < creatorCount; id++)
+        int[] ratingData = new int[categories];
+
+        int recordSize = 4 + categories * scoreSize;
+        long recordsPerWindow = WINDOW_SIZE / recordSize;
+        long recordsLeft = recordCount;
+        long windowStart = recordsStart;
+        while (recordsLeft > 0)
+        {
+            int windowRecords = (int) Math.min(recordsLeft, recordsPerWindow);
+            MappedByteBuffer window = channel.map(
+            FileChannel.MapMode.READ_ONLY, windowStart,
+            (long) windowRecords * recordSize);
+
+            for (int record = 0; record < windowRecords; record++)
+            {
+                int id = window.getInt();
+                checkId(id, creatorCount);
+                int sumIndex = id * categories;
+                int recordSum = 0;
+                for (int category = 0; category < categories; category++)
+                {
+                    int score;
+                    if (scoreSize == 1)
+                    {
+                        score = window.get();
+                    }
+                    else
+                    {
+                        score = window.getInt();
+                    } // end of if (scoreSize == 1)
+                    sum[sumIndex + category] = sum[sumIndex + category]
+                    + score;
+                    ratingData[category] = score;
+                    recordSum = recordSum + score;
+                } // end of for (int category = 0; ...)
+                overallSum[id] = overallSum[id] + recordSum;
+                histogram[id].addRating(ratingData);
+                spread[id].addRating(ratingData);
+                ratingCount[id] = ratingCount[id] + 1;
+            } // end of for (int record = 0; record < windowRecords; record++)
+
+            recordsLeft = recordsLeft - windowRecords;
+            windowStart = windowStart + (long) windowRecords * recordSize;
+        } // end of while (recordsLeft > 0)
+
+        // Give each video its totals.
+        int[] videoSum = new int[categories];
+        for (int id = 0; id < creatorCount; id++)
+        {
+            System.arraycopy(sum, id * categories, videoSum, 0, categories);
+            video.get(id).restoreRatings(videoSum, overallSum[id],
+            ratingCount[id], null, null, 0);
+        } // end of for (int id = 0; id < creatorCount; id++)
+    } // end of method addTotals(FileChannel channel, ...)
+
+    /**
+     * Adds every record to its video as a rating.
+     *
+     * @param channel the channel of the record file.
+     * @param video the videos, in id order.
+     * @param recordCount how many records there are.
+     * @param scoreSize the size of each score, in bytes.
+     * @throws IOException if the file could not be read.
+     */
+    private void addRatings(FileChannel channel, ArrayList<Video> video,
+    long recordCount, int scoreSize) throws IOException
+    {
+        int creatorCount = video.size();
+        Video[] videoById = video.toArray(new Video[creatorCount]);
+        int[] ratingData = new int[categories];
+
+        int recordSize = 4 + categories * scoreSize;
+        long recordsPerWindow = WINDOW_SIZE / recordSize;
+        long recordsLeft = recordCount;
+        long windowStart = recordsStart;
+        while (recordsLeft > 0)
+        {
+            int windowRecords = (int) Math.min(recordsLeft, recordsPerWindow);
+            MappedByteBuffer window = channel.map(
+            FileChannel.MapMode.READ_ONLY, windowStart,
+            (long) windowRecords * recordSize);
+
+            for (int record = 0; record < windowRecords; record++)
+            {
+                int id = window.getInt();
+                checkId(id, creatorCount);
+                for (int category = 0; category < categories; category++)
+                {
+                    if (scoreSize == 1)
+                    {
+                        ratingData[category] = window.get();
+                    }
+                    else
+                    {
+                        ratingData[category] = window.getInt();
+                    } // end of if (scoreSize == 1)
+                } // end of for (int category = 0; ...)
+                videoById[id].addVideoRating(ratingData);
+            } // end of for (int record = 0; record < windowRecords; record++)
+
+            recordsLeft = recordsLeft - windowRecords;
+            windowStart = windowStart + (long) windowRecords * recordSize;
+        } // end of while (recordsLeft > 0)
+    } // end of method addRatings(FileChannel channel, ...)
+
+    /**
+     * Checks that a creator id read from a record is in the dictionary.
+     *
+     * @param id the creator id.
+     * @param creatorCount how many creators there are.
+     * @throws IOException if the id is not in the dictionary.
+     */
+    private void checkId(int id, int creatorCount) throws IOException
+    {
+        if (id < 0 || id >= creatorCount)
+        {
+            throw new IOException("Creator id " + id + " is unknown.");
+        } // end of if (id < 0 || id >= creatorCount)
+    } // end of method checkId(int id, int creatorCount)
+
+    /**
+     * Closes a record file, if it is open.
+     *
+     * @param channel the channel of the record file, or null.
+     */
+    private void closeChannel(FileChannel channel)
+    {
+        if (channel == null)
+        {
+            return;
+        } // end of if (channel == null)
+        try
+        {
+            channel.close();
+        }
+        catch (IOException exception)
+        {
+            // Nothing more to do with it.
+        } // end of catch (IOException exception)
+    } // end of method closeChannel(FileChannel channel)
+
+} // end of class RatingRecordReader
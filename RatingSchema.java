@@ -0,0 +1,376 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+/**
+ * The layout of the lines of a ratings file: how many tokens make
+ * up the creator's name, how many ratings follow it and what their
+ * categories are called, and the lowest and highest rating allowed.
+ *
+ * A schema is only read when a lexer, video or report writer is
+ * made for it. They copy what they need into fields of their own,
+ * such as the number of tokens a line must have, so lines are read
+ * and ratings added the same way, and just as fast, whatever the
+ * schema; no line looks anything up in the schema.
+ *
+ * DEFAULT is the "name name name rating rating rating rating"
+ * layout, with the content, layout, technical and creativity
+ * categories, and no limits on the ratings. Other schemas are
+ * loaded from a text file of option=value lines, like: <br>
+ * nameTokens=2 <br>
+ * categories=content,layout,technical,creativity,audio,pacing <br>
+ * lowestRating=1 <br>
+ * highestRating=5 <br>
+ * Any option left out keeps the default's value. Blank lines and
+ * lines starting with "#" are skipped. Category names are made of
+ * letters, digits, "_" and "-", so they can be used as they are
+ * in every report format, and "overall" is taken by the overall
+ * score.
+ * Snapshots and record files keep the schema of their videos in
+ * the same option=value lines, see toText(), so they are only ever
+ * read back with the schema they were written for.
+ *
+ * Videos count how often each score was given, see RatingHistogram,
+ * with a count for every score from the lowest rating to the
+ * highest. A schema that allows more than MAXIMUM_BINNED_SCORES
+ * different scores can't be counted that way, and its medians,
+ * percentiles and modes can't be written.
+ *
+ * @author Preenon Chisty
+ * @version 2017-02-05
+ */
+public class RatingSchema
+{
+    /* non-instance fields: constants */
+    /** The layout ratings files have had from the start. */
+    public static final RatingSchema DEFAULT = new RatingSchema(3,
+        new String[] {"content", "layout", "technical", "creativity"},
+        Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+    /** The most different scores a bounded schema can bin. */
+    public static final int MAXIMUM_BINNED_SCORES = 256;
+
+    private static final String OVERALL_NAME = "overall";
+
+    /* instance fields */
+    private String[] categoryName;
+    private int highestRating;
+    private int lowestRating;
+    private int nameTokenCount;
+
+    /* constructors */
+    /**
+     * Initializes a new schema. The values are not checked;
+     * schemas from files are checked by load(String).
+     *
+     * @param nameTokens how many tokens make up a creator's name.
+     * @param categories the name of each category, in line order.
+     * @param lowest the lowest rating allowed.
+     * @param highest the highest rating allowed.
+     */
+    private RatingSchema(int nameTokens, String[] categories, int lowest,
+    int highest)
+    {
+        categoryName = categories;
+        highestRating = highest;
+        lowestRating = lowest;
+        nameTokenCount = nameTokens;
+    } // end of constructor RatingSchema(int nameTokens, ...)
+
+    /* public interface */
+    /**
+     * Loads a schema from a file of option=value lines.
+     *
+     * @param fileName the name of the schema file.
+     * @return the schema, or null if the file could not be read,
+     * or has an option that is unknown or makes no sense.
+     */
+    public static RatingSchema load(String fileName)
+    {
+        List<String> line;
+        try
+        {
+            line = Files.readAllLines(Paths.get(fileName),
+            StandardCharsets.UTF_8);
+        }
+        catch (IOException exception)
+        {
+            return null;
+        } // end of catch (IOException exception)
+        return parse(line);
+    } // end of method load(String fileName)
+
+    /**
+     * Reads a schema back from the text toText() gave for it,
+     * or from any text of option=value lines.
+     *
+     * @param text the option=value lines.
+     * @return the schema, or null if the text has an option
+     * that is unknown or makes no sense.
+     */
+    public static RatingSchema fromText(String text)
+    {
+        return parse(Arrays.asList(text.split("\n")));
+    } // end of method fromText(String text)
+
+    /**
+     * Returns this schema as option=value lines, as a schema file
+     * has them, so it can be stored with the videos made for it.
+     *
+     * @return the lines, each ending in a line feed.
+     */
+    public String toText()
+    {
+        StringBuilder text = new StringBuilder(128);
+        text.append("nameTokens=").append(nameTokenCount).append('\n');
+        text.append("categories=");
+        for (int category = 0; category < categoryName.length; category++)
+        {
+            if (category > 0)
+            {
+                text.append(',');
+            } // end of if (category > 0)
+            text.append(categoryName[category]);
+        } // end of for (int category = 0; ...)
+        text.append('\n');
+        text.append("lowestRating=").append(lowestRating).append('\n');
+        text.append("highestRating=").append(highestRating).append('\n');
+        return text.toString();
+    } // end of method toText()
+
+    /**
+     * Returns how many tokens make up a creator's name.
+     *
+     * @return the number of name tokens.
+     */
+    public int getNameTokenCount()
+    {
+        return nameTokenCount;
+    } // end of method getNameTokenCount()
+
+    /**
+     * Returns how many ratings each line has.
+     *
+     * @return the number of categories.
+     */
+    public int getCategoryCount()
+    {
+        return categoryName.length;
+    } // end of method getCategoryCount()
+
+    /**
+     * Returns how many tokens a valid line has in all.
+     *
+     * @return the number of name tokens and ratings.
+     */
+    public int getTokenCount()
+    {
+        return nameTokenCount + categoryName.length;
+    } // end of method getTokenCount()
+
+    /**
+     * Returns the name of a category.
+     *
+     * @param category the index of the category, in line order.
+     * @return the name, like "content".
+     */
+    public String getCategoryName(int category)
+    {
+        return categoryName[category];
+    } // end of method getCategoryName(int category)
+
+    /**
+     * Finds a category by its name.
+     *
+     * @param name the name of the category.
+     * @return the index of the category, or -1 if there is none.
+     */
+    public int findCategory(String name)
+    {
+        for (int category = 0; category < categoryName.length; category++)
+        {
+            if (categoryName[category].equals(name))
+            {
+                return category;
+            } // end of if (categoryName[category].equals(name))
+        } // end of for (int category = 0; ...)
+        return -1;
+    } // end of method findCategory(String name)
+
+    /**
+     * Returns the lowest rating a valid line can have.
+     *
+     * @return the lowest rating.
+     */
+    public int getLowestRating()
+    {
+        return lowestRating;
+    } // end of method getLowestRating()
+
+    /**
+     * Returns the highest rating a valid line can have.
+     *
+     * @return the highest rating.
+     */
+    public int getHighestRating()
+    {
+        return highestRating;
+    } // end of method getHighestRating()
+
+    /**
+     * Checks if ratings have no lowest or no highest rating,
+     * so any score can be given.
+     *
+     * @return true if either bound is missing, false otherwise.
+     */
+    public boolean isUnbounded()
+    {
+        return lowestRating == Integer.MIN_VALUE
+        || highestRating == Integer.MAX_VALUE;
+    } // end of method isUnbounded()
+
+    /**
+     * Checks if videos can count how often each score was given,
+     * which their medians, percentiles and modes are worked out
+     * from. They can if the ratings are unbounded, see
+     * RatingHistogram, or their bounds are close enough together.
+     *
+     * @return true if the scores can be counted, false otherwise.
+     */
+    public boolean canBinRatings()
+    {
+        return isUnbounded()
+        || (long) highestRating - lowestRating < MAXIMUM_BINNED_SCORES;
+    } // end of method canBinRatings()
+
+    /**
+     * Checks if another schema describes the same lines as this
+     * one: the same number of name tokens, the same categories
+     * in the same order, and the same bounds.
+     *
+     * @param otherSchema the other schema.
+     * @return true if the lines are the same, false otherwise.
+     */
+    public boolean hasSameLayout(RatingSchema otherSchema)
+    {
+        return nameTokenCount == otherSchema.nameTokenCount
+        && Arrays.equals(categoryName, otherSchema.categoryName)
+        && lowestRating == otherSchema.lowestRating
+        && highestRating == otherSchema.highestRating;
+    } // end of method hasSameLayout(RatingSchema otherSchema)
+
+    /**
+     * Checks if this schema describes the same lines as DEFAULT,
+     * whether or not it was loaded from a file.
+     *
+     * @return true if the lines are the default's, false otherwise.
+     */
+    public boolean isDefaultLayout()
+    {
+        return hasSameLayout(DEFAULT);
+    } // end of method isDefaultLayout()
+
+    /* private implementation */
+    /**
+     * Reads a schema from option=value lines.
+     *
+     * @param line the lines.
+     * @return the schema, or null if a line has an option
+     * that is unknown or makes no sense.
+     */
+    private static RatingSchema parse(List<String> line)
+    {
+        int nameTokens = DEFAULT.nameTokenCount;
+        String[] categories = DEFAULT.categoryName;
+        int lowest = DEFAULT.lowestRating;
+        int highest = DEFAULT.highestRating;
+        try
+        {
+            for (String currentLine : line)
+            {
+                String setting = currentLine.trim();
+                if (setting.isEmpty() || setting.startsWith("#"))
+                {
+                    continue;
+                } // end of if (setting.isEmpty() || ...)
+                int equalsIndex = setting.indexOf('=');
+                if (equalsIndex < 0)
+                {
+                    return null;
+                } // end of if (equalsIndex < 0)
+                String option = setting.substring(0, equalsIndex).trim();
+                String value = setting.substring(equalsIndex + 1).trim();
+
+                if (option.equals("nameTokens"))
+                {
+                    nameTokens = Integer.parseInt(value);
+                }
+                else if (option.equals("categories"))
+                {
+                    categories = value.split("\\s*,\\s*");
+                }
+                else if (option.equals("lowestRating"))
+                {
+                    lowest = Integer.parseInt(value);
+                }
+                else if (option.equals("highestRating"))
+                {
+                    highest = Integer.parseInt(value);
+                }
+                else
+                {
+                    return null;
+                } // end of if (option.equals("nameTokens"))
+            } // end of for (String currentLine : line)
+        }
+        catch (NumberFormatException exception)
+        {
+            return null;
+        } // end of catch (NumberFormatException exception)
+
+        // Does the schema make sense?
+        if (nameTokens < 1 || lowest > highest
+            || !areCategoryNames(categories))
+        {
+            return null;
+        } // end of if (nameTokens < 1 || ...)
+        return new RatingSchema(nameTokens, categories, lowest, highest);
+    } // end of method parse(List<String> line)
+
+    /**
+     * Checks if every category has a name that can be written as
+     * it is in every report format, and no two have the same one.
+     *
+     * @param categories the names of the categories.
+     * @return true if the names can be used, false otherwise.
+     */
+    private static boolean areCategoryNames(String[] categories)
+    {
+        ArrayList<String> seenName = new ArrayList<String>();
+        for (String currentName : categories)
+        {
+            if (currentName.isEmpty() || currentName.equals(OVERALL_NAME)
+                || seenName.contains(currentName))
+            {
+                return false;
+            } // end of if (currentName.isEmpty() || ...)
+            for (int index = 0; index < currentName.length(); index++)
+            {
+                char character = currentName.charAt(index);
+                if (!(character >= 'a' && character <= 'z')
+                    && !(character >= 'A' && character <= 'Z')
+                    && !(character >= '0' && character <= '9')
+                    && character != '_' && character != '-')
+                {
+                    return false;
+                } // end of if (!(character >= 'a' && ...))
+            } // end of for (int index = 0; ...)
+            seenName.add(currentName);
+        } // end of for (String currentName : categories)
+        return true;
+    } // end of method areCategoryNames(String[] categories)
+
+} // end of class RatingSchema
@@ -0,0 +1,237 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+/**
+ * A running measure of how spread out a video's scores are, in
+ * each category and overall, kept up to date as each rating is
+ * added, so the variance never needs a second pass over the ratings.
+ *
+ * For each category, and for the overall score of each rating
+ * (the sum of its scores), the sum of the scores and the sum of
+ * their squares are kept as whole numbers, the squares in 128 bits.
+ * Whole numbers add up the same whichever order they are added in,
+ * so two spreads built from different parts of a file combine into
+ * exactly the spread of one pass, and stream, mapped and parallel
+ * runs get the very same variances, just as they get the same
+ * totals. The variance is only worked out from the sums when it is
+ * asked for, without rounding until the end. The sums of the scores
+ * are exact as long as they fit in a long.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-29
+ */
+public class RatingSpread
+{
+    /* non-instance fields: constants */
+    private static final long LARGEST_SQUARED_VALUE = 3037000499L;
+
+    /** The category that stands for the overall score. */
+    public static final int OVERALL = -1;
+
+    /* instance fields */
+    private int categories;
+    private long count;
+    private long[] squareSumHigh;
+    private long[] squareSumLow;
+    private long[] sum;
+
+    /* constructors */
+    /**
+     * Initializes a new spread, of no scores. The overall
+     * score is kept after the categories.
+     *
+     * @param numberOfCategories how many categories each rating has.
+     */
+    public RatingSpread(int numberOfCategories)
+    {
+        categories = numberOfCategories;
+        count = 0;
+        squareSumHigh = new long[numberOfCategories + 1];
+        squareSumLow = new long[numberOfCategories + 1];
+        sum = new long[numberOfCategories + 1];
+    } // end of constructor RatingSpread(int numberOfCategories)
+
+    /* public interface */
+    /**
+     * Adds the scores of a rating.
+     *
+     * @param ratingDatum the scores of the rating, one per category.
+     */
+    public void addRating(int[] ratingDatum)
+    {
+        count = count + 1;
+        long overallScore = 0;
+        for (int category = 0; category < categories; category++)
+        {
+            addValue(category, ratingDatum[category]);
+            overallScore = overallScore + ratingDatum[category];
+        } // end of for (int category = 0; category < categories; category++)
+        addValue(categories, overallScore);
+    } // end of method addRating(int[] ratingDatum)
+
+    /**
+     * Adds another spread's scores to this one's.
+     *
+     * @param otherSpread the other spread.
+     */
+    public void merge(RatingSpread otherSpread)
+    {
+        count = count + otherSpread.count;
+        for (int index = 0; index < sum.length; index++)
+        {
+            sum[index] = sum[index] + otherSpread.sum[index];
+            squareSumHigh[index] = squareSumHigh[index]
+            + otherSpread.squareSumHigh[index];
+            addToSquareSum(index, otherSpread.squareSumLow[index]);
+        } // end of for (int index = 0; index < sum.length; index++)
+    } // end of method merge(RatingSpread otherSpread)
+
+    /**
+     * Returns the variance of the scores of a category, or overall:
+     * the mean of their squared differences from their mean.
+     *
+     * @param category the category, or OVERALL.
+     * @return the variance, or 0 if there are no scores.
+     */
+    public double variance(int category)
+    {
+        if (count == 0)
+        {
+            return 0;
+        } // end of if (count == 0)
+        int index = category;
+        if (category == OVERALL)
+        {
+            index = categories;
+        } // end of if (category == OVERALL)
+
+        // (count * sum of squares - sum * sum) / (count * count)
+        BigInteger squareSum = BigInteger.valueOf(squareSumHigh[index])
+        .shiftLeft(64).add(unsigned(squareSumLow[index]));
+        BigInteger scoreCount = BigInteger.valueOf(count);
+        BigInteger scoreSum = BigInteger.valueOf(sum[index]);
+        BigInteger numerator = scoreCount.multiply(squareSum)
+        .subtract(scoreSum.multiply(scoreSum));
+        return new BigDecimal(numerator).divide(
+        new BigDecimal(scoreCount.multiply(scoreCount)),
+        MathContext.DECIMAL128).doubleValue();
+    } // end of method variance(int category)
+
+    /**
+     * Returns the standard deviation of the scores
+     * of a category, or overall.
+     *
+     * @param category the category, or OVERALL.
+     * @return the standard deviation, or 0 if there are no scores.
+     */
+    public double standardDeviation(int category)
+    {
+        return Math.sqrt(variance(category));
+    } // end of method standardDeviation(int category)
+
+    /**
+     * Returns how many values the state of this spread has,
+     * which depends on its number of categories; see copyState.
+     *
+     * @return the size of the state.
+     */
+    public int getStateSize()
+    {
+        return 1 + 3 * sum.length;
+    } // end of method getStateSize()
+
+    /**
+     * Copies this spread's state into an array: the number of
+     * scores, then the sum of the scores of each category and
+     * overall, then the high and the low 64 bits of the sum of
+     * their squares.
+     *
+     * @param target the array to copy into.
+     * @param offset where in the array to start.
+     */
+    public void copyState(long[] target, int offset)
+    {
+        target[offset] = count;
+        System.arraycopy(sum, 0, target, offset + 1, sum.length);
+        System.arraycopy(squareSumHigh, 0, target, offset + 1 + sum.length,
+        squareSumHigh.length);
+        System.arraycopy(squareSumLow, 0, target,
+        offset + 1 + 2 * sum.length, squareSumLow.length);
+    } // end of method copyState(long[] target, int offset)
+
+    /**
+     * Gives this spread the state of one saved earlier,
+     * in place of its own.
+     *
+     * @param source the array to copy from.
+     * @param offset where in the array the state starts.
+     */
+    public void restoreState(long[] source, int offset)
+    {
+        count = source[offset];
+        System.arraycopy(source, offset + 1, sum, 0, sum.length);
+        System.arraycopy(source, offset + 1 + sum.length, squareSumHigh, 0,
+        squareSumHigh.length);
+        System.arraycopy(source, offset + 1 + 2 * sum.length, squareSumLow,
+        0, squareSumLow.length);
+    } // end of method restoreState(long[] source, int offset)
+
+    /* private implementation */
+    /**
+     * Adds one value to the sum and the sum of squares of a category.
+     *
+     * @param index the category, or the number of
+     * categories for the overall score.
+     * @param value the value.
+     */
+    private void addValue(int index, long value)
+    {
+        sum[index] = sum[index] + value;
+        if (value >= -LARGEST_SQUARED_VALUE && value <= LARGEST_SQUARED_VALUE)
+        {
+            addToSquareSum(index, value * value);
+            return;
+        } // end of if (value >= -LARGEST_SQUARED_VALUE && ...)
+
+        // The square doesn't fit in a long, which only huge scores need.
+        BigInteger square = BigInteger.valueOf(value).pow(2);
+        squareSumHigh[index] = squareSumHigh[index]
+        + square.shiftRight(64).longValue();
+        addToSquareSum(index, square.longValue());
+    } // end of method addValue(int index, long value)
+
+    /**
+     * Adds a number to the low 64 bits of the sum of squares
+     * of a category, carrying into the high 64 bits.
+     *
+     * @param index the category, or the number of
+     * categories for the overall score.
+     * @param lowBits the number, taken as unsigned.
+     */
+    private void addToSquareSum(int index, long lowBits)
+    {
+        long newLow = squareSumLow[index] + lowBits;
+        if (Long.compareUnsigned(newLow, lowBits) < 0)
+        {
+            squareSumHigh[index] = squareSumHigh[index] + 1;
+        } // end of if (Long.compareUnsigned(newLow, lowBits) < 0)
+        squareSumLow[index] = newLow;
+    } // end of method addToSquareSum(int index, long lowBits)
+
+    /**
+     * Returns a long taken as unsigned, as a BigInteger.
+     *
+     * @param bits the long.
+     * @return the unsigned number.
+     */
+    private static BigInteger unsigned(long bits)
+    {
+        BigInteger number = BigInteger.valueOf(bits);
+        if (bits < 0)
+        {
+            number = number.add(BigInteger.ONE.shiftLeft(64));
+        } // end of if (bits < 0)
+        return number;
+    } // end of method unsigned(long bits)
+
+} // end of class RatingSpread
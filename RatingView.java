@@ -0,0 +1,93 @@
+/**
+ * A read-only view of the raw ratings a video had when the view
+ * was made. The view reads the video's own packed rating array,
+ * so making one copies nothing, and ratings added to the video
+ * afterwards are not seen by it.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-14
+ */
+public class RatingView
+{
+    /* instance fields */
+    private int categories;
+    private byte[] narrowRating;
+    private int ratingCount;
+    private int[] wideRating;
+
+    /* constructors */
+    /**
+     * Initializes a new view over packed ratings. Exactly one of
+     * the two arrays should be given, the other being null.
+     * Each rating takes up one element per category, one rating
+     * after the other.
+     *
+     * @param numberOfCategories how many categories each rating has.
+     * @param byteRating the ratings, if they all fit in bytes.
+     * @param intRating the ratings, if they do not.
+     * @param numberOfRatings how many ratings the view shows.
+     */
+    public RatingView(int numberOfCategories, byte[] byteRating,
+    int[] intRating, int numberOfRatings)
+    {
+        categories = numberOfCategories;
+        narrowRating = byteRating;
+        ratingCount = numberOfRatings;
+        wideRating = intRating;
+    } // end of constructor RatingView(int numberOfCategories, ...)
+
+    /* public interface */
+    /**
+     * Returns how many ratings this view shows.
+     *
+     * @return the number of ratings.
+     */
+    public int getRatingCount()
+    {
+        return ratingCount;
+    } // end of method getRatingCount()
+
+    /**
+     * Returns how many categories each rating has.
+     *
+     * @return the number of categories.
+     */
+    public int getCategoryCount()
+    {
+        return categories;
+    } // end of method getCategoryCount()
+
+    /**
+     * Checks if every score this view shows fits in a byte.
+     *
+     * @return true if the scores are packed in bytes, false otherwise.
+     */
+    public boolean fitsInBytes()
+    {
+        return wideRating == null;
+    } // end of method fitsInBytes()
+
+    /**
+     * Returns the score of one category of one rating.
+     *
+     * @param ratingIndex which rating, in the order they were added.
+     * @param category the index of the category.
+     * @return the score, as an integer.
+     */
+    public int getScore(int ratingIndex, int category)
+    {
+        if (ratingIndex < 0 || ratingIndex >= ratingCount)
+        {
+            throw new IndexOutOfBoundsException("Rating " + ratingIndex
+            + " of " + ratingCount);
+        } // end of if (ratingIndex < 0 || ratingIndex >= ratingCount)
+
+        int index = ratingIndex * categories + category;
+        if (wideRating != null)
+        {
+            return wideRating[index];
+        } // end of if (wideRating != null)
+        return narrowRating[index];
+    } // end of method getScore(int ratingIndex, int category)
+
+} // end of class RatingView
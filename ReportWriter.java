@@ -0,0 +1,936 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+/**
+ * A class that writes the details of every video to a file,
+ * or to any other channel,
+ * putting each video's numbers and name straight into one
+ * buffer that is written out whenever it fills up, so that no
+ * strings are made for the report, however many videos it has.
+ * The labels around the numbers are made into bytes only once.
+ *
+ * Four formats can be written: <br>
+ * - "text": the same layout as Video.returnDetails(), printed
+ * one video after the other, in the default character set <br>
+ * - "csv": a header line, then one line per video, in UTF-8 <br>
+ * - "jsonl": one JSON object per line and video, in UTF-8 <br>
+ * - "json": the same objects in one JSON array, in UTF-8 <br>
+ * The averages written are the video's own, as
+ * StatisticExtractor set them. If asked, the median, the 10th
+ * and 90th percentiles and the most common score of each
+ * category are written too, from each video's histogram, and
+ * the variance and standard deviation of each category and
+ * overall, as StatisticExtractor set them. These are written
+ * with three decimal places.
+ *
+ * The numbers are labelled with the category names of the
+ * videos' RatingSchema, the default one unless another is set.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-26
+ */
+public class ReportWriter
+{
+    /* non-instance fields: constants */
+    private static final int BUFFER_SIZE = 1 << 18;
+    private static final int DECIMAL_PLACES = 3;
+    private static final String[] DISTRIBUTION_CSV_NAME
+    = {"median", "p10", "p90", "mode"};
+    private static final String[] DISTRIBUTION_NAME
+    = {"Median", "10th percentile", "90th percentile", "Most common"};
+    private static final int[] DISTRIBUTION_PERCENT = {50, 10, 90, 0};
+    private static final int DISTRIBUTION_STATISTICS = 4;
+    private static final byte[][] JSON_DISTRIBUTION_FIELD = asciiBytes(
+    new String[] {"},\"median\":{", "},\"p10\":{", "},\"p90\":{",
+     "},\"mode\":{"});
+    private static final byte[][] JSON_SPREAD_FIELD = asciiBytes(
+    new String[] {"},\"variance\":{", "},\"stddev\":{"});
+    private static final int LONGEST_FIELD = 64;
+    private static final String OVERALL_NAME = "overall";
+    private static final String[] SPREAD_CSV_NAME = {"variance", "stddev"};
+    private static final String[] SPREAD_NAME
+    = {"Variance of", "Standard deviation of"};
+    private static final int SPREAD_STATISTICS = 2;
+
+    /* instance fields */
+    private ByteBuffer buffer;
+    private int byteCount;
+    private int categories;
+    private WritableByteChannel channel;
+    private byte[] csvDistributionHeader;
+    private byte[] csvHeader;
+    private byte[] csvSpreadHeader;
+    private byte[] digit;
+    private CharsetEncoder encoder;
+    private String format;
+    private byte[][] jsonField;
+    private IngestMetrics metrics;
+    private boolean writeDistribution;
+    private boolean writeSpread;
+    private byte[] output;
+    private byte[][] textAverageLabel;
+    private byte[][] textDistributionLabel;
+    private byte[] textEnd;
+    private byte[][] textSpreadLabel;
+    private byte[][] textTotalLabel;
+
+    /* constructors */
+    /**
+     * Initializes a new report writer, writing the text format.
+     */
+    public ReportWriter()
+    {
+        output = new byte[BUFFER_SIZE];
+        buffer = ByteBuffer.wrap(output);
+        byteCount = 0;
+        channel = null;
+        digit = new byte[20];
+        encoder = null;
+        format = "text";
+        metrics = null;
+        writeDistribution = false;
+        writeSpread = false;
+
+        // println ends each video with a line separator of its own.
+        textEnd = asciiBytes("\n\n" + System.lineSeparator());
+        setSchema(RatingSchema.DEFAULT);
+    } // end of constructor ReportWriter()
+
+    /* public interface */
+    /**
+     * Sets the format this writer writes.
+     *
+     * @param reportFormat "text", "csv", "jsonl" or "json".
+     * @return true if the format is known, false otherwise.
+     */
+    public boolean setFormat(String reportFormat)
+    {
+        if (!reportFormat.equals("text") && !reportFormat.equals("csv")
+            && !reportFormat.equals("jsonl") && !reportFormat.equals("json"))
+        {
+            return false;
+        } // end of if (!reportFormat.equals("text") && ...)
+        format = reportFormat;
+        return true;
+    } // end of method setFormat(String reportFormat)
+
+    /**
+     * Sets the schema of the videos this writer writes, whose
+     * category names label the numbers. The labels are made into
+     * bytes here, once, rather than for every video.
+     *
+     * @param schema the schema of the videos.
+     */
+    public void setSchema(RatingSchema schema)
+    {
+        categories = schema.getCategoryCount();
+        String[] name = new String[categories + 1];
+        for (int category = 0; category < categories; category++)
+        {
+            name[category] = schema.getCategoryName(category);
+        } // end of for (int category = 0; category < categories; category++)
+        name[categories] = OVERALL_NAME;
+
+        // The header of every column of the csv format.
+        StringBuilder header = new StringBuilder("creator,ratings");
+        for (int category = 0; category <= categories; category++)
+        {
+            header.append(",total_" + name[category]);
+        } // end of for (int category = 0; category <= categories; ...)
+        for (int category = 0; category <= categories; category++)
+        {
+            header.append(",average_" + name[category]);
+        } // end of for (int category = 0; category <= categories; ...)
+        csvHeader = asciiBytes(header.toString());
+        header.setLength(0);
+        for (int statistic = 0; statistic < DISTRIBUTION_STATISTICS;
+        statistic++)
+        {
+            for (int category = 0; category < categories; category++)
+            {
+                header.append("," + DISTRIBUTION_CSV_NAME[statistic] + "_"
+                + name[category]);
+            } // end of for (int category = 0; ...)
+        } // end of for (int statistic = 0; ...)
+        csvDistributionHeader = asciiBytes(header.toString());
+        header.setLength(0);
+        for (int statistic = 0; statistic < SPREAD_STATISTICS; statistic++)
+        {
+            for (int category = 0; category <= categories; category++)
+            {
+                header.append("," + SPREAD_CSV_NAME[statistic] + "_"
+                + name[category]);
+            } // end of for (int category = 0; ...)
+        } // end of for (int statistic = 0; ...)
+        csvSpreadHeader = asciiBytes(header.toString());
+
+        // The field names of the json formats, and the text labels.
+        String[] field = new String[categories + 1];
+        String[] totalLabel = new String[categories + 1];
+        String[] averageLabel = new String[categories + 1];
+        for (int category = 0; category <= categories; category++)
+        {
+            field[category] = ",\"" + name[category] + "\":";
+            totalLabel[category] = "\nTotal " + name[category] + " score: ";
+            averageLabel[category] = "\nAverage " + name[category]
+            + " score: ";
+        } // end of for (int category = 0; category <= categories; ...)
+        field[0] = field[0].substring(1);
+        averageLabel[0] = "\n" + averageLabel[0];
+        jsonField = asciiBytes(field);
+        textTotalLabel = asciiBytes(totalLabel);
+        textAverageLabel = asciiBytes(averageLabel);
+        textDistributionLabel = distributionLabels(name, categories);
+        textSpreadLabel = spreadLabels(name, categories);
+    } // end of method setSchema(RatingSchema schema)
+
+    /**
+     * Sets whether each video's median, 10th and 90th percentiles
+     * and most common score in each category are written, after
+     * its averages. They are not written unless asked for.
+     *
+     * @param distribution true to write them, false otherwise.
+     */
+    public void setWriteDistribution(boolean distribution)
+    {
+        writeDistribution = distribution;
+    } // end of method setWriteDistribution(boolean distribution)
+
+    /**
+     * Sets whether each video's variance and standard deviation
+     * in each category and overall are written, after its
+     * distribution if that is written too. They are not written
+     * unless asked for.
+     *
+     * @param spread true to write them, false otherwise.
+     */
+    public void setWriteSpread(boolean spread)
+    {
+        writeSpread = spread;
+    } // end of method setWriteSpread(boolean spread)
+
+    /**
+     * Sets the metrics that the time taken to write each
+     * report is added to, as the report stage.
+     *
+     * @param ingestMetrics the metrics, or null to time nothing.
+     */
+    public void setMetrics(IngestMetrics ingestMetrics)
+    {
+        metrics = ingestMetrics;
+    } // end of method setMetrics(IngestMetrics ingestMetrics)
+
+    /**
+     * Writes the details of every video to a file,
+     * in this writer's format.
+     *
+     * @param video the videos, with their statistics extracted.
+     * @param fileName the path of the file to write.
+     * @return true if the file was written, false otherwise.
+     */
+    public boolean writeReport(ArrayList<Video> video, String fileName)
+    {
+        FileChannel fileChannel = null;
+        try
+        {
+            fileChannel = new FileOutputStream(fileName).getChannel();
+            if (!writeReport(video, fileChannel))
+            {
+                return false;
+            } // end of if (!writeReport(video, fileChannel))
+            fileChannel.close();
+        }
+        catch (IOException exception)
+        {
+            return false;
+        }
+        finally
+        {
+            closeChannel(fileChannel);
+        } // end of finally
+        return true;
+    } // end of method writeReport(ArrayList<Video> video, String fileName)
+
+    /**
+     * Writes the details of every video to a channel, in this
+     * writer's format. The channel is left open.
+     *
+     * @param video the videos, with their statistics extracted.
+     * @param target the channel to write to.
+     * @return true if the report was written, false otherwise.
+     */
+    public boolean writeReport(ArrayList<Video> video,
+    WritableByteChannel target)
+    {
+        // Text goes in the default character set, like FileWriter.
+        Charset charset = StandardCharsets.UTF_8;
+        if (format.equals("text"))
+        {
+            charset = Charset.defaultCharset();
+        } // end of if (format.equals("text"))
+        encoder = charset.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        long startTime = System.nanoTime();
+        channel = target;
+        byteCount = 0;
+        try
+        {
+            if (format.equals("csv"))
+            {
+                putBytes(csvHeader);
+                if (writeDistribution)
+                {
+                    putBytes(csvDistributionHeader);
+                } // end of if (writeDistribution)
+                if (writeSpread)
+                {
+                    putBytes(csvSpreadHeader);
+                } // end of if (writeSpread)
+                putAscii("\n");
+            }
+            else if (format.equals("json"))
+            {
+                putAscii("[");
+            } // end of if (format.equals("csv"))
+
+            boolean firstVideo = true;
+            for (Video currentVideo : video)
+            {
+                if (format.equals("text"))
+                {
+                    putText(currentVideo);
+                }
+                else if (format.equals("csv"))
+                {
+                    putCsv(currentVideo);
+                }
+                else if (format.equals("jsonl"))
+                {
+                    putJson(currentVideo);
+                    putAscii("\n");
+                }
+                else
+                {
+                    if (!firstVideo)
+                    {
+                        putAscii(",\n");
+                    } // end of if (!firstVideo)
+                    putJson(currentVideo);
+                } // end of if (format.equals("text"))
+                firstVideo = false;
+            } // end of for (Video currentVideo : video)
+
+            if (format.equals("json"))
+            {
+                putAscii("]\n");
+            } // end of if (format.equals("json"))
+            writeOut();
+        }
+        catch (IOException exception)
+        {
+            return false;
+        }
+        finally
+        {
+            channel = null;
+        } // end of finally
+        if (metrics != null)
+        {
+            metrics.getReportLatency().record(System.nanoTime() - startTime);
+        } // end of if (metrics != null)
+        return true;
+    } // end of method writeReport(ArrayList<Video> video, ...)
+
+    /* private implementation */
+    /**
+     * Makes an ASCII string into bytes.
+     *
+     * @param text the string.
+     * @return its bytes.
+     */
+    private static byte[] asciiBytes(String text)
+    {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    } // end of method asciiBytes(String text)
+
+    /**
+     * Makes ASCII strings into bytes.
+     *
+     * @param text the strings.
+     * @return the bytes of each string.
+     */
+    private static byte[][] asciiBytes(String[] text)
+    {
+        byte[][] bytes = new byte[text.length][];
+        for (int index = 0; index < text.length; index++)
+        {
+            bytes[index] = asciiBytes(text[index]);
+        } // end of for (int index = 0; index < text.length; index++)
+        return bytes;
+    } // end of method asciiBytes(String[] text)
+
+    /**
+     * Makes the labels of the distribution in the text format:
+     * each statistic of each category, a line apart, with
+     * a blank line before them all.
+     *
+     * @param name the name of each category.
+     * @param numberOfCategories how many categories there are.
+     * @return the bytes of each label, category by category
+     * within statistic by statistic.
+     */
+    private static byte[][] distributionLabels(String[] name,
+    int numberOfCategories)
+    {
+        String[] label
+        = new String[DISTRIBUTION_STATISTICS * numberOfCategories];
+        for (int statistic = 0; statistic < DISTRIBUTION_STATISTICS;
+        statistic++)
+        {
+            for (int category = 0; category < numberOfCategories; category++)
+            {
+                label[statistic * numberOfCategories + category] = "\n"
+                + DISTRIBUTION_NAME[statistic] + " "
+                + name[category] + " score: ";
+            } // end of for (int category = 0; ...)
+        } // end of for (int statistic = 0; ...)
+        label[0] = "\n" + label[0];
+        return asciiBytes(label);
+    } // end of method distributionLabels(String[] name, ...)
+
+    /**
+     * Makes the labels of the spread in the text format: each
+     * statistic of each category and overall, a line apart,
+     * with a blank line before them all.
+     *
+     * @param name the name of each category, then "overall".
+     * @param numberOfCategories how many categories there are.
+     * @return the bytes of each label, category by category
+     * within statistic by statistic.
+     */
+    private static byte[][] spreadLabels(String[] name,
+    int numberOfCategories)
+    {
+        int labelsPerStatistic = numberOfCategories + 1;
+        String[] label = new String[SPREAD_STATISTICS * labelsPerStatistic];
+        for (int statistic = 0; statistic < SPREAD_STATISTICS; statistic++)
+        {
+            for (int category = 0; category < labelsPerStatistic; category++)
+            {
+                label[statistic * labelsPerStatistic + category] = "\n"
+                + SPREAD_NAME[statistic] + " " + name[category]
+                + " scores: ";
+            } // end of for (int category = 0; ...)
+        } // end of for (int statistic = 0; ...)
+        label[0] = "\n" + label[0];
+        return asciiBytes(label);
+    } // end of method spreadLabels(String[] name, ...)
+
+    /**
+     * Works out a statistic of a category, from a video's histogram.
+     *
+     * @param video the video.
+     * @param statistic the statistic, as an index of DISTRIBUTION_NAME.
+     * @param category the category.
+     * @return the statistic.
+     */
+    private static int distributionOf(Video video, int statistic,
+    int category)
+    {
+        RatingHistogram histogram = video.getHistogram();
+        if (DISTRIBUTION_PERCENT[statistic] == 0)
+        {
+            return histogram.mode(category);
+        } // end of if (DISTRIBUTION_PERCENT[statistic] == 0)
+        return histogram.percentile(category,
+        DISTRIBUTION_PERCENT[statistic]);
+    } // end of method distributionOf(Video video, ...)
+
+    /**
+     * Returns a video's variance, or standard deviation,
+     * of a category or overall.
+     *
+     * @param video the video.
+     * @param statistic 0 for the variance, 1 for the standard deviation.
+     * @param category the category, or the number of categories
+     * for the overall score.
+     * @return the statistic.
+     */
+    private double spreadOf(Video video, int statistic, int category)
+    {
+        double variance = video.getVarianceOverallScore();
+        if (category < categories)
+        {
+            variance = video.getVarianceScores()[category];
+        } // end of if (category < categories)
+        if (statistic == 0)
+        {
+            return variance;
+        } // end of if (statistic == 0)
+        return Math.sqrt(variance);
+    } // end of method spreadOf(Video video, int statistic, int category)
+
+    /* formats */
+    /**
+     * Puts a video in the layout of Video.returnDetails(),
+     * followed by a line separator, like println does.
+     *
+     * @param video the video.
+     * @throws IOException if the file could not be written.
+     */
+    private void putText(Video video) throws IOException
+    {
+        int[] sum = video.getSumScores();
+        int[] average = video.getAverageScores();
+
+        putAscii("Made by: ");
+        putName(video.getVideoCreator());
+        for (int category = 0; category < categories; category++)
+        {
+            putBytes(textTotalLabel[category]);
+            putNumber(sum[category]);
+        } // end of for (int category = 0; category < categories; category++)
+        putBytes(textTotalLabel[categories]);
+        putNumber(video.getTotalOverallScore());
+        for (int category = 0; category < categories; category++)
+        {
+            putBytes(textAverageLabel[category]);
+            putNumber(average[category]);
+        } // end of for (int category = 0; category < categories; category++)
+        putBytes(textAverageLabel[categories]);
+        putNumber(video.getAverageOverallScore());
+        if (writeDistribution)
+        {
+            for (int label = 0; label < textDistributionLabel.length;
+            label++)
+            {
+                putBytes(textDistributionLabel[label]);
+                putNumber(distributionOf(video, label / categories,
+                label % categories));
+            } // end of for (int label = 0; ...)
+        } // end of if (writeDistribution)
+        if (writeSpread)
+        {
+            for (int label = 0; label < textSpreadLabel.length; label++)
+            {
+                putBytes(textSpreadLabel[label]);
+                putDecimal(spreadOf(video, label / (categories + 1),
+                label % (categories + 1)));
+            } // end of for (int label = 0; ...)
+        } // end of if (writeSpread)
+        putBytes(textEnd);
+    } // end of method putText(Video video)
+
+    /**
+     * Puts a video as one line of comma-separated values.
+     *
+     * @param video the video.
+     * @throws IOException if the file could not be written.
+     */
+    private void putCsv(Video video) throws IOException
+    {
+        String videoCreator = video.getVideoCreator();
+        if (videoCreator.indexOf(',') >= 0 || videoCreator.indexOf('"') >= 0)
+        {
+            // Quote the name, doubling its quotes.
+            putAscii("\"");
+            putName(videoCreator.replace("\"", "\"\""));
+            putAscii("\"");
+        }
+        else
+        {
+            putName(videoCreator);
+        } // end of if (videoCreator.indexOf(',') >= 0 || ...)
+
+        putAscii(",");
+        putNumber(video.getRatingCount());
+        int[] sum = video.getSumScores();
+        for (int category = 0; category < categories; category++)
+        {
+            putAscii(",");
+            putNumber(sum[category]);
+        } // end of for (int category = 0; category < categories; category++)
+        putAscii(",");
+        putNumber(video.getTotalOverallScore());
+        int[] average = video.getAverageScores();
+        for (int category = 0; category < categories; category++)
+        {
+            putAscii(",");
+            putNumber(average[category]);
+        } // end of for (int category = 0; category < categories; category++)
+        putAscii(",");
+        putNumber(video.getAverageOverallScore());
+        if (writeDistribution)
+        {
+            for (int statistic = 0; statistic < DISTRIBUTION_STATISTICS;
+            statistic++)
+            {
+                for (int category = 0; category < categories; category++)
+                {
+                    putAscii(",");
+                    putNumber(distributionOf(video, statistic, category));
+                } // end of for (int category = 0; ...)
+            } // end of for (int statistic = 0; ...)
+        } // end of if (writeDistribution)
+        if (writeSpread)
+        {
+            for (int statistic = 0; statistic < SPREAD_STATISTICS; statistic++)
+            {
+                for (int category = 0; category <= categories; category++)
+                {
+                    putAscii(",");
+                    putDecimal(spreadOf(video, statistic, category));
+                } // end of for (int category = 0; ...)
+            } // end of for (int statistic = 0; ...)
+        } // end of if (writeSpread)
+        putAscii("\n");
+    } // end of method putCsv(Video video)
+
+    /**
+     * Puts a video as a JSON object, on one line.
+     *
+     * @param video the video.
+     * @throws IOException if the file could not be written.
+     */
+    private void putJson(Video video) throws IOException
+    {
+        putAscii("{\"creator\":\"");
+        putJsonString(video.getVideoCreator());
+        putAscii("\",\"ratings\":");
+        putNumber(video.getRatingCount());
+
+        int[] sum = video.getSumScores();
+        putAscii(",\"total\":{");
+        for (int category = 0; category < categories; category++)
+        {
+            putBytes(jsonField[category]);
+            putNumber(sum[category]);
+        } // end of for (int category = 0; category < categories; category++)
+        putBytes(jsonField[categories]);
+        putNumber(video.getTotalOverallScore());
+
+        int[] average = video.getAverageScores();
+        putAscii("},\"average\":{");
+        for (int category = 0; category < categories; category++)
+        {
+            putBytes(jsonField[category]);
+            putNumber(average[category]);
+        } // end of for (int category = 0; category < categories; category++)
+        putBytes(jsonField[categories]);
+        putNumber(video.getAverageOverallScore());
+        if (writeDistribution)
+        {
+            for (int statistic = 0; statistic < DISTRIBUTION_STATISTICS;
+            statistic++)
+            {
+                putBytes(JSON_DISTRIBUTION_FIELD[statistic]);
+                for (int category = 0; category < categories; category++)
+                {
+                    putBytes(jsonField[category]);
+                    putNumber(distributionOf(video, statistic, category));
+                } // end of for (int category = 0; ...)
+            } // end of for (int statistic = 0; ...)
+        } // end of if (writeDistribution)
+        if (writeSpread)
+        {
+            for (int statistic = 0; statistic < SPREAD_STATISTICS; statistic++)
+            {
+                putBytes(JSON_SPREAD_FIELD[statistic]);
+                for (int category = 0; category <= categories; category++)
+                {
+                    putBytes(jsonField[category]);
+                    putDecimal(spreadOf(video, statistic, category));
+                } // end of for (int category = 0; ...)
+            } // end of for (int statistic = 0; ...)
+        } // end of if (writeSpread)
+        putAscii("}}");
+    } // end of method putJson(Video video)
+
+    /**
+     * Puts a string inside JSON quotes, escaping the quotes,
+     * backslashes and control characters in it.
+     *
+     * @param text the string.
+     * @throws IOException if the file could not be written.
+     */
+    private void putJsonString(String text) throws IOException
+    {
+        int runStart = 0;
+        for (int index = 0; index < text.length(); index++)
+        {
+            char character = text.charAt(index);
+            if (character != '"' && character != '\\' && character >= ' ')
+            {
+                continue;
+            } // end of if (character != '"' && ...)
+
+            // Put what came before, then the escaped character.
+            putName(text.substring(runStart, index));
+            makeRoom(LONGEST_FIELD);
+            if (character == '"' || character == '\\')
+            {
+                output[byteCount] = (byte) '\\';
+                output[byteCount + 1] = (byte) character;
+                byteCount = byteCount + 2;
+            }
+            else
+            {
+                putAscii("\\u00");
+                output[byteCount]
+                = (byte) Character.forDigit(character >> 4, 16);
+                output[byteCount + 1]
+                = (byte) Character.forDigit(character & 0xF, 16);
+                byteCount = byteCount + 2;
+            } // end of if (character == '"' || character == '\\')
+            runStart = index + 1;
+        } // end of for (int index = 0; index < text.length(); index++)
+        putName(text.substring(runStart));
+    } // end of method putJsonString(String text)
+
+    /* buffer methods */
+    /**
+     * Puts a name in this writer's character set. Names that
+     * are all ASCII are copied a character at a time; others go
+     * through the encoder, with unmappable characters replaced,
+     * the way FileWriter replaces them.
+     *
+     * @param name the name.
+     * @throws IOException if the file could not be written.
+     */
+    private void putName(String name) throws IOException
+    {
+        int length = name.length();
+        boolean ascii = true;
+        for (int index = 0; index < length && ascii; index++)
+        {
+            ascii = name.charAt(index) < 0x80;
+        } // end of for (int index = 0; index < length && ascii; index++)
+        if (ascii)
+        {
+            putAscii(name);
+            return;
+        } // end of if (ascii)
+
+        CharBuffer characters = CharBuffer.wrap(name);
+        encoder.reset();
+        buffer.limit(BUFFER_SIZE);
+        buffer.position(byteCount);
+        CoderResult result = encoder.encode(characters, buffer, true);
+        while (result.isOverflow())
+        {
+            byteCount = buffer.position();
+            writeOut();
+            buffer.limit(BUFFER_SIZE);
+            buffer.position(byteCount);
+            result = encoder.encode(characters, buffer, true);
+        } // end of while (result.isOverflow())
+        result = encoder.flush(buffer);
+        while (result.isOverflow())
+        {
+            byteCount = buffer.position();
+            writeOut();
+            buffer.limit(BUFFER_SIZE);
+            buffer.position(byteCount);
+            result = encoder.flush(buffer);
+        } // end of while (result.isOverflow())
+        byteCount = buffer.position();
+    } // end of method putName(String name)
+
+    /**
+     * Puts a string that is all ASCII characters.
+     *
+     * @param text the string.
+     * @throws IOException if the file could not be written.
+     */
+    private void putAscii(String text) throws IOException
+    {
+        int length = text.length();
+        int index = 0;
+        while (index < length)
+        {
+            makeRoom(1);
+            int end = Math.min(length, index + BUFFER_SIZE - byteCount);
+            while (index < end)
+            {
+                output[byteCount] = (byte) text.charAt(index);
+                byteCount = byteCount + 1;
+                index = index + 1;
+            } // end of while (index < end)
+        } // end of while (index < length)
+    } // end of method putAscii(String text)
+
+    /**
+     * Puts bytes made ahead of time, such as a label.
+     *
+     * @param bytes the bytes, fewer than LONGEST_FIELD of them.
+     * @throws IOException if the file could not be written.
+     */
+    private void putBytes(byte[] bytes) throws IOException
+    {
+        makeRoom(bytes.length);
+        System.arraycopy(bytes, 0, output, byteCount, bytes.length);
+        byteCount = byteCount + bytes.length;
+    } // end of method putBytes(byte[] bytes)
+
+    /**
+     * Puts a number as decimal digits.
+     *
+     * @param number the number.
+     * @throws IOException if the file could not be written.
+     */
+    private void putNumber(int number) throws IOException
+    {
+        makeRoom(LONGEST_FIELD);
+        if (number < 0)
+        {
+            output[byteCount] = (byte) '-';
+            byteCount = byteCount + 1;
+        } // end of if (number < 0)
+
+        // Work with the negative value, so the smallest int fits.
+        int rest = number;
+        if (rest > 0)
+        {
+            rest = -rest;
+        } // end of if (rest > 0)
+        int digitCount = 0;
+        do
+        {
+            digit[digitCount] = (byte) ('0' - rest % 10);
+            digitCount = digitCount + 1;
+            rest = rest / 10;
+        } while (rest < 0);
+        // end of do while (rest < 0);
+
+        while (digitCount > 0)
+        {
+            digitCount = digitCount - 1;
+            output[byteCount] = digit[digitCount];
+            byteCount = byteCount + 1;
+        } // end of while (digitCount > 0)
+    } // end of method putNumber(int number)
+
+    /**
+     * Puts a number that is not negative with DECIMAL_PLACES
+     * decimal places, rounded half up. Numbers too big to
+     * round that way are put as Double.toString puts them.
+     *
+     * @param number the number.
+     * @throws IOException if the file could not be written.
+     */
+    private void putDecimal(double number) throws IOException
+    {
+        long scale = 1;
+        for (int place = 0; place < DECIMAL_PLACES; place++)
+        {
+            scale = scale * 10;
+        } // end of for (int place = 0; place < DECIMAL_PLACES; place++)
+        if (!(number >= 0) || number >= Long.MAX_VALUE / scale)
+        {
+            putAscii(Double.toString(number));
+            return;
+        } // end of if (!(number >= 0) || ...)
+
+        long scaled = Math.round(number * scale);
+        long whole = scaled / scale;
+        long fraction = scaled % scale;
+        makeRoom(LONGEST_FIELD);
+        putWhole(whole);
+        output[byteCount] = (byte) '.';
+        byteCount = byteCount + 1;
+        for (long place = scale / 10; place > 0; place = place / 10)
+        {
+            output[byteCount] = (byte) ('0' + fraction / place % 10);
+            byteCount = byteCount + 1;
+        } // end of for (long place = scale / 10; place > 0; ...)
+    } // end of method putDecimal(double number)
+
+    /**
+     * Puts a whole number that is not negative, once there is room.
+     *
+     * @param number the number.
+     */
+    private void putWhole(long number)
+    {
+        int digitCount = 0;
+        long rest = number;
+        do
+        {
+            digit[digitCount] = (byte) ('0' + rest % 10);
+            digitCount = digitCount + 1;
+            rest = rest / 10;
+        } while (rest > 0);
+        // end of do while (rest > 0);
+
+        while (digitCount > 0)
+        {
+            digitCount = digitCount - 1;
+            output[byteCount] = digit[digitCount];
+            byteCount = byteCount + 1;
+        } // end of while (digitCount > 0)
+    } // end of method putWhole(long number)
+
+    /**
+     * Makes sure the buffer has room for the given number of bytes,
+     * writing it out to the file if it doesn't.
+     *
+     * @param bytesNeeded how many bytes must fit.
+     * @throws IOException if the file could not be written.
+     */
+    private void makeRoom(int bytesNeeded) throws IOException
+    {
+        if (BUFFER_SIZE - byteCount < bytesNeeded)
+        {
+            writeOut();
+        } // end of if (BUFFER_SIZE - byteCount < bytesNeeded)
+    } // end of method makeRoom(int bytesNeeded)
+
+    /**
+     * Writes everything in the buffer out to the file.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    private void writeOut() throws IOException
+    {
+        buffer.limit(byteCount);
+        buffer.position(0);
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        } // end of while (buffer.hasRemaining())
+        byteCount = 0;
+    } // end of method writeOut()
+
+    /**
+     * Closes a file, if it is open.
+     *
+     * @param fileChannel the channel of the file, or null.
+     */
+    private void closeChannel(FileChannel fileChannel)
+    {
+        if (fileChannel == null)
+        {
+            return;
+        } // end of if (fileChannel == null)
+        try
+        {
+            fileChannel.close();
+        }
+        catch (IOException exception)
+        {
+            // Nothing more to do with it.
+        } // end of catch (IOException exception)
+    } // end of method closeChannel(FileChannel fileChannel)
+
+} // end of class ReportWriter
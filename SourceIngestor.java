@@ -0,0 +1,507 @@
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+/**
+ * A class that reads ratings from many sources at once, such as
+ * files on slow network drives, named pipes and sockets, and
+ * combines them into one set of videos.
+ *
+ * Each source is read on a thread of its own, by an interpreter
+ * of its own, which checks and sorts its lines just as
+ * FileInterpreter.accessAndInterpretFile(String) does. Reading
+ * from a slow source only holds up that source's thread.
+ * Where the Java runtime has virtual threads, each source gets a
+ * virtual thread, so thousands of sources can be waited on with
+ * only a few real threads. Otherwise each source gets an ordinary
+ * thread with a small stack, which still allows for many sources.
+ *
+ * The interpreters are merged into one in the order the sources
+ * were given, each as soon as it and the ones before it are done,
+ * so the videos come out the same as reading the sources one after
+ * another: a creator's video counts its ratings from every source,
+ * and the videos keep the order their creators were first seen in.
+ * Invalid lines are numbered as if the sources were one long file.
+ *
+ * A source is the path of a file or named pipe, or
+ * "tcp:HOST:PORT" to read from a socket. From the command line,
+ * "java Main --sources source ..." writes the results and the
+ * invalid lines of all the sources together, and can print what
+ * has been read so far every so often, see IngestMetrics.
+ * Lines of another layout are read with a RatingSchema, given
+ * with "--schema FILE".
+ *
+ * @author Preenon Chisty
+ * @version 2017-02-01
+ */
+public class SourceIngestor
+{
+    /* non-instance fields: constants */
+    private static final long PLATFORM_THREAD_STACK_SIZE = 256 * 1024;
+    private static final String SOCKET_PREFIX = "tcp:";
+
+    /* instance fields */
+    private String errorFileName;
+    private ArrayList<String> failedSource;
+    private boolean keepRawRatings;
+    private long metricsInterval;
+    private ReportWriter reportWriter;
+    private String resultFileName;
+    private RatingSchema schema;
+    private ArrayList<String> sourceArgument;
+    private boolean usedVirtualThreads;
+
+    /* constructors */
+    /**
+     * Initializes a new ingestor, whose videos keep only their totals.
+     */
+    public SourceIngestor()
+    {
+        errorFileName = "invalidLines.text";
+        failedSource = new ArrayList<String>();
+        keepRawRatings = false;
+        metricsInterval = 0;
+        reportWriter = new ReportWriter();
+        resultFileName = "videoResults.text";
+        schema = RatingSchema.DEFAULT;
+        sourceArgument = new ArrayList<String>();
+        usedVirtualThreads = false;
+    } // end of constructor SourceIngestor()
+
+    /* public interface */
+    /**
+     * Sets this ingestor's settings and sources from command
+     * line arguments, the ones after "--sources".
+     *
+     * @param argument the command line arguments.
+     * @param firstIndex the index of the first argument to use.
+     * @return true if the arguments could be understood.
+     */
+    public boolean setOptions(String[] argument, int firstIndex)
+    {
+        boolean distribution = false;
+        int index = firstIndex;
+        while (index < argument.length)
+        {
+            String currentArgument = argument[index];
+            if (!currentArgument.startsWith("--"))
+            {
+                sourceArgument.add(currentArgument);
+                index = index + 1;
+                continue;
+            } // end of if (!currentArgument.startsWith("--"))
+
+            // Every option takes a value.
+            if (index + 1 == argument.length)
+            {
+                return false;
+            } // end of if (index + 1 == argument.length)
+            String value = argument[index + 1];
+            index = index + 2;
+
+            if (currentArgument.equals("--results"))
+            {
+                resultFileName = value;
+            }
+            else if (currentArgument.equals("--errors"))
+            {
+                errorFileName = value;
+            }
+            else if (currentArgument.equals("--distribution"))
+            {
+                distribution = Boolean.parseBoolean(value);
+                reportWriter.setWriteDistribution(distribution);
+            }
+            else if (currentArgument.equals("--spread"))
+            {
+                reportWriter.setWriteSpread(Boolean.parseBoolean(value));
+            }
+            else if (currentArgument.equals("--format"))
+            {
+                if (!reportWriter.setFormat(value))
+                {
+                    return false;
+                } // end of if (!reportWriter.setFormat(value))
+            }
+            else if (currentArgument.equals("--metrics-ms"))
+            {
+                try
+                {
+                    metricsInterval = Long.parseLong(value);
+                }
+                catch (NumberFormatException exception)
+                {
+                    return false;
+                } // end of catch (NumberFormatException exception)
+            }
+            else if (currentArgument.equals("--schema"))
+            {
+                schema = RatingSchema.load(value);
+                if (schema == null)
+                {
+                    System.out.println("Error: " + value
+                    + " is not a schema that could be read.");
+                    return false;
+                } // end of if (schema == null)
+                setSchema(schema);
+            }
+            else
+            {
+                return false;
+            } // end of if (currentArgument.equals("--results"))
+        } // end of while (index < argument.length)
+
+        // Distributions need a count for every score the schema allows.
+        if (distribution && !schema.canBinRatings())
+        {
+            System.out.println("Error: The schema allows too many "
+            + "different ratings for --distribution.");
+            return false;
+        } // end of if (distribution && !schema.canBinRatings())
+
+        return !sourceArgument.isEmpty() && metricsInterval >= 0;
+    } // end of method setOptions(String[] argument, int firstIndex)
+
+    /**
+     * Reads the sources given on the command line, and writes
+     * their results and invalid lines.
+     *
+     * @return true if every source was read and the results
+     * were written, false otherwise.
+     */
+    public boolean run()
+    {
+        long startTime = System.nanoTime();
+        FileInterpreter interpreter = new FileInterpreter();
+        interpreter.setSchema(schema);
+        interpreter.setKeepRawRatings(false);
+        if (!interpreter.setErrorFile(errorFileName))
+        {
+            System.out.println("Error: Could not create " + errorFileName);
+            return false;
+        } // end of if (!interpreter.setErrorFile(errorFileName))
+
+        IngestMetrics metrics = IngestMetrics.getMetrics();
+        if (metricsInterval > 0)
+        {
+            metrics.startLogging(metricsInterval);
+        } // end of if (metricsInterval > 0)
+        boolean everySourceRead = ingest(sourceArgument, interpreter);
+        if (!interpreter.closeErrorFile())
+        {
+            System.out.println("Error: Could not write " + errorFileName);
+            everySourceRead = false;
+        } // end of if (!interpreter.closeErrorFile())
+        for (String currentSource : failedSource)
+        {
+            System.out.println("Error: Could not read " + currentSource);
+        } // end of for (String currentSource : failedSource)
+
+        ArrayList<Video> video = interpreter.getVideoSet();
+        StatisticExtractor extractor = new StatisticExtractor();
+        extractor.setMetrics(metrics);
+        extractor.extractStatistics(video);
+        reportWriter.setMetrics(metrics);
+        if (!reportWriter.writeReport(video, resultFileName))
+        {
+            System.out.println("Error: Could not write " + resultFileName);
+            return false;
+        } // end of if (!reportWriter.writeReport(video, resultFileName))
+
+        long elapsed = (System.nanoTime() - startTime) / 1000000;
+        String threadKind = "ordinary";
+        if (usedVirtualThreads)
+        {
+            threadKind = "virtual";
+        } // end of if (usedVirtualThreads)
+        System.out.println(sourceArgument.size() + " sources on "
+        + threadKind + " threads: " + video.size() + " videos in "
+        + elapsed + " ms -> " + resultFileName);
+        if (metricsInterval > 0)
+        {
+            metrics.stopLogging();
+            System.out.println(metrics.summaryLine());
+        } // end of if (metricsInterval > 0)
+        return everySourceRead;
+    } // end of method run()
+
+    /**
+     * Prints how to use sources mode.
+     */
+    public static void printUsage()
+    {
+        System.out.println("Usage: java Main --sources [option value ...] "
+        + "source ...");
+        System.out.println("Each source is a file, a named pipe, "
+        + "or tcp:HOST:PORT for a socket.");
+        System.out.println("Options:");
+        System.out.println("  --results FILE       results file "
+        + "(default videoResults.text)");
+        System.out.println("  --errors FILE        invalid lines file "
+        + "(default invalidLines.text)");
+        System.out.println("  --format FORMAT      results as text, csv, "
+        + "json or jsonl (default text)");
+        System.out.println("  --distribution BOOL  also write medians, "
+        + "percentiles and modes (default false)");
+        System.out.println("  --spread BOOL        also write variances "
+        + "and standard deviations (default false)");
+        System.out.println("  --metrics-ms N       print what has been "
+        + "read every N milliseconds");
+        System.out.println("  --schema FILE        the layout of the "
+        + "lines, for other rating forms");
+    } // end of method printUsage()
+
+    /**
+     * Sets whether the videos made keep every raw rating,
+     * or only the running totals of their ratings.
+     *
+     * @param keepRatings true to keep every rating,
+     * false to keep only the totals.
+     */
+    public void setKeepRawRatings(boolean keepRatings)
+    {
+        keepRawRatings = keepRatings;
+    } // end of method setKeepRawRatings(boolean keepRatings)
+
+    /**
+     * Sets the layout of the lines of every source, see RatingSchema.
+     *
+     * @param lineSchema the layout of the lines.
+     */
+    public void setSchema(RatingSchema lineSchema)
+    {
+        schema = lineSchema;
+        reportWriter.setSchema(lineSchema);
+    } // end of method setSchema(RatingSchema lineSchema)
+
+    /**
+     * Reads every source at the same time, and merges their videos
+     * and invalid lines into the given interpreter, in the order
+     * the sources were given.
+     *
+     * @param source the sources to read.
+     * @param interpreter the interpreter to merge into, which
+     * may have an error file for the invalid lines, made
+     * for this ingestor's schema.
+     * @return true if every source could be read, false otherwise;
+     * see getFailedSources() for which could not.
+     */
+    public boolean ingest(ArrayList<String> source,
+    FileInterpreter interpreter)
+    {
+        failedSource.clear();
+        ExecutorService pool = createPool();
+        try
+        {
+            ArrayList<Future<FileInterpreter>> outcome
+            = new ArrayList<Future<FileInterpreter>>();
+            for (String currentSource : source)
+            {
+                outcome.add(pool.submit(createTask(currentSource)));
+            } // end of for (String currentSource : source)
+
+            // Merge in source order, waiting for each in turn.
+            for (int index = 0; index < outcome.size(); index++)
+            {
+                FileInterpreter sourceInterpreter
+                = waitFor(outcome.get(index));
+                if (sourceInterpreter == null)
+                {
+                    failedSource.add(source.get(index));
+                    continue;
+                } // end of if (sourceInterpreter == null)
+                interpreter.mergeInterpreter(sourceInterpreter);
+            } // end of for (int index = 0; index < outcome.size(); index++)
+        }
+        finally
+        {
+            pool.shutdown();
+        } // end of finally
+        return failedSource.isEmpty();
+    } // end of method ingest(ArrayList<String> source, ...)
+
+    /**
+     * Returns the sources that could not be read, or not
+     * all the way through, the last time ingest was called.
+     *
+     * @return the sources, in the order they were given.
+     */
+    public ArrayList<String> getFailedSources()
+    {
+        return failedSource;
+    } // end of method getFailedSources()
+
+    /**
+     * Checks if the last sources were read on virtual threads.
+     *
+     * @return true if they were, false if on ordinary threads.
+     */
+    public boolean usedVirtualThreads()
+    {
+        return usedVirtualThreads;
+    } // end of method usedVirtualThreads()
+
+    /* private implementation */
+    /**
+     * Creates the pool that reads the sources, one thread for each.
+     * Virtual threads are only there in newer Java runtimes, so
+     * they are looked for by name, not named in the code.
+     *
+     * @return the pool.
+     */
+    private ExecutorService createPool()
+    {
+        try
+        {
+            Method virtualThreadPool = Executors.class.getMethod(
+            "newVirtualThreadPerTaskExecutor");
+            ExecutorService pool
+            = (ExecutorService) virtualThreadPool.invoke(null);
+            usedVirtualThreads = true;
+            return pool;
+        }
+        catch (ReflectiveOperationException exception)
+        {
+            // Not there, so use ordinary threads instead.
+        } // end of catch (ReflectiveOperationException exception)
+
+        usedVirtualThreads = false;
+        return Executors.newCachedThreadPool(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable task)
+            {
+                // Reading lines needs little stack.
+                Thread sourceThread = new Thread(null, task,
+                "source reader", PLATFORM_THREAD_STACK_SIZE);
+                sourceThread.setDaemon(true);
+                return sourceThread;
+            } // end of method newThread(Runnable task)
+        });
+    } // end of method createPool()
+
+    /**
+     * Creates the task that reads one source.
+     *
+     * @param source the source.
+     * @return the task, giving back the source's interpreter,
+     * or null if the source could not be read.
+     */
+    private Callable<FileInterpreter> createTask(final String source)
+    {
+        return new Callable<FileInterpreter>()
+        {
+            @Override
+            public FileInterpreter call()
+            {
+                return readSource(source);
+            } // end of method call()
+        };
+    } // end of method createTask(String source)
+
+    /**
+     * Reads one source with an interpreter of its own, which
+     * remembers the source's invalid lines instead of printing them.
+     *
+     * @param source the source.
+     * @return the interpreter, or null if the source could not be read.
+     */
+    private FileInterpreter readSource(String source)
+    {
+        FileInterpreter sourceInterpreter = new FileInterpreter();
+        sourceInterpreter.setSchema(schema);
+        sourceInterpreter.setKeepRawRatings(keepRawRatings);
+        if (!source.startsWith(SOCKET_PREFIX))
+        {
+            if (!sourceInterpreter.accessAndInterpretFile(source))
+            {
+                return null;
+            } // end of if (!sourceInterpreter.accessAndInterpretFile(...))
+            return sourceInterpreter;
+        } // end of if (!source.startsWith(SOCKET_PREFIX))
+
+        // "tcp:HOST:PORT", where the host may itself have colons.
+        int portIndex = source.lastIndexOf(':');
+        if (portIndex < SOCKET_PREFIX.length())
+        {
+            return null;
+        } // end of if (portIndex < SOCKET_PREFIX.length())
+        String host = source.substring(SOCKET_PREFIX.length(), portIndex);
+        Socket socket = null;
+        try
+        {
+            int port = Integer.parseInt(source.substring(portIndex + 1));
+            socket = new Socket(host, port);
+            if (!sourceInterpreter.accessAndInterpretReader(
+                new InputStreamReader(socket.getInputStream())))
+            {
+                return null;
+            } // end of if (!sourceInterpreter.accessAndInterpretReader(...))
+        }
+        catch (NumberFormatException exception)
+        {
+            return null;
+        }
+        catch (IOException exception)
+        {
+            return null;
+        }
+        finally
+        {
+            closeSocket(socket);
+        } // end of finally
+        return sourceInterpreter;
+    } // end of method readSource(String source)
+
+    /**
+     * Closes a socket, if it is open.
+     *
+     * @param socket the socket, or null.
+     */
+    private void closeSocket(Socket socket)
+    {
+        if (socket == null)
+        {
+            return;
+        } // end of if (socket == null)
+        try
+        {
+            socket.close();
+        }
+        catch (IOException exception)
+        {
+            // Nothing more to do with it.
+        } // end of catch (IOException exception)
+    } // end of method closeSocket(Socket socket)
+
+    /**
+     * Waits for a source's task to finish.
+     *
+     * @param outcome the outcome of the task.
+     * @return the source's interpreter, or null if it failed.
+     */
+    private FileInterpreter waitFor(Future<FileInterpreter> outcome)
+    {
+        try
+        {
+            return outcome.get();
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (ExecutionException exception)
+        {
+            return null;
+        } // end of catch (ExecutionException exception)
+    } // end of method waitFor(Future<FileInterpreter> outcome)
+
+} // end of class SourceIngestor
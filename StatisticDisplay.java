@@ -1,8 +1,6 @@
 import java.util.ArrayList;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
-import java.io.FileWriter;
-import java.io.PrintWriter;
 import java.io.IOException;
 /**
  * A class to display the statistics
@@ -21,6 +19,7 @@ public class StatisticDisplay
     private BufferedReader console;
     private StatisticExtractor extractor;
     private FileInterpreter interpreter;
+    private String snapshotFileName;
     private ArrayList<Video> video;
     
     /* constructors */
@@ -32,8 +31,24 @@ public class StatisticDisplay
         console = new BufferedReader(new InputStreamReader(System.in));
         extractor = new StatisticExtractor();
         interpreter = new FileInterpreter();
+        snapshotFileName = null;
         video = null;
+        
+        // Only the totals of each video are displayed.
+        interpreter.setKeepRawRatings(false);
     } // end of constructor StatisticDisplayIO
+    
+    /**
+     * Sets the snapshot file this display saves its videos to,
+     * after reading a text file. Given a snapshot file, instead
+     * of a text file, the display loads its videos from it.
+     * 
+     * @param fileName the path of the snapshot file.
+     */
+    public void setSnapshotFile(String fileName)
+    {
+        snapshotFileName = fileName;
+    } // end of method setSnapshotFile(String fileName)
 
     /**
      * Runs the VideoRatingAnalyzer project.
@@ -63,12 +78,27 @@ public class StatisticDisplay
              * complete with their video ratings
              * Check if we could access it.
              */
-            boolean couldAccessFile
-            = interpreter.accessAndInterpretFile(fileName);
+            boolean couldAccessFile;
+            if (VideoSnapshot.isSnapshot(fileName))
+            {
+                // A snapshot's videos were already made, so load them.
+                couldAccessFile = interpreter.loadSnapshot(fileName);
+            }
+            else if (RatingRecordReader.isRecordFile(fileName))
+            {
+                // A record file needs no checking, so read it as it is.
+                couldAccessFile
+                = interpreter.accessAndInterpretRecordFile(fileName);
+            }
+            else
+            {
+                couldAccessFile = interpreter.accessAndInterpretFile(fileName);
+            } // end of if (VideoSnapshot.isSnapshot(fileName))
             
             if (couldAccessFile)
             {
                 getAndAnalyzeVideos();
+                saveSnapshot(fileName);
             }
             else
             {
@@ -108,33 +138,42 @@ public class StatisticDisplay
         extractor.extractStatistics(video);
         
         // Print details for each video to the file
-        try
-        {
-            PrintWriter outputFile =
-            new PrintWriter(new FileWriter(OUTPUT_FILE_NAME));
-            
-            for (Video currentVideo : video)
-            {
-                String videoDetails = currentVideo.returnDetails();
-                outputFile.println(videoDetails);
-            }
-            
-            outputFile.close();
-            
-            // Tell the user where to look for the results.
-            System.out.println("Thank you. Please check "
-            + "the file by the path of "
-            + "\"" + OUTPUT_FILE_NAME + "\"");
-            System.out.print("for the video results.");
-            
-        }
-        // Output file couldn't be established
-        catch (IOException exception)
+        if (!new ReportWriter().writeReport(video, OUTPUT_FILE_NAME))
         {
+            // Output file couldn't be established
             printFileCreationError();
-        } // end of catch (IOException exception)
+            return;
+        } // end of if (!new ReportWriter().writeReport(...))
+        
+        // Tell the user where to look for the results.
+        System.out.println("Thank you. Please check "
+        + "the file by the path of "
+        + "\"" + OUTPUT_FILE_NAME + "\"");
+        System.out.print("for the video results.");
     } // end of method getAndAnalyzeVideos()
     
+    /**
+     * Saves the videos to this display's snapshot file, if it has
+     * one, so that the next run can start from the snapshot
+     * instead of reading the file again.
+     * 
+     * @param fileName the path of the file the videos came from.
+     */
+    private void saveSnapshot(String fileName)
+    {
+        if (snapshotFileName == null || snapshotFileName.equals(fileName))
+        {
+            return;
+        } // end of if (snapshotFileName == null || ...)
+        
+        if (!interpreter.saveSnapshot(snapshotFileName))
+        {
+            System.out.println();
+            System.out.println("Error: Could not save the snapshot "
+            + "\"" + snapshotFileName + "\".");
+        } // end of if (!interpreter.saveSnapshot(snapshotFileName))
+    } // end of method saveSnapshot(String fileName)
+    
     /* introduction methods */
     /**
      * Explains the program to the user, and
@@ -2,156 +2,131 @@ import java.util.ArrayList;
 /**
  * A class to extract extra information
  * about each video, like total scores,
- * and add it to their states.
+ * averages and variances, and add it to their states.
+ * Each video is given as many averages and variances
+ * as its schema has categories.
  * 
  * @author Preenon Chisty
  * @version 2016-12-28
  */
 public class StatisticExtractor
 {
-    /* constants */
-    private static final int CATEGORIES = 4;
+    /* instance fields */
+    private IngestMetrics metrics;
     
     /* constructors */
     /**
-     * Initializes a new extractor's state.
-     * 
-     * Nothing to do here...
+     * Initializes a new extractor's state,
+     * timing nothing.
      */
     public StatisticExtractor()
     {
+        metrics = null;
     } // end of constructor StatisticExtractor()
+    
+    /**
+     * Sets the metrics that the time taken by each call of
+     * extractStatistics is added to, as the aggregate stage.
+     * 
+     * @param ingestMetrics the metrics, or null to time nothing.
+     */
+    public void setMetrics(IngestMetrics ingestMetrics)
+    {
+        metrics = ingestMetrics;
+    } // end of method setMetrics(IngestMetrics ingestMetrics)
 
     /* main method */
     /**
      * Calculates extra data based on each video
      * and assigns these data to them.
      * 
+     * Videos keep running totals as their ratings are added,
+     * so only the averages are left to work out here, and
+     * no video's ratings have to be gone through again.
+     * 
      * @param video an array list of video objects.
      */
     public void extractStatistics(ArrayList<Video> video)
     {
+        long startTime = System.nanoTime();
+        
         /* For each video... */
         for (Video currentVideo : video)
         {
-            // Get a representation of all of its VideoRatings
-            int[][] rating = currentVideo.getRating();
-            
-            /* Use this 2D array in methods to calculate metadata
-             * Assign that metadata to local variables here
-             */
-            
-            /* Calculate sums */
-            int[] sum = sumScores(rating);
-            int overallSum = calculateOveralllSum(sum);
+            // Get its running totals and how many ratings it has.
+            int numberOfRatings = currentVideo.getRatingCount();
+            int[] sum = currentVideo.getSumScores();
+            int overallSum = currentVideo.getTotalOverallScore();
             
             /* Calculate averages */
-            int[] average = averageScores(sum, rating);
+            int[] average = averageScores(sum, numberOfRatings);
             
             /* Overall average is average of overall sum,
              * not sum of all averages of this video!
              */
             int overallAverage = 0;
-            if (rating.length > 0)
+            if (numberOfRatings > 0)
             {
-                overallAverage = overallSum / rating.length;
-            } // end of if (rating.length > 0)
-            
-            /* Assign sums to current video */
-            currentVideo.setSumScores(sum);
-            currentVideo.setTotalOverallScore(overallSum);
+                overallAverage = overallSum / numberOfRatings;
+            } // end of if (numberOfRatings > 0)
             
             /* Assign averages to current video */
-            currentVideo.setAverageScores(sum);
+            currentVideo.setAverageScores(average);
             currentVideo.setAverageOverallScore(overallAverage);
-        } // end of for (Video currentVideo : video)
-    } // end of extractStatistics(ArrayList<Video> video)
-    
-    /* sum methods */
-    /**
-     * Sums the scores of the rating array,
-     * and returns an array compiled of the sums.
-     * 
-     * @param rating an array of integer arrays.
-     * @return an array of sums for each category.
-     */
-    private int[] sumScores(int[][] rating)
-    {
-        int[] sum = new int[CATEGORIES];
-        
-        // For each score category in the 2D array...
-        for (int category = 0; category < CATEGORIES; category++)
-        {
-            int sumOfScore = 0;
-            int currentArray = 0;
-            int lengthOfArray = rating.length;
             
-            // Accumulate the scores for that category...
-            while (currentArray < lengthOfArray)
+            /* The spread was kept up to date as ratings were added,
+             * so the variances need no second pass either.
+             */
+            RatingSpread spread = currentVideo.getSpread();
+            double[] variance = new double[sum.length];
+            for (int category = 0; category < sum.length; category++)
             {
-                sumOfScore = sumOfScore
-                + rating[currentArray][category];
-                
-                currentArray = currentArray + 1;
-            } // end of while (currentArrayIndex < lengthOfArray)
-            
-            // Assign the score to the corresponding element.
-            sum[category] = sumOfScore;
-        } // end of for (int category = 0; category < CATEGORIES; category++)
+                variance[category] = spread.variance(category);
+            } // end of for (int category = 0; ...)
+            currentVideo.setVarianceScores(variance);
+            currentVideo.setVarianceOverallScore(
+            spread.variance(RatingSpread.OVERALL));
+        } // end of for (Video currentVideo : video)
         
-        return sum;
-    } // end of method sumScores(int[][] rating)
-    
-    /**
-     * Calculates and returns the
-     * overall sum of the sums of each category.
-     * 
-     * @param sum an array of sums for each category.
-     * @return the overall sum.
-     */
-    private int calculateOveralllSum(int[] sum)
-    {
-        int totalSum = 0;
-        for (int category = 0; category < CATEGORIES; category++)
+        if (metrics != null)
         {
-            totalSum = totalSum + sum[category];
-        } // end of for (int category = 0; category < CATEGORIES; category++)
-        return totalSum;
-    } // end of method calculateOveralllSum(int[] sum)
+            metrics.getAggregateLatency().record(
+            System.nanoTime() - startTime);
+        } // end of if (metrics != null)
+    } // end of extractStatistics(ArrayList<Video> video)
     
     /* average methods */
     /**
-     * Averages the scores of the rating array,
+     * Averages the scores of a video's ratings,
      * and returns an array compiled of the averages.
      * 
      * @param sum an array of sums for each category.
-     * @param rating an array of integer arrays.
+     * @param numberOfRatings how many ratings make up the sums.
      * @return an array of averages for each category.
      */
-    private int[] averageScores(int[] sum, int[][] rating)
+    private int[] averageScores(int[] sum, int numberOfRatings)
     {
-        int[] average = new int[CATEGORIES];
+        int[] average = new int[sum.length];
         
-        // For each score category in the 2D array...
-        for (int category = 0; category < CATEGORIES; category++)
+        // For each score category...
+        for (int category = 0; category < sum.length; category++)
         {
             /* Divide not by number of categories,
-             * but number of ratings, which is 
-             * rating.length
+             * but number of ratings
              */
             // And make the check for division by zero.
-            if (rating.length > 0)
+            if (numberOfRatings > 0)
             {
-                average[category] = sum[category] / rating.length;
+                average[category] = sum[category] / numberOfRatings;
             }
             else
             {
                 average[category] = 0;
-            } // end of if (rating.length > 0)
+            } // end of if (numberOfRatings > 0)
             
-        } // end of for (int category = 0; category < CATEGORIES; category++)
+        } // end of for (int category = 0; category < sum.length; category++)
         
         return average;
-    } // end of method averageScores(int[] sum, int[][] rating)
+    } // end of method averageScores(int[] sum, int numberOfRatings)
     
 } // end of class StatisticExtractor
@@ -0,0 +1,528 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+/**
+ * A small HTTP server that answers questions about the videos
+ * in JSON, while they are still being read.
+ *
+ * Whoever reads the videos publishes them every so often. Each
+ * time, the videos are copied, their statistics are worked out
+ * on the copies, and the copies replace the last ones all at once.
+ * The copies are never changed after that, so any number of
+ * requests can read them at the same time as the next ones are
+ * being made, without locks, and without slowing the reading down.
+ * Each request sees one whole set of videos, never half of two.
+ *
+ * The server understands: <br>
+ * - GET /videos?offset=N&amp;limit=N: some of the videos, in order,
+ * as a JSON array <br>
+ * - GET /videos/CREATOR: one video, as a JSON object <br>
+ * - GET /top?k=N&amp;by=NAME&amp;order=highest|lowest: the videos
+ * with the highest or lowest averages, as a JSON array <br>
+ * - GET /status: whether any videos were published yet, how many,
+ * and how many times <br>
+ * Videos are written the way ReportWriter writes them, with
+ * their distributions and spreads, naming their categories after
+ * the server's RatingSchema.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-30
+ */
+public class StatisticServer
+{
+    /* non-instance fields: constants */
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int DEFAULT_TOP_COUNT = 10;
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+    private static final int MAXIMUM_LIMIT = 10000;
+    private static final int STATUS_BAD_REQUEST = 400;
+    private static final int STATUS_NOT_ALLOWED = 405;
+    private static final int STATUS_NOT_FOUND = 404;
+    private static final int STATUS_OK = 200;
+
+    /* instance fields */
+    private ExecutorService pool;
+    private AtomicReference<Published> published;
+    private ThreadLocal<ReportWriter> reportWriter;
+    private RatingSchema schema;
+    private HttpServer server;
+    private int threads;
+
+    /* constructors */
+    /**
+     * Initializes a new server, with nothing published yet,
+     * answering on as many threads as there are processors.
+     */
+    public StatisticServer()
+    {
+        pool = null;
+        published = new AtomicReference<Published>(
+        new Published(new ArrayList<Video>(), 0, false));
+
+        // Each thread answering requests keeps its own writer.
+        reportWriter = new ThreadLocal<ReportWriter>()
+        {
+            @Override
+            protected ReportWriter initialValue()
+            {
+                ReportWriter writer = new ReportWriter();
+                writer.setSchema(schema);
+                writer.setWriteDistribution(schema.canBinRatings());
+                writer.setWriteSpread(true);
+                return writer;
+            } // end of method initialValue()
+        };
+        schema = RatingSchema.DEFAULT;
+        server = null;
+        threads = Runtime.getRuntime().availableProcessors();
+    } // end of constructor StatisticServer()
+
+    /* public interface */
+    /**
+     * Sets the layout of the ratings of the videos this server
+     * publishes, see RatingSchema. Should be set before the
+     * server is started.
+     *
+     * @param videoSchema the layout of the ratings.
+     */
+    public void setSchema(RatingSchema videoSchema)
+    {
+        schema = videoSchema;
+    } // end of method setSchema(RatingSchema videoSchema)
+
+    /**
+     * Starts answering requests on the given port,
+     * on every address of this computer.
+     *
+     * @param port the port, or 0 for any free port.
+     * @return true if the server started, false otherwise.
+     */
+    public boolean start(int port)
+    {
+        try
+        {
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+        }
+        catch (IOException exception)
+        {
+            System.out.println("Error: Could not listen on port " + port);
+            return false;
+        } // end of catch (IOException exception)
+
+        server.createContext("/videos", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                answer(exchange, "videos");
+            } // end of method handle(HttpExchange exchange)
+        });
+        server.createContext("/top", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                answer(exchange, "top");
+            } // end of method handle(HttpExchange exchange)
+        });
+        server.createContext("/status", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                answer(exchange, "status");
+            } // end of method handle(HttpExchange exchange)
+        });
+        pool = Executors.newFixedThreadPool(threads);
+        server.setExecutor(pool);
+        server.start();
+        return true;
+    } // end of method start(int port)
+
+    /**
+     * Stops answering requests, giving the ones
+     * being answered a moment to finish.
+     */
+    public void stop()
+    {
+        if (server == null)
+        {
+            return;
+        } // end of if (server == null)
+        server.stop(1);
+        pool.shutdown();
+        server = null;
+        pool = null;
+    } // end of method stop()
+
+    /**
+     * Returns the port this server answers on.
+     *
+     * @return the port, or -1 if the server is not started.
+     */
+    public int getPort()
+    {
+        if (server == null)
+        {
+            return -1;
+        } // end of if (server == null)
+        return server.getAddress().getPort();
+    } // end of method getPort()
+
+    /**
+     * Publishes the videos as they are now, for requests to read.
+     * The videos are copied, so the caller can go on adding
+     * ratings to them straight away. Only one thread should
+     * publish, the one that adds the ratings.
+     *
+     * @param video the videos.
+     */
+    public void publish(ArrayList<Video> video)
+    {
+        ArrayList<Video> copiedVideo = new ArrayList<Video>(video.size());
+        for (Video currentVideo : video)
+        {
+            // Only the totals are needed, not the raw ratings.
+            Video copy = new Video(currentVideo.getVideoCreator(), false,
+            currentVideo.getSchema());
+            copy.mergeVideo(currentVideo);
+            copiedVideo.add(copy);
+        } // end of for (Video currentVideo : video)
+        new StatisticExtractor().extractStatistics(copiedVideo);
+
+        long version = published.get().version + 1;
+        published.set(new Published(copiedVideo, version, true));
+    } // end of method publish(ArrayList<Video> video)
+
+    /* private implementation */
+    /**
+     * Answers one request, with the videos published last.
+     *
+     * @param exchange the request and its response.
+     * @param endpoint "videos", "top" or "status".
+     * @throws IOException if the response could not be sent.
+     */
+    private void answer(HttpExchange exchange, String endpoint)
+    throws IOException
+    {
+        try
+        {
+            if (!exchange.getRequestMethod().equals("GET")
+                && !exchange.getRequestMethod().equals("HEAD"))
+            {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendError(exchange, STATUS_NOT_ALLOWED, "only GET is allowed");
+                return;
+            } // end of if (!exchange.getRequestMethod().equals("GET") && ...)
+
+            // Whatever is published meanwhile, this request uses these.
+            Published current = published.get();
+            HashMap<String, String> parameter = readParameters(exchange);
+            if (parameter == null)
+            {
+                sendError(exchange, STATUS_BAD_REQUEST, "bad query");
+            }
+            else if (endpoint.equals("status"))
+            {
+                answerStatus(exchange, current);
+            }
+            else if (endpoint.equals("top"))
+            {
+                answerTop(exchange, current, parameter);
+            }
+            else
+            {
+                answerVideos(exchange, current, parameter);
+            } // end of if (parameter == null)
+        }
+        finally
+        {
+            exchange.close();
+        } // end of finally
+    } // end of method answer(HttpExchange exchange, String endpoint)
+
+    /**
+     * Answers a request for some of the videos, or for one.
+     *
+     * @param exchange the request and its response.
+     * @param current the videos to answer with.
+     * @param parameter the parameters of the request.
+     * @throws IOException if the response could not be sent.
+     */
+    private void answerVideos(HttpExchange exchange, Published current,
+    HashMap<String, String> parameter) throws IOException
+    {
+        String path = exchange.getRequestURI().getPath();
+        if (path.startsWith("/videos/") && path.length() > "/videos/".length())
+        {
+            String creator = path.substring("/videos/".length());
+            Integer position = current.position.get(creator);
+            if (position == null)
+            {
+                sendError(exchange, STATUS_NOT_FOUND, "no such creator");
+                return;
+            } // end of if (position == null)
+            ArrayList<Video> oneVideo = new ArrayList<Video>(1);
+            oneVideo.add(current.video.get(position));
+            sendVideos(exchange, oneVideo, "jsonl");
+            return;
+        }
+        else if (!path.equals("/videos") && !path.equals("/videos/"))
+        {
+            sendError(exchange, STATUS_NOT_FOUND, "no such page");
+            return;
+        } // end of if (path.startsWith("/videos/") && ...)
+
+        int offset = readNumber(parameter, "offset", 0);
+        int limit = readNumber(parameter, "limit", DEFAULT_LIMIT);
+        if (offset < 0 || limit < 0 || limit > MAXIMUM_LIMIT)
+        {
+            sendError(exchange, STATUS_BAD_REQUEST,
+            "offset and limit must be from 0, limit at most "
+            + MAXIMUM_LIMIT);
+            return;
+        } // end of if (offset < 0 || ...)
+        int videoCount = current.video.size();
+        int first = Math.min(offset, videoCount);
+        int last = (int) Math.min((long) first + limit, videoCount);
+        sendVideos(exchange,
+        new ArrayList<Video>(current.video.subList(first, last)), "json");
+    } // end of method answerVideos(HttpExchange exchange, ...)
+
+    /**
+     * Answers a request for the highest or lowest videos.
+     *
+     * @param exchange the request and its response.
+     * @param current the videos to answer with.
+     * @param parameter the parameters of the request.
+     * @throws IOException if the response could not be sent.
+     */
+    private void answerTop(HttpExchange exchange, Published current,
+    HashMap<String, String> parameter) throws IOException
+    {
+        VideoRanker ranker = new VideoRanker();
+        ranker.setSchema(schema);
+        int count = readNumber(parameter, "k", DEFAULT_TOP_COUNT);
+        String rankName = parameter.get("by");
+        String order = parameter.get("order");
+        if (count < 0 || count > MAXIMUM_LIMIT
+            || (rankName != null && !ranker.setRankBy(rankName))
+            || (order != null && !order.equals("highest")
+            && !order.equals("lowest")))
+        {
+            sendError(exchange, STATUS_BAD_REQUEST,
+            "k must be from 0 to " + MAXIMUM_LIMIT + ", by a category "
+            + "or overall, order highest or lowest");
+            return;
+        } // end of if (count < 0 || ...)
+
+        if (order != null && order.equals("lowest"))
+        {
+            sendVideos(exchange, ranker.lowest(current.video, count), "json");
+        }
+        else
+        {
+            sendVideos(exchange, ranker.highest(current.video, count), "json");
+        } // end of if (order != null && order.equals("lowest"))
+    } // end of method answerTop(HttpExchange exchange, ...)
+
+    /**
+     * Answers a request for the state of the published videos.
+     *
+     * @param exchange the request and its response.
+     * @param current the videos to answer with.
+     * @throws IOException if the response could not be sent.
+     */
+    private void answerStatus(HttpExchange exchange, Published current)
+    throws IOException
+    {
+        String status = "{\"ready\":" + current.ready
+        + ",\"version\":" + current.version
+        + ",\"videos\":" + current.video.size()
+        + ",\"publishedAt\":" + current.publishedTime + "}\n";
+        send(exchange, STATUS_OK, status.getBytes(StandardCharsets.UTF_8));
+    } // end of method answerStatus(HttpExchange exchange, ...)
+
+    /**
+     * Sends videos, written by this thread's report writer.
+     *
+     * @param exchange the request and its response.
+     * @param video the videos to send.
+     * @param format "json" for an array, "jsonl" for one object.
+     * @throws IOException if the response could not be sent.
+     */
+    private void sendVideos(HttpExchange exchange, ArrayList<Video> video,
+    String format) throws IOException
+    {
+        ReportWriter writer = reportWriter.get();
+        writer.setFormat(format);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (!writer.writeReport(video, Channels.newChannel(body)))
+        {
+            throw new IOException("Could not write the videos.");
+        } // end of if (!writer.writeReport(...))
+        send(exchange, STATUS_OK, body.toByteArray());
+    } // end of method sendVideos(HttpExchange exchange, ...)
+
+    /**
+     * Sends an error, as a JSON object with its message.
+     *
+     * @param exchange the request and its response.
+     * @param status the HTTP status.
+     * @param message the message, without quotes or backslashes.
+     * @throws IOException if the response could not be sent.
+     */
+    private void sendError(HttpExchange exchange, int status, String message)
+    throws IOException
+    {
+        String error = "{\"error\":\"" + message + "\"}\n";
+        send(exchange, status, error.getBytes(StandardCharsets.UTF_8));
+    } // end of method sendError(HttpExchange exchange, ...)
+
+    /**
+     * Sends a response in JSON.
+     *
+     * @param exchange the request and its response.
+     * @param status the HTTP status.
+     * @param body the body of the response.
+     * @throws IOException if the response could not be sent.
+     */
+    private void send(HttpExchange exchange, int status, byte[] body)
+    throws IOException
+    {
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        if (exchange.getRequestMethod().equals("HEAD"))
+        {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        } // end of if (exchange.getRequestMethod().equals("HEAD"))
+        exchange.sendResponseHeaders(status, body.length);
+        OutputStream response = exchange.getResponseBody();
+        response.write(body);
+        response.close();
+    } // end of method send(HttpExchange exchange, int status, byte[] body)
+
+    /**
+     * Reads the parameters of a request's query.
+     *
+     * @param exchange the request.
+     * @return the parameters by name, or null if they could not be read.
+     */
+    private HashMap<String, String> readParameters(HttpExchange exchange)
+    {
+        HashMap<String, String> parameter = new HashMap<String, String>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty())
+        {
+            return parameter;
+        } // end of if (query == null || query.isEmpty())
+        try
+        {
+            for (String pair : query.split("&"))
+            {
+                int equalsIndex = pair.indexOf('=');
+                if (equalsIndex < 0)
+                {
+                    parameter.put(URLDecoder.decode(pair, "UTF-8"), "");
+                    continue;
+                } // end of if (equalsIndex < 0)
+                parameter.put(
+                URLDecoder.decode(pair.substring(0, equalsIndex), "UTF-8"),
+                URLDecoder.decode(pair.substring(equalsIndex + 1), "UTF-8"));
+            } // end of for (String pair : query.split("&"))
+        }
+        catch (UnsupportedEncodingException exception)
+        {
+            return null;
+        }
+        catch (IllegalArgumentException exception)
+        {
+            // Broken escapes, like "%zz".
+            return null;
+        } // end of catch (IllegalArgumentException exception)
+        return parameter;
+    } // end of method readParameters(HttpExchange exchange)
+
+    /**
+     * Reads a whole number parameter.
+     *
+     * @param parameter the parameters of a request.
+     * @param name the name of the parameter.
+     * @param defaultValue the number if the parameter is not given.
+     * @return the number, or -1 if it is not a number.
+     */
+    private int readNumber(HashMap<String, String> parameter, String name,
+    int defaultValue)
+    {
+        String value = parameter.get(name);
+        if (value == null)
+        {
+            return defaultValue;
+        } // end of if (value == null)
+        try
+        {
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException exception)
+        {
+            return -1;
+        } // end of catch (NumberFormatException exception)
+    } // end of method readNumber(HashMap<String, String> parameter, ...)
+
+    /**
+     * One published set of videos, with their statistics worked out.
+     * Nothing in it changes once it is made, and the atomic reference
+     * it is handed over through makes all of it seen by every thread.
+     */
+    private static class Published
+    {
+        /* instance fields */
+        private HashMap<String, Integer> position;
+        private long publishedTime;
+        private boolean ready;
+        private long version;
+        private ArrayList<Video> video;
+
+        /* constructors */
+        /**
+         * Initializes a new set of published videos.
+         *
+         * @param publishedVideo the videos, which must not change.
+         * @param publishedVersion how many sets were published,
+         * counting this one.
+         * @param isReady false for the empty set before
+         * anything is published, true otherwise.
+         */
+        private Published(ArrayList<Video> publishedVideo,
+        long publishedVersion, boolean isReady)
+        {
+            position = new HashMap<String, Integer>(
+            publishedVideo.size() * 2 + 1);
+            for (int index = 0; index < publishedVideo.size(); index++)
+            {
+                position.put(publishedVideo.get(index).getVideoCreator(),
+                index);
+            } // end of for (int index = 0; ...)
+            publishedTime = System.currentTimeMillis();
+            ready = isReady;
+            version = publishedVersion;
+            video = publishedVideo;
+        } // end of constructor Published(ArrayList<Video> publishedVideo, ...)
+
+    } // end of class Published
+
+} // end of class StatisticServer
@@ -1,4 +1,4 @@
-import java.util.ArrayList;
+import java.util.Arrays;
 /**
  * A representation of a video that knows an array 
  * of its video ratings, and some extra metadata, like: <br>
@@ -7,6 +7,27 @@ import java.util.ArrayList;
  * -The total score overall <br>
  * -The average score for each category (stored in an integer array) <br>
  * -The average score overall <br>
+ * -The variance of the scores of each category, and overall <br>
+ * 
+ * The totals and the number of ratings are kept up to date as
+ * each rating is added, so they are ready as soon as the file
+ * has been read. A video can also be made to keep only these
+ * totals and not its raw ratings, so that its size stays the same
+ * no matter how many ratings it is given.
+ * 
+ * Raw ratings are kept packed in a single primitive array, one
+ * rating after the other. While every score fits in a byte, a
+ * byte array is used; the first score that does not fit widens
+ * the array to integers.
+ * 
+ * Every video also counts how often each score was given in each
+ * category, in a histogram that only grows with the number of
+ * different scores outside its range, so its medians and
+ * percentiles can be found whether or not it keeps its raw ratings,
+ * and keeps a running spread of its scores, for their variances.
+ * 
+ * A video has the categories of the RatingSchema it was made for,
+ * four unless another schema is given.
  * 
  * @author Preenon Chisty
  * @version 2016-12-28
@@ -14,15 +35,25 @@ import java.util.ArrayList;
 public class Video
 {
     /* constants */
-    private static final int CATEGORIES = 4;
+    private static final int INITIAL_RATING_CAPACITY = 4;
     
     /* instance fields */
     private int[] averageOfScore;
     private int averageOverallScore;
-    private ArrayList<int[]> rating;
+    private int categories;
+    private RatingHistogram histogram;
+    private boolean keepsRawRatings;
+    private byte[] narrowRating;
+    private int ratingCount;
+    private RatingSchema schema;
+    private RatingSpread spread;
+    private int storedRatingCount;
     private int[] sumOfScore;
     private int totalOverallScore;
+    private double[] varianceOfScore;
+    private double varianceOverallScore;
     private String videoCreator;
+    private int[] wideRating;
     
     /* constructors */
     /**
@@ -32,14 +63,55 @@ public class Video
      * @param nameOfCreator the creator of this video
      */
     public Video(String nameOfCreator)
+    {
+        this(nameOfCreator, true);
+    } // end of constructor Video(String nameOfCreator)
+    
+    /**
+     * Initializes a new video's state 
+     * with the given name of its creator(s),
+     * choosing whether to keep its raw ratings
+     * or only their running totals.
+     * 
+     * @param nameOfCreator the creator of this video
+     * @param keepRawRatings true to keep every rating,
+     * false to keep only the totals
+     */
+    public Video(String nameOfCreator, boolean keepRawRatings)
+    {
+        this(nameOfCreator, keepRawRatings, RatingSchema.DEFAULT);
+    } // end of constructor Video(String nameOfCreator, ...)
+    
+    /**
+     * Initializes a new video's state 
+     * with the given name of its creator(s),
+     * for ratings of the given schema.
+     * 
+     * @param nameOfCreator the creator of this video
+     * @param keepRawRatings true to keep every rating,
+     * false to keep only the totals
+     * @param ratingSchema the layout of this video's ratings
+     */
+    public Video(String nameOfCreator, boolean keepRawRatings,
+    RatingSchema ratingSchema)
     {
         videoCreator = nameOfCreator;
-        rating = new ArrayList<int[]>();
-        averageOfScore = new int[CATEGORIES];
-        sumOfScore = new int[CATEGORIES];
+        keepsRawRatings = keepRawRatings;
+        schema = ratingSchema;
+        categories = ratingSchema.getCategoryCount();
+        histogram = new RatingHistogram(ratingSchema);
+        narrowRating = null;
+        wideRating = null;
+        ratingCount = 0;
+        storedRatingCount = 0;
+        averageOfScore = new int[categories];
+        sumOfScore = new int[categories];
         totalOverallScore = 0;
         averageOverallScore = 0;
-    } // end of constructor Video(String nameOfCreator)
+        spread = new RatingSpread(categories);
+        varianceOfScore = new double[categories];
+        varianceOverallScore = 0;
+    } // end of constructor Video(String nameOfCreator, ...)
     
     /* String methods */
     /**
@@ -49,27 +121,38 @@ public class Video
      */
     public String returnDetails()
     {
-        // Create the indexes for each category
-        int content = 0;
-        int layout = 1;
-        int technical = 2;
-        int creativity = 3;
-        
-        String detailString
-        = "Made by: " + videoCreator + "\n"
-        + "Total content score: " + sumOfScore[content] + "\n"
-        + "Total layout score: " + sumOfScore[layout] + "\n"
-        + "Total technical score: " + sumOfScore[technical] + "\n"
-        + "Total creativity score: " + sumOfScore[creativity] + "\n"
-        + "Total overall score: " + totalOverallScore + "\n" + "\n"
-        + "Average content score: " + averageOfScore[content] + "\n"
-        + "Average layout score: " + averageOfScore[layout] + "\n"
-        + "Average technical score: " + averageOfScore[technical] + "\n"
-        + "Average creativity score: " + averageOfScore[creativity] + "\n"
-        + "Average overall score: " + averageOverallScore + "\n" + "\n";
-        return detailString;
+        // Name each category after the schema's names.
+        StringBuilder detailString = new StringBuilder(256);
+        detailString.append("Made by: ").append(videoCreator).append('\n');
+        for (int category = 0; category < categories; category++)
+        {
+            detailString.append("Total ")
+            .append(schema.getCategoryName(category)).append(" score: ")
+            .append(sumOfScore[category]).append('\n');
+        } // end of for (int category = 0; category < categories; category++)
+        detailString.append("Total overall score: ")
+        .append(totalOverallScore).append("\n\n");
+        for (int category = 0; category < categories; category++)
+        {
+            detailString.append("Average ")
+            .append(schema.getCategoryName(category)).append(" score: ")
+            .append(averageOfScore[category]).append('\n');
+        } // end of for (int category = 0; category < categories; category++)
+        detailString.append("Average overall score: ")
+        .append(averageOverallScore).append("\n\n");
+        return detailString.toString();
     } // end of method returnDetails()
     
+    /**
+     * Returns the schema of this video's ratings.
+     * 
+     * @return the schema.
+     */
+    public RatingSchema getSchema()
+    {
+        return schema;
+    } // end of method getSchema()
+    
     /**
      * Returns the name of the creator(s) of this video.
      * 
@@ -83,21 +166,28 @@ public class Video
     /* video rating methods */
     /**
      * Returns a primitive array version of 
-     * this video's array list of ratings.
+     * this video's ratings.
+     * Empty if this video does not keep its raw ratings.
+     * Use getRatingView() to read the ratings without copying them.
      * 
      * @return a two-dimensional integer array
      */
     public int[][] getRating()
     {
         // Get the necessary parameters to create the array matrix.
-        int numberOfRatings = rating.size();
-        int[][] ratingArray = new int[numberOfRatings][CATEGORIES];
+        RatingView view = getRatingView();
+        int numberOfRatings = view.getRatingCount();
+        int[][] ratingArray = new int[numberOfRatings][categories];
         
-        // Compile every rating array into the array array.
+        // Unpack every rating into the array array.
         int arrayIndex = 0;
         while (arrayIndex < numberOfRatings)
         {
-            ratingArray[arrayIndex] = rating.get(arrayIndex);
+            for (int category = 0; category < categories; category++)
+            {
+                ratingArray[arrayIndex][category]
+                = view.getScore(arrayIndex, category);
+            } // end of for (int category = 0; ...)
             arrayIndex = arrayIndex + 1;
         } // end of while (arrayIndex < numberOfRatings)
         
@@ -105,18 +195,169 @@ public class Video
 
     } // end of method getVideoRating()
     
+    /**
+     * Returns a read-only view of the raw ratings this video
+     * has now, without copying them.
+     * Empty if this video does not keep its raw ratings.
+     * 
+     * @return a view of the ratings.
+     */
+    public RatingView getRatingView()
+    {
+        return new RatingView(categories, narrowRating, wideRating,
+        storedRatingCount);
+    } // end of method getRatingView()
+    
     /**
      * Adds a video rating in the form
      * of an integer array to this video's
-     * array list of ratings
+     * ratings, and to its running totals.
+     * The array is copied, so it can be reused by the caller.
      * 
      * @param ratingDatum the integer array representing a video rating
      */
     public void addVideoRating(int[] ratingDatum)
     {
-        rating.add(ratingDatum);
+        for (int category = 0; category < categories; category++)
+        {
+            sumOfScore[category] = sumOfScore[category]
+            + ratingDatum[category];
+            totalOverallScore = totalOverallScore + ratingDatum[category];
+        } // end of for (int category = 0; category < categories; category++)
+        ratingCount = ratingCount + 1;
+        histogram.addRating(ratingDatum);
+        spread.addRating(ratingDatum);
+        
+        if (keepsRawRatings)
+        {
+            storeRating(ratingDatum);
+        } // end of if (keepsRawRatings)
     } // end of method addVideoRating(int[] ratingDatum)
     
+    /**
+     * Returns how many video ratings this video has been given,
+     * whether or not it keeps the raw ratings.
+     * 
+     * @return the number of ratings.
+     */
+    public int getRatingCount()
+    {
+        return ratingCount;
+    } // end of method getRatingCount()
+    
+    /**
+     * Returns the histogram of this video's scores.
+     * 
+     * @return the histogram.
+     */
+    public RatingHistogram getHistogram()
+    {
+        return histogram;
+    } // end of method getHistogram()
+    
+    /**
+     * Returns the running spread of this video's scores.
+     * 
+     * @return the spread.
+     */
+    public RatingSpread getSpread()
+    {
+        return spread;
+    } // end of method getSpread()
+    
+    /**
+     * Checks if this video keeps every raw rating,
+     * and not only the running totals.
+     * 
+     * @return true if raw ratings are kept, false otherwise.
+     */
+    public boolean keepsRawRatings()
+    {
+        return keepsRawRatings;
+    } // end of method keepsRawRatings()
+    
+    /**
+     * Adds the running totals, and the raw ratings in order,
+     * of the given video to this video's.
+     * Used to combine videos of the same creator that were
+     * built from different parts of a file.
+     * 
+     * @param otherVideo a video with the same creator
+     * and schema as this one
+     */
+    public void mergeVideo(Video otherVideo)
+    {
+        for (int category = 0; category < categories; category++)
+        {
+            sumOfScore[category] = sumOfScore[category]
+            + otherVideo.sumOfScore[category];
+        } // end of for (int category = 0; category < categories; category++)
+        totalOverallScore = totalOverallScore + otherVideo.totalOverallScore;
+        ratingCount = ratingCount + otherVideo.ratingCount;
+        histogram.merge(otherVideo.histogram);
+        spread.merge(otherVideo.spread);
+        
+        if (!keepsRawRatings)
+        {
+            return;
+        } // end of if (!keepsRawRatings)
+        
+        // Can the other video's bytes be copied over as they are?
+        int otherCount = otherVideo.storedRatingCount;
+        if (otherCount == 0)
+        {
+            return;
+        } // end of if (otherCount == 0)
+        if (wideRating == null && otherVideo.wideRating == null)
+        {
+            ensureRatingCapacity(otherCount);
+            System.arraycopy(otherVideo.narrowRating, 0, narrowRating,
+            storedRatingCount * categories, otherCount * categories);
+            storedRatingCount = storedRatingCount + otherCount;
+            return;
+        } // end of if (wideRating == null && ...)
+        
+        // Otherwise, add the other video's ratings one at a time.
+        RatingView otherView = otherVideo.getRatingView();
+        int[] ratingDatum = new int[categories];
+        for (int ratingIndex = 0; ratingIndex < otherCount; ratingIndex++)
+        {
+            for (int category = 0; category < categories; category++)
+            {
+                ratingDatum[category]
+                = otherView.getScore(ratingIndex, category);
+            } // end of for (int category = 0; ...)
+            storeRating(ratingDatum);
+        } // end of for (int ratingIndex = 0; ...)
+    } // end of method mergeVideo(Video otherVideo)
+    
+    /**
+     * Gives this video the running totals and the raw ratings
+     * of a video that was saved earlier, in place of its own.
+     * The packed array is kept as it is, not copied, so
+     * it should not be used by the caller afterwards.
+     * The histogram and the spread are not changed; they are
+     * restored through getHistogram() and getSpread().
+     * 
+     * @param sum the total score of each category
+     * @param overallScore the total overall score
+     * @param numberOfRatings how many ratings make up the totals
+     * @param byteRating the raw ratings, if they all fit in bytes
+     * @param intRating the raw ratings, if they do not
+     * @param numberOfStoredRatings how many raw ratings there are
+     */
+    public void restoreRatings(int[] sum, int overallScore,
+    int numberOfRatings, byte[] byteRating, int[] intRating,
+    int numberOfStoredRatings)
+    {
+        setSumScores(sum);
+        totalOverallScore = overallScore;
+        ratingCount = numberOfRatings;
+        narrowRating = byteRating;
+        wideRating = intRating;
+        storedRatingCount = numberOfStoredRatings;
+    } // end of method restoreRatings(int[] sum, ...)
+    
     /* accessors and mutators for total scores */
     
     /**
@@ -138,10 +379,10 @@ public class Video
      */
     public void setSumScores(int[] sum)
     {
-        for (int category = 0; category < CATEGORIES; category++)
+        for (int category = 0; category < categories; category++)
         {
             sumOfScore[category] = sum[category];
-        } // end of for (int category = 0; category < CATEGORIES; category++)
+        } // end of for (int category = 0; category < categories; category++)
     } // end of method setSumScores(int[] sum)
    
     /**
@@ -185,11 +426,11 @@ public class Video
      */
     public void setAverageScores(int[] average)
     {
-        for (int category = 0; category < CATEGORIES; category++)
+        for (int category = 0; category < categories; category++)
         {
             averageOfScore[category] = average[category];
-        } // end of for (int category = 0; category < CATEGORIES; category++)
-    } // end of method setAverageScores(int[] sum)
+        } // end of for (int category = 0; category < categories; category++)
+    } // end of method setAverageScores(int[] average)
     
     /**
      * Returns this video's average overall score.
@@ -211,5 +452,155 @@ public class Video
     {
         averageOverallScore = overallScore;
     } // end of method setAverageOverallScore(int overallScore)
+    
+    /* accessors and mutators for variances */
+    /**
+     * Returns this video's array of variances
+     * for each category in a rating.
+     * 
+     * @return an array of variances.
+     */
+    public double[] getVarianceScores()
+    {
+        return varianceOfScore;
+    } // end of method getVarianceScores()
+    
+    /**
+     * Transfers the data from the given
+     * variance array to this video's variance array.
+     * 
+     * @param variance an array of variances
+     */
+    public void setVarianceScores(double[] variance)
+    {
+        for (int category = 0; category < categories; category++)
+        {
+            varianceOfScore[category] = variance[category];
+        } // end of for (int category = 0; category < categories; category++)
+    } // end of method setVarianceScores(double[] variance)
+    
+    /**
+     * Returns the variance of this video's overall scores,
+     * the sums of the scores of each rating.
+     * 
+     * @return the overall variance
+     */
+    public double getVarianceOverallScore()
+    {
+        return varianceOverallScore;
+    } // end of method getVarianceOverallScore()
+    
+    /**
+     * Sets the variance of this video's overall scores.
+     * 
+     * @param variance the new overall variance
+     */
+    public void setVarianceOverallScore(double variance)
+    {
+        varianceOverallScore = variance;
+    } // end of method setVarianceOverallScore(double variance)
        
+    /* private implementation */
+    /**
+     * Packs a rating onto the end of this video's raw ratings,
+     * widening them to integers if a score does not fit in a byte.
+     * 
+     * @param ratingDatum the integer array representing a video rating
+     */
+    private void storeRating(int[] ratingDatum)
+    {
+        ensureRatingCapacity(1);
+        int index = storedRatingCount * categories;
+        
+        // Does every score fit in a byte?
+        if (wideRating == null)
+        {
+            boolean fitsInBytes = true;
+            for (int category = 0; category < categories; category++)
+            {
+                int score = ratingDatum[category];
+                if (score < Byte.MIN_VALUE || score > Byte.MAX_VALUE)
+                {
+                    fitsInBytes = false;
+                } // end of if (score < Byte.MIN_VALUE || ...)
+            } // end of for (int category = 0; ...)
+            
+            if (fitsInBytes)
+            {
+                for (int category = 0; category < categories; category++)
+                {
+                    narrowRating[index + category]
+                    = (byte) ratingDatum[category];
+                } // end of for (int category = 0; ...)
+                storedRatingCount = storedRatingCount + 1;
+                return;
+            } // end of if (fitsInBytes)
+            
+            widenRatings();
+        } // end of if (wideRating == null)
+        
+        for (int category = 0; category < categories; category++)
+        {
+            wideRating[index + category] = ratingDatum[category];
+        } // end of for (int category = 0; category < categories; category++)
+        storedRatingCount = storedRatingCount + 1;
+    } // end of method storeRating(int[] ratingDatum)
+    
+    /**
+     * Makes sure there is room for the given number of
+     * ratings past the ones already kept, growing
+     * the packed array if needed.
+     * 
+     * @param extraRatings how many more ratings must fit.
+     */
+    private void ensureRatingCapacity(int extraRatings)
+    {
+        int neededLength = (storedRatingCount + extraRatings) * categories;
+        int currentLength = 0;
+        if (wideRating != null)
+        {
+            currentLength = wideRating.length;
+        }
+        else if (narrowRating != null)
+        {
+            currentLength = narrowRating.length;
+        } // end of if (wideRating != null)
+        
+        if (neededLength <= currentLength)
+        {
+            return;
+        } // end of if (neededLength <= currentLength)
+        
+        // Grow by half again, so adding ratings stays cheap on average.
+        int newLength = Math.max(neededLength,
+        currentLength + (currentLength >> 1));
+        newLength = Math.max(newLength, INITIAL_RATING_CAPACITY * categories);
+        if (wideRating != null)
+        {
+            wideRating = Arrays.copyOf(wideRating, newLength);
+        }
+        else if (narrowRating != null)
+        {
+            narrowRating = Arrays.copyOf(narrowRating, newLength);
+        }
+        else
+        {
+            narrowRating = new byte[newLength];
+        } // end of if (wideRating != null)
+    } // end of method ensureRatingCapacity(int extraRatings)
+    
+    /**
+     * Moves this video's raw ratings from bytes to integers.
+     */
+    private void widenRatings()
+    {
+        wideRating = new int[narrowRating.length];
+        int storedLength = storedRatingCount * categories;
+        for (int index = 0; index < storedLength; index++)
+        {
+            wideRating[index] = narrowRating[index];
+        } // end of for (int index = 0; index < storedLength; index++)
+        narrowRating = null;
+    } // end of method widenRatings()
+    
 } // end of class Video
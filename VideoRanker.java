@@ -0,0 +1,270 @@
+import java.util.ArrayList;
+/**
+ * A class that finds the videos with the highest or lowest
+ * average in a category, or overall, without sorting them all.
+ *
+ * Only the videos wanted are kept, in a heap whose top is the
+ * worst of them, so each other video costs one comparison, and
+ * finding the best hundred of a million videos takes one pass.
+ * Averages are worked out from each video's totals, the same way
+ * StatisticExtractor works them out. Videos with the same average
+ * keep the order they came in.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-27
+ */
+public class VideoRanker
+{
+    /* non-instance fields: constants */
+    private static final int OVERALL = -1;
+
+    /* instance fields */
+    private int[] heapAverage;
+    private int heapCount;
+    private int[] heapPosition;
+    private boolean highestFirst;
+    private int rankCategory;
+    private RatingSchema schema;
+
+    /* constructors */
+    /**
+     * Initializes a new ranker, ranking videos by overall average.
+     */
+    public VideoRanker()
+    {
+        heapAverage = null;
+        heapCount = 0;
+        heapPosition = null;
+        highestFirst = true;
+        rankCategory = OVERALL;
+        schema = RatingSchema.DEFAULT;
+    } // end of constructor VideoRanker()
+
+    /* public interface */
+    /**
+     * Sets the schema of the videos this ranker ranks, whose
+     * category names can be given to setRankBy(String).
+     * Should be set before what to rank by.
+     *
+     * @param videoSchema the schema of the videos.
+     */
+    public void setSchema(RatingSchema videoSchema)
+    {
+        schema = videoSchema;
+        rankCategory = OVERALL;
+    } // end of method setSchema(RatingSchema videoSchema)
+
+    /**
+     * Sets what this ranker ranks videos by.
+     *
+     * @param rankName the name of a category of the schema, like
+     * "content", or "overall".
+     * @return true if the name is known, false otherwise.
+     */
+    public boolean setRankBy(String rankName)
+    {
+        if (rankName.equals("overall"))
+        {
+            rankCategory = OVERALL;
+            return true;
+        } // end of if (rankName.equals("overall"))
+        int category = schema.findCategory(rankName);
+        if (category < 0)
+        {
+            return false;
+        } // end of if (category < 0)
+        rankCategory = category;
+        return true;
+    } // end of method setRankBy(String rankName)
+
+    /**
+     * Returns the videos with the highest averages, highest first.
+     *
+     * @param video the videos to rank.
+     * @param count how many videos to return, at most.
+     * @return the highest videos.
+     */
+    public ArrayList<Video> highest(ArrayList<Video> video, int count)
+    {
+        highestFirst = true;
+        return rank(video, count);
+    } // end of method highest(ArrayList<Video> video, int count)
+
+    /**
+     * Returns the videos with the lowest averages, lowest first.
+     *
+     * @param video the videos to rank.
+     * @param count how many videos to return, at most.
+     * @return the lowest videos.
+     */
+    public ArrayList<Video> lowest(ArrayList<Video> video, int count)
+    {
+        highestFirst = false;
+        return rank(video, count);
+    } // end of method lowest(ArrayList<Video> video, int count)
+
+    /* private implementation */
+    /**
+     * Returns the best videos, best first, where best is
+     * highest or lowest as this ranker was last asked.
+     *
+     * @param video the videos to rank.
+     * @param count how many videos to return, at most.
+     * @return the best videos.
+     */
+    private ArrayList<Video> rank(ArrayList<Video> video, int count)
+    {
+        int heapSize = Math.max(0, Math.min(count, video.size()));
+        heapAverage = new int[heapSize];
+        heapCount = 0;
+        heapPosition = new int[heapSize];
+        if (heapSize == 0)
+        {
+            return new ArrayList<Video>();
+        } // end of if (heapSize == 0)
+
+        // Keep the best videos, with the worst of them on top.
+        for (int position = 0; position < video.size(); position++)
+        {
+            int average = averageOf(video.get(position));
+            if (heapCount < heapSize)
+            {
+                heapAverage[heapCount] = average;
+                heapPosition[heapCount] = position;
+                heapCount = heapCount + 1;
+                siftUp(heapCount - 1);
+            }
+            else if (isBetter(average, position, heapAverage[0],
+                heapPosition[0]))
+            {
+                heapAverage[0] = average;
+                heapPosition[0] = position;
+                siftDown(0);
+            } // end of if (heapCount < heapSize)
+        } // end of for (int position = 0; ...)
+
+        // Taking the worst off the top each time fills the list backwards.
+        Video[] ranked = new Video[heapCount];
+        while (heapCount > 0)
+        {
+            ranked[heapCount - 1] = video.get(heapPosition[0]);
+            heapCount = heapCount - 1;
+            heapAverage[0] = heapAverage[heapCount];
+            heapPosition[0] = heapPosition[heapCount];
+            siftDown(0);
+        } // end of while (heapCount > 0)
+
+        ArrayList<Video> rankedVideo = new ArrayList<Video>(ranked.length);
+        for (Video currentVideo : ranked)
+        {
+            rankedVideo.add(currentVideo);
+        } // end of for (Video currentVideo : ranked)
+        return rankedVideo;
+    } // end of method rank(ArrayList<Video> video, int count)
+
+    /**
+     * Works out the average a video is ranked by.
+     *
+     * @param video the video.
+     * @return the average, or 0 if the video has no ratings.
+     */
+    private int averageOf(Video video)
+    {
+        int numberOfRatings = video.getRatingCount();
+        if (numberOfRatings == 0)
+        {
+            return 0;
+        } // end of if (numberOfRatings == 0)
+        if (rankCategory == OVERALL)
+        {
+            return video.getTotalOverallScore() / numberOfRatings;
+        } // end of if (rankCategory == OVERALL)
+        return video.getSumScores()[rankCategory] / numberOfRatings;
+    } // end of method averageOf(Video video)
+
+    /**
+     * Checks if one video ranks before another: if its average is
+     * better, or if the averages are the same and it came first.
+     *
+     * @param average the first video's average.
+     * @param position the first video's position.
+     * @param otherAverage the other video's average.
+     * @param otherPosition the other video's position.
+     * @return true if the first video ranks before the other.
+     */
+    private boolean isBetter(int average, int position, int otherAverage,
+    int otherPosition)
+    {
+        if (average != otherAverage)
+        {
+            return (average > otherAverage) == highestFirst;
+        } // end of if (average != otherAverage)
+        return position < otherPosition;
+    } // end of method isBetter(int average, ...)
+
+    /**
+     * Moves an entry up the heap while it is worse than its parent.
+     *
+     * @param entry the index of the entry.
+     */
+    private void siftUp(int entry)
+    {
+        int child = entry;
+        while (child > 0)
+        {
+            int parent = (child - 1) / 2;
+            if (!isBetter(heapAverage[parent], heapPosition[parent],
+                heapAverage[child], heapPosition[child]))
+            {
+                return;
+            } // end of if (!isBetter(heapAverage[parent], ...))
+            swap(parent, child);
+            child = parent;
+        } // end of while (child > 0)
+    } // end of method siftUp(int entry)
+
+    /**
+     * Moves an entry down the heap while a child is worse than it.
+     *
+     * @param entry the index of the entry.
+     */
+    private void siftDown(int entry)
+    {
+        int parent = entry;
+        while (2 * parent + 1 < heapCount)
+        {
+            // Find the worse of the children.
+            int child = 2 * parent + 1;
+            if (child + 1 < heapCount
+                && isBetter(heapAverage[child], heapPosition[child],
+                heapAverage[child + 1], heapPosition[child + 1]))
+            {
+                child = child + 1;
+            } // end of if (child + 1 < heapCount && ...)
+            if (!isBetter(heapAverage[parent], heapPosition[parent],
+                heapAverage[child], heapPosition[child]))
+            {
+                return;
+            } // end of if (!isBetter(heapAverage[parent], ...))
+            swap(parent, child);
+            parent = child;
+        } // end of while (2 * parent + 1 < heapCount)
+    } // end of method siftDown(int entry)
+
+    /**
+     * Swaps two entries of the heap.
+     *
+     * @param first the index of one entry.
+     * @param second the index of the other.
+     */
+    private void swap(int first, int second)
+    {
+        int average = heapAverage[first];
+        heapAverage[first] = heapAverage[second];
+        heapAverage[second] = average;
+        int position = heapPosition[first];
+        heapPosition[first] = heapPosition[second];
+        heapPosition[second] = position;
+    } // end of method swap(int first, int second)
+
+} // end of class VideoRanker
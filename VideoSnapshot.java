@@ -0,0 +1,624 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+/**
+ * A class that saves videos to a compact binary file, and loads
+ * them back, so that a file that was analyzed once doesn't
+ * have to be read and checked line by line again.
+ *
+ * A snapshot starts with a magic number, a format version and
+ * the RatingSchema the videos were made for, as its option=value
+ * lines, then has one record per video, in the order the videos
+ * were made: the creator's name, the number of ratings, the total
+ * of each category, the total overall score, the cells of the
+ * video's histogram, the state of its spread, the outliers of its
+ * histogram, and the raw ratings if the video keeps them, packed
+ * in bytes or integers as the video packs them.
+ * A second magic number marks the end, so that a snapshot
+ * cut short is not mistaken for a whole one.
+ * Snapshots are loaded by mapping them into memory.
+ * Snapshots of any other version are not loaded. How many totals,
+ * cells and spread values a record has depends on the schema, so
+ * the videos loaded are made for the schema of the snapshot, which
+ * getSchema() gives.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-22
+ */
+public class VideoSnapshot
+{
+    /* non-instance fields: constants */
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int END_MAGIC = 0x56525345;
+    private static final int FLAG_INT_RATINGS = 2;
+    private static final int FLAG_RAW_RATINGS = 1;
+    private static final int MAGIC = 0x56525353;
+    private static final int VERSION = 1;
+    private static final int WINDOW_SIZE = 1 << 28;
+
+    /* instance fields */
+    private ByteBuffer buffer;
+    private int categories;
+    private FileChannel channel;
+    private long fileSize;
+    private RatingSchema schema;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    /* constructors */
+    /**
+     * Initializes a new snapshot saver and loader.
+     */
+    public VideoSnapshot()
+    {
+        buffer = null;
+        categories = 0;
+        channel = null;
+        fileSize = 0;
+        schema = null;
+        window = null;
+        windowStart = 0;
+    } // end of constructor VideoSnapshot()
+
+    /* public interface */
+    /**
+     * Checks if the file with the given name is a snapshot.
+     *
+     * @param fileName the name of the file.
+     * @return true if the file starts like a snapshot, false otherwise.
+     */
+    public static boolean isSnapshot(String fileName)
+    {
+        try
+        {
+            FileChannel fileChannel = FileChannel.open(Paths.get(fileName),
+            StandardOpenOption.READ);
+            try
+            {
+                ByteBuffer start = ByteBuffer.allocate(4);
+                while (start.hasRemaining())
+                {
+                    if (fileChannel.read(start) < 0)
+                    {
+                        return false;
+                    } // end of if (fileChannel.read(start) < 0)
+                } // end of while (start.hasRemaining())
+                return start.getInt(0) == MAGIC;
+            }
+            finally
+            {
+                fileChannel.close();
+            } // end of finally
+        }
+        catch (IOException exception)
+        {
+            return false;
+        } // end of catch (IOException exception)
+    } // end of method isSnapshot(String fileName)
+
+    /**
+     * Reads the schema a snapshot was saved for, without
+     * loading its videos.
+     *
+     * @param fileName the name of the snapshot file.
+     * @return the schema, or null if the file isn't a snapshot
+     * or could not be read.
+     */
+    public static RatingSchema readSchema(String fileName)
+    {
+        VideoSnapshot snapshot = new VideoSnapshot();
+        try
+        {
+            snapshot.openForReading(fileName);
+            return snapshot.readHeader();
+        }
+        catch (IOException exception)
+        {
+            return null;
+        }
+        catch (BufferUnderflowException exception)
+        {
+            return null;
+        }
+        finally
+        {
+            snapshot.closeChannel();
+            snapshot.window = null;
+        } // end of finally
+    } // end of method readSchema(String fileName)
+
+    /**
+     * Saves videos to a snapshot file. The snapshot is written to
+     * a new file first and then moved over the given one, so that
+     * a snapshot is never seen half written.
+     *
+     * @param video the videos to save.
+     * @param videoSchema the schema the videos were made for.
+     * @param fileName the name of the snapshot file.
+     * @return true if the snapshot was saved, false otherwise.
+     */
+    public boolean save(ArrayList<Video> video, RatingSchema videoSchema,
+    String fileName)
+    {
+        schema = videoSchema;
+        categories = videoSchema.getCategoryCount();
+        byte[] schemaText = videoSchema.toText().getBytes(
+        StandardCharsets.UTF_8);
+        Path snapshotFile = Paths.get(fileName).toAbsolutePath();
+        Path newSnapshotFile = snapshotFile.resolveSibling(
+        snapshotFile.getFileName() + ".new");
+        try
+        {
+            channel = FileChannel.open(newSnapshotFile,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+            makeRoom(12);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(schemaText.length);
+            writeBytes(schemaText);
+            makeRoom(4);
+            buffer.putInt(video.size());
+            for (Video currentVideo : video)
+            {
+                writeVideo(currentVideo);
+            } // end of for (Video currentVideo : video)
+            makeRoom(4);
+            buffer.putInt(END_MAGIC);
+            flushBuffer();
+            channel.close();
+            channel = null;
+
+            try
+            {
+                Files.move(newSnapshotFile, snapshotFile,
+                StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (IOException exception)
+            {
+                Files.move(newSnapshotFile, snapshotFile,
+                StandardCopyOption.REPLACE_EXISTING);
+            } // end of catch (IOException exception)
+        }
+        catch (IOException exception)
+        {
+            return false;
+        }
+        finally
+        {
+            closeChannel();
+            buffer = null;
+        } // end of finally
+        return true;
+    } // end of method save(ArrayList<Video> video, ...)
+
+    /**
+     * Loads the videos saved in a snapshot file.
+     *
+     * @param fileName the name of the snapshot file.
+     * @return the videos, in the order they were saved, made
+     * for the schema of the snapshot, or null if the file isn't
+     * a whole snapshot or could not be read.
+     */
+    public ArrayList<Video> load(String fileName)
+    {
+        try
+        {
+            openForReading(fileName);
+            schema = readHeader();
+            if (schema == null)
+            {
+                return null;
+            } // end of if (schema == null)
+            categories = schema.getCategoryCount();
+
+            need(4);
+            int videoCount = window.getInt();
+            if (videoCount < 0)
+            {
+                return null;
+            } // end of if (videoCount < 0)
+
+            ArrayList<Video> video = new ArrayList<Video>();
+            for (int videoIndex = 0; videoIndex < videoCount; videoIndex++)
+            {
+                video.add(readVideo());
+            } // end of for (int videoIndex = 0; ...)
+
+            need(4);
+            if (window.getInt() != END_MAGIC)
+            {
+                return null;
+            } // end of if (window.getInt() != END_MAGIC)
+            return video;
+        }
+        catch (IOException exception)
+        {
+            return null;
+        }
+        catch (BufferUnderflowException exception)
+        {
+            return null;
+        }
+        finally
+        {
+            closeChannel();
+            window = null;
+        } // end of finally
+    } // end of method load(String fileName)
+
+    /**
+     * Returns the schema of the videos last saved or loaded.
+     *
+     * @return the schema, or null if no snapshot was
+     * saved or loaded.
+     */
+    public RatingSchema getSchema()
+    {
+        return schema;
+    } // end of method getSchema()
+
+    /* private implementation */
+    /**
+     * Opens a snapshot file to be read from its start.
+     *
+     * @param fileName the name of the snapshot file.
+     * @throws IOException if the file could not be opened.
+     */
+    private void openForReading(String fileName) throws IOException
+    {
+        channel = FileChannel.open(Paths.get(fileName),
+        StandardOpenOption.READ);
+        fileSize = channel.size();
+        window = null;
+        windowStart = 0;
+    } // end of method openForReading(String fileName)
+
+    /**
+     * Reads the magic number, the version and the schema
+     * at the start of the snapshot.
+     *
+     * @return the schema, or null if the file isn't a snapshot
+     * of this version, or its schema makes no sense.
+     * @throws IOException if the file could not be read.
+     */
+    private RatingSchema readHeader() throws IOException
+    {
+        need(12);
+        if (window.getInt() != MAGIC)
+        {
+            return null;
+        } // end of if (window.getInt() != MAGIC)
+        if (window.getInt() != VERSION)
+        {
+            return null;
+        } // end of if (window.getInt() != VERSION)
+        int schemaLength = window.getInt();
+        checkLength(schemaLength);
+        need(schemaLength);
+        byte[] schemaText = new byte[schemaLength];
+        window.get(schemaText);
+        return RatingSchema.fromText(new String(schemaText,
+        StandardCharsets.UTF_8));
+    } // end of method readHeader()
+
+    /**
+     * Writes the record of one video.
+     *
+     * @param video the video to write.
+     * @throws IOException if the file could not be written.
+     */
+    private void writeVideo(Video video) throws IOException
+    {
+        byte[] name = video.getVideoCreator().getBytes(StandardCharsets.UTF_8);
+        RatingView view = video.getRatingView();
+        int flags = 0;
+        if (video.keepsRawRatings())
+        {
+            flags = flags | FLAG_RAW_RATINGS;
+            if (!view.fitsInBytes())
+            {
+                flags = flags | FLAG_INT_RATINGS;
+            } // end of if (!view.fitsInBytes())
+        } // end of if (video.keepsRawRatings())
+
+        makeRoom(4);
+        buffer.putInt(name.length);
+        writeBytes(name);
+
+        int[] sum = video.getSumScores();
+        makeRoom(1 + 4 + categories * 4 + 4);
+        buffer.put((byte) flags);
+        buffer.putInt(video.getRatingCount());
+        for (int category = 0; category < categories; category++)
+        {
+            buffer.putInt(sum[category]);
+        } // end of for (int category = 0; category < categories; category++)
+        buffer.putInt(video.getTotalOverallScore());
+
+        RatingHistogram histogram = video.getHistogram();
+        int[] cell = new int[histogram.getCellCount()];
+        histogram.copyCells(cell, 0);
+        makeRoom(cell.length * 4);
+        for (int cellIndex = 0; cellIndex < cell.length; cellIndex++)
+        {
+            buffer.putInt(cell[cellIndex]);
+        } // end of for (int cellIndex = 0; cellIndex < cell.length; ...)
+
+        long[] state = new long[video.getSpread().getStateSize()];
+        video.getSpread().copyState(state, 0);
+        makeRoom(state.length * 8);
+        for (int stateIndex = 0; stateIndex < state.length; stateIndex++)
+        {
+            buffer.putLong(state[stateIndex]);
+        } // end of for (int stateIndex = 0; ...)
+
+        for (int category = 0; category < histogram.getCategoryCount();
+        category++)
+        {
+            int[] outlier = histogram.copyOutliers(category);
+            makeRoom(4);
+            buffer.putInt(outlier.length / 2);
+            for (int outlierIndex = 0; outlierIndex < outlier.length;
+            outlierIndex++)
+            {
+                makeRoom(4);
+                buffer.putInt(outlier[outlierIndex]);
+            } // end of for (int outlierIndex = 0; ...)
+        } // end of for (int category = 0; ...)
+
+        if ((flags & FLAG_RAW_RATINGS) == 0)
+        {
+            return;
+        } // end of if ((flags & FLAG_RAW_RATINGS) == 0)
+
+        // Write the raw ratings packed the way the video packs them.
+        int numberOfRatings = view.getRatingCount();
+        makeRoom(4);
+        buffer.putInt(numberOfRatings);
+        int scoreSize = 1;
+        if ((flags & FLAG_INT_RATINGS) != 0)
+        {
+            scoreSize = 4;
+        } // end of if ((flags & FLAG_INT_RATINGS) != 0)
+        for (int ratingIndex = 0; ratingIndex < numberOfRatings; ratingIndex++)
+        {
+            makeRoom(categories * scoreSize);
+            for (int category = 0; category < categories; category++)
+            {
+                int score = view.getScore(ratingIndex, category);
+                if (scoreSize == 1)
+                {
+                    buffer.put((byte) score);
+                }
+                else
+                {
+                    buffer.putInt(score);
+                } // end of if (scoreSize == 1)
+            } // end of for (int category = 0; ...)
+        } // end of for (int ratingIndex = 0; ...)
+    } // end of method writeVideo(Video video)
+
+    /**
+     * Reads the record of one video.
+     *
+     * @return the video.
+     * @throws IOException if the file could not be read.
+     */
+    private Video readVideo() throws IOException
+    {
+        need(4);
+        int nameLength = window.getInt();
+        checkLength(nameLength);
+        need(nameLength);
+        byte[] name = new byte[nameLength];
+        window.get(name);
+        String videoCreator = new String(name, StandardCharsets.UTF_8);
+
+        need(1 + 4 + categories * 4 + 4);
+        int flags = window.get();
+        int numberOfRatings = window.getInt();
+        int[] sum = new int[categories];
+        for (int category = 0; category < categories; category++)
+        {
+            sum[category] = window.getInt();
+        } // end of for (int category = 0; category < categories; category++)
+        int overallScore = window.getInt();
+
+        boolean keepsRawRatings = (flags & FLAG_RAW_RATINGS) != 0;
+        Video video = new Video(videoCreator, keepsRawRatings, schema);
+        RatingHistogram histogram = video.getHistogram();
+        int[] cell = new int[histogram.getCellCount()];
+        need(cell.length * 4);
+        for (int cellIndex = 0; cellIndex < cell.length; cellIndex++)
+        {
+            cell[cellIndex] = window.getInt();
+        } // end of for (int cellIndex = 0; cellIndex < cell.length; ...)
+        histogram.restoreCells(cell, 0);
+
+        long[] state = new long[video.getSpread().getStateSize()];
+        need(state.length * 8);
+        for (int stateIndex = 0; stateIndex < state.length; stateIndex++)
+        {
+            state[stateIndex] = window.getLong();
+        } // end of for (int stateIndex = 0; ...)
+        video.getSpread().restoreState(state, 0);
+
+        for (int category = 0; category < histogram.getCategoryCount();
+        category++)
+        {
+            need(4);
+            int distinctOutliers = window.getInt();
+            checkLength((long) distinctOutliers * 8);
+            int[] outlier = new int[distinctOutliers * 2];
+            need(outlier.length * 4);
+            for (int outlierIndex = 0; outlierIndex < outlier.length;
+            outlierIndex++)
+            {
+                outlier[outlierIndex] = window.getInt();
+            } // end of for (int outlierIndex = 0; ...)
+            histogram.restoreOutliers(category, outlier);
+        } // end of for (int category = 0; ...)
+
+        if (!keepsRawRatings)
+        {
+            video.restoreRatings(sum, overallScore, numberOfRatings,
+            null, null, 0);
+            return video;
+        } // end of if (!keepsRawRatings)
+
+        // Read the raw ratings straight into the packed array.
+        need(4);
+        int numberOfStoredRatings = window.getInt();
+        byte[] byteRating = null;
+        int[] intRating = null;
+        if ((flags & FLAG_INT_RATINGS) == 0)
+        {
+            checkLength((long) numberOfStoredRatings * categories);
+            byteRating = new byte[numberOfStoredRatings * categories];
+            need(byteRating.length);
+            window.get(byteRating);
+        }
+        else
+        {
+            checkLength((long) numberOfStoredRatings * categories * 4);
+            intRating = new int[numberOfStoredRatings * categories];
+            need((long) intRating.length * 4);
+            window.asIntBuffer().get(intRating);
+            window.position(window.position() + intRating.length * 4);
+        } // end of if ((flags & FLAG_INT_RATINGS) == 0)
+        video.restoreRatings(sum, overallScore, numberOfRatings,
+        byteRating, intRating, numberOfStoredRatings);
+        return video;
+    } // end of method readVideo()
+
+    /**
+     * Checks that a length read from the file could be real,
+     * before an array of that length is made.
+     *
+     * @param length the length, in bytes.
+     * @throws IOException if the length is too big for the file.
+     */
+    private void checkLength(long length) throws IOException
+    {
+        long bytesLeft = fileSize - windowStart - window.position();
+        if (length < 0 || length > bytesLeft || length > Integer.MAX_VALUE)
+        {
+            throw new IOException("Length " + length + " is past the end.");
+        } // end of if (length < 0 || length > bytesLeft || ...)
+    } // end of method checkLength(long length)
+
+    /**
+     * Makes sure the given number of bytes, starting at the current
+     * position, can be read from the mapped window, moving the
+     * window if they can't.
+     *
+     * @param bytesNeeded how many bytes must be readable.
+     * @throws IOException if the file is too short or can't be mapped.
+     */
+    private void need(long bytesNeeded) throws IOException
+    {
+        if (window != null && window.remaining() >= bytesNeeded)
+        {
+            return;
+        } // end of if (window != null && ...)
+
+        long position = windowStart;
+        if (window != null)
+        {
+            position = windowStart + window.position();
+        } // end of if (window != null)
+        if (position + bytesNeeded > fileSize
+            || bytesNeeded > Integer.MAX_VALUE)
+        {
+            throw new IOException("The snapshot ended early.");
+        } // end of if (position + bytesNeeded > fileSize || ...)
+
+        long windowSize = Math.min(fileSize - position,
+        Math.max(bytesNeeded, WINDOW_SIZE));
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+        windowSize);
+        windowStart = position;
+    } // end of method need(long bytesNeeded)
+
+    /**
+     * Makes sure the buffer has room for the given number of bytes,
+     * writing it out to the file if it doesn't.
+     *
+     * @param bytesNeeded how many bytes must fit; at most
+     * the size of the buffer.
+     * @throws IOException if the file could not be written.
+     */
+    private void makeRoom(int bytesNeeded) throws IOException
+    {
+        if (buffer.remaining() < bytesNeeded)
+        {
+            flushBuffer();
+        } // end of if (buffer.remaining() < bytesNeeded)
+    } // end of method makeRoom(int bytesNeeded)
+
+    /**
+     * Writes bytes through the buffer, however many there are.
+     *
+     * @param data the bytes to write.
+     * @throws IOException if the file could not be written.
+     */
+    private void writeBytes(byte[] data) throws IOException
+    {
+        int offset = 0;
+        while (offset < data.length)
+        {
+            makeRoom(1);
+            int length = Math.min(buffer.remaining(), data.length - offset);
+            buffer.put(data, offset, length);
+            offset = offset + length;
+        } // end of while (offset < data.length)
+    } // end of method writeBytes(byte[] data)
+
+    /**
+     * Writes everything in the buffer out to the file.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    private void flushBuffer() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        } // end of while (buffer.hasRemaining())
+        buffer.clear();
+    } // end of method flushBuffer()
+
+    /**
+     * Closes the snapshot file, if it is open.
+     */
+    private void closeChannel()
+    {
+        if (channel == null)
+        {
+            return;
+        } // end of if (channel == null)
+        try
+        {
+            channel.close();
+        }
+        catch (IOException exception)
+        {
+            // Nothing more to do with it.
+        } // end of catch (IOException exception)
+        channel = null;
+    } // end of method closeChannel()
+
+} // end of class VideoSnapshot
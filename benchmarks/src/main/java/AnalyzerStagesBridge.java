@@ -0,0 +1,175 @@
+import benchmarks.AnalyzerStages;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+/**
+ * Lets the benchmarks, which must be in a named package,
+ * reach the analyzer's classes in the default package.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-16
+ */
+public class AnalyzerStagesBridge implements AnalyzerStages
+{
+    /* non-instance fields: constants */
+    private static final int HIGHEST_RATING = 5;
+
+    /* instance fields */
+    private StatisticExtractor extractor;
+
+    /* constructors */
+    /**
+     * Initializes a new bridge.
+     */
+    public AnalyzerStagesBridge()
+    {
+        extractor = new StatisticExtractor();
+    } // end of constructor AnalyzerStagesBridge()
+
+    /* public interface */
+    @Override
+    public int statusOfLine(String fileString)
+    {
+        return LineChecker.statusOfLine(fileString);
+    } // end of method statusOfLine(String fileString)
+
+    @Override
+    public Object interpretFile(String fileName, String ingestMode)
+    {
+        // Invalid lines go to a temporary file, not to the
+        // working folder, and the file is deleted afterwards.
+        Path errorFile;
+        try
+        {
+            errorFile = Files.createTempFile("invalidLines", ".text");
+        }
+        catch (IOException exception)
+        {
+            return null;
+        } // end of catch (IOException exception)
+
+        try
+        {
+            return interpretFile(fileName, ingestMode, errorFile);
+        }
+        finally
+        {
+            try
+            {
+                Files.deleteIfExists(errorFile);
+            }
+            catch (IOException exception)
+            {
+                // Nothing more can be done; the file is temporary.
+            } // end of catch (IOException exception)
+        } // end of try
+    } // end of method interpretFile(String fileName, String ingestMode)
+
+    @Override
+    public Object buildVideos(int creators, int ratingsPerCreator,
+    boolean keepRawRatings)
+    {
+        ArrayList<Video> video = new ArrayList<Video>();
+        int categories = RatingSchema.DEFAULT.getCategoryCount();
+        int[] ratingDatum = new int[categories];
+        for (int creator = 0; creator < creators; creator++)
+        {
+            Video newVideo = new Video("Creator" + creator, keepRawRatings);
+            for (int rating = 0; rating < ratingsPerCreator; rating++)
+            {
+                // Spread the scores out, but keep them repeatable.
+                for (int category = 0; category < categories; category++)
+                {
+                    ratingDatum[category]
+                    = (creator + rating + category) % (HIGHEST_RATING + 1);
+                } // end of for (int category = 0; ...)
+                newVideo.addVideoRating(ratingDatum);
+            } // end of for (int rating = 0; ...)
+            video.add(newVideo);
+        } // end of for (int creator = 0; creator < creators; creator++)
+        return video;
+    } // end of method buildVideos(int creators, ...)
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void extractStatistics(Object videos)
+    {
+        extractor.extractStatistics((ArrayList<Video>) videos);
+    } // end of method extractStatistics(Object videos)
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public long renderDetails(Object videos)
+    {
+        long totalLength = 0;
+        for (Video currentVideo : (ArrayList<Video>) videos)
+        {
+            totalLength = totalLength + currentVideo.returnDetails().length();
+        } // end of for (Video currentVideo : ...)
+        return totalLength;
+    } // end of method renderDetails(Object videos)
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean writeReport(Object videos, String format, String fileName)
+    {
+        ReportWriter writer = new ReportWriter();
+        writer.setFormat(format);
+        return writer.writeReport((ArrayList<Video>) videos, fileName);
+    } // end of method writeReport(Object videos, ...)
+
+    @Override
+    public Object createIngestor()
+    {
+        return new ConcurrentIngestor();
+    } // end of method createIngestor()
+
+    @Override
+    public int submitLine(Object ingestor, String fileString)
+    {
+        return ((ConcurrentIngestor) ingestor).submitLine(fileString);
+    } // end of method submitLine(Object ingestor, String fileString)
+
+    /* private implementation */
+    /**
+     * Interprets a file, printing its invalid lines to an error file.
+     *
+     * @param fileName the name of the ratings file.
+     * @param ingestMode "stream", "mapped" or "parallel".
+     * @param errorFile the file to print invalid lines to.
+     * @return the videos, or null if the file could not be read.
+     */
+    private Object interpretFile(String fileName, String ingestMode,
+    Path errorFile)
+    {
+        FileInterpreter interpreter = new FileInterpreter();
+        if (!interpreter.setErrorFile(errorFile.toString()))
+        {
+            return null;
+        } // end of if (!interpreter.setErrorFile(...))
+
+        boolean couldAccessFile;
+        if (ingestMode.equals("mapped"))
+        {
+            couldAccessFile
+            = interpreter.accessAndInterpretMappedFile(fileName);
+        }
+        else if (ingestMode.equals("parallel"))
+        {
+            couldAccessFile
+            = interpreter.accessAndInterpretFileInParallel(fileName);
+        }
+        else
+        {
+            couldAccessFile = interpreter.accessAndInterpretFile(fileName);
+        } // end of if (ingestMode.equals("mapped"))
+
+        if (!couldAccessFile)
+        {
+            return null;
+        } // end of if (!couldAccessFile)
+        return interpreter.getVideoSet();
+    } // end of method interpretFile(String fileName, ...)
+
+} // end of class AnalyzerStagesBridge
@@ -0,0 +1,92 @@
+package benchmarks;
+
+/**
+ * The stages of the analyzer that the benchmarks measure.
+ *
+ * The analyzer's classes are in the default package, which
+ * classes in a named package (as JMH requires) cannot name.
+ * AnalyzerStagesBridge, in the default package, implements this
+ * interface, and benchmarks reach the analyzer through it.
+ * Videos are passed around as plain objects for the same reason.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-26
+ */
+public interface AnalyzerStages
+{
+    /**
+     * Returns the status of the given string,
+     * as LineChecker.statusOfLine(String) does.
+     *
+     * @param fileString a string from the file.
+     * @return the status, in the form of an integer.
+     */
+    int statusOfLine(String fileString);
+
+    /**
+     * Accesses and interprets a whole file into videos.
+     *
+     * @param fileName the name of the text file.
+     * @param ingestMode "stream", "mapped" or "parallel".
+     * @return the videos, or null if the file could not be accessed.
+     */
+    Object interpretFile(String fileName, String ingestMode);
+
+    /**
+     * Builds a set of videos with made-up ratings.
+     *
+     * @param creators how many videos to build.
+     * @param ratingsPerCreator how many ratings each video gets.
+     * @param keepRawRatings true if videos keep every rating.
+     * @return the videos.
+     */
+    Object buildVideos(int creators, int ratingsPerCreator,
+        boolean keepRawRatings);
+
+    /**
+     * Extracts the statistics of the given videos,
+     * as StatisticExtractor.extractStatistics does.
+     *
+     * @param videos videos from buildVideos or interpretFile.
+     */
+    void extractStatistics(Object videos);
+
+    /**
+     * Renders the details of every given video,
+     * as Video.returnDetails() does.
+     *
+     * @param videos videos from buildVideos or interpretFile.
+     * @return the total length of the details rendered.
+     */
+    long renderDetails(Object videos);
+
+    /**
+     * Writes the details of every given video to a file,
+     * as ReportWriter.writeReport does.
+     *
+     * @param videos videos from buildVideos or interpretFile.
+     * @param format "text", "csv" or "jsonl".
+     * @param fileName the name of the file to write.
+     * @return true if the file was written, false otherwise.
+     */
+    boolean writeReport(Object videos, String format, String fileName);
+
+    /**
+     * Creates an ingestor that many threads can give lines to
+     * at the same time, as ConcurrentIngestor does.
+     *
+     * @return the ingestor.
+     */
+    Object createIngestor();
+
+    /**
+     * Gives a line to an ingestor, as
+     * ConcurrentIngestor.submitLine(String) does.
+     *
+     * @param ingestor an ingestor from createIngestor.
+     * @param fileString a line from a file.
+     * @return the status of the line.
+     */
+    int submitLine(Object ingestor, String fileString);
+
+} // end of interface AnalyzerStages
@@ -0,0 +1,48 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.Runner;
+
+/**
+ * Runs the benchmarks, always with the GC profiler, so every
+ * result reports its allocation rate next to its throughput.
+ * Takes the same command line arguments as the usual JMH runner,
+ * for example a regular expression picking which benchmarks to run.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-16
+ */
+public final class BenchmarkRunner
+{
+    /* constructors */
+    /**
+     * Nothing to construct; this class only has main.
+     */
+    private BenchmarkRunner()
+    {
+    } // end of constructor BenchmarkRunner()
+
+    /**
+     * Runs the benchmarks picked by the given arguments.
+     *
+     * @param argument JMH command line arguments.
+     * @throws CommandLineOptionException if an argument is not valid.
+     * @throws RunnerException if the benchmarks could not run.
+     */
+    public static void main(String[] argument)
+        throws CommandLineOptionException, RunnerException
+    {
+        CommandLineOptions commandLine = new CommandLineOptions(argument);
+        Options options = new OptionsBuilder()
+            .parent(commandLine)
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    } // end of method main(String[] argument)
+
+} // end of class BenchmarkRunner
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures ConcurrentIngestor taking the lines of the sample
+ * file from several threads at once, all into the same videos.
+ * Run with "-t" to try other numbers of threads.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-31
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class ConcurrentIngestBenchmark
+{
+    /* instance fields */
+    private Object ingestor;
+    private String[] sampleLine;
+    private AnalyzerStages stages;
+
+    /* setup */
+    /**
+     * Loads the analyzer, the lines to give, and a new ingestor.
+     *
+     * @throws IOException if the sample file could not be read.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        stages = Fixtures.stages();
+        sampleLine = Fixtures.sampleLines();
+        ingestor = stages.createIngestor();
+    } // end of method setUp()
+
+    /* benchmarks */
+    /**
+     * Gives every line of the sample file to the shared ingestor.
+     *
+     * @return the sum of the lines' statuses.
+     */
+    @Benchmark
+    public int submitSampleLines()
+    {
+        int statusSum = 0;
+        for (String currentLine : sampleLine)
+        {
+            statusSum = statusSum + stages.submitLine(ingestor, currentLine);
+        } // end of for (String currentLine : sampleLine)
+        return statusSum;
+    } // end of method submitSampleLines()
+
+} // end of class ConcurrentIngestBenchmark
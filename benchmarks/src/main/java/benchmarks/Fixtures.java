@@ -0,0 +1,139 @@
+package benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Builds benchmark input from the sample input file,
+ * and gives benchmarks their way into the analyzer.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-16
+ */
+public final class Fixtures
+{
+    /* non-instance fields: constants */
+    private static final String BRIDGE_CLASS_NAME = "AnalyzerStagesBridge";
+    private static final String SAMPLE_FILE_NAME
+        = "2016-12-21_Welcome_to_Macintosh_combined_with_invalid_lines.text";
+
+    /* constructors */
+    /**
+     * Nothing to construct; every method is static.
+     */
+    private Fixtures()
+    {
+    } // end of constructor Fixtures()
+
+    /* public interface */
+    /**
+     * Returns a new set of the analyzer's stages.
+     *
+     * @return the stages, backed by the analyzer's classes.
+     */
+    public static AnalyzerStages stages()
+    {
+        try
+        {
+            Class<?> bridge = Class.forName(BRIDGE_CLASS_NAME);
+            return (AnalyzerStages) bridge.getConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException exception)
+        {
+            throw new IllegalStateException("Could not load "
+                + BRIDGE_CLASS_NAME, exception);
+        } // end of catch (ReflectiveOperationException exception)
+    } // end of method stages()
+
+    /**
+     * Returns every line of the sample input file,
+     * invalid lines and "Block" lines included.
+     *
+     * @return the lines of the sample file.
+     * @throws IOException if the sample could not be read.
+     */
+    public static String[] sampleLines() throws IOException
+    {
+        String sample = new String(sampleBytes(), StandardCharsets.UTF_8);
+        return sample.split("\r\n|\r|\n");
+    } // end of method sampleLines()
+
+    /**
+     * Writes the sample input file the given
+     * number of times over into a temporary file.
+     *
+     * @param copies how many times to repeat the sample.
+     * @return the temporary file, deleted when the JVM exits.
+     * @throws IOException if the file could not be written.
+     */
+    public static File scaledSample(int copies) throws IOException
+    {
+        byte[] sample = sampleBytes();
+        File scaledFile = File.createTempFile("scaledSample", ".text");
+        scaledFile.deleteOnExit();
+        OutputStream output = new FileOutputStream(scaledFile);
+        try
+        {
+            for (int copy = 0; copy < copies; copy++)
+            {
+                output.write(sample);
+            } // end of for (int copy = 0; copy < copies; copy++)
+        }
+        finally
+        {
+            output.close();
+        } // end of finally
+        return scaledFile;
+    } // end of method scaledSample(int copies)
+
+    /* private implementation */
+    /**
+     * Reads the sample input file from the class path,
+     * making sure it ends with a line terminator so
+     * that copies of it do not run together.
+     *
+     * @return the bytes of the sample file.
+     * @throws IOException if the sample could not be read.
+     */
+    private static byte[] sampleBytes() throws IOException
+    {
+        InputStream input = Fixtures.class.getClassLoader()
+            .getResourceAsStream(SAMPLE_FILE_NAME);
+        if (input == null)
+        {
+            throw new IOException("Missing resource " + SAMPLE_FILE_NAME);
+        } // end of if (input == null)
+
+        ByteArrayOutputStream sample = new ByteArrayOutputStream();
+        try
+        {
+            byte[] buffer = new byte[8192];
+            int bytesRead = input.read(buffer);
+            while (bytesRead != -1)
+            {
+                sample.write(buffer, 0, bytesRead);
+                bytesRead = input.read(buffer);
+            } // end of while (bytesRead != -1)
+        }
+        finally
+        {
+            input.close();
+        } // end of finally
+
+        byte[] sampleBytes = sample.toByteArray();
+        int length = sampleBytes.length;
+        if (length > 0 && sampleBytes[length - 1] != '\n'
+            && sampleBytes[length - 1] != '\r')
+        {
+            sample.write('\n');
+            sampleBytes = sample.toByteArray();
+        } // end of if (length > 0 && ...)
+        return sampleBytes;
+    } // end of method sampleBytes()
+
+} // end of class Fixtures
@@ -0,0 +1,76 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures FileInterpreter reading a whole file into videos,
+ * end to end, for each way it can read a file. The input is
+ * the sample file repeated over and over.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestBenchmark
+{
+    /* parameters */
+    @Param({"10", "1000"})
+    public int sampleCopies;
+
+    @Param({"stream", "mapped", "parallel"})
+    public String ingestMode;
+
+    /* instance fields */
+    private File inputFile;
+    private AnalyzerStages stages;
+
+    /* setup */
+    /**
+     * Loads the analyzer and writes the scaled-up input file.
+     *
+     * @throws IOException if the input file could not be written.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        stages = Fixtures.stages();
+        inputFile = Fixtures.scaledSample(sampleCopies);
+    } // end of method setUp()
+
+    /* benchmarks */
+    /**
+     * Reads and interprets the whole input file.
+     *
+     * @return the videos built from the file.
+     */
+    @Benchmark
+    public Object accessAndInterpretFile()
+    {
+        Object videos = stages.interpretFile(inputFile.getPath(), ingestMode);
+        if (videos == null)
+        {
+            throw new IllegalStateException("Could not read " + inputFile);
+        } // end of if (videos == null)
+        return videos;
+    } // end of method accessAndInterpretFile()
+
+} // end of class IngestBenchmark
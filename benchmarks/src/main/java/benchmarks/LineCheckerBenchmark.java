@@ -0,0 +1,117 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures LineChecker.statusOfLine(String), the per-line
+ * check, on each kind of line found in an input file.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-16
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineCheckerBenchmark
+{
+    /* instance fields */
+    private String blockLine;
+    private String[] sampleLine;
+    private AnalyzerStages stages;
+    private String validLine;
+    private String wrongRatingTypeLine;
+    private String wrongTokenCountLine;
+
+    /* setup */
+    /**
+     * Loads the analyzer and the lines to check.
+     *
+     * @throws IOException if the sample file could not be read.
+     */
+    @Setup
+    public void setUp() throws IOException
+    {
+        stages = Fixtures.stages();
+        sampleLine = Fixtures.sampleLines();
+        validLine = "ICS3U7-01A Pod 1\t3\t4\t4\t4";
+        wrongTokenCountLine = "ICS3U7 01A Pod 3\t3\t3\t4\t4";
+        wrongRatingTypeLine = "ICS3U7-01A Pod 1\t3\tfour\t4\t4";
+        blockLine = "Block A";
+    } // end of method setUp()
+
+    /* benchmarks */
+    /**
+     * Checks a valid line.
+     *
+     * @return the status of the line.
+     */
+    @Benchmark
+    public int validLine()
+    {
+        return stages.statusOfLine(validLine);
+    } // end of method validLine()
+
+    /**
+     * Checks a line with the wrong number of tokens.
+     *
+     * @return the status of the line.
+     */
+    @Benchmark
+    public int wrongTokenCountLine()
+    {
+        return stages.statusOfLine(wrongTokenCountLine);
+    } // end of method wrongTokenCountLine()
+
+    /**
+     * Checks a line whose ratings are not all integers.
+     *
+     * @return the status of the line.
+     */
+    @Benchmark
+    public int wrongRatingTypeLine()
+    {
+        return stages.statusOfLine(wrongRatingTypeLine);
+    } // end of method wrongRatingTypeLine()
+
+    /**
+     * Checks a "Block" line, which is ignored.
+     *
+     * @return the status of the line.
+     */
+    @Benchmark
+    public int blockLine()
+    {
+        return stages.statusOfLine(blockLine);
+    } // end of method blockLine()
+
+    /**
+     * Checks every line of the sample file, in order.
+     *
+     * @return the sum of the statuses, so no check is skipped.
+     */
+    @Benchmark
+    public int sampleFileLines()
+    {
+        int statusSum = 0;
+        for (String currentLine : sampleLine)
+        {
+            statusSum = statusSum + stages.statusOfLine(currentLine);
+        } // end of for (String currentLine : sampleLine)
+        return statusSum;
+    } // end of method sampleFileLines()
+
+} // end of class LineCheckerBenchmark
@@ -0,0 +1,105 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rendering the report text of every
+ * video with Video.returnDetails(), and writing the
+ * report to a file in each of ReportWriter's formats.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportBenchmark
+{
+    /* parameters */
+    @Param({"100", "10000", "1000000"})
+    public int creators;
+
+    /* instance fields */
+    private File reportFile;
+    private AnalyzerStages stages;
+    private Object videos;
+
+    /* setup */
+    /**
+     * Loads the analyzer and builds videos with their statistics.
+     *
+     * @throws IOException if the report file could not be made.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        reportFile = File.createTempFile("report", ".text");
+        reportFile.deleteOnExit();
+        stages = Fixtures.stages();
+        videos = stages.buildVideos(creators, 10, false);
+        stages.extractStatistics(videos);
+    } // end of method setUp()
+
+    /* benchmarks */
+    /**
+     * Renders the details of every video.
+     *
+     * @return the total length of the details.
+     */
+    @Benchmark
+    public long returnDetails()
+    {
+        return stages.renderDetails(videos);
+    } // end of method returnDetails()
+
+    /**
+     * Writes the report of every video in the text format.
+     *
+     * @return true if the report was written.
+     */
+    @Benchmark
+    public boolean writeTextReport()
+    {
+        return stages.writeReport(videos, "text", reportFile.getPath());
+    } // end of method writeTextReport()
+
+    /**
+     * Writes the report of every video as comma-separated values.
+     *
+     * @return true if the report was written.
+     */
+    @Benchmark
+    public boolean writeCsvReport()
+    {
+        return stages.writeReport(videos, "csv", reportFile.getPath());
+    } // end of method writeCsvReport()
+
+    /**
+     * Writes the report of every video as JSON Lines.
+     *
+     * @return true if the report was written.
+     */
+    @Benchmark
+    public boolean writeJsonReport()
+    {
+        return stages.writeReport(videos, "jsonl", reportFile.getPath());
+    } // end of method writeJsonReport()
+
+} // end of class ReportBenchmark
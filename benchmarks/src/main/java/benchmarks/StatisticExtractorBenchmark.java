@@ -0,0 +1,71 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures StatisticExtractor.extractStatistics across
+ * different numbers of creators and ratings per creator.
+ *
+ * @author Preenon Chisty
+ * @version 2017-01-16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatisticExtractorBenchmark
+{
+    /* parameters */
+    @Param({"100", "10000", "1000000"})
+    public int creators;
+
+    @Param({"1", "100"})
+    public int ratingsPerCreator;
+
+    @Param({"true", "false"})
+    public boolean keepRawRatings;
+
+    /* instance fields */
+    private AnalyzerStages stages;
+    private Object videos;
+
+    /* setup */
+    /**
+     * Loads the analyzer and builds the videos to extract from.
+     */
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        stages = Fixtures.stages();
+        videos = stages.buildVideos(creators, ratingsPerCreator,
+            keepRawRatings);
+    } // end of method setUp()
+
+    /* benchmarks */
+    /**
+     * Extracts the statistics of every video.
+     *
+     * @return the videos, holding their statistics.
+     */
+    @Benchmark
+    public Object extractStatistics()
+    {
+        stages.extractStatistics(videos);
+        return videos;
+    } // end of method extractStatistics()
+
+} // end of class StatisticExtractorBenchmark